@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.PointValues.IntersectVisitor;
+import org.apache.lucene.index.PointValues.Relation;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.bkd.BKDReader;
+import org.apache.lucene.util.bkd.BKDWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BKDReader#intersect} with range queries of various selectivities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BKDReaderBenchmark {
+
+  /** Number of distinct ranges that are cycled through. */
+  static final int NUM_RANGES = 64;
+
+  @Param({"1000000"})
+  public int numPoints;
+
+  @Param({"1", "2"})
+  public int numDims;
+
+  /** Fraction of the space matched by each dimension of the ranges. */
+  @Param({"0.001", "0.1", "0.5"})
+  public double selectivity;
+
+  private Directory dir;
+  private IndexInput in;
+  private BKDReader reader;
+  private int[][] mins;
+  private int[][] maxs;
+  private int range;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = new RAMDirectory();
+    final Random random = new Random(0);
+    final byte[] packedValue = new byte[numDims * Integer.BYTES];
+    final BKDWriter writer = new BKDWriter(numPoints, dir, "tmp", numDims, Integer.BYTES,
+        BKDWriter.DEFAULT_MAX_POINTS_IN_LEAF_NODE, BKDWriter.DEFAULT_MAX_MB_SORT_IN_HEAP, numPoints, true);
+    for (int doc = 0; doc < numPoints; ++doc) {
+      for (int dim = 0; dim < numDims; ++dim) {
+        NumericUtils.intToSortableBytes(random.nextInt(), packedValue, dim * Integer.BYTES);
+      }
+      writer.add(packedValue, doc);
+    }
+    final long indexFP;
+    try (IndexOutput out = dir.createOutput("bkd", IOContext.DEFAULT)) {
+      indexFP = writer.finish(out);
+    }
+    writer.close();
+    in = dir.openInput("bkd", IOContext.DEFAULT);
+    in.seek(indexFP);
+    reader = new BKDReader(in);
+
+    mins = new int[NUM_RANGES][numDims];
+    maxs = new int[NUM_RANGES][numDims];
+    final long width = (long) (selectivity * (1L << 32));
+    for (int i = 0; i < NUM_RANGES; ++i) {
+      for (int dim = 0; dim < numDims; ++dim) {
+        final long min = Integer.MIN_VALUE + (long) (random.nextDouble() * ((1L << 32) - width));
+        mins[i][dim] = (int) min;
+        maxs[i][dim] = (int) (min + width - 1);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    in.close();
+    dir.close();
+  }
+
+  @Benchmark
+  public int intersect() throws IOException {
+    final int[] min = mins[range];
+    final int[] max = maxs[range];
+    range = (range + 1) % NUM_RANGES;
+    final int[] count = new int[1];
+    reader.intersect(new IntersectVisitor() {
+      @Override
+      public void visit(int docID) {
+        count[0]++;
+      }
+
+      @Override
+      public void visit(int docID, byte[] packedValue) {
+        for (int dim = 0; dim < numDims; ++dim) {
+          final int value = NumericUtils.sortableBytesToInt(packedValue, dim * Integer.BYTES);
+          if (value < min[dim] || value > max[dim]) {
+            return;
+          }
+        }
+        count[0]++;
+      }
+
+      @Override
+      public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+        boolean inside = true;
+        for (int dim = 0; dim < numDims; ++dim) {
+          final int cellMin = NumericUtils.sortableBytesToInt(minPackedValue, dim * Integer.BYTES);
+          final int cellMax = NumericUtils.sortableBytesToInt(maxPackedValue, dim * Integer.BYTES);
+          if (cellMax < min[dim] || cellMin > max[dim]) {
+            return Relation.CELL_OUTSIDE_QUERY;
+          }
+          inside &= cellMin >= min[dim] && cellMax <= max[dim];
+        }
+        return inside ? Relation.CELL_INSIDE_QUERY : Relation.CELL_CROSSES_QUERY;
+      }
+    });
+    return count[0];
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BytesRefHash}, which dedups terms while indexing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BytesRefHashBenchmark {
+
+  /** Number of terms added or looked up per invocation. */
+  static final int NUM_TERMS = 1 << 16;
+
+  /** Number of unique terms, the hash is only ever filled with those. */
+  @Param({"1024", "65536"})
+  public int numUniqueTerms;
+
+  private BytesRef[] terms;
+  private BytesRefHash hash;
+  private BytesRefHash filledHash;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    final BytesRef[] uniqueTerms = new BytesRef[numUniqueTerms];
+    for (int i = 0; i < numUniqueTerms; ++i) {
+      final byte[] bytes = new byte[4 + random.nextInt(12)];
+      random.nextBytes(bytes);
+      uniqueTerms[i] = new BytesRef(bytes);
+    }
+    terms = new BytesRef[NUM_TERMS];
+    for (int i = 0; i < NUM_TERMS; ++i) {
+      // skew the distribution towards the first terms, like in natural language
+      final int index = (int) (numUniqueTerms * Math.pow(random.nextDouble(), 3));
+      terms[i] = uniqueTerms[index];
+    }
+    hash = new BytesRefHash();
+    filledHash = new BytesRefHash();
+    for (BytesRef term : uniqueTerms) {
+      filledHash.add(term);
+    }
+  }
+
+  @Benchmark
+  public int add() {
+    hash.clear();
+    hash.reinit();
+    for (BytesRef term : terms) {
+      hash.add(term);
+    }
+    return hash.size();
+  }
+
+  @Benchmark
+  public int find() {
+    int sum = 0;
+    for (BytesRef term : terms) {
+      sum += filledHash.find(term);
+    }
+    return sum;
+  }
+
+}
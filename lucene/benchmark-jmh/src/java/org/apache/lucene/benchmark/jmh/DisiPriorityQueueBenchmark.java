@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.DisiPriorityQueue;
+import org.apache.lucene.search.DisiWrapper;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the {@link DisiPriorityQueue} that drives disjunctions, by iterating
+ * over the union of several clauses the same way disjunction scorers do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DisiPriorityQueueBenchmark {
+
+  /** Number of documents of the simulated segment. */
+  static final int MAX_DOC = 1 << 20;
+
+  @Param({"2", "8", "32"})
+  public int numClauses;
+
+  /** Fraction of documents matched by each clause. */
+  @Param({"0.001", "0.05", "0.3"})
+  public double density;
+
+  private FixedBitSet[] clauses;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    clauses = new FixedBitSet[numClauses];
+    for (int i = 0; i < numClauses; ++i) {
+      clauses[i] = new FixedBitSet(MAX_DOC);
+      for (int doc = 0; doc < MAX_DOC; ++doc) {
+        if (random.nextDouble() < density) {
+          clauses[i].set(doc);
+        }
+      }
+    }
+  }
+
+  private DisiPriorityQueue newQueue() {
+    final DisiPriorityQueue queue = new DisiPriorityQueue(numClauses);
+    for (FixedBitSet clause : clauses) {
+      final DocIdSetIterator it = new BitSetIterator(clause, clause.approximateCardinality());
+      queue.add(new DisiWrapper(new ConstantScoreScorer(null, 1f, it)));
+    }
+    return queue;
+  }
+
+  /** Iterate over the union, like {@code DisjunctionDISIApproximation}. */
+  @Benchmark
+  public int nextDoc() throws IOException {
+    final DisiPriorityQueue queue = newQueue();
+    int count = 0;
+    DisiWrapper top = queue.top();
+    while (true) {
+      final int doc = top.doc;
+      do {
+        top.doc = top.iterator.nextDoc();
+        top = queue.updateTop();
+      } while (top.doc == doc);
+      if (top.doc == DocIdSetIterator.NO_MORE_DOCS) {
+        break;
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /** Iterate over the union and visit all matching clauses of each doc, like scoring disjunctions do. */
+  @Benchmark
+  public int topList() throws IOException {
+    final DisiPriorityQueue queue = newQueue();
+    int freq = 0;
+    DisiWrapper top = queue.top();
+    while (true) {
+      final int doc = top.doc;
+      do {
+        top.doc = top.iterator.nextDoc();
+        top = queue.updateTop();
+      } while (top.doc == doc);
+      if (top.doc == DocIdSetIterator.NO_MORE_DOCS) {
+        break;
+      }
+      for (DisiWrapper w = queue.topList(); w != null; w = w.next) {
+        freq++;
+      }
+    }
+    return freq;
+  }
+
+}
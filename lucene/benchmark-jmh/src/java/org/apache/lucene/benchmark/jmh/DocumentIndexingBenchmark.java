@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.ReusableDocument;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares indexing small documents built from new {@link Field} instances,
+ * from reused {@link Field} instances and from a {@link ReusableDocument}.
+ * Run with <code>-prof gc</code> to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentIndexingBenchmark {
+
+  /** Number of distinct documents, which are indexed over and over. */
+  static final int NUM_DOCS = 1 << 12;
+
+  /** Number of unique terms of the body field. */
+  static final int VOCABULARY_SIZE = 10_000;
+
+  /** Number of terms of the body field. */
+  @Param({"8"})
+  public int bodyLength;
+
+  private String[] ids;
+  private String[] bodies;
+  private long[] timestamps;
+  private BytesRef[] categories;
+
+  private Directory dir;
+  private IndexWriter writer;
+  private int upto;
+
+  private Document reusedFieldsDoc;
+  private Field idField, bodyField, timestampPointField, timestampField, categoryField;
+  private ReusableDocument reusableDoc;
+
+  // the index is recreated for every iteration so that it does not grow unbounded
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+    final Random random = new Random(0);
+    ids = new String[NUM_DOCS];
+    bodies = new String[NUM_DOCS];
+    timestamps = new long[NUM_DOCS];
+    categories = new BytesRef[NUM_DOCS];
+    final StringBuilder body = new StringBuilder();
+    for (int i = 0; i < NUM_DOCS; ++i) {
+      ids[i] = Integer.toString(i);
+      body.setLength(0);
+      for (int j = 0; j < bodyLength; ++j) {
+        body.append('t').append(random.nextInt(VOCABULARY_SIZE)).append(' ');
+      }
+      bodies[i] = body.toString();
+      timestamps[i] = 1_500_000_000_000L + random.nextInt(1_000_000_000);
+      categories[i] = new BytesRef("c" + random.nextInt(100));
+    }
+
+    dir = new RAMDirectory();
+    writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()));
+    upto = 0;
+
+    idField = new StringField("id", "", Field.Store.YES);
+    bodyField = new TextField("body", "", Field.Store.NO);
+    timestampPointField = new LongPoint("timestamp", 0L);
+    timestampField = new NumericDocValuesField("timestamp", 0L);
+    categoryField = new SortedSetDocValuesField("category", new BytesRef());
+    reusedFieldsDoc = new Document();
+    reusedFieldsDoc.add(idField);
+    reusedFieldsDoc.add(bodyField);
+    reusedFieldsDoc.add(timestampPointField);
+    reusedFieldsDoc.add(timestampField);
+    reusedFieldsDoc.add(categoryField);
+    reusableDoc = new ReusableDocument();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    writer.close();
+    dir.close();
+  }
+
+  /** Returns the number of documents that have been indexed in the current iteration. */
+  int numIndexedDocs() {
+    return writer.maxDoc();
+  }
+
+  private int nextDoc() {
+    final int doc = upto;
+    upto = (upto + 1) & (NUM_DOCS - 1);
+    return doc;
+  }
+
+  @Benchmark
+  public long newFields() throws IOException {
+    final int i = nextDoc();
+    final Document doc = new Document();
+    doc.add(new StringField("id", ids[i], Field.Store.YES));
+    doc.add(new TextField("body", bodies[i], Field.Store.NO));
+    doc.add(new LongPoint("timestamp", timestamps[i]));
+    doc.add(new NumericDocValuesField("timestamp", timestamps[i]));
+    doc.add(new SortedSetDocValuesField("category", categories[i]));
+    return writer.addDocument(doc);
+  }
+
+  @Benchmark
+  public long reusedFields() throws IOException {
+    final int i = nextDoc();
+    idField.setStringValue(ids[i]);
+    bodyField.setStringValue(bodies[i]);
+    timestampPointField.setLongValue(timestamps[i]);
+    timestampField.setLongValue(timestamps[i]);
+    categoryField.setBytesValue(categories[i]);
+    return writer.addDocument(reusedFieldsDoc);
+  }
+
+  @Benchmark
+  public long reusableDocument() throws IOException {
+    final int i = nextDoc();
+    reusableDoc.clear();
+    reusableDoc.addStringField("id", ids[i], Field.Store.YES);
+    reusableDoc.addTextField("body", bodies[i], Field.Store.NO);
+    reusableDoc.addLongPoint("timestamp", timestamps[i]);
+    reusableDoc.addNumericDocValuesField("timestamp", timestamps[i]);
+    reusableDoc.addSortedSetDocValuesField("category", categories[i]);
+    return writer.addDocument(reusableDoc);
+  }
+
+}
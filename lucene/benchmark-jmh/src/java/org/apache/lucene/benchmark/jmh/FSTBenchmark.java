@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures exact lookups in an {@link FST}, like the terms index does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FSTBenchmark {
+
+  /** Number of lookups per invocation. */
+  static final int NUM_LOOKUPS = 1 << 14;
+
+  @Param({"10000", "1000000"})
+  public int numTerms;
+
+  /** Alphabet size of the generated terms, small alphabets create more shared prefixes. */
+  @Param({"4", "26"})
+  public int alphabetSize;
+
+  private FST<Long> fst;
+  private BytesRef[] hits;
+  private BytesRef[] misses;
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(0);
+    final BytesRef[] terms = new BytesRef[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      terms[i] = randomTerm(random);
+    }
+    Arrays.sort(terms);
+
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    final IntsRefBuilder scratch = new IntsRefBuilder();
+    BytesRef previous = null;
+    long ord = 0;
+    for (BytesRef term : terms) {
+      if (term.equals(previous)) {
+        continue;
+      }
+      builder.add(Util.toIntsRef(term, scratch), ord++);
+      previous = term;
+    }
+    fst = builder.finish();
+
+    hits = new BytesRef[NUM_LOOKUPS];
+    misses = new BytesRef[NUM_LOOKUPS];
+    for (int i = 0; i < NUM_LOOKUPS; ++i) {
+      hits[i] = terms[random.nextInt(numTerms)];
+      // may be an actual hit once in a while, which is fine
+      misses[i] = randomTerm(random);
+    }
+  }
+
+  private BytesRef randomTerm(Random random) {
+    final byte[] bytes = new byte[3 + random.nextInt(10)];
+    for (int j = 0; j < bytes.length; ++j) {
+      bytes[j] = (byte) ('a' + random.nextInt(alphabetSize));
+    }
+    return new BytesRef(bytes);
+  }
+
+  @Benchmark
+  public long lookupHits() throws IOException {
+    long sum = 0;
+    for (BytesRef term : hits) {
+      sum += Util.get(fst, term);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int lookupMisses() throws IOException {
+    int count = 0;
+    for (BytesRef term : misses) {
+      if (Util.get(fst, term) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
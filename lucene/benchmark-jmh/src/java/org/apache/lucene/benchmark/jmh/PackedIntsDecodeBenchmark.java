@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the bulk {@link PackedInts.Decoder}s, which back postings, doc values
+ * and stored fields decoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PackedIntsDecodeBenchmark {
+
+  /** Number of values decoded per invocation. */
+  static final int NUM_VALUES = 4096;
+
+  @Param({"1", "2", "4", "7", "8", "12", "16", "21", "24", "31"})
+  public int bitsPerValue;
+
+  private PackedInts.Decoder decoder;
+  private int longIterations;
+  private int byteIterations;
+  private long[] longBlocks;
+  private byte[] byteBlocks;
+  private int[] ints;
+  private long[] longs;
+
+  @Setup
+  public void setup() {
+    decoder = PackedInts.getDecoder(PackedInts.Format.PACKED, PackedInts.VERSION_CURRENT, bitsPerValue);
+    PackedInts.Encoder encoder = PackedInts.getEncoder(PackedInts.Format.PACKED, PackedInts.VERSION_CURRENT, bitsPerValue);
+    longIterations = NUM_VALUES / decoder.longValueCount();
+    byteIterations = NUM_VALUES / decoder.byteValueCount();
+
+    final Random random = new Random(0);
+    final long[] values = new long[NUM_VALUES];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = random.nextLong() & PackedInts.maxValue(bitsPerValue);
+    }
+    longBlocks = new long[longIterations * decoder.longBlockCount()];
+    encoder.encode(values, 0, longBlocks, 0, longIterations);
+    byteBlocks = new byte[byteIterations * decoder.byteBlockCount()];
+    encoder.encode(values, 0, byteBlocks, 0, byteIterations);
+    ints = new int[NUM_VALUES];
+    longs = new long[NUM_VALUES];
+  }
+
+  @Benchmark
+  public int decodeLongBlocksToInts() {
+    decoder.decode(longBlocks, 0, ints, 0, longIterations);
+    return ints[NUM_VALUES - 1];
+  }
+
+  @Benchmark
+  public long decodeLongBlocksToLongs() {
+    decoder.decode(longBlocks, 0, longs, 0, longIterations);
+    return longs[NUM_VALUES - 1];
+  }
+
+  @Benchmark
+  public int decodeByteBlocksToInts() {
+    decoder.decode(byteBlocks, 0, ints, 0, byteIterations);
+    return ints[NUM_VALUES - 1];
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures top-10 scoring of {@link TermQuery}, {@link BooleanQuery} and point
+ * range queries against a generated index. The query cache is disabled so that
+ * scoring is measured rather than caching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+  /** Number of unique terms of the body field. */
+  static final int VOCABULARY_SIZE = 100_000;
+
+  /** Number of terms per document. */
+  static final int DOC_LENGTH = 20;
+
+  @Param({"1000000"})
+  public int numDocs;
+
+  /** Number of segments of the index. */
+  @Param({"1"})
+  public int numSegments;
+
+  private Directory dir;
+  private DirectoryReader reader;
+  private IndexSearcher searcher;
+
+  // frequent terms are close to the beginning of the vocabulary
+  private final Query frequentTerm = new TermQuery(new Term("body", term(0)));
+  private final Query rareTerm = new TermQuery(new Term("body", term(1_000)));
+  private final Query frequentConjunction = booleanQuery(Occur.MUST, term(0), term(1));
+  private final Query mixedConjunction = booleanQuery(Occur.MUST, term(0), term(100));
+  private final Query frequentDisjunction = booleanQuery(Occur.SHOULD, term(0), term(1));
+  private final Query mixedDisjunction = booleanQuery(Occur.SHOULD, term(0), term(100), term(1_000));
+  private final Query pointRange = IntPoint.newRangeQuery("value", 0, Integer.MAX_VALUE / 10);
+
+  static String term(int index) {
+    return "t" + index;
+  }
+
+  private static Query booleanQuery(Occur occur, String... terms) {
+    final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (String term : terms) {
+      builder.add(new TermQuery(new Term("body", term)), occur);
+    }
+    return builder.build();
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    dir = new RAMDirectory();
+    final Random random = new Random(0);
+    final IndexWriterConfig iwc = new IndexWriterConfig(new StandardAnalyzer());
+    iwc.setRAMBufferSizeMB(64);
+    try (IndexWriter w = new IndexWriter(dir, iwc)) {
+      final StringBuilder body = new StringBuilder();
+      final Field bodyField = new TextField("body", "", Field.Store.NO);
+      final Document doc = new Document();
+      doc.add(bodyField);
+      for (int i = 0; i < numDocs; ++i) {
+        body.setLength(0);
+        for (int j = 0; j < DOC_LENGTH; ++j) {
+          // roughly zipfian
+          final int index = (int) Math.exp(random.nextDouble() * Math.log(VOCABULARY_SIZE)) - 1;
+          body.append(term(index)).append(' ');
+        }
+        bodyField.setStringValue(body.toString());
+        doc.removeFields("value");
+        doc.add(new IntPoint("value", random.nextInt() & Integer.MAX_VALUE));
+        w.addDocument(doc);
+      }
+      w.forceMerge(numSegments);
+    }
+    reader = DirectoryReader.open(dir);
+    searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    reader.close();
+    dir.close();
+  }
+
+  @Benchmark
+  public TopDocs termQueryFrequent() throws IOException {
+    return searcher.search(frequentTerm, 10);
+  }
+
+  @Benchmark
+  public TopDocs termQueryRare() throws IOException {
+    return searcher.search(rareTerm, 10);
+  }
+
+  @Benchmark
+  public TopDocs booleanConjunctionFrequent() throws IOException {
+    return searcher.search(frequentConjunction, 10);
+  }
+
+  @Benchmark
+  public TopDocs booleanConjunctionMixed() throws IOException {
+    return searcher.search(mixedConjunction, 10);
+  }
+
+  @Benchmark
+  public TopDocs booleanDisjunctionFrequent() throws IOException {
+    return searcher.search(frequentDisjunction, 10);
+  }
+
+  @Benchmark
+  public TopDocs booleanDisjunctionMixed() throws IOException {
+    return searcher.search(mixedDisjunction, 10);
+  }
+
+  @Benchmark
+  public TopDocs pointRangeQuery() throws IOException {
+    return searcher.search(pointRange, 10);
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.lucene50;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.packed.PackedInts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
+
+/**
+ * Measures encoding and decoding of postings blocks with {@link ForUtil}.
+ * This lives in the codec's package since {@link ForUtil} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ForUtilBenchmark {
+
+  /** Number of blocks encoded or decoded per invocation. */
+  static final int NUM_BLOCKS = 64;
+
+  @Param({"1", "2", "4", "7", "8", "12", "16", "21", "24", "31"})
+  public int bitsPerValue;
+
+  private Directory dir;
+  private ForUtil forUtil;
+  private int[][] blocks;
+  private byte[] encoded;
+  private int[] decoded;
+  private IndexOutput out;
+  private IndexInput in;
+  private long startFP;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = new RAMDirectory();
+    final Random random = new Random(0);
+    blocks = new int[NUM_BLOCKS][];
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      blocks[i] = new int[BLOCK_SIZE];
+      for (int j = 0; j < BLOCK_SIZE; ++j) {
+        blocks[i][j] = random.nextInt() & (int) PackedInts.maxValue(bitsPerValue);
+      }
+      // make sure all blocks require exactly bitsPerValue bits
+      blocks[i][random.nextInt(BLOCK_SIZE)] = (int) PackedInts.maxValue(bitsPerValue);
+    }
+    encoded = new byte[ForUtil.MAX_ENCODED_SIZE];
+    decoded = new int[ForUtil.MAX_DATA_SIZE];
+
+    try (IndexOutput out = dir.createOutput("blocks", IOContext.DEFAULT)) {
+      forUtil = new ForUtil(PackedInts.COMPACT, out);
+      startFP = out.getFilePointer();
+      for (int[] block : blocks) {
+        forUtil.writeBlock(block, encoded, out);
+      }
+    }
+    in = dir.openInput("blocks", IOContext.DEFAULT);
+    out = dir.createOutput("scratch", IOContext.DEFAULT);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    in.close();
+    out.close();
+    dir.close();
+  }
+
+  @Benchmark
+  public int decode() throws IOException {
+    in.seek(startFP);
+    int sum = 0;
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      forUtil.readBlock(in, encoded, decoded);
+      sum += decoded[BLOCK_SIZE - 1];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long skip() throws IOException {
+    in.seek(startFP);
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      forUtil.skipBlock(in);
+    }
+    return in.getFilePointer();
+  }
+
+  @Benchmark
+  public long encode() throws IOException {
+    for (int[] block : blocks) {
+      forUtil.writeBlock(block, encoded, out);
+    }
+    if (out.getFilePointer() > (1 << 24)) {
+      // don't let the scratch output grow unbounded
+      out.close();
+      dir.deleteFile("scratch");
+      out = dir.createOutput("scratch", IOContext.DEFAULT);
+    }
+    return out.getFilePointer();
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.benchmark.jmh;
+
+import org.apache.lucene.codecs.lucene50.ForUtilBenchmark;
+import org.apache.lucene.util.LuceneTestCase;
+
+/**
+ * Runs every benchmark once on small inputs so that they don't silently break,
+ * and checks that they compute what they are supposed to measure.
+ */
+public class TestBenchmarks extends LuceneTestCase {
+
+  public void testPackedIntsDecode() throws Exception {
+    PackedIntsDecodeBenchmark benchmark = new PackedIntsDecodeBenchmark();
+    for (int bpv = 1; bpv <= 31; ++bpv) {
+      benchmark.bitsPerValue = bpv;
+      benchmark.setup();
+      int fromLongs = benchmark.decodeLongBlocksToInts();
+      assertEquals(fromLongs, benchmark.decodeLongBlocksToLongs());
+      assertEquals(fromLongs, benchmark.decodeByteBlocksToInts());
+    }
+  }
+
+  public void testForUtil() throws Exception {
+    ForUtilBenchmark benchmark = new ForUtilBenchmark();
+    for (int bpv : new int[] {1, 7, 16, 31}) {
+      benchmark.bitsPerValue = bpv;
+      benchmark.setup();
+      try {
+        final long endFP = benchmark.skip();
+        benchmark.decode();
+        // decoding and skipping consume the same bytes
+        assertEquals(endFP, benchmark.skip());
+        final long encodedLength = benchmark.encode();
+        assertTrue(encodedLength > 0 && encodedLength < endFP);
+        assertEquals(2 * encodedLength, benchmark.encode());
+      } finally {
+        benchmark.tearDown();
+      }
+    }
+  }
+
+  public void testBytesRefHash() throws Exception {
+    BytesRefHashBenchmark benchmark = new BytesRefHashBenchmark();
+    benchmark.numUniqueTerms = 1024;
+    benchmark.setup();
+    final int size = benchmark.add();
+    assertTrue(size > 0 && size <= 1024);
+    assertEquals(size, benchmark.add());
+    // all terms are found
+    assertTrue(benchmark.find() >= 0);
+  }
+
+  public void testFST() throws Exception {
+    FSTBenchmark benchmark = new FSTBenchmark();
+    benchmark.numTerms = 1000;
+    benchmark.alphabetSize = 4;
+    benchmark.setup();
+    assertTrue(benchmark.lookupHits() >= 0);
+    assertTrue(benchmark.lookupMisses() < FSTBenchmark.NUM_LOOKUPS);
+  }
+
+  public void testBKDReader() throws Exception {
+    BKDReaderBenchmark benchmark = new BKDReaderBenchmark();
+    benchmark.numPoints = 10000;
+    benchmark.numDims = 2;
+    benchmark.selectivity = 0.5;
+    benchmark.setup();
+    try {
+      long total = 0;
+      for (int i = 0; i < BKDReaderBenchmark.NUM_RANGES; ++i) {
+        int count = benchmark.intersect();
+        assertTrue(count <= benchmark.numPoints);
+        total += count;
+      }
+      // each range matches about 1/4th of the points
+      final double expected = BKDReaderBenchmark.NUM_RANGES * benchmark.numPoints * 0.25;
+      assertEquals(expected, total, expected / 10);
+    } finally {
+      benchmark.tearDown();
+    }
+  }
+
+  public void testDisiPriorityQueue() throws Exception {
+    DisiPriorityQueueBenchmark benchmark = new DisiPriorityQueueBenchmark();
+    benchmark.numClauses = 3;
+    benchmark.density = 0.05;
+    benchmark.setup();
+    assertTrue(benchmark.nextDoc() <= benchmark.topList());
+  }
+
+  public void testDocumentIndexing() throws Exception {
+    DocumentIndexingBenchmark benchmark = new DocumentIndexingBenchmark();
+    benchmark.bodyLength = 8;
+    final int numDocs = 3 * DocumentIndexingBenchmark.NUM_DOCS / 2;
+    for (int iter = 0; iter < 3; ++iter) {
+      benchmark.setup();
+      try {
+        // sequence numbers increase with every added document
+        long seqNo = -1;
+        for (int i = 0; i < numDocs; ++i) {
+          final long next;
+          switch (iter) {
+            case 0:
+              next = benchmark.newFields();
+              break;
+            case 1:
+              next = benchmark.reusedFields();
+              break;
+            default:
+              next = benchmark.reusableDocument();
+              break;
+          }
+          assertTrue(next > seqNo);
+          seqNo = next;
+        }
+        assertEquals(numDocs, benchmark.numIndexedDocs());
+      } finally {
+        benchmark.tearDown();
+      }
+    }
+  }
+
+  public void testSearch() throws Exception {
+    SearchBenchmark benchmark = new SearchBenchmark();
+    benchmark.numDocs = 2000;
+    benchmark.numSegments = 2;
+    benchmark.setup();
+    try {
+      assertTrue(benchmark.termQueryFrequent().totalHits > benchmark.termQueryRare().totalHits);
+      assertTrue(benchmark.booleanConjunctionFrequent().totalHits <= benchmark.booleanDisjunctionFrequent().totalHits);
+      assertTrue(benchmark.booleanConjunctionMixed().totalHits <= benchmark.booleanDisjunctionMixed().totalHits);
+      assertEquals(benchmark.numDocs * 0.1, benchmark.pointRangeQuery().totalHits, benchmark.numDocs * 0.02);
+    } finally {
+      benchmark.tearDown();
+    }
+  }
+
+}
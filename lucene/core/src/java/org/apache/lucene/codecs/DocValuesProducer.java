@@ -21,8 +21,10 @@ import java.io.Closeable;
 import java.io.IOException;
 
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.NumericDocValuesIterator;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -45,6 +47,17 @@ public abstract class DocValuesProducer implements Closeable, Accountable {
    *  used by a single thread. */
   public abstract NumericDocValues getNumeric(FieldInfo field) throws IOException;
 
+  /** Returns a {@link NumericDocValuesIterator} over the documents that have
+   *  a value for this field. A new instance must be returned on every call
+   *  and it need not be thread-safe: it will only be used by a single thread.
+   *  <p>The default implementation wraps {@link #getNumeric(FieldInfo)} and
+   *  {@link #getDocsWithField(FieldInfo)}, formats that encode sparse fields
+   *  should override it in order to only visit documents that have a value.
+   *  @lucene.experimental */
+  public NumericDocValuesIterator getNumericIterator(FieldInfo field) throws IOException {
+    return DocValues.iterator(getNumeric(field), getDocsWithField(field));
+  }
+
   /** Returns {@link BinaryDocValues} for this field.
    *  The returned instance need not be thread-safe: it will only be
    *  used by a single thread. */
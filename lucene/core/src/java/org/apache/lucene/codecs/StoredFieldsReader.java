@@ -39,6 +39,14 @@ public abstract class StoredFieldsReader implements Cloneable, Closeable, Accoun
   /** Visit the stored fields for document <code>docID</code> */
   public abstract void visitDocument(int docID, StoredFieldVisitor visitor) throws IOException;
 
+  /**
+   * Optional hint that the stored fields of <code>docID</code> will be visited soon,
+   * so that their storage can start loading in the background.
+   * <p>
+   * The default implementation does nothing. */
+  public void prefetch(int docID) throws IOException {
+  }
+
   @Override
   public abstract StoredFieldsReader clone();
   
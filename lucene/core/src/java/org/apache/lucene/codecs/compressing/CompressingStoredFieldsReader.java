@@ -576,6 +576,14 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     return state.document(docID);
   }
 
+  @Override
+  public void prefetch(int docID) throws IOException {
+    if (state.contains(docID) == false) {
+      final long startPointer = indexReader.getStartPointer(docID);
+      fieldsStream.prefetch(startPointer, Math.min(chunkSize, fieldsStream.length() - startPointer));
+    }
+  }
+
   @Override
   public void visitDocument(int docID, StoredFieldVisitor visitor)
       throws IOException {
@@ -304,6 +304,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           docIn = startDocIn.clone();
         }
         docIn.seek(docTermStartFP);
+        // the first block is read on the first nextDoc/advance: start loading it while the
+        // caller pulls up the rest of its iterators
+        docIn.prefetch(docTermStartFP, 1);
       }
 
       doc = -1;
@@ -559,6 +562,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           docIn = startDocIn.clone();
         }
         docIn.seek(docTermStartFP);
+        // the first block is read on the first nextDoc/advance: start loading it while the
+        // caller pulls up the rest of its iterators
+        docIn.prefetch(docTermStartFP, 1);
       }
       posPendingFP = posTermStartFP;
       posPendingCount = 0;
@@ -931,6 +937,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           docIn = startDocIn.clone();
         }
         docIn.seek(docTermStartFP);
+        // the first block is read on the first nextDoc/advance: start loading it while the
+        // caller pulls up the rest of its iterators
+        docIn.prefetch(docTermStartFP, 1);
       }
       posPendingFP = posTermStartFP;
       payPendingFP = payTermStartFP;
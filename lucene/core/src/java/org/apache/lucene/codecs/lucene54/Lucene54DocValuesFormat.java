@@ -47,8 +47,9 @@ import org.apache.lucene.util.packed.DirectWriter;
  *        as blocks of bitpacked integers, encoding the deviation from the expected delta.
  *    <li>Const-compressed: when there is only one possible non-missing value, only the missing
  *        bitset is encoded.
- *    <li>Sparse-compressed: only documents with a value are stored, and lookups are performed
- *        using binary search.
+ *    <li>Sparse-compressed: when 1% of documents or less have a value, only documents with a
+ *        value are stored, and lookups are performed using binary search. Iterating over such
+ *        fields only visits the documents that have a value.
  * </ul>
  * <p>
  * {@link DocValuesType#BINARY BINARY}:
@@ -37,6 +37,7 @@ import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.NumericDocValuesIterator;
 import org.apache.lucene.index.RandomAccessOrds;
 import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.SortedDocValues;
@@ -455,6 +456,16 @@ final class Lucene54DocValuesProducer extends DocValuesProducer implements Close
     return getNumeric(entry);
   }
 
+  @Override
+  public NumericDocValuesIterator getNumericIterator(FieldInfo field) throws IOException {
+    NumericEntry entry = numerics.get(field.name);
+    if (entry.format == SPARSE_COMPRESSED) {
+      // only visit documents that have a value rather than checking every doc ID
+      return new SparseNumericIterator(getSparseLiveBits(entry), getNumeric(entry.nonMissingValues));
+    }
+    return super.getNumericIterator(field);
+  }
+
   @Override
   public long ramBytesUsed() {
     return ramBytesUsed.get();
@@ -681,6 +692,68 @@ final class Lucene54DocValuesProducer extends DocValuesProducer implements Close
 
   }
 
+  /** Iterates over the documents of a {@link SparseBits} instance, and the
+   *  matching values. */
+  static class SparseNumericIterator extends NumericDocValuesIterator {
+
+    final SparseBits docsWithField;
+    final LongValues values;
+
+    int doc = -1;
+    long index = -1; // index of the largest doc ID that is <= doc
+
+    SparseNumericIterator(SparseBits docsWithField, LongValues values) {
+      this.docsWithField = docsWithField;
+      this.values = values;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+      if (++index >= docsWithField.docIDsLength) {
+        return doc = NO_MORE_DOCS;
+      }
+      return doc = (int) docsWithField.docIds.get(index);
+    }
+
+    @Override
+    public int advance(int target) {
+      if (target >= docsWithField.maxDoc) {
+        return doc = NO_MORE_DOCS;
+      }
+      if (docsWithField.get(target)) {
+        index = docsWithField.index;
+        return doc = target;
+      }
+      // docsWithField.index now points to the largest doc ID that is < target
+      index = docsWithField.index;
+      return nextDoc();
+    }
+
+    @Override
+    public boolean advanceExact(int target) {
+      assert target >= doc && target < docsWithField.maxDoc;
+      doc = target;
+      final boolean exists = docsWithField.get(target);
+      index = docsWithField.index;
+      return exists;
+    }
+
+    @Override
+    public long longValue() {
+      return values.get(index);
+    }
+
+    @Override
+    public long cost() {
+      return docsWithField.docIDsLength;
+    }
+  }
+
   @Override
   public BinaryDocValues getBinary(FieldInfo field) throws IOException {
     BinaryEntry bytes = binaries.get(field.name);
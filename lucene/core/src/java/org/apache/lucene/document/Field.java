@@ -611,21 +611,21 @@ public class Field implements IndexableField {
     }
   }
 
-  private static final class StringTokenStream extends TokenStream {
+  static final class StringTokenStream extends TokenStream {
     private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
     private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
     private boolean used = true;
-    private String value = null;
+    private CharSequence value = null;
     
     /** Creates a new TokenStream that returns a String as single token.
      * <p>Warning: Does not initialize the value, you must call
-     * {@link #setValue(String)} afterwards!
+     * {@link #setValue(CharSequence)} afterwards!
      */
     StringTokenStream() {
     }
     
     /** Sets the string value. */
-    void setValue(String value) {
+    void setValue(CharSequence value) {
       this.value = value;
     }
 
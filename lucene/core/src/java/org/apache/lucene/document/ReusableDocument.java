@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.document;
+
+
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.Field.StringTokenStream;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter; // javadocs
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.IndexableFieldType;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A document that is meant to be reused across calls to
+ * {@link IndexWriter#addDocument(Iterable)}, for high-rate indexing of small
+ * documents.
+ * <p>
+ * Instead of {@link Field} instances, values are written with typed
+ * <code>add*</code> methods into field instances that are pooled by this
+ * document and recycled by {@link #clear()}, so that indexing a document
+ * does not allocate fields, boxed numbers or token streams. Numeric doc values
+ * are consumed by the indexing chain without boxing, points are encoded into
+ * a per-field buffer and string and text values may be given as any
+ * {@link CharSequence}, such as a reused {@link StringBuilder}. Stored numeric
+ * values are still boxed when the stored fields format writes them.
+ * <p>
+ * Typical usage, with one instance per indexing thread:
+ * <pre class="prettyprint">
+ * ReusableDocument doc = new ReusableDocument();
+ * for (...) {
+ *   doc.clear();
+ *   doc.addStringField("id", id, Field.Store.YES);
+ *   doc.addTextField("body", body, Field.Store.NO);
+ *   doc.addLongPoint("timestamp", timestamp);
+ *   doc.addNumericDocValuesField("timestamp", timestamp);
+ *   writer.addDocument(doc);
+ * }
+ * </pre>
+ * <p>
+ * <b>NOTE</b>: values are not copied, so {@link BytesRef} and
+ * {@link CharSequence} values must not be modified until the document has been
+ * added. Instances are not thread-safe.
+ *
+ * @lucene.experimental
+ */
+public final class ReusableDocument implements Iterable<IndexableField> {
+
+  private static final FieldType INT_POINT_TYPE = new FieldType();
+  private static final FieldType LONG_POINT_TYPE = new FieldType();
+  static {
+    INT_POINT_TYPE.setDimensions(1, Integer.BYTES);
+    INT_POINT_TYPE.freeze();
+    LONG_POINT_TYPE.setDimensions(1, Long.BYTES);
+    LONG_POINT_TYPE.freeze();
+  }
+
+  private ReusableField[] fields = new ReusableField[8];
+  private int numFields;
+  private FieldIterator iterator;
+
+  /** Constructs a new document with no fields. */
+  public ReusableDocument() {}
+
+  /** Removes all fields from this document, so that it can be reused for
+   *  the next document. Pooled fields are kept. */
+  public void clear() {
+    for (int i = 0; i < numFields; i++) {
+      fields[i].reset();
+    }
+    numFields = 0;
+  }
+
+  /** Returns the number of fields of this document. */
+  public int size() {
+    return numFields;
+  }
+
+  @Override
+  public Iterator<IndexableField> iterator() {
+    // reuse the last iterator, unless it is still being consumed
+    if (iterator == null || iterator.exhausted == false) {
+      iterator = new FieldIterator();
+    } else {
+      iterator.upto = 0;
+      iterator.exhausted = false;
+    }
+    return iterator;
+  }
+
+  /** Adds a field that indexes the given value as a single token, like
+   *  {@link StringField}. */
+  public void addStringField(String name, CharSequence value, Store stored) {
+    checkValue(value);
+    nextField(name, stored == Store.YES ? StringField.TYPE_STORED : StringField.TYPE_NOT_STORED).setText(value);
+  }
+
+  /** Adds a field that indexes the given value with the {@link Analyzer}
+   *  of the {@link IndexWriter}, like {@link TextField}. */
+  public void addTextField(String name, CharSequence value, Store stored) {
+    checkValue(value);
+    nextField(name, stored == Store.YES ? TextField.TYPE_STORED : TextField.TYPE_NOT_STORED).setText(value);
+  }
+
+  /** Adds a 1-dimension {@code int} point, like {@link IntPoint}. */
+  public void addIntPoint(String name, int value) {
+    IntPoint.encodeDimension(value, nextField(name, INT_POINT_TYPE).pointBytes(Integer.BYTES), 0);
+  }
+
+  /** Adds a 1-dimension {@code long} point, like {@link LongPoint}. */
+  public void addLongPoint(String name, long value) {
+    LongPoint.encodeDimension(value, nextField(name, LONG_POINT_TYPE).pointBytes(Long.BYTES), 0);
+  }
+
+  /** Adds a per-document {@code long} value, like {@link NumericDocValuesField}. */
+  public void addNumericDocValuesField(String name, long value) {
+    nextField(name, NumericDocValuesField.TYPE).setLong(value);
+  }
+
+  /** Adds one of the {@code long} values of the document, like
+   *  {@link SortedNumericDocValuesField}. */
+  public void addSortedNumericDocValuesField(String name, long value) {
+    nextField(name, SortedNumericDocValuesField.TYPE).setLong(value);
+  }
+
+  /** Adds a per-document {@link BytesRef} value, like {@link BinaryDocValuesField}. */
+  public void addBinaryDocValuesField(String name, BytesRef value) {
+    checkValue(value);
+    nextField(name, BinaryDocValuesField.TYPE).setBytes(value);
+  }
+
+  /** Adds a per-document {@link BytesRef} value, like {@link SortedDocValuesField}. */
+  public void addSortedDocValuesField(String name, BytesRef value) {
+    checkValue(value);
+    nextField(name, SortedDocValuesField.TYPE).setBytes(value);
+  }
+
+  /** Adds one of the {@link BytesRef} values of the document, like
+   *  {@link SortedSetDocValuesField}. */
+  public void addSortedSetDocValuesField(String name, BytesRef value) {
+    checkValue(value);
+    nextField(name, SortedSetDocValuesField.TYPE).setBytes(value);
+  }
+
+  /** Adds a stored-only {@code int} value, like {@link StoredField#StoredField(String, int)}. */
+  public void addStoredField(String name, int value) {
+    nextField(name, StoredField.TYPE).setInt(value);
+  }
+
+  /** Adds a stored-only {@code long} value, like {@link StoredField#StoredField(String, long)}. */
+  public void addStoredField(String name, long value) {
+    nextField(name, StoredField.TYPE).setLong(value);
+  }
+
+  /** Adds a stored-only binary value, like {@link StoredField#StoredField(String, BytesRef)}. */
+  public void addStoredField(String name, BytesRef value) {
+    checkValue(value);
+    nextField(name, StoredField.TYPE).setBytes(value);
+  }
+
+  /** Adds a stored-only string value, like {@link StoredField#StoredField(String, String)}. */
+  public void addStoredField(String name, CharSequence value) {
+    checkValue(value);
+    nextField(name, StoredField.TYPE).setText(value);
+  }
+
+  private static void checkValue(Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value must not be null");
+    }
+  }
+
+  private ReusableField nextField(String name, IndexableFieldType type) {
+    if (name == null) {
+      throw new IllegalArgumentException("name must not be null");
+    }
+    if (numFields == fields.length) {
+      ReusableField[] newFields = new ReusableField[ArrayUtil.oversize(numFields + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF)];
+      System.arraycopy(fields, 0, newFields, 0, numFields);
+      fields = newFields;
+    }
+    ReusableField field = fields[numFields];
+    if (field == null) {
+      field = fields[numFields] = new ReusableField();
+    }
+    numFields++;
+    field.name = name;
+    field.type = type;
+    return field;
+  }
+
+  private final class FieldIterator implements Iterator<IndexableField> {
+    int upto;
+    boolean exhausted;
+
+    @Override
+    public boolean hasNext() {
+      if (upto < numFields) {
+        return true;
+      }
+      exhausted = true;
+      return false;
+    }
+
+    @Override
+    public IndexableField next() {
+      if (upto >= numFields) {
+        throw new NoSuchElementException();
+      }
+      return fields[upto++];
+    }
+  }
+
+  /**
+   * A field of a {@link ReusableDocument}. Its value changes when the
+   * document is reused.
+   *
+   * @lucene.internal
+   */
+  public static final class ReusableField implements IndexableField {
+
+    private static final int INT = 1, LONG = 2, BYTES = 3, TEXT = 4;
+
+    String name;
+    IndexableFieldType type;
+    private int kind;
+    private long longValue;
+    private BytesRef bytesValue;
+    private CharSequence textValue;
+
+    // lazy init:
+    private BytesRef pointValue;
+    private CharSequenceReader reader;
+
+    private ReusableField() {}
+
+    void reset() {
+      name = null;
+      type = null;
+      kind = 0;
+      bytesValue = null;
+      textValue = null;
+    }
+
+    void setInt(int value) {
+      kind = INT;
+      longValue = value;
+    }
+
+    void setLong(long value) {
+      kind = LONG;
+      longValue = value;
+    }
+
+    void setBytes(BytesRef value) {
+      kind = BYTES;
+      bytesValue = value;
+    }
+
+    void setText(CharSequence value) {
+      kind = TEXT;
+      textValue = value;
+    }
+
+    /** Makes the value of this field a point of {@code numBytes} bytes and
+     *  returns the buffer to encode it into. */
+    byte[] pointBytes(int numBytes) {
+      if (pointValue == null) {
+        pointValue = new BytesRef(new byte[Long.BYTES]);
+      }
+      pointValue.length = numBytes;
+      setBytes(pointValue);
+      return pointValue.bytes;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public IndexableFieldType fieldType() {
+      return type;
+    }
+
+    @Override
+    public float boost() {
+      return 1.0f;
+    }
+
+    @Override
+    public BytesRef binaryValue() {
+      return kind == BYTES ? bytesValue : null;
+    }
+
+    @Override
+    public String stringValue() {
+      return kind == TEXT ? textValue.toString() : null;
+    }
+
+    @Override
+    public Reader readerValue() {
+      return null;
+    }
+
+    /** Returns the boxed numeric value, prefer {@link #longValue()}. */
+    @Override
+    public Number numericValue() {
+      switch (kind) {
+        case INT:
+          return Integer.valueOf((int) longValue);
+        case LONG:
+          return Long.valueOf(longValue);
+        default:
+          return null;
+      }
+    }
+
+    /** Returns the numeric value of this field without boxing it.
+     *  @throws IllegalStateException if this field does not have a numeric value */
+    public long longValue() {
+      if (kind != INT && kind != LONG) {
+        throw new IllegalStateException("field \"" + name + "\" does not have a numeric value");
+      }
+      return longValue;
+    }
+
+    @Override
+    public TokenStream tokenStream(Analyzer analyzer, TokenStream reuse) {
+      if (type.indexOptions() == IndexOptions.NONE) {
+        // Not indexed
+        return null;
+      }
+      assert kind == TEXT;
+
+      if (type.tokenized() == false) {
+        if (!(reuse instanceof StringTokenStream)) {
+          // lazy init the TokenStream as it is heavy to instantiate
+          // (attributes,...) if not needed
+          reuse = new StringTokenStream();
+        }
+        ((StringTokenStream) reuse).setValue(textValue);
+        return reuse;
+      }
+
+      if (textValue instanceof String) {
+        return analyzer.tokenStream(name, (String) textValue);
+      }
+      if (reader == null) {
+        reader = new CharSequenceReader();
+      }
+      reader.setValue(textValue);
+      return analyzer.tokenStream(name, reader);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      result.append(type);
+      result.append('<');
+      result.append(name);
+      result.append(':');
+      switch (kind) {
+        case INT:
+        case LONG:
+          result.append(longValue);
+          break;
+        case BYTES:
+          result.append(bytesValue);
+          break;
+        case TEXT:
+          result.append(textValue);
+          break;
+      }
+      result.append('>');
+      return result.toString();
+    }
+  }
+
+  /** A {@link Reader} over a {@link CharSequence} which can be reset to a new value. */
+  private static final class CharSequenceReader extends Reader {
+    private int pos = 0, size = 0;
+    private CharSequence s = null;
+
+    void setValue(CharSequence s) {
+      this.s = s;
+      this.size = s.length();
+      this.pos = 0;
+    }
+
+    @Override
+    public int read() {
+      if (pos < size) {
+        return s.charAt(pos++);
+      } else {
+        s = null;
+        return -1;
+      }
+    }
+
+    @Override
+    public int read(char[] c, int off, int len) {
+      if (pos < size) {
+        len = Math.min(len, size-pos);
+        for (int i = 0; i < len; i++) {
+          c[off + i] = s.charAt(pos + i);
+        }
+        pos += len;
+        return len;
+      } else {
+        s = null;
+        return -1;
+      }
+    }
+
+    @Override
+    public void close() {
+      pos = size; // this prevents NPE when reading after close!
+      s = null;
+    }
+  }
+}
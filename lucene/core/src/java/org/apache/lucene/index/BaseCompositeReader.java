@@ -118,6 +118,13 @@ public abstract class BaseCompositeReader<R extends IndexReader> extends Composi
     subReaders[i].document(docID - starts[i], visitor);    // dispatch to subreader
   }
 
+  @Override
+  public final void prefetchDocument(int docID) throws IOException {
+    ensureOpen();
+    final int i = readerIndex(docID);                          // find subreader num
+    subReaders[i].prefetchDocument(docID - starts[i]);      // dispatch to subreader
+  }
+
   @Override
   public final int docFreq(Term term) throws IOException {
     ensureOpen();
@@ -230,14 +230,14 @@ class BufferedUpdatesStream implements Accountable {
           final DocValuesFieldUpdates.Container dvUpdates = new DocValuesFieldUpdates.Container();
 
           // first apply segment-private deletes/updates
-          delCount += applyQueryDeletes(packet.queriesIterable(), segState);
-          applyDocValuesUpdates(Arrays.asList(packet.numericDVUpdates), segState, dvUpdates);
-          applyDocValuesUpdates(Arrays.asList(packet.binaryDVUpdates), segState, dvUpdates);
+          delCount += applyQueryDeletes(packet.queriesIterable(), segState, packet.sortMap);
+          applyDocValuesUpdates(Arrays.asList(packet.numericDVUpdates), segState, dvUpdates, packet.sortMap);
+          applyDocValuesUpdates(Arrays.asList(packet.binaryDVUpdates), segState, dvUpdates, packet.sortMap);
 
           // ... then coalesced deletes/updates, so that if there is an update that appears in both, the coalesced updates (carried from
           // updates ahead of the segment-privates ones) win:
           if (coalescedUpdates != null) {
-            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState);
+            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState, null);
             applyDocValuesUpdatesList(coalescedUpdates.numericDVUpdates, segState, dvUpdates);
             applyDocValuesUpdatesList(coalescedUpdates.binaryDVUpdates, segState, dvUpdates);
           }
@@ -264,7 +264,7 @@ class BufferedUpdatesStream implements Accountable {
             // Lock order: IW -> BD -> RP
             assert pool.infoIsLive(info);
             int delCount = 0;
-            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState);
+            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState, null);
             DocValuesFieldUpdates.Container dvUpdates = new DocValuesFieldUpdates.Container();
             applyDocValuesUpdatesList(coalescedUpdates.numericDVUpdates, segState, dvUpdates);
             applyDocValuesUpdatesList(coalescedUpdates.binaryDVUpdates, segState, dvUpdates);
@@ -609,13 +609,14 @@ class BufferedUpdatesStream implements Accountable {
     // we walk backwards through the segments, appending deletion packets to the coalesced updates, so we must apply the packets in reverse
     // so that newer packets override older ones:
     for(int idx=updates.size()-1;idx>=0;idx--) {
-      applyDocValuesUpdates(updates.get(idx), segState, dvUpdatesContainer);
+      applyDocValuesUpdates(updates.get(idx), segState, dvUpdatesContainer, null);
     }
   }
 
-  // DocValues updates
+  // DocValues updates; sortMap is non-null if the updates are private to a
+  // segment that was sorted on flush
   private synchronized void applyDocValuesUpdates(List<DocValuesUpdate> updates, 
-      SegmentState segState, DocValuesFieldUpdates.Container dvUpdatesContainer) throws IOException {
+      SegmentState segState, DocValuesFieldUpdates.Container dvUpdatesContainer, Sorter.DocMap sortMap) throws IOException {
     Fields fields = segState.reader.fields();
 
     // TODO: we can process the updates per DV field, from last to first so that
@@ -674,8 +675,13 @@ class BufferedUpdatesStream implements Accountable {
         }
         int doc;
         while ((doc = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-          if (doc >= limit) {
-            break; // no more docs that can be updated for this term
+          if (sortMap == null) {
+            if (doc >= limit) {
+              break; // no more docs that can be updated for this term
+            }
+          } else if (sortMap.newToOld(doc) >= limit) {
+            // the segment was sorted on flush: limits apply to unsorted doc IDs
+            continue;
           }
           if (acceptDocs != null && acceptDocs.get(doc) == false) {
             continue;
@@ -695,8 +701,9 @@ class BufferedUpdatesStream implements Accountable {
     }
   }
 
-  // Delete by query
-  private static long applyQueryDeletes(Iterable<QueryAndLimit> queriesIter, SegmentState segState) throws IOException {
+  // Delete by query; sortMap is non-null if the queries are private to a
+  // segment that was sorted on flush
+  private static long applyQueryDeletes(Iterable<QueryAndLimit> queriesIter, SegmentState segState, Sorter.DocMap sortMap) throws IOException {
     long delCount = 0;
     final LeafReaderContext readerContext = segState.reader.getContext();
     for (QueryAndLimit ent : queriesIter) {
@@ -711,8 +718,15 @@ class BufferedUpdatesStream implements Accountable {
         final Bits liveDocs = readerContext.reader().getLiveDocs();
         while (true)  {
           int doc = it.nextDoc();
-          if (doc >= limit) {
+          if (sortMap == null) {
+            if (doc >= limit) {
+              break;
+            }
+          } else if (doc == DocIdSetIterator.NO_MORE_DOCS) {
             break;
+          } else if (sortMap.newToOld(doc) >= limit) {
+            // the segment was sorted on flush: limits apply to unsorted doc IDs
+            continue;
           }
           if (liveDocs != null && liveDocs.get(doc) == false) {
             continue;
@@ -87,6 +87,12 @@ public abstract class CodecReader extends LeafReader implements Accountable {
     checkBounds(docID);
     getFieldsReader().visitDocument(docID, visitor);
   }
+
+  @Override
+  public final void prefetchDocument(int docID) throws IOException {
+    checkBounds(docID);
+    getFieldsReader().prefetch(docID);
+  }
   
   @Override
   public final Fields getTermVectors(int docID) throws IOException {
@@ -163,6 +169,17 @@ public abstract class CodecReader extends LeafReader implements Accountable {
     }
   }
 
+  @Override
+  public final NumericDocValuesIterator getNumericDocValuesIterator(String field) throws IOException {
+    ensureOpen();
+    FieldInfo fi = getDVField(field, DocValuesType.NUMERIC);
+    if (fi == null) {
+      return null;
+    }
+    // iterators are not reusable, so they are not cached
+    return getDocValuesReader().getNumericIterator(fi);
+  }
+
   @Override
   public final Bits getDocsWithField(String field) throws IOException {
     ensureOpen();
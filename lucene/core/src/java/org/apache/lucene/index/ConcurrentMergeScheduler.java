@@ -55,6 +55,17 @@ import org.apache.lucene.util.ThreadInterruptedException;
  *  disk for backwards compatibility.  To enable default
  *  settings for spinning or solid state disks for such
  *  operating systems, use {@link #setDefaultMaxMergesAndThreads(boolean)}.
+ *
+ *  <p>The auto IO throttle only looks at whether merges are
+ *  falling behind.  Applications can additionally pass a
+ *  {@link LoadFeedback} to {@link #setLoadFeedback}, e.g.
+ *  search latency percentiles (see {@link LatencyLoadFeedback})
+ *  or observed IO wait: while merges are running the feedback is
+ *  polled periodically, and when it reports overload the merge IO
+ *  rate is halved and one fewer large merge is allowed to run at
+ *  once, down to a single merge thread at the minimum rate.  Once
+ *  the load drops again the limits are gradually lifted, so
+ *  merges catch up during quiet periods.</p>
  */ 
 
 public class ConcurrentMergeScheduler extends MergeScheduler {
@@ -116,6 +127,44 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
 
   private double forceMergeMBPerSec = Double.POSITIVE_INFINITY;
 
+  /** Load above which merges are slowed down, see {@link LoadFeedback#getLoad}. */
+  private static final double HIGH_LOAD = 1.0;
+
+  /** Load below which merge limits are relaxed again. */
+  private static final double LOW_LOAD = 0.75;
+
+  /** Optional external load signal, polled while merges run */
+  private LoadFeedback loadFeedback;
+
+  /** How often we poll {@link #loadFeedback} */
+  private long loadFeedbackIntervalMS = 1000;
+
+  /** Cap on the merge IO rate derived from the load feedback */
+  private double loadMBPerSec = Double.POSITIVE_INFINITY;
+
+  /** Cap on the number of large merges running at once derived from the
+   *  load feedback, or {@link #AUTO_DETECT_MERGES_AND_THREADS} for no cap */
+  private int loadMaxThreadCount = AUTO_DETECT_MERGES_AND_THREADS;
+
+  /** Polls {@link #loadFeedback} while merges are running */
+  private Thread loadFeedbackThread;
+
+  /** An external signal of how loaded the system currently is,
+   *  used to slow merges down when they would hurt e.g. search
+   *  latency.
+   *
+   *  @see ConcurrentMergeScheduler#setLoadFeedback
+   *  @lucene.experimental */
+  @FunctionalInterface
+  public interface LoadFeedback {
+    /** Returns the current load relative to what is acceptable:
+     *  values above {@code 1.0} mean the system is overloaded and merges
+     *  should back off, values well below {@code 1.0} mean merges may
+     *  use more resources.  This is called from a background thread,
+     *  and must be thread-safe and cheap. */
+    double getLoad();
+  }
+
   /** Sole constructor, with all settings set to default
    *  values. */
   public ConcurrentMergeScheduler() {
@@ -220,12 +269,50 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
   }
 
   /** Returns the currently set per-merge IO writes rate limit, if {@link #enableAutoIOThrottle}
-   *  was called, else {@code Double.POSITIVE_INFINITY}. */
+   *  was called, else {@code Double.POSITIVE_INFINITY}, further capped by the
+   *  {@link #setLoadFeedback load feedback}. */
   public synchronized double getIORateLimitMBPerSec() {
     if (doAutoIOThrottle) {
-      return targetMBPerSec;
+      return Math.min(targetMBPerSec, loadMBPerSec);
     } else {
-      return Double.POSITIVE_INFINITY;
+      return loadMBPerSec;
+    }
+  }
+
+  /** Sets the {@link LoadFeedback} that is polled every {@code intervalMS}
+   *  while merges are running to adapt the merge IO rate and the number of
+   *  concurrently running merge threads to the load of the system.  Pass
+   *  {@code null} to remove the feedback and any limits it imposed. */
+  public synchronized void setLoadFeedback(LoadFeedback feedback, long intervalMS) {
+    if (intervalMS <= 0) {
+      throw new IllegalArgumentException("intervalMS must be > 0; got: " + intervalMS);
+    }
+    loadFeedback = feedback;
+    loadFeedbackIntervalMS = intervalMS;
+    if (feedback == null) {
+      loadMBPerSec = Double.POSITIVE_INFINITY;
+      loadMaxThreadCount = AUTO_DETECT_MERGES_AND_THREADS;
+      updateMergeThreads();
+    } else {
+      maybeStartLoadFeedbackThread();
+    }
+    // wake up the polling thread so it picks up the change
+    notifyAll();
+  }
+
+  /** Returns the {@link LoadFeedback}, or {@code null} if none was set. */
+  public synchronized LoadFeedback getLoadFeedback() {
+    return loadFeedback;
+  }
+
+  /** Returns how many large merges may currently run at once: this is
+   *  {@link #getMaxThreadCount} unless the {@link #setLoadFeedback load feedback}
+   *  lowered it. */
+  public synchronized int getEffectiveMaxThreadCount() {
+    if (loadMaxThreadCount == AUTO_DETECT_MERGES_AND_THREADS) {
+      return maxThreadCount;
+    } else {
+      return Math.min(loadMaxThreadCount, maxThreadCount);
     }
   }
 
@@ -295,12 +382,17 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
       }
     }
 
+    final int effectiveMaxThreadCount = getEffectiveMaxThreadCount();
+
     long now = System.nanoTime();
 
     StringBuilder message;
     if (verbose()) {
       message = new StringBuilder();
       message.append(String.format(Locale.ROOT, "updateMergeThreads ioThrottle=%s targetMBPerSec=%.1f MB/sec", doAutoIOThrottle, targetMBPerSec));
+      if (loadFeedback != null) {
+        message.append(String.format(Locale.ROOT, " loadMBPerSec=%s effectiveMaxThreadCount=%d", rateToString(loadMBPerSec), effectiveMaxThreadCount));
+      }
     } else {
       message = null;
     }
@@ -311,20 +403,20 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
       OneMerge merge = mergeThread.merge;
 
       // pause the thread if maxThreadCount is smaller than the number of merge threads.
-      final boolean doPause = threadIdx < bigMergeCount - maxThreadCount;
+      final boolean doPause = threadIdx < bigMergeCount - effectiveMaxThreadCount;
 
       double newMBPerSec;
       if (doPause) {
         newMBPerSec = 0.0;
       } else if (merge.maxNumSegments != -1) {
-        newMBPerSec = forceMergeMBPerSec;
-      } else if (doAutoIOThrottle == false) {
-        newMBPerSec = Double.POSITIVE_INFINITY;
+        newMBPerSec = Math.min(forceMergeMBPerSec, loadMBPerSec);
       } else if (merge.estimatedMergeBytes < MIN_BIG_MERGE_MB*1024*1024) {
         // Don't rate limit small merges:
         newMBPerSec = Double.POSITIVE_INFINITY;
+      } else if (doAutoIOThrottle == false) {
+        newMBPerSec = loadMBPerSec;
       } else {
-        newMBPerSec = targetMBPerSec;
+        newMBPerSec = Math.min(targetMBPerSec, loadMBPerSec);
       }
 
       double curMBPerSec = merge.rateLimiter.getMBPerSec();
@@ -404,6 +496,7 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
   @Override
   public void close() {
     sync();
+    stopLoadFeedbackThread();
   }
 
   /** Wait for any running merge threads to finish. This call is not interruptible as used by {@link #close()}. */
@@ -466,6 +559,8 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     if (trigger == MergeTrigger.CLOSING) {
       // Disable throttling on close:
       targetMBPerSec = MAX_MERGE_MB_PER_SEC;
+      loadMBPerSec = Double.POSITIVE_INFINITY;
+      loadMaxThreadCount = AUTO_DETECT_MERGES_AND_THREADS;
       updateMergeThreads();
     }
 
@@ -516,6 +611,7 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
 
         merger.start();
         updateMergeThreads();
+        maybeStartLoadFeedbackThread();
 
         success = true;
       } finally {
@@ -692,6 +788,9 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     sb.append("maxThreadCount=").append(maxThreadCount).append(", ");    
     sb.append("maxMergeCount=").append(maxMergeCount).append(", ");    
     sb.append("ioThrottle=").append(doAutoIOThrottle);
+    if (loadFeedback != null) {
+      sb.append(", loadFeedback=").append(loadFeedback);
+    }
     return sb.toString();
   }
 
@@ -802,6 +901,95 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
   protected void targetMBPerSecChanged() {
   }
 
+  /** Adapts the merge IO rate and thread limits to a new value
+   *  of the {@link LoadFeedback}: if the load is too high we halve the
+   *  IO rate and run one fewer large merge at once, if it is low we
+   *  relax both again (by 50% and one thread at a time). */
+  synchronized void updateLoad(double load) {
+    final double curMBPerSec = loadMBPerSec;
+    final int curMaxThreadCount = loadMaxThreadCount;
+
+    if (load > HIGH_LOAD) {
+      // Start backing off from the rate merges currently run at:
+      double mbPerSec = Math.min(loadMBPerSec, doAutoIOThrottle ? targetMBPerSec : MAX_MERGE_MB_PER_SEC);
+      loadMBPerSec = Math.max(MIN_MERGE_MB_PER_SEC, mbPerSec / 2);
+      loadMaxThreadCount = Math.max(1, getEffectiveMaxThreadCount() - 1);
+    } else if (load < LOW_LOAD) {
+      if (loadMBPerSec != Double.POSITIVE_INFINITY) {
+        loadMBPerSec *= 1.5;
+        if (loadMBPerSec >= MAX_MERGE_MB_PER_SEC) {
+          loadMBPerSec = Double.POSITIVE_INFINITY;
+        }
+      }
+      if (loadMaxThreadCount != AUTO_DETECT_MERGES_AND_THREADS && ++loadMaxThreadCount >= maxThreadCount) {
+        loadMaxThreadCount = AUTO_DETECT_MERGES_AND_THREADS;
+      }
+    }
+
+    if (curMBPerSec != loadMBPerSec || curMaxThreadCount != loadMaxThreadCount) {
+      if (verbose()) {
+        message(String.format(Locale.ROOT, "load feedback: load=%.2f; set IO rate cap to %s and max threads to %d",
+                              load, rateToString(loadMBPerSec), getEffectiveMaxThreadCount()));
+      }
+      updateMergeThreads();
+    }
+  }
+
+  private synchronized void maybeStartLoadFeedbackThread() {
+    if (loadFeedback != null && loadFeedbackThread == null && mergeThreads.isEmpty() == false) {
+      loadFeedbackThread = new Thread(this::pollLoadFeedback, "Lucene Merge Load Feedback Thread");
+      loadFeedbackThread.setDaemon(true);
+      loadFeedbackThread.start();
+    }
+  }
+
+  private void stopLoadFeedbackThread() {
+    final Thread thread;
+    synchronized (this) {
+      thread = loadFeedbackThread;
+      // the thread exits once it sees there are no more running merges:
+      notifyAll();
+    }
+    if (thread != null && thread != Thread.currentThread()) {
+      try {
+        thread.join();
+      } catch (InterruptedException ie) {
+        throw new ThreadInterruptedException(ie);
+      }
+    }
+  }
+
+  /** Polls the load feedback for as long as merges are running. */
+  private void pollLoadFeedback() {
+    try {
+      while (true) {
+        final LoadFeedback feedback;
+        synchronized (this) {
+          final long deadlineNS = System.nanoTime() + loadFeedbackIntervalMS * 1000000;
+          long remainingNS;
+          while (loadFeedback != null && mergeThreads.isEmpty() == false
+              && (remainingNS = deadlineNS - System.nanoTime()) > 0) {
+            // woken up early whenever a merge finishes:
+            wait(Math.max(1, remainingNS / 1000000));
+          }
+          if (loadFeedback == null || mergeThreads.isEmpty()) {
+            return;
+          }
+          feedback = loadFeedback;
+        }
+        // don't hold our lock while calling out to the application:
+        final double load = feedback.getLoad();
+        updateLoad(load);
+      }
+    } catch (InterruptedException ie) {
+      // exit; we are restarted by the next merge
+    } finally {
+      synchronized (this) {
+        loadFeedbackThread = null;
+      }
+    }
+  }
+
   private static double nsToSec(long ns) {
     return ns / 1000000000.0;
   }
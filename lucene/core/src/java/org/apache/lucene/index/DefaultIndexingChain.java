@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.codecs.DocValuesConsumer;
@@ -31,6 +32,7 @@ import org.apache.lucene.codecs.PointsFormat;
 import org.apache.lucene.codecs.PointsWriter;
 import org.apache.lucene.codecs.StoredFieldsWriter;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.ReusableDocument;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.ArrayUtil;
@@ -90,36 +92,116 @@ final class DefaultIndexingChain extends DocConsumer {
     // NOTE: caller (DocumentsWriterPerThread) handles
     // aborting on any exception from this method
 
-    int maxDoc = state.segmentInfo.maxDoc();
+    // the parts of the segment that are written independently of each other
+    final String[] descriptions = {"write norms", "write docValues", "write points", "finish stored fields", "write postings and finish vectors"};
+    final FlushStep[] steps = {this::writeNorms, this::writeDocValues, this::writePoints, this::writeStoredFields, this::writePostings};
+    if (docWriter.flushThreadCount > 1) {
+      writeConcurrently(descriptions, steps, state);
+    } else {
+      for (int i = 0; i < steps.length; i++) {
+        writeAndLog(descriptions[i], steps[i], state);
+      }
+    }
+
+    // Important to save after asking consumer to flush so
+    // consumer can alter the FieldInfo* if necessary.  EG,
+    // FreqProxTermsWriter does this with
+    // FieldInfo.storePayload.
     long t0 = System.nanoTime();
-    writeNorms(state);
+    docWriter.codec.fieldInfosFormat().write(state.directory, state.segmentInfo, "", state.fieldInfos, IOContext.DEFAULT);
     if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write norms");
+      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write fieldInfos");
     }
-    
-    t0 = System.nanoTime();
-    writeDocValues(state);
+  }
+
+  /** Writes one part of a segment on flush. */
+  @FunctionalInterface
+  private interface FlushStep {
+    void write(SegmentWriteState state) throws IOException, AbortingException;
+  }
+
+  private void writeAndLog(String description, FlushStep step, SegmentWriteState state) throws IOException, AbortingException {
+    long t0 = System.nanoTime();
+    step.write(state);
     if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write docValues");
+      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to " + description);
     }
+  }
 
-    t0 = System.nanoTime();
-    writePoints(state);
-    if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write points");
+  /** Runs the given steps using the current thread and up to {@code flushThreadCount-1} helper threads,
+   *  and only returns, or rethrows the first exception, once all steps are done. */
+  private void writeConcurrently(String[] descriptions, FlushStep[] steps, SegmentWriteState state) throws IOException, AbortingException {
+    // creating the stored fields writer records the compression mode in the segment
+    // attributes, do it now so that segment attributes are never modified concurrently
+    initStoredFieldsWriter();
+
+    final AtomicInteger nextStep = new AtomicInteger();
+    final Throwable[] failures = new Throwable[steps.length];
+    final Runnable worker = () -> {
+      for (int i = nextStep.getAndIncrement(); i < steps.length; i = nextStep.getAndIncrement()) {
+        // start with postings and stored fields, which are usually the largest parts
+        final int step = steps.length - 1 - i;
+        try {
+          writeAndLog(descriptions[step], steps[step], state);
+        } catch (Throwable t) {
+          failures[step] = t;
+        }
+      }
+    };
+
+    final Thread[] helpers = new Thread[Math.min(docWriter.flushThreadCount, steps.length) - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = new Thread(worker, "Lucene Flush Thread #" + i + " [" + state.segmentInfo.name + "]");
+      helpers[i].setDaemon(true);
+      helpers[i].start();
     }
-    
+    worker.run();
+
+    // wait for helpers even if interrupted: the caller aborts the segment on
+    // failure, which must not happen while parts of it are still being written
+    boolean interrupted = false;
+    for (Thread helper : helpers) {
+      while (true) {
+        try {
+          helper.join();
+          break;
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    Throwable failure = null;
+    for (Throwable t : failures) {
+      if (t == null) {
+        continue;
+      } else if (failure == null) {
+        failure = t;
+      } else {
+        failure.addSuppressed(t);
+      }
+    }
+    if (failure instanceof AbortingException) {
+      throw (AbortingException) failure;
+    }
+    IOUtils.reThrow(failure);
+  }
+
+  /** Writes stored fields, including empty documents for all docs that have none. */
+  private void writeStoredFields(SegmentWriteState state) throws IOException, AbortingException {
     // it's possible all docs hit non-aborting exceptions...
-    t0 = System.nanoTime();
+    int maxDoc = state.segmentInfo.maxDoc();
     initStoredFieldsWriter();
     fillStoredFields(maxDoc);
     storedFieldsWriter.finish(state.fieldInfos, maxDoc);
     storedFieldsWriter.close();
-    if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to finish stored fields");
-    }
+  }
 
-    t0 = System.nanoTime();
+  /** Writes postings and finishes term vectors. */
+  private void writePostings(SegmentWriteState state) throws IOException {
     Map<String,TermsHashPerField> fieldsToFlush = new HashMap<>();
     for (int i=0;i<fieldHash.length;i++) {
       PerField perField = fieldHash[i];
@@ -132,19 +214,6 @@ final class DefaultIndexingChain extends DocConsumer {
     }
 
     termsHash.flush(fieldsToFlush, state);
-    if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write postings and finish vectors");
-    }
-
-    // Important to save after asking consumer to flush so
-    // consumer can alter the FieldInfo* if necessary.  EG,
-    // FreqProxTermsWriter does this with
-    // FieldInfo.storePayload.
-    t0 = System.nanoTime();
-    docWriter.codec.fieldInfosFormat().write(state.directory, state.segmentInfo, "", state.fieldInfos, IOContext.DEFAULT);
-    if (docState.infoStream.isEnabled("IW")) {
-      docState.infoStream.message("IW", ((System.nanoTime()-t0)/1000000) + " msec to write fieldInfos");
-    }
   }
 
   /** Writes all buffered points. */
@@ -497,6 +566,14 @@ final class DefaultIndexingChain extends DocConsumer {
     fp.pointValuesWriter.addPackedValue(docState.docID, field.binaryValue());
   }
 
+  /** Returns the numeric value of a doc values field, without boxing it when possible. */
+  private static long longValue(IndexableField field) {
+    if (field instanceof ReusableDocument.ReusableField) {
+      return ((ReusableDocument.ReusableField) field).longValue();
+    }
+    return field.numericValue().longValue();
+  }
+
   /** Called from processDocument to index one field's doc value */
   private void indexDocValue(PerField fp, DocValuesType dvType, IndexableField field) throws IOException {
 
@@ -516,7 +593,7 @@ final class DefaultIndexingChain extends DocConsumer {
         if (fp.docValuesWriter == null) {
           fp.docValuesWriter = new NumericDocValuesWriter(fp.fieldInfo, bytesUsed);
         }
-        ((NumericDocValuesWriter) fp.docValuesWriter).addValue(docID, field.numericValue().longValue());
+        ((NumericDocValuesWriter) fp.docValuesWriter).addValue(docID, longValue(field));
         break;
 
       case BINARY:
@@ -537,7 +614,7 @@ final class DefaultIndexingChain extends DocConsumer {
         if (fp.docValuesWriter == null) {
           fp.docValuesWriter = new SortedNumericDocValuesWriter(fp.fieldInfo, bytesUsed);
         }
-        ((SortedNumericDocValuesWriter) fp.docValuesWriter).addValue(docID, field.numericValue().longValue());
+        ((SortedNumericDocValuesWriter) fp.docValuesWriter).addValue(docID, longValue(field));
         break;
 
       case SORTED_SET:
@@ -197,6 +197,98 @@ public final class DocValues {
     };
   }
   
+  /**
+   * Returns a {@link NumericDocValuesIterator} view over the provided
+   * random-access {@link NumericDocValues}, that visits the documents
+   * whose bit is set in {@code docsWithField}.
+   */
+  public static NumericDocValuesIterator iterator(final NumericDocValues dv, final Bits docsWithField) {
+    final int maxDoc = docsWithField.length();
+    if (docsWithField instanceof Bits.MatchNoBits) {
+      return emptyNumericIterator();
+    }
+    return new NumericDocValuesIterator() {
+      int doc = -1;
+
+      @Override
+      public int docID() {
+        return doc;
+      }
+
+      @Override
+      public int nextDoc() {
+        return advance(doc + 1);
+      }
+
+      @Override
+      public int advance(int target) {
+        for (doc = target; doc < maxDoc; ++doc) {
+          if (docsWithField.get(doc)) {
+            return doc;
+          }
+        }
+        return doc = NO_MORE_DOCS;
+      }
+
+      @Override
+      public boolean advanceExact(int target) {
+        assert target >= doc && target < maxDoc;
+        doc = target;
+        return docsWithField.get(target);
+      }
+
+      @Override
+      public long longValue() {
+        return dv.get(doc);
+      }
+
+      @Override
+      public long cost() {
+        return maxDoc;
+      }
+    };
+  }
+
+  /**
+   * An empty NumericDocValuesIterator which matches no documents
+   */
+  public static final NumericDocValuesIterator emptyNumericIterator() {
+    return new NumericDocValuesIterator() {
+      int doc = -1;
+
+      @Override
+      public int docID() {
+        return doc;
+      }
+
+      @Override
+      public int nextDoc() {
+        return doc = NO_MORE_DOCS;
+      }
+
+      @Override
+      public int advance(int target) {
+        return doc = NO_MORE_DOCS;
+      }
+
+      @Override
+      public boolean advanceExact(int target) {
+        doc = target;
+        return false;
+      }
+
+      @Override
+      public long longValue() {
+        throw new IllegalStateException("no document has a value");
+      }
+
+      @Override
+      public long cost() {
+        return 0;
+      }
+    };
+  }
+
   // some helpers, for transition from fieldcache apis.
   // as opposed to the LeafReader apis (which must be strict for consistency), these are lenient
   
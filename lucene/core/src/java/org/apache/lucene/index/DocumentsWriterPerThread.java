@@ -32,10 +32,12 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FlushInfo;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MergeInfo;
 import org.apache.lucene.store.TrackingDirectoryWrapper;
 import org.apache.lucene.util.ByteBlockPool.Allocator;
 import org.apache.lucene.util.ByteBlockPool.DirectTrackingAllocator;
 import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.IntBlockPool;
 import org.apache.lucene.util.MutableBits;
@@ -98,10 +100,11 @@ class DocumentsWriterPerThread {
     final int delCount;
 
     private FlushedSegment(SegmentCommitInfo segmentInfo, FieldInfos fieldInfos,
-                           BufferedUpdates segmentUpdates, MutableBits liveDocs, int delCount) {
+                           BufferedUpdates segmentUpdates, MutableBits liveDocs, int delCount,
+                           Sorter.DocMap sortMap) {
       this.segmentInfo = segmentInfo;
       this.fieldInfos = fieldInfos;
-      this.segmentUpdates = segmentUpdates != null && segmentUpdates.any() ? new FrozenBufferedUpdates(segmentUpdates, true) : null;
+      this.segmentUpdates = segmentUpdates != null && segmentUpdates.any() ? new FrozenBufferedUpdates(segmentUpdates, true, sortMap) : null;
       this.liveDocs = liveDocs;
       this.delCount = delCount;
     }
@@ -137,6 +140,8 @@ class DocumentsWriterPerThread {
   final DocState docState;
   final DocConsumer consumer;
   final Counter bytesUsed;
+  // number of threads that may write the parts of this segment on flush
+  final int flushThreadCount;
   
   SegmentWriteState flushState;
   // Updates for our still-in-RAM (to be flushed next) segment
@@ -169,7 +174,9 @@ class DocumentsWriterPerThread {
     this.docState = new DocState(this, infoStream);
     this.docState.similarity = indexWriterConfig.getSimilarity();
     this.pendingNumDocs = pendingNumDocs;
-    bytesUsed = Counter.newCounter();
+    this.flushThreadCount = indexWriterConfig.getFlushThreadCount();
+    // parts of the segment may be flushed concurrently, which may all update this counter
+    bytesUsed = Counter.newCounter(flushThreadCount > 1);
     byteBlockAllocator = new DirectTrackingAllocator(bytesUsed);
     pendingUpdates = new BufferedUpdates(segmentName);
     intBlockAllocator = new IntBlockAllocator(bytesUsed);
@@ -177,7 +184,7 @@ class DocumentsWriterPerThread {
     assert numDocsInRAM == 0 : "num docs " + numDocsInRAM;
     deleteSlice = deleteQueue.newSlice();
    
-    segmentInfo = new SegmentInfo(directoryOrig, Version.LATEST, segmentName, -1, false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), null);
+    segmentInfo = new SegmentInfo(directoryOrig, Version.LATEST, segmentName, -1, false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), indexWriterConfig.getIndexSort());
     assert numDocsInRAM == 0;
     if (INFO_VERBOSE && infoStream.isEnabled("DWPT")) {
       infoStream.message("DWPT", Thread.currentThread().getName() + " init seg=" + segmentName + " delQueue=" + deleteQueue);  
@@ -444,15 +451,34 @@ class DocumentsWriterPerThread {
       pendingUpdates.terms.clear();
       segmentInfo.setFiles(new HashSet<>(directory.getCreatedFiles()));
 
-      final SegmentCommitInfo segmentInfoPerCommit = new SegmentCommitInfo(segmentInfo, 0, -1L, -1L, -1L);
+      SegmentInfo flushedInfo = segmentInfo;
+      FieldInfos flushedFieldInfos = flushState.fieldInfos;
+      Sorter.DocMap sortMap = null;
+      if (segmentInfo.getIndexSort() != null) {
+        try (SegmentReader reader = new SegmentReader(new SegmentCommitInfo(segmentInfo, 0, -1L, -1L, -1L), IOContext.READ)) {
+          sortMap = new Sorter(segmentInfo.getIndexSort()).sort(reader);
+          if (sortMap != null) {
+            flushedInfo = new SegmentInfo(directoryOrig, Version.LATEST, indexWriter.newSegmentName(), -1, false, codec,
+                                          Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), segmentInfo.getIndexSort());
+            flushedFieldInfos = writeSortedSegment(reader, sortMap, flushedInfo);
+            // the unsorted segment is only an intermediate step, it is never published
+            filesToDelete.addAll(segmentInfo.files());
+            if (flushState.liveDocs != null) {
+              flushState.liveDocs = sortLiveDocs(flushState.liveDocs, sortMap);
+            }
+          }
+        }
+      }
+
+      final SegmentCommitInfo segmentInfoPerCommit = new SegmentCommitInfo(flushedInfo, 0, -1L, -1L, -1L);
       if (infoStream.isEnabled("DWPT")) {
         infoStream.message("DWPT", "new segment has " + (flushState.liveDocs == null ? 0 : flushState.delCountOnFlush) + " deleted docs");
         infoStream.message("DWPT", "new segment has " +
-                           (flushState.fieldInfos.hasVectors() ? "vectors" : "no vectors") + "; " +
-                           (flushState.fieldInfos.hasNorms() ? "norms" : "no norms") + "; " + 
-                           (flushState.fieldInfos.hasDocValues() ? "docValues" : "no docValues") + "; " + 
-                           (flushState.fieldInfos.hasProx() ? "prox" : "no prox") + "; " + 
-                           (flushState.fieldInfos.hasFreq() ? "freqs" : "no freqs"));
+                           (flushedFieldInfos.hasVectors() ? "vectors" : "no vectors") + "; " +
+                           (flushedFieldInfos.hasNorms() ? "norms" : "no norms") + "; " + 
+                           (flushedFieldInfos.hasDocValues() ? "docValues" : "no docValues") + "; " + 
+                           (flushedFieldInfos.hasProx() ? "prox" : "no prox") + "; " + 
+                           (flushedFieldInfos.hasFreq() ? "freqs" : "no freqs"));
         infoStream.message("DWPT", "flushedFiles=" + segmentInfoPerCommit.files());
         infoStream.message("DWPT", "flushed codec=" + codec);
       }
@@ -467,7 +493,7 @@ class DocumentsWriterPerThread {
 
       if (infoStream.isEnabled("DWPT")) {
         final double newSegmentSize = segmentInfoPerCommit.sizeInBytes()/1024./1024.;
-        infoStream.message("DWPT", "flushed: segment=" + segmentInfo.name + 
+        infoStream.message("DWPT", "flushed: segment=" + flushedInfo.name + 
                 " ramUsed=" + nf.format(startMBUsed) + " MB" +
                 " newFlushedSize=" + nf.format(newSegmentSize) + " MB" +
                 " docs/MB=" + nf.format(flushState.segmentInfo.maxDoc() / newSegmentSize));
@@ -475,8 +501,9 @@ class DocumentsWriterPerThread {
 
       assert segmentInfo != null;
 
-      FlushedSegment fs = new FlushedSegment(segmentInfoPerCommit, flushState.fieldInfos,
-                                             segmentDeletes, flushState.liveDocs, flushState.delCountOnFlush);
+      FlushedSegment fs = new FlushedSegment(segmentInfoPerCommit, flushedFieldInfos,
+                                             segmentDeletes, flushState.liveDocs, flushState.delCountOnFlush,
+                                             sortMap);
       sealFlushedSegment(fs);
       if (infoStream.isEnabled("DWPT")) {
         infoStream.message("DWPT", "flush time " + ((System.nanoTime() - t0)/1000000.0) + " msec");
@@ -489,6 +516,46 @@ class DocumentsWriterPerThread {
     }
   }
   
+  /**
+   * Rewrites the just flushed segment in index sort order into {@code sortedInfo},
+   * using the same code path as merges, and returns its {@link FieldInfos}.
+   */
+  private FieldInfos writeSortedSegment(SegmentReader reader, Sorter.DocMap sortMap, SegmentInfo sortedInfo) throws IOException {
+    long t0 = System.nanoTime();
+    final TrackingDirectoryWrapper sortedDir = new TrackingDirectoryWrapper(directory);
+    final IOContext context = new IOContext(new MergeInfo(reader.maxDoc(), new SegmentCommitInfo(segmentInfo, 0, -1L, -1L, -1L).sizeInBytes(), false, -1));
+    final CodecReader sortedReader = SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(new MergeReaderWrapper(reader), sortMap));
+    boolean success = false;
+    try {
+      final SegmentMerger merger = new SegmentMerger(Collections.singletonList(sortedReader), sortedInfo, infoStream, sortedDir,
+                                                     indexWriter.globalFieldNumberMap, context);
+      final MergeState mergeState = merger.merge();
+      assert sortedInfo.maxDoc() == reader.maxDoc();
+      sortedInfo.setFiles(new HashSet<>(sortedDir.getCreatedFiles()));
+      if (infoStream.isEnabled("DWPT")) {
+        infoStream.message("DWPT", String.format(Locale.ROOT, "flush: sorted segment %s by %s into segment %s (%.2f msec)",
+                                                 segmentInfo.name, sortedInfo.getIndexSort(), sortedInfo.name, (System.nanoTime() - t0)/1000000.0));
+      }
+      success = true;
+      return mergeState.mergeFieldInfos;
+    } finally {
+      if (success == false) {
+        IOUtils.deleteFilesIgnoringExceptions(directory, sortedDir.getCreatedFiles());
+      }
+    }
+  }
+
+  /** Maps deletions that were recorded against unsorted doc IDs to the sorted segment. */
+  private MutableBits sortLiveDocs(MutableBits liveDocs, Sorter.DocMap sortMap) throws IOException {
+    final MutableBits sortedLiveDocs = codec.liveDocsFormat().newLiveDocs(liveDocs.length());
+    for (int doc = 0; doc < liveDocs.length(); ++doc) {
+      if (liveDocs.get(doc) == false) {
+        sortedLiveDocs.clear(sortMap.oldToNew(doc));
+      }
+    }
+    return sortedLiveDocs;
+  }
+
   private final Set<String> filesToDelete = new HashSet<>();
   
   public Set<String> pendingFilesToDelete() {
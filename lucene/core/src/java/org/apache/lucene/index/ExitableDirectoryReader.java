@@ -98,6 +98,11 @@ public class ExitableDirectoryReader extends FilterDirectoryReader {
     public Object getCombinedCoreAndDeletesKey() {
       return in.getCombinedCoreAndDeletesKey();
     }
+
+    @Override
+    public void prefetchDocument(int docID) throws IOException {
+      in.prefetchDocument(docID);
+    }
     
   }
 
@@ -305,7 +305,7 @@ public final class FieldInfo {
   /**
    * Get a codec attribute value, or null if it does not exist
    */
-  public String getAttribute(String key) {
+  public synchronized String getAttribute(String key) {
     return attributes.get(key);
   }
   
@@ -318,8 +318,11 @@ public final class FieldInfo {
    * <p>
    * If a value already exists for the field, it will be replaced with 
    * the new value.
+   * <p>
+   * This method is synchronized since the formats of a segment may be written
+   * concurrently, see {@link IndexWriterConfig#setFlushThreadCount(int)}.
    */
-  public String putAttribute(String key, String value) {
+  public synchronized String putAttribute(String key, String value) {
     return attributes.put(key, value);
   }
   
@@ -60,10 +60,19 @@ class FrozenBufferedUpdates {
   final boolean isSegmentPrivate;  // set to true iff this frozen packet represents 
                                    // a segment private deletes. in that case is should
                                    // only have Queries 
+  final Sorter.DocMap sortMap;     // non-null iff this is a segment private packet and
+                                   // the segment was sorted on flush: docIDUpto limits
+                                   // refer to doc IDs before sorting
 
 
   public FrozenBufferedUpdates(BufferedUpdates deletes, boolean isSegmentPrivate) {
+    this(deletes, isSegmentPrivate, null);
+  }
+
+  public FrozenBufferedUpdates(BufferedUpdates deletes, boolean isSegmentPrivate, Sorter.DocMap sortMap) {
+    assert sortMap == null || isSegmentPrivate : "only segment private packets can be sorted";
     this.isSegmentPrivate = isSegmentPrivate;
+    this.sortMap = sortMap;
     assert !isSegmentPrivate || deletes.terms.size() == 0 : "segment private package should only have del queries"; 
     Term termsArray[] = deletes.terms.keySet().toArray(new Term[deletes.terms.size()]);
     ArrayUtil.timSort(termsArray);
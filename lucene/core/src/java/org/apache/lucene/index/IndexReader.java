@@ -340,6 +340,18 @@ public abstract class IndexReader implements Closeable {
    *  #document(int)}.  If you want to load a subset, use
    *  {@link DocumentStoredFieldVisitor}.  */
   public abstract void document(int docID, StoredFieldVisitor visitor) throws IOException;
+
+  /**
+   * Expert: hints that the stored fields of <code>docID</code> will be
+   * {@link #document(int, StoredFieldVisitor) visited} soon, so they can be
+   * loaded in the background. Calling this for a batch of documents before
+   * visiting them overlaps their I/O.
+   * <p>
+   * The default implementation does nothing.
+   * @lucene.experimental
+   */
+  public void prefetchDocument(int docID) throws IOException {
+  }
   
   /**
    * Returns the stored fields of the <code>n</code><sup>th</sup>
@@ -49,6 +49,7 @@ import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -1587,7 +1588,8 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
   /**
    * Updates a document's {@link NumericDocValues} for <code>field</code> to the
    * given <code>value</code>. You can only update fields that already exist in
-   * the index, not add new fields through this method.
+   * the index, not add new fields through this method. Fields that are part of
+   * the {@link IndexWriterConfig#setIndexSort index sort} cannot be updated.
    * 
    * @param term
    *          the term to identify the document(s) to be updated
@@ -1609,6 +1611,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     if (!globalFieldNumberMap.contains(field, DocValuesType.NUMERIC)) {
       throw new IllegalArgumentException("can only update existing numeric-docvalues fields!");
     }
+    ensureNotIndexSortField(field);
     try {
       long seqNo = docWriter.updateDocValues(new NumericDocValuesUpdate(term, field, value));
       if (seqNo < 0) {
@@ -1624,6 +1627,19 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     }
   }
 
+  /** Segments are sorted when they are written, so updating a field that is
+   *  part of the index sort would silently break the sort order. */
+  private void ensureNotIndexSortField(String field) {
+    final Sort indexSort = config.getIndexSort();
+    if (indexSort != null) {
+      for (SortField sortField : indexSort.getSort()) {
+        if (field.equals(sortField.getField())) {
+          throw new IllegalArgumentException("cannot update docvalues field involved in the index sort, field=" + field + ", sort=" + indexSort);
+        }
+      }
+    }
+  }
+
   /**
    * Updates a document's {@link BinaryDocValues} for <code>field</code> to the
    * given <code>value</code>. You can only update fields that already exist in
@@ -1703,6 +1719,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       if (!globalFieldNumberMap.contains(f.name(), dvType)) {
         throw new IllegalArgumentException("can only update existing docvalues fields! field=" + f.name() + ", type=" + dvType);
       }
+      ensureNotIndexSortField(f.name());
       switch (dvType) {
         case NUMERIC:
           dvUpdates[i] = new NumericDocValuesUpdate(term, f.name(), (Long) f.numericValue());
@@ -94,6 +94,10 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
 
   /** Default value is 1945. Change using {@link #setRAMPerThreadHardLimitMB(int)} */
   public static final int DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB = 1945;
+
+  /** Default value is 1, ie. segments are flushed by a single thread.
+   *  Change using {@link #setFlushThreadCount(int)} */
+  public static final int DEFAULT_FLUSH_THREAD_COUNT = 1;
   
   /** Default value for compound file system for newly written segments
    *  (set to <code>true</code>). For batch indexing with very large 
@@ -356,6 +360,34 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
   public int getRAMPerThreadHardLimitMB() {
     return perThreadHardLimitMB;
   }
+
+  /**
+   * Expert: Sets the number of threads that may write the parts of a segment
+   * when it is flushed. Postings and term vectors, stored fields, doc values,
+   * points and norms are written by independent codec components, so with a
+   * value greater than 1 the thread that flushes a
+   * {@link DocumentsWriterPerThread} writes some of them while up to
+   * <code>flushThreadCount - 1</code> short-lived helper threads write the
+   * others. This makes flushing large segments of documents with many kinds
+   * of fields faster, and so reduces the time indexing threads may be
+   * stalled waiting for flushes, at the expense of more concurrent I/O.
+   * Codecs must then tolerate writing the formats of a segment concurrently,
+   * which all formats of Lucene do.
+   *
+   * @see #DEFAULT_FLUSH_THREAD_COUNT
+   */
+  public IndexWriterConfig setFlushThreadCount(int flushThreadCount) {
+    if (flushThreadCount <= 0) {
+      throw new IllegalArgumentException("flushThreadCount must be > 0, got " + flushThreadCount);
+    }
+    this.flushThreadCount = flushThreadCount;
+    return this;
+  }
+
+  @Override
+  public int getFlushThreadCount() {
+    return flushThreadCount;
+  }
   
   @Override
   FlushPolicy getFlushPolicy() {
@@ -464,7 +496,9 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
                                                                                      SortField.Type.FLOAT);
 
   /**
-   * Set the {@link Sort} order to use when merging segments.  Note that newly flushed segments will remain unsorted.
+   * Set the {@link Sort} order to use for all segments: documents are sorted
+   * when segments are flushed and when segments are merged, and the sort is
+   * recorded in the {@link SegmentInfo} of every segment.
    */
   public IndexWriterConfig setIndexSort(Sort sort) {
     for(SortField sortField : sort.getSort()) {
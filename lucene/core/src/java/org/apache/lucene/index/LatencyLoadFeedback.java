@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A {@link ConcurrentMergeScheduler.LoadFeedback} based on a latency
+ *  percentile: the application reports the latency of each search (or
+ *  any other operation merges should not slow down) with {@link
+ *  #recordLatency}, and the load is the chosen percentile of the
+ *  latencies recorded since the previous call to {@link #getLoad},
+ *  divided by the target latency.  For example with a target of 100 msec
+ *  at the 99th percentile, merges are slowed down while the p99 latency
+ *  is above 100 msec.
+ *
+ *  <p>Only the most recent {@code maxSamples} latencies are kept between
+ *  two polls.  When nothing was recorded since the last poll the load is
+ *  0, so merges can catch up while the application is idle.
+ *
+ *  @lucene.experimental */
+public final class LatencyLoadFeedback implements ConcurrentMergeScheduler.LoadFeedback {
+
+  private final double percentile;
+  private final long targetLatencyNS;
+  private final AtomicLongArray samples;
+  private final AtomicLong sampleCount = new AtomicLong();
+
+  // sampleCount as of the previous call to getLoad
+  private long lastSampleCount;
+
+  /** Creates a new LatencyLoadFeedback.
+   *
+   * @param percentile which percentile of the latencies to look at, e.g. 99 for p99
+   * @param targetLatencyNS the highest acceptable latency at that percentile, in nanoseconds
+   * @param maxSamples how many latencies to keep between two polls */
+  public LatencyLoadFeedback(double percentile, long targetLatencyNS, int maxSamples) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be > 0 and <= 100; got: " + percentile);
+    }
+    if (targetLatencyNS <= 0) {
+      throw new IllegalArgumentException("targetLatencyNS must be > 0; got: " + targetLatencyNS);
+    }
+    if (maxSamples <= 0) {
+      throw new IllegalArgumentException("maxSamples must be > 0; got: " + maxSamples);
+    }
+    this.percentile = percentile;
+    this.targetLatencyNS = targetLatencyNS;
+    this.samples = new AtomicLongArray(maxSamples);
+  }
+
+  /** Records the latency of one operation, in nanoseconds.  This is
+   *  thread-safe and does not block. */
+  public void recordLatency(long latencyNS) {
+    final long index = sampleCount.getAndIncrement();
+    samples.set((int) (index % samples.length()), latencyNS);
+  }
+
+  @Override
+  public synchronized double getLoad() {
+    final long count = sampleCount.get();
+    final int numSamples = (int) Math.min(count - lastSampleCount, samples.length());
+    lastSampleCount = count;
+    if (numSamples == 0) {
+      return 0.0;
+    }
+    // NOTE: concurrent calls to recordLatency may overwrite some of these
+    // samples with newer ones, which is fine for our purpose:
+    final long[] latencies = new long[numSamples];
+    for (int i = 0; i < numSamples; i++) {
+      latencies[i] = samples.get((int) ((count - 1 - i) % samples.length()));
+    }
+    Arrays.sort(latencies);
+    final int rank = (int) Math.ceil(percentile / 100 * numSamples) - 1;
+    return (double) latencies[Math.max(0, rank)] / targetLatencyNS;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "LatencyLoadFeedback(p%s <= %.1f msec)", percentile, targetLatencyNS / 1000000.0);
+  }
+}
@@ -246,6 +246,22 @@ public abstract class LeafReader extends IndexReader {
    *  used by a single thread. */
   public abstract NumericDocValues getNumericDocValues(String field) throws IOException;
 
+  /** Returns a {@link NumericDocValuesIterator} over the documents that have
+   *  a value for this field, or null if no {@link NumericDocValues} were
+   *  indexed for this field. Unlike {@link #getNumericDocValues(String)}, a
+   *  new iterator is returned on every call. The returned instance should
+   *  only be used by a single thread.
+   *  <p>The default implementation wraps {@link #getNumericDocValues(String)}
+   *  and {@link #getDocsWithField(String)}.
+   *  @lucene.experimental */
+  public NumericDocValuesIterator getNumericDocValuesIterator(String field) throws IOException {
+    final NumericDocValues values = getNumericDocValues(field);
+    if (values == null) {
+      return null;
+    }
+    return DocValues.iterator(values, getDocsWithField(field));
+  }
+
   /** Returns {@link BinaryDocValues} for this field, or
    *  null if no {@link BinaryDocValues} were indexed for
    *  this field.  The returned instance should only be
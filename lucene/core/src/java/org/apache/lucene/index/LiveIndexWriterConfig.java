@@ -89,6 +89,9 @@ public class LiveIndexWriterConfig {
    *  segment, after which the segment is forced to flush. */
   protected volatile int perThreadHardLimitMB;
 
+  /** Number of threads that may write the parts of a segment on flush. */
+  protected volatile int flushThreadCount;
+
   /** True if segment flushes should use compound file format */
   protected volatile boolean useCompoundFile = IndexWriterConfig.DEFAULT_USE_COMPOUND_FILE_SYSTEM;
   
@@ -122,6 +125,7 @@ public class LiveIndexWriterConfig {
     readerPooling = IndexWriterConfig.DEFAULT_READER_POOLING;
     indexerThreadPool = new DocumentsWriterPerThreadPool();
     perThreadHardLimitMB = IndexWriterConfig.DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB;
+    flushThreadCount = IndexWriterConfig.DEFAULT_FLUSH_THREAD_COUNT;
   }
   
   /** Returns the default analyzer to use for indexing documents. */
@@ -399,6 +403,16 @@ public class LiveIndexWriterConfig {
   public int getRAMPerThreadHardLimitMB() {
     return perThreadHardLimitMB;
   }
+
+  /**
+   * Returns the number of threads that may write the parts of a segment
+   * concurrently when it is flushed.
+   *
+   * @see IndexWriterConfig#setFlushThreadCount(int)
+   */
+  public int getFlushThreadCount() {
+    return flushThreadCount;
+  }
   
   /**
    * @see IndexWriterConfig#setFlushPolicy(FlushPolicy)
@@ -450,8 +464,8 @@ public class LiveIndexWriterConfig {
   }
 
   /**
-   * Set the index-time {@link Sort} order. Merged segments will be written
-   * in this order.
+   * Get the index-time {@link Sort} order. Flushed and merged segments will
+   * be written in this order.
    */
   public Sort getIndexSort() {
     return indexSort;
@@ -477,6 +491,7 @@ public class LiveIndexWriterConfig {
     sb.append("indexerThreadPool=").append(getIndexerThreadPool()).append("\n");
     sb.append("readerPooling=").append(getReaderPooling()).append("\n");
     sb.append("perThreadHardLimitMB=").append(getRAMPerThreadHardLimitMB()).append("\n");
+    sb.append("flushThreadCount=").append(getFlushThreadCount()).append("\n");
     sb.append("useCompoundFile=").append(getUseCompoundFile()).append("\n");
     sb.append("commitOnClose=").append(getCommitOnClose()).append("\n");
     sb.append("indexSort=").append(getIndexSort()).append("\n");
@@ -220,10 +220,8 @@ public class MergeState {
       Sort segmentSort = leaf.getIndexSort();
 
       if (segmentSort == null) {
-        // TODO: fix IW to also sort when flushing?  It's somewhat tricky because of stored fields and term vectors, which write "live"
-        // to their index files on each indexed document:
-
-        // This segment was written by flush, so documents are not yet sorted, so we sort them now:
+        // This segment was written without an index sort, eg. it was flushed by a version of IW that did not sort
+        // at flush time, so documents are not yet sorted, so we sort them now:
         long t0 = System.nanoTime();
         Sorter.DocMap sortDocMap = sorter.sort(leaf);
         long t1 = System.nanoTime();
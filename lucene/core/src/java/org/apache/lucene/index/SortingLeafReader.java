@@ -809,6 +809,11 @@ class SortingLeafReader extends FilterLeafReader {
     in.document(docMap.newToOld(docID), visitor);
   }
 
+  @Override
+  public void prefetchDocument(final int docID) throws IOException {
+    in.prefetchDocument(docMap.newToOld(docID));
+  }
+
   @Override
   public Fields fields() throws IOException {
     return new SortingFields(in.fields(), in.getFieldInfos(), docMap);
@@ -359,11 +359,58 @@ final class BooleanWeight extends Weight {
     }
   }
 
+  /** Whether this weight is a pure disjunction whose score is the sum of the
+   *  scores of its clauses, which is a requirement for {@link WANDScorer}. */
+  private boolean isWANDApplicable() {
+    return needsScores
+        && disableCoord
+        && query.getMinimumNumberShouldMatch() <= 1
+        && query.getClauses(Occur.MUST).isEmpty()
+        && query.getClauses(Occur.FILTER).isEmpty()
+        && query.getClauses(Occur.SHOULD).size() > 1;
+  }
+
+  /** Return a scorer that can skip non-competitive documents based on
+   *  {@link Scorer#setMinCompetitiveScore(float)}, or null if some clauses
+   *  can't bound their scores. This may only be called on pure disjunctions. */
+  Scorer wandScorer(LeafReaderContext context) throws IOException {
+    assert isWANDApplicable();
+    List<Scorer> optional = new ArrayList<>();
+    List<Scorer> prohibited = new ArrayList<>();
+    Iterator<BooleanClause> cIter = query.iterator();
+    for (Weight w  : weights) {
+      BooleanClause c =  cIter.next();
+      Scorer subScorer = w.scorer(context);
+      if (subScorer == null) {
+        continue;
+      } else if (c.isProhibited()) {
+        prohibited.add(subScorer);
+      } else {
+        if (Float.isFinite(subScorer.maxScore()) == false) {
+          return null;
+        }
+        optional.add(subScorer);
+      }
+    }
+
+    if (optional.isEmpty()) {
+      return null;
+    } else if (optional.size() == 1) {
+      return excl(optional.get(0), prohibited);
+    } else {
+      return excl(new WANDScorer(this, optional), prohibited);
+    }
+  }
+
   @Override
   public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
     final BulkScorer bulkScorer = booleanScorer(context);
     if (bulkScorer != null) {
       // bulk scoring is applicable, use it
+      if (isWANDApplicable()) {
+        // but switch to WAND if the collector only needs competitive hits
+        return new MinCompetitiveScoreBulkScorer(bulkScorer, this, context);
+      }
       return bulkScorer;
     } else {
       // use a Scorer-based impl (BS2)
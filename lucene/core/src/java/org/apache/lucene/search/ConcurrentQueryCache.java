@@ -0,0 +1,651 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.apache.lucene.index.LeafReader.CoreClosedListener;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.FrequencySketch;
+
+import static org.apache.lucene.search.LRUQueryCache.HASHTABLE_RAM_BYTES_PER_ENTRY;
+import static org.apache.lucene.search.LRUQueryCache.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+import static org.apache.lucene.search.LRUQueryCache.QUERY_DEFAULT_RAM_BYTES_USED;
+
+/**
+ * A {@link QueryCache} that, unlike {@link LRUQueryCache}, never takes a lock
+ * on the read path, which makes it a better fit for searchers that are shared
+ * by many concurrent threads.
+ *
+ * Cached {@link DocIdSet}s are stored in one concurrent map per segment, so
+ * looking up a query is a couple of hash lookups. Hits are not applied to the
+ * least-recently-used order right away: they are recorded into small striped
+ * buffers that are replayed in batches under a lock, either by a writer or
+ * when a buffer fills up. These buffers are lossy, so the eviction order is
+ * only approximately LRU. Every use of a query is recorded once, regardless of
+ * the number of segments, into a {@link FrequencySketch}, and once the cache is
+ * full a new query is only admitted if it has been used more often recently
+ * than the query that would be evicted to make room for it, which prevents
+ * queries that are used only once from flushing the cache.
+ *
+ * Memory usage is accounted exactly like in {@link LRUQueryCache}, and entries
+ * of a segment are evicted when its core is closed. Writes (caching a new
+ * {@link DocIdSet}, evicting, clearing) are performed under a lock.
+ *
+ * This class is thread-safe.
+ *
+ * Typical usage looks like this:
+ * <pre class="prettyprint">
+ *   final QueryCache queryCache = new ConcurrentQueryCache(256, 50 * 1024L * 1024L);
+ *   IndexSearcher.setDefaultQueryCache(queryCache);
+ * </pre>
+ *
+ * @see LRUQueryCache
+ * @see QueryCachingPolicy
+ * @lucene.experimental
+ */
+public class ConcurrentQueryCache implements QueryCache, Accountable {
+
+  // must be a power of two
+  static final int READ_BUFFER_SIZE = 32;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+  private final Predicate<LeafReaderContext> leavesToCache;
+  // maps queries that are contained in the cache to a singleton, in
+  // least-recently-used order, only accessed under the lock
+  private final Map<Query, Query> uniqueQueries;
+  // per-leaf caches may only contain queries that are in uniqueQueries, which
+  // is why they are only modified under the lock, but they may be read at any time
+  private final Map<Object, LeafCache> cache;
+  private final ReentrantLock lock;
+  private final ReadBuffer[] readBuffers;
+  private final FrequencySketch sketch;
+
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+  private final LongAdder rejectionCount;
+  // these variables are volatile so that we do not need to sync reads
+  // but increments need to be performed under the lock
+  private volatile long ramBytesUsed;
+  private volatile long cacheCount;
+  private volatile long cacheSize;
+
+  /**
+   * Expert: Create a new instance that will cache at most <code>maxSize</code>
+   * queries with at most <code>maxRamBytesUsed</code> bytes of memory, only on
+   * leaves that satisfy {@code leavesToCache};
+   */
+  public ConcurrentQueryCache(int maxSize, long maxRamBytesUsed,
+      Predicate<LeafReaderContext> leavesToCache) {
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    this.leavesToCache = leavesToCache;
+    uniqueQueries = new LinkedHashMap<>(16, 0.75f, true);
+    cache = new ConcurrentHashMap<>();
+    lock = new ReentrantLock();
+    final int numBuffers = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+    readBuffers = new ReadBuffer[numBuffers];
+    for (int i = 0; i < readBuffers.length; ++i) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    sketch = new FrequencySketch(maxSize);
+    hitCount = new LongAdder();
+    missCount = new LongAdder();
+    rejectionCount = new LongAdder();
+    ramBytesUsed = 0;
+  }
+
+  /**
+   * Create a new instance that will cache at most <code>maxSize</code> queries
+   * with at most <code>maxRamBytesUsed</code> bytes of memory. Like
+   * {@link LRUQueryCache#LRUQueryCache(int, long)}, queries will only be
+   * cached on leaves that have more than 10k documents and have more than 3%
+   * of the total number of documents in the index.
+   */
+  public ConcurrentQueryCache(int maxSize, long maxRamBytesUsed) {
+    this(maxSize, maxRamBytesUsed, new LRUQueryCache.MinSegmentSizePredicate(10000, .03f));
+  }
+
+  DocIdSet get(Query key, LeafReaderContext context) {
+    assert key instanceof BoostQuery == false;
+    assert key instanceof ConstantScoreQuery == false;
+    final Object readerKey = context.reader().getCoreCacheKey();
+    final LeafCache leafCache = cache.get(readerKey);
+    final DocIdSet cached = leafCache == null ? null : leafCache.cache.get(key);
+    if (cached == null) {
+      missCount.increment();
+    } else {
+      hitCount.increment();
+      recordHit(key);
+    }
+    return cached;
+  }
+
+  /** Record a hit so that it is applied to the LRU order on the next drain. */
+  private void recordHit(Query query) {
+    final ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+    final long index = buffer.writeCount.getAndIncrement();
+    buffer.slots.lazySet((int) index & READ_BUFFER_MASK, query);
+    if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && lock.tryLock()) {
+      // the buffer is full: replay it unless someone else is already busy updating the cache,
+      // in which case older entries will be overwritten
+      try {
+        drainReadBuffers();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffers() {
+    assert lock.isHeldByCurrentThread();
+    for (ReadBuffer buffer : readBuffers) {
+      for (int i = 0; i < READ_BUFFER_SIZE; ++i) {
+        final Query query = buffer.slots.getAndSet(i, null);
+        if (query != null) {
+          // this get call moves the query to the most-recently-used position
+          uniqueQueries.get(query);
+        }
+      }
+    }
+  }
+
+  /** Whether evictions are required. */
+  boolean requiresEviction() {
+    assert lock.isHeldByCurrentThread();
+    final int size = uniqueQueries.size();
+    if (size == 0) {
+      return false;
+    } else {
+      return size > maxSize || ramBytesUsed() > maxRamBytesUsed;
+    }
+  }
+
+  /**
+   * Whether a query that is not cached yet should be admitted into the cache,
+   * given that caching it will use about {@code additionalRamBytesUsed} bytes.
+   * If that requires evicting other queries, the query is only admitted if it
+   * has been looked up more frequently than the least-recently-used one.
+   */
+  private boolean admit(Query query, long additionalRamBytesUsed) {
+    assert lock.isHeldByCurrentThread();
+    if (uniqueQueries.isEmpty()
+        || (uniqueQueries.size() < maxSize && ramBytesUsed + additionalRamBytesUsed <= maxRamBytesUsed)) {
+      return true;
+    }
+    final Query victim = uniqueQueries.keySet().iterator().next();
+    return sketch.frequency(query.hashCode()) > sketch.frequency(victim.hashCode());
+  }
+
+  void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set) {
+    assert query instanceof BoostQuery == false;
+    assert query instanceof ConstantScoreQuery == false;
+    // under a lock to make sure that uniqueQueries and cache remain sync'ed
+    lock.lock();
+    try {
+      drainReadBuffers();
+      final Object key = context.reader().getCoreCacheKey();
+      LeafCache leafCache = cache.get(key);
+      Query singleton = uniqueQueries.get(query);
+      if (singleton == null) {
+        final long queryRamBytesUsed = LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + ramBytesUsed(query);
+        long additionalRamBytesUsed = queryRamBytesUsed + HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed();
+        if (leafCache == null) {
+          additionalRamBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY;
+        }
+        if (admit(query, additionalRamBytesUsed) == false) {
+          rejectionCount.increment();
+          return;
+        }
+        uniqueQueries.put(query, query);
+        ramBytesUsed += queryRamBytesUsed;
+        singleton = query;
+      }
+      if (leafCache == null) {
+        leafCache = new LeafCache(key);
+        final LeafCache previous = cache.put(key, leafCache);
+        ramBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY;
+        assert previous == null;
+        // we just created a new leaf cache, need to register a close listener
+        context.reader().addCoreClosedListener(new CoreClosedListener() {
+          @Override
+          public void onClose(Object ownerCoreCacheKey) {
+            clearCoreCacheKey(ownerCoreCacheKey);
+          }
+        });
+      }
+      leafCache.putIfAbsent(singleton, set);
+      evictIfNecessary();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void evictIfNecessary() {
+    assert lock.isHeldByCurrentThread();
+    if (requiresEviction()) {
+
+      Iterator<Query> iterator = uniqueQueries.keySet().iterator();
+      do {
+        final Query query = iterator.next();
+        final int size = uniqueQueries.size();
+        iterator.remove();
+        if (size == uniqueQueries.size()) {
+          // size did not decrease, because the hash of the query changed since it has been
+          // put into the cache
+          throw new ConcurrentModificationException("Removal from the cache failed! This " +
+              "is probably due to a query which has been modified after having been put into " +
+              " the cache or a badly implemented clone(). Query class: [" + query.getClass() +
+              "], query: [" + query + "]");
+        }
+        onEviction(query);
+      } while (iterator.hasNext() && requiresEviction());
+    }
+  }
+
+  /**
+   * Remove all cache entries for the given core cache key.
+   */
+  public void clearCoreCacheKey(Object coreKey) {
+    lock.lock();
+    try {
+      final LeafCache leafCache = cache.remove(coreKey);
+      if (leafCache != null) {
+        ramBytesUsed -= HASHTABLE_RAM_BYTES_PER_ENTRY + leafCache.ramBytesUsed;
+        cacheSize -= leafCache.cache.size();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove all cache entries for the given query.
+   */
+  public void clearQuery(Query query) {
+    lock.lock();
+    try {
+      final Query singleton = uniqueQueries.remove(query);
+      if (singleton != null) {
+        onEviction(singleton);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onEviction(Query singleton) {
+    assert lock.isHeldByCurrentThread();
+    ramBytesUsed -= LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + ramBytesUsed(singleton);
+    for (LeafCache leafCache : cache.values()) {
+      leafCache.remove(singleton);
+    }
+  }
+
+  /**
+   * Clear the content of this cache.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      cache.clear();
+      uniqueQueries.clear();
+      ramBytesUsed = 0;
+      cacheSize = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // pkg-private for testing
+  void assertConsistent() {
+    lock.lock();
+    try {
+      if (requiresEviction()) {
+        throw new AssertionError("requires evictions: size=" + uniqueQueries.size()
+            + ", maxSize=" + maxSize + ", ramBytesUsed=" + ramBytesUsed() + ", maxRamBytesUsed=" + maxRamBytesUsed);
+      }
+      for (LeafCache leafCache : cache.values()) {
+        for (Query query : leafCache.cache.keySet()) {
+          if (uniqueQueries.containsKey(query) == false) {
+            throw new AssertionError("One leaf cache contains a key that is not in the top-level cache: " + query);
+          }
+        }
+      }
+      long recomputedRamBytesUsed =
+            HASHTABLE_RAM_BYTES_PER_ENTRY * cache.size()
+          + LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY * uniqueQueries.size();
+      for (Query query : uniqueQueries.keySet()) {
+        recomputedRamBytesUsed += ramBytesUsed(query);
+      }
+      for (LeafCache leafCache : cache.values()) {
+        recomputedRamBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY * leafCache.cache.size();
+        for (DocIdSet set : leafCache.cache.values()) {
+          recomputedRamBytesUsed += set.ramBytesUsed();
+        }
+      }
+      if (recomputedRamBytesUsed != ramBytesUsed) {
+        throw new AssertionError("ramBytesUsed mismatch : " + ramBytesUsed + " != " + recomputedRamBytesUsed);
+      }
+
+      long recomputedCacheSize = 0;
+      for (LeafCache leafCache : cache.values()) {
+        recomputedCacheSize += leafCache.cache.size();
+      }
+      if (recomputedCacheSize != getCacheSize()) {
+        throw new AssertionError("cacheSize mismatch : " + getCacheSize() + " != " + recomputedCacheSize);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // pkg-private for testing
+  int frequency(Query query) {
+    return sketch.frequency(query.hashCode());
+  }
+
+  // pkg-private for testing
+  // return the list of cached queries in LRU order, after applying pending hits
+  List<Query> cachedQueries() {
+    lock.lock();
+    try {
+      drainReadBuffers();
+      return new ArrayList<>(uniqueQueries.keySet());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Weight doCache(Weight weight, QueryCachingPolicy policy) {
+    while (weight instanceof CachingWrapperWeight) {
+      weight = ((CachingWrapperWeight) weight).in;
+    }
+
+    return new CachingWrapperWeight(weight, policy);
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    lock.lock();
+    try {
+      return Accountables.namedAccountables("segment", cache);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of bytes used by the given query. The default
+   * implementation returns {@link Accountable#ramBytesUsed()} if the query
+   * implements {@link Accountable} and <code>192</code> otherwise.
+   */
+  protected long ramBytesUsed(Query query) {
+    if (query instanceof Accountable) {
+      return ((Accountable) query).ramBytesUsed();
+    }
+    return QUERY_DEFAULT_RAM_BYTES_USED;
+  }
+
+  /**
+   * Default cache implementation: same as {@link LRUQueryCache#cacheImpl}.
+   */
+  protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+    if (scorer.cost() * 100 >= maxDoc) {
+      return LRUQueryCache.cacheIntoBitSet(scorer, maxDoc);
+    } else {
+      return LRUQueryCache.cacheIntoRoaringDocIdSet(scorer, maxDoc);
+    }
+  }
+
+  /**
+   * Return the total number of times that a {@link Query} has been looked up
+   * in this {@link QueryCache}, once per segment.
+   * @see LRUQueryCache#getTotalCount()
+   */
+  public final long getTotalCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that a query has
+   * been looked up, return how many times a cached {@link DocIdSet} has been
+   * found and returned.
+   */
+  public final long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that a query has
+   * been looked up, return how many times this query was not contained in the
+   * cache.
+   */
+  public final long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Return the total number of {@link DocIdSet}s which are currently stored
+   * in the cache.
+   */
+  public final long getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Return the total number of cache entries that have been generated and put
+   * in the cache.
+   * @see LRUQueryCache#getCacheCount()
+   */
+  public final long getCacheCount() {
+    return cacheCount;
+  }
+
+  /**
+   * Return the number of cache entries that have been removed from the cache
+   * either in order to stay under the maximum configured size/ram usage, or
+   * because a segment has been closed.
+   */
+  public final long getEvictionCount() {
+    return getCacheCount() - getCacheSize();
+  }
+
+  /**
+   * Return the number of times that a {@link DocIdSet} was not put into the
+   * cache because its query was not used frequently enough to evict another
+   * query. A high number relative to the {@link #getCacheCount() cache count}
+   * means the {@link QueryCachingPolicy caching policy} could be more
+   * selective, since the work of building these sets was wasted.
+   */
+  public final long getRejectionCount() {
+    return rejectionCount.sum();
+  }
+
+  /** A lossy ring of recent hits, shared by the threads that hash to it. */
+  private static final class ReadBuffer {
+    final AtomicLong writeCount = new AtomicLong();
+    final AtomicReferenceArray<Query> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+  }
+
+  // reads may happen at any time, but modifications need to be performed under the lock
+  private class LeafCache implements Accountable {
+
+    private final Object key;
+    private final Map<Query, DocIdSet> cache;
+    private volatile long ramBytesUsed;
+
+    LeafCache(Object key) {
+      this.key = key;
+      cache = new ConcurrentHashMap<>();
+      ramBytesUsed = 0;
+    }
+
+    void putIfAbsent(Query query, DocIdSet set) {
+      assert lock.isHeldByCurrentThread();
+      if (cache.putIfAbsent(query, set) == null) {
+        // the set was actually put
+        final long setRamBytesUsed = HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed();
+        this.ramBytesUsed += setRamBytesUsed;
+        ConcurrentQueryCache.this.ramBytesUsed += setRamBytesUsed;
+        cacheCount += 1;
+        cacheSize += 1;
+      }
+    }
+
+    void remove(Query query) {
+      assert lock.isHeldByCurrentThread();
+      final DocIdSet removed = cache.remove(query);
+      if (removed != null) {
+        final long setRamBytesUsed = HASHTABLE_RAM_BYTES_PER_ENTRY + removed.ramBytesUsed();
+        this.ramBytesUsed -= setRamBytesUsed;
+        ConcurrentQueryCache.this.ramBytesUsed -= setRamBytesUsed;
+        cacheSize -= 1;
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return ramBytesUsed;
+    }
+
+    @Override
+    public String toString() {
+      return "LeafCache(" + key + ")";
+    }
+  }
+
+  private class CachingWrapperWeight extends ConstantScoreWeight {
+
+    private final Weight in;
+    private final QueryCachingPolicy policy;
+    // we use an AtomicBoolean because Weight.scorer may be called from multiple
+    // threads when IndexSearcher is created with threads
+    private final AtomicBoolean used;
+
+    CachingWrapperWeight(Weight in, QueryCachingPolicy policy) {
+      super(in.getQuery());
+      this.in = in;
+      this.policy = policy;
+      used = new AtomicBoolean(false);
+    }
+
+    @Override
+    public void extractTerms(Set<Term> terms) {
+      in.extractTerms(terms);
+    }
+
+    private boolean cacheEntryHasReasonableWorstCaseSize(int maxDoc) {
+      // The worst-case (dense) is a bit set which needs one bit per document,
+      // only cache if there is room for 5 such entries, see LRUQueryCache
+      final long worstCaseRamUsage = maxDoc / 8;
+      return worstCaseRamUsage * 5 < maxRamBytesUsed;
+    }
+
+    /** Check whether this segment is eligible for caching, regardless of the query. */
+    private boolean shouldCache(LeafReaderContext context) throws IOException {
+      return cacheEntryHasReasonableWorstCaseSize(ReaderUtil.getTopLevelContext(context).reader().maxDoc())
+          && leavesToCache.test(context);
+    }
+
+    /** Return the cached set for this segment, computing and caching it if the policy allows, or null. */
+    private DocIdSet getOrCache(LeafReaderContext context) throws IOException {
+      if (used.compareAndSet(false, true)) {
+        policy.onUse(getQuery());
+        // once per use rather than per segment, or counters of all queries would quickly saturate
+        sketch.increment(in.getQuery().hashCode());
+      }
+      if (shouldCache(context) == false) {
+        return null;
+      }
+      DocIdSet docIdSet = get(in.getQuery(), context);
+      if (docIdSet == null && policy.shouldCache(in.getQuery())) {
+        final long start = System.nanoTime();
+        final BulkScorer scorer = in.bulkScorer(context);
+        if (scorer == null) {
+          docIdSet = DocIdSet.EMPTY;
+        } else {
+          docIdSet = cacheImpl(scorer, context.reader().maxDoc());
+        }
+        policy.onCache(in.getQuery(), context, System.nanoTime() - start, docIdSet.ramBytesUsed());
+        putIfAbsent(in.getQuery(), context, docIdSet);
+      }
+      return docIdSet;
+    }
+
+    @Override
+    public Scorer scorer(LeafReaderContext context) throws IOException {
+      final DocIdSet docIdSet = getOrCache(context);
+      if (docIdSet == null) {
+        return in.scorer(context);
+      }
+      if (docIdSet == DocIdSet.EMPTY) {
+        return null;
+      }
+      final DocIdSetIterator disi = docIdSet.iterator();
+      if (disi == null) {
+        return null;
+      }
+      return new ConstantScoreScorer(this, 0f, disi);
+    }
+
+    @Override
+    public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+      final DocIdSet docIdSet = getOrCache(context);
+      if (docIdSet == null) {
+        return in.bulkScorer(context);
+      }
+      if (docIdSet == DocIdSet.EMPTY) {
+        return null;
+      }
+      final DocIdSetIterator disi = docIdSet.iterator();
+      if (disi == null) {
+        return null;
+      }
+      return new DefaultBulkScorer(new ConstantScoreScorer(this, 0f, disi));
+    }
+
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.LeafReaderContext;
+
+/**
+ * A {@link QueryCachingPolicy} that caches queries based on how much work
+ * their cache entries save per byte of memory, as opposed to
+ * {@link UsageTrackingQueryCachingPolicy} which only looks at how often a
+ * query has been seen recently and guesses its cost from its class.
+ *
+ * For every tracked query, this policy counts how many times it has been used
+ * and records, through {@link #onCache}, how long it took the
+ * {@link QueryCache} to build its {@link DocIdSet} on a segment and how much
+ * memory that set uses. A query is then cached if
+ * <code>useCount * buildTimeNanos / ramBytesUsed</code> is at least
+ * {@link #getMinNanosSavedPerByte()}, so that an expensive range query that
+ * is used once in a while can make it to the cache while a cheap term query
+ * that is used all the time but produces large sets does not. Before any
+ * measurement is available, queries are cached once they have been used
+ * {@link #minUseCountToProbe(Query) a few times} in order to get one.
+ *
+ * Use counts are halved periodically so that old usage fades away, and only
+ * the most recently used queries are tracked. Like
+ * {@link UsageTrackingQueryCachingPolicy}, queries are identified by their
+ * hash code in order not to hold references to them, which may rarely make
+ * a query use the statistics of another one.
+ *
+ * @lucene.experimental
+ */
+public class CostBasedQueryCachingPolicy implements QueryCachingPolicy {
+
+  /** Default value of the minimum number of nanoseconds that a cached set must save per byte. */
+  public static final double DEFAULT_MIN_NANOS_SAVED_PER_BYTE = 0.01;
+
+  /** Default number of distinct queries to keep statistics for. */
+  public static final int DEFAULT_MAX_TRACKED_QUERIES = 1024;
+
+  // build times and sizes are averaged over that many samples at most
+  private static final int MAX_SAMPLES = 16;
+
+  /**
+   * Statistics that this policy keeps for a query.
+   * @lucene.experimental
+   */
+  public static final class Stats {
+    private int useCount;
+    private int buildCount;
+    private double buildTimeNanos;
+    private double ramBytesUsed;
+
+    Stats() {}
+
+    private Stats(Stats other) {
+      useCount = other.useCount;
+      buildCount = other.buildCount;
+      buildTimeNanos = other.buildTimeNanos;
+      ramBytesUsed = other.ramBytesUsed;
+    }
+
+    /** Number of times the query has been used, decayed over time. */
+    public int getUseCount() {
+      return useCount;
+    }
+
+    /** Number of per-segment {@link DocIdSet}s that have been built for the query. */
+    public int getBuildCount() {
+      return buildCount;
+    }
+
+    /** Average time it took to build a per-segment {@link DocIdSet}, in nanoseconds. */
+    public double getBuildTimeNanos() {
+      return buildTimeNanos;
+    }
+
+    /** Average memory usage of a per-segment {@link DocIdSet}, in bytes. */
+    public double getRamBytesUsed() {
+      return ramBytesUsed;
+    }
+
+    /**
+     * Number of nanoseconds that caching the query is expected to save per
+     * byte of memory, or {@code -1} if the query has never been measured.
+     */
+    public double getNanosSavedPerByte() {
+      if (buildCount == 0) {
+        return -1;
+      }
+      // add one byte for the cache entry itself so that empty sets are not infinitely valuable
+      return useCount * buildTimeNanos / (ramBytesUsed + 1);
+    }
+
+    @Override
+    public String toString() {
+      return "Stats(useCount=" + useCount + ", buildCount=" + buildCount + ", buildTimeNanos=" + buildTimeNanos
+          + ", ramBytesUsed=" + ramBytesUsed + ", nanosSavedPerByte=" + getNanosSavedPerByte() + ")";
+    }
+  }
+
+  private final int maxTrackedQueries;
+  private final double minNanosSavedPerByte;
+  private final Map<Integer, Stats> stats;
+  private final int sampleSize;
+  private int useCountSinceDecay;
+
+  /**
+   * Create a new instance.
+   *
+   * @param maxTrackedQueries    the number of recently used queries to keep statistics for
+   * @param minNanosSavedPerByte the minimum number of nanoseconds that caching a query must
+   *                             save per byte of memory that its cache entries use
+   */
+  public CostBasedQueryCachingPolicy(int maxTrackedQueries, double minNanosSavedPerByte) {
+    if (maxTrackedQueries <= 0) {
+      throw new IllegalArgumentException("maxTrackedQueries must be > 0, got " + maxTrackedQueries);
+    }
+    if (minNanosSavedPerByte < 0 || Double.isNaN(minNanosSavedPerByte)) {
+      throw new IllegalArgumentException("minNanosSavedPerByte must be >= 0, got " + minNanosSavedPerByte);
+    }
+    this.maxTrackedQueries = maxTrackedQueries;
+    this.minNanosSavedPerByte = minNanosSavedPerByte;
+    this.stats = new LinkedHashMap<>(16, 0.75f, true);
+    this.sampleSize = (int) Math.min(10L * maxTrackedQueries, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Create a new instance that tracks {@value #DEFAULT_MAX_TRACKED_QUERIES}
+   * queries and requires {@value #DEFAULT_MIN_NANOS_SAVED_PER_BYTE}
+   * nanoseconds to be saved per byte.
+   */
+  public CostBasedQueryCachingPolicy() {
+    this(DEFAULT_MAX_TRACKED_QUERIES, DEFAULT_MIN_NANOS_SAVED_PER_BYTE);
+  }
+
+  /** Return the minimum number of nanoseconds that caching a query must save per byte. */
+  public double getMinNanosSavedPerByte() {
+    return minNanosSavedPerByte;
+  }
+
+  /**
+   * For a given query that has never been measured, return how many times it
+   * should be used before it gets cached for the first time, which is how its
+   * cost is measured. The default implementation uses the same thresholds as
+   * {@link UsageTrackingQueryCachingPolicy}.
+   */
+  protected int minUseCountToProbe(Query query) {
+    if (UsageTrackingQueryCachingPolicy.isCostly(query)) {
+      return 2;
+    } else if (UsageTrackingQueryCachingPolicy.isCheap(query)) {
+      return 20;
+    } else {
+      return 5;
+    }
+  }
+
+  @Override
+  public void onUse(Query query) {
+    assert query instanceof BoostQuery == false;
+    assert query instanceof ConstantScoreQuery == false;
+
+    // call hashCode outside of sync block
+    // in case it's somewhat expensive:
+    final int hashCode = query.hashCode();
+
+    synchronized (this) {
+      Stats s = stats.get(hashCode);
+      if (s == null) {
+        if (stats.size() >= maxTrackedQueries) {
+          // forget about the least-recently used query
+          final Iterator<Stats> it = stats.values().iterator();
+          it.next();
+          it.remove();
+        }
+        s = new Stats();
+        stats.put(hashCode, s);
+      }
+      s.useCount += 1;
+      if (++useCountSinceDecay >= sampleSize) {
+        decay();
+      }
+    }
+  }
+
+  /** Halve all use counts. */
+  private void decay() {
+    assert Thread.holdsLock(this);
+    for (Stats s : stats.values()) {
+      s.useCount >>>= 1;
+    }
+    useCountSinceDecay = 0;
+  }
+
+  @Override
+  public void onCache(Query query, LeafReaderContext context, long buildTimeNanos, long ramBytesUsed) {
+    final int hashCode = query.hashCode();
+    synchronized (this) {
+      final Stats s = stats.get(hashCode);
+      if (s == null) {
+        // not tracked (anymore), the measurement will be redone if the query gets used again
+        return;
+      }
+      s.buildCount += 1;
+      final int samples = Math.min(s.buildCount, MAX_SAMPLES);
+      s.buildTimeNanos += (buildTimeNanos - s.buildTimeNanos) / samples;
+      s.ramBytesUsed += (ramBytesUsed - s.ramBytesUsed) / samples;
+    }
+  }
+
+  /**
+   * Return a copy of the statistics that are used to decide whether to cache
+   * the given query, or {@code null} if the query is not tracked.
+   */
+  public Stats getStats(Query query) {
+    final int hashCode = query.hashCode();
+    synchronized (this) {
+      // do not use stats.get, which would make the query the most recently used one
+      for (Map.Entry<Integer, Stats> entry : stats.entrySet()) {
+        if (entry.getKey() == hashCode) {
+          return new Stats(entry.getValue());
+        }
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public boolean shouldCache(Query query) throws IOException {
+    if (query instanceof MatchAllDocsQuery
+        // MatchNoDocsQuery currently rewrites to a BooleanQuery,
+        // but who knows, it might get its own Weight one day
+        || query instanceof MatchNoDocsQuery) {
+      return false;
+    }
+    if (query instanceof BooleanQuery) {
+      BooleanQuery bq = (BooleanQuery) query;
+      if (bq.clauses().isEmpty()) {
+        return false;
+      }
+    }
+    if (query instanceof DisjunctionMaxQuery) {
+      DisjunctionMaxQuery dmq = (DisjunctionMaxQuery) query;
+      if (dmq.getDisjuncts().isEmpty()) {
+        return false;
+      }
+    }
+    final int hashCode = query.hashCode();
+    final int useCount;
+    final double nanosSavedPerByte;
+    synchronized (this) {
+      final Stats s = stats.get(hashCode);
+      if (s == null) {
+        return false;
+      }
+      useCount = s.useCount;
+      nanosSavedPerByte = s.getNanosSavedPerByte();
+    }
+    if (nanosSavedPerByte < 0) {
+      return useCount >= minUseCountToProbe(query);
+    }
+    return useCount >= 2 && nanosSavedPerByte >= minNanosSavedPerByte;
+  }
+
+}
@@ -20,8 +20,11 @@ package org.apache.lucene.search;
 import java.io.IOException;
 import java.util.Objects;
 
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValuesIterator;
 import org.apache.lucene.util.Bits;
 
 /**
@@ -62,6 +65,20 @@ public final class FieldValueQuery extends Query {
   public Weight createWeight(IndexSearcher searcher, boolean needsScores) throws IOException {
     return new RandomAccessWeight(this) {
 
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        final LeafReader reader = context.reader();
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo != null && fieldInfo.getDocValuesType() == DocValuesType.NUMERIC) {
+          final NumericDocValuesIterator iterator = reader.getNumericDocValuesIterator(field);
+          if (iterator != null && iterator.cost() < reader.maxDoc()) {
+            // the field is encoded sparsely: only visit documents that have a value
+            return new ConstantScoreScorer(this, score(), iterator);
+          }
+        }
+        return super.scorer(context);
+      }
+
       @Override
       protected Bits getMatchingDocs(LeafReaderContext context) throws IOException {
         return context.reader().getDocsWithField(field);
@@ -140,6 +140,12 @@ public class IndexSearcher {
   // in the next release
   protected final IndexReaderContext readerContext;
   protected final List<LeafReaderContext> leafContexts;
+  /** Default maximum number of documents per slice, see {@link #slices(List, int, int)}. */
+  static final int MAX_DOCS_PER_SLICE = 250_000;
+
+  /** Default maximum number of leaves per slice, see {@link #slices(List, int, int)}. */
+  static final int MAX_SEGMENTS_PER_SLICE = 5;
+
   /** used with executor - each slice holds a set of leafs executed within one thread */
   protected final LeafSlice[] leafSlices;
 
@@ -302,15 +308,62 @@ public class IndexSearcher {
 
   /**
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
-   * Each {@link LeafSlice} is executed in a single thread. By default there
-   * will be one {@link LeafSlice} per leaf ({@link org.apache.lucene.index.LeafReaderContext}).
+   * Each {@link LeafSlice} is executed in a single thread. By default, small
+   * leaves are grouped together and large leaves are split into ranges of doc
+   * IDs, see {@link #slices(List, int, int)}.
    */
   protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
-    LeafSlice[] slices = new LeafSlice[leaves.size()];
-    for (int i = 0; i < slices.length; i++) {
-      slices[i] = new LeafSlice(leaves.get(i));
+    return slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+  }
+
+  /**
+   * Expert: Creates slices that have a similar number of documents so that
+   * work is spread evenly across threads. Consecutive leaves are grouped into
+   * the same slice until it has more than {@code maxDocsPerSlice} documents or
+   * {@code maxSegmentsPerSlice} leaves, and leaves that have more than
+   * {@code maxDocsPerSlice} documents are split into several slices that each
+   * cover a range of doc IDs of this leaf. Slices are returned in doc ID order.
+   * @lucene.experimental
+   */
+  public static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+    if (maxDocsPerSlice <= 0) {
+      throw new IllegalArgumentException("maxDocsPerSlice must be > 0, got " + maxDocsPerSlice);
+    }
+    if (maxSegmentsPerSlice <= 0) {
+      throw new IllegalArgumentException("maxSegmentsPerSlice must be > 0, got " + maxSegmentsPerSlice);
+    }
+    final List<LeafSlice> slices = new ArrayList<>();
+    final List<LeafReaderContext> group = new ArrayList<>();
+    long groupDocs = 0;
+    for (LeafReaderContext ctx : leaves) {
+      final int maxDoc = ctx.reader().maxDoc();
+      if (maxDoc > maxDocsPerSlice) {
+        if (group.isEmpty() == false) {
+          slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+          group.clear();
+          groupDocs = 0;
+        }
+        // split into ranges of roughly equal sizes
+        final int numPartitions = (int) ((maxDoc + (long) maxDocsPerSlice - 1) / maxDocsPerSlice);
+        for (int i = 0; i < numPartitions; ++i) {
+          final int minDocId = (int) ((long) maxDoc * i / numPartitions);
+          final int maxDocId = (int) ((long) maxDoc * (i + 1) / numPartitions);
+          slices.add(new LeafSlice(ctx, minDocId, maxDocId));
+        }
+      } else {
+        group.add(ctx);
+        groupDocs += maxDoc;
+        if (groupDocs > maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+          slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+          group.clear();
+          groupDocs = 0;
+        }
+      }
     }
-    return slices;
+    if (group.isEmpty() == false) {
+      slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+    }
+    return slices.toArray(new LeafSlice[slices.size()]);
   }
   
   /** Return the {@link IndexReader} this searches. */
@@ -603,12 +656,16 @@ public class IndexSearcher {
       final Weight weight = createNormalizedWeight(query, needsScores);
       final List<Future<C>> topDocsFutures = new ArrayList<>(leafSlices.length);
       for (int i = 0; i < leafSlices.length; ++i) {
-        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        final LeafSlice slice = leafSlices[i];
         final C collector = collectors.get(i);
         topDocsFutures.add(executor.submit(new Callable<C>() {
           @Override
           public C call() throws Exception {
-            search(Arrays.asList(leaves), weight, collector);
+            if (slice.isPartition()) {
+              search(slice.leaves[0], slice.minDoc, slice.maxDoc, weight, collector);
+            } else {
+              search(Arrays.asList(slice.leaves), weight, collector);
+            }
             return collector;
           }
         }));
@@ -675,6 +732,27 @@ public class IndexSearcher {
     }
   }
 
+  /**
+   * Search the {@code [minDoc, maxDoc)} range of doc IDs of a single leaf.
+   */
+  private void search(LeafReaderContext ctx, int minDoc, int maxDoc, Weight weight, Collector collector) throws IOException {
+    final LeafCollector leafCollector;
+    try {
+      leafCollector = collector.getLeafCollector(ctx);
+    } catch (CollectionTerminatedException e) {
+      // there is no doc of interest in this reader context
+      return;
+    }
+    BulkScorer scorer = weight.bulkScorer(ctx);
+    if (scorer != null) {
+      try {
+        scorer.score(leafCollector, ctx.reader().getLiveDocs(), minDoc, maxDoc);
+      } catch (CollectionTerminatedException e) {
+        // collection was terminated prematurely
+      }
+    }
+  }
+
   /** Expert: called to re-write queries into primitive queries.
    * @throws BooleanQuery.TooManyClauses If a query would exceed 
    *         {@link BooleanQuery#getMaxClauseCount()} clauses.
@@ -773,9 +851,31 @@ public class IndexSearcher {
    */
   public static class LeafSlice {
     final LeafReaderContext[] leaves;
+    final int minDoc, maxDoc;
     
     public LeafSlice(LeafReaderContext... leaves) {
       this.leaves = leaves;
+      this.minDoc = -1;
+      this.maxDoc = -1;
+    }
+
+    /**
+     * Create a slice that only covers the {@code [minDoc, maxDoc)} range of
+     * doc IDs of the given leaf. Several slices may cover different ranges of
+     * the same leaf so that a large leaf can be searched by several threads.
+     */
+    public LeafSlice(LeafReaderContext leaf, int minDoc, int maxDoc) {
+      if (minDoc < 0 || minDoc > maxDoc || maxDoc > leaf.reader().maxDoc()) {
+        throw new IllegalArgumentException("Illegal range [" + minDoc + ", " + maxDoc + ") for a leaf that has maxDoc=" + leaf.reader().maxDoc());
+      }
+      this.leaves = new LeafReaderContext[] { leaf };
+      this.minDoc = minDoc;
+      this.maxDoc = maxDoc;
+    }
+
+    /** Whether this slice only covers a range of doc IDs of a single leaf. */
+    boolean isPartition() {
+      return minDoc != -1;
     }
   }
 
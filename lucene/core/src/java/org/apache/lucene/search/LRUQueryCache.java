@@ -518,7 +518,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
     }
   }
 
-  private static DocIdSet cacheIntoBitSet(BulkScorer scorer, int maxDoc) throws IOException {
+  static DocIdSet cacheIntoBitSet(BulkScorer scorer, int maxDoc) throws IOException {
     final FixedBitSet bitSet = new FixedBitSet(maxDoc);
     long cost[] = new long[1];
     scorer.score(new LeafCollector() {
@@ -536,7 +536,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
     return new BitDocIdSet(bitSet, cost[0]);
   }
 
-  private static DocIdSet cacheIntoRoaringDocIdSet(BulkScorer scorer, int maxDoc) throws IOException {
+  static DocIdSet cacheIntoRoaringDocIdSet(BulkScorer scorer, int maxDoc) throws IOException {
     RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
     scorer.score(new LeafCollector() {
 
@@ -712,12 +712,16 @@ public class LRUQueryCache implements QueryCache, Accountable {
     }
 
     private DocIdSet cache(LeafReaderContext context) throws IOException {
+      final long start = System.nanoTime();
       final BulkScorer scorer = in.bulkScorer(context);
+      final DocIdSet docIdSet;
       if (scorer == null) {
-        return DocIdSet.EMPTY;
+        docIdSet = DocIdSet.EMPTY;
       } else {
-        return cacheImpl(scorer, context.reader().maxDoc());
+        docIdSet = cacheImpl(scorer, context.reader().maxDoc());
       }
+      policy.onCache(in.getQuery(), context, System.nanoTime() - start, docIdSet.ramBytesUsed());
+      return docIdSet;
     }
 
     /** Check whether this segment is eligible for caching, regardless of the query. */
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A {@link BulkScorer} for pure disjunctions that scores with the default
+ * {@link BooleanWeight} bulk scorer until the collector reports a minimum
+ * competitive score through {@link Scorer#setMinCompetitiveScore(float)},
+ * and then switches to a {@link WANDScorer} for the rest of the segment so
+ * that non-competitive documents can be skipped.
+ */
+final class MinCompetitiveScoreBulkScorer extends BulkScorer {
+
+  /** Default number of documents to score between two checks of whether
+   *  the collector reported a min competitive score. */
+  static final int DEFAULT_INTERVAL = BooleanScorer.SIZE;
+
+  private final BulkScorer in;
+  private final BooleanWeight weight;
+  private final LeafReaderContext context;
+  private final int interval;
+
+  private float minCompetitiveScore;
+  private boolean minCompetitiveScoreSet;
+  private boolean canSwitch = true;
+  private BulkScorer wandBulkScorer;
+
+  MinCompetitiveScoreBulkScorer(BulkScorer in, BooleanWeight weight, LeafReaderContext context) {
+    this(in, weight, context, DEFAULT_INTERVAL);
+  }
+
+  // pkg-private for testing
+  MinCompetitiveScoreBulkScorer(BulkScorer in, BooleanWeight weight, LeafReaderContext context, int interval) {
+    this.in = in;
+    this.weight = weight;
+    this.context = context;
+    this.interval = interval;
+  }
+
+  @Override
+  public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+    if (wandBulkScorer != null) {
+      return wandBulkScorer.score(collector, acceptDocs, min, max);
+    }
+    if (canSwitch == false) {
+      return in.score(collector, acceptDocs, min, max);
+    }
+
+    final LeafCollector recordingCollector = new FilterLeafCollector(collector) {
+      @Override
+      public void setScorer(Scorer scorer) throws IOException {
+        super.setScorer(new FilterScorer(scorer) {
+          @Override
+          public void setMinCompetitiveScore(float minScore) {
+            minCompetitiveScore = minScore;
+            minCompetitiveScoreSet = true;
+          }
+        });
+      }
+    };
+
+    // always delegate at least once so that the returned doc is correct when min == max
+    int next = min;
+    do {
+      final int windowMax = (int) Math.min(max, (long) next + interval);
+      next = in.score(recordingCollector, acceptDocs, next, windowMax);
+    } while (next < max && minCompetitiveScoreSet == false);
+
+    if (next >= max) {
+      return next;
+    }
+
+    final Scorer wandScorer = weight.wandScorer(context);
+    if (wandScorer == null) {
+      // some clauses can't bound their scores, keep using the default bulk scorer
+      canSwitch = false;
+      return in.score(collector, acceptDocs, next, max);
+    }
+    wandScorer.setMinCompetitiveScore(minCompetitiveScore);
+    wandBulkScorer = new Weight.DefaultBulkScorer(wandScorer);
+    return wandBulkScorer.score(collector, acceptDocs, next, max);
+  }
+
+  @Override
+  public long cost() {
+    return in.cost();
+  }
+}
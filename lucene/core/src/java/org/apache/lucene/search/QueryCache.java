@@ -20,6 +20,7 @@ package org.apache.lucene.search;
 /**
  * A cache for queries.
  *
+ * @see ConcurrentQueryCache
  * @see LRUQueryCache
  * @lucene.experimental
  */
@@ -19,12 +19,15 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 
+import org.apache.lucene.index.LeafReaderContext;
+
 /**
  * A policy defining which filters should be cached.
  *
  * Implementations of this class must be thread-safe.
  *
  * @see UsageTrackingQueryCachingPolicy
+ * @see CostBasedQueryCachingPolicy
  * @see LRUQueryCache
  * @lucene.experimental
  */
@@ -57,4 +60,11 @@ public interface QueryCachingPolicy {
    *  returned. */
   boolean shouldCache(Query query) throws IOException;
 
+  /** Callback that is called by the {@link QueryCache} every time that it
+   *  built a {@link DocIdSet} for the given query on a segment, with the time
+   *  that it took in nanoseconds and the memory that the set uses. This is
+   *  typically useful if the policy wants to weigh how much work a cache
+   *  entry saves against how much memory it takes. Does nothing by default. */
+  default void onCache(Query query, LeafReaderContext context, long buildTimeNanos, long ramBytesUsed) {}
+
 }
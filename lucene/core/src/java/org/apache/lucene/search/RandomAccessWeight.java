@@ -48,7 +48,7 @@ public abstract class RandomAccessWeight extends ConstantScoreWeight {
   protected abstract Bits getMatchingDocs(LeafReaderContext context) throws IOException;
 
   @Override
-  public final Scorer scorer(LeafReaderContext context) throws IOException {
+  public Scorer scorer(LeafReaderContext context) throws IOException {
     final Bits matchingDocs = getMatchingDocs(context);
     if (matchingDocs == null || matchingDocs instanceof MatchNoBits) {
       return null;
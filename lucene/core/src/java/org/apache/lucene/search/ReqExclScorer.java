@@ -81,6 +81,17 @@ class ReqExclScorer extends Scorer {
     return reqScorer.score(); // reqScorer may be null when next() or skipTo() already return false
   }
 
+  @Override
+  public float maxScore() {
+    return reqScorer.maxScore();
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    // excluded documents never match, so the threshold only applies to the required clause
+    reqScorer.setMinCompetitiveScore(minScore);
+  }
+
   @Override
   public Collection<ChildScorer> getChildren() {
     return Collections.singleton(new ChildScorer(reqScorer, "MUST"));
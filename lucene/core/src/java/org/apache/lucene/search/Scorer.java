@@ -70,6 +70,32 @@ public abstract class Scorer {
   /** Returns the freq of this Scorer on the current document */
   public abstract int freq() throws IOException;
 
+  /**
+   * Return an upper bound of the score that this scorer may produce for any
+   * document of the current segment. Scorers that are not able to compute
+   * such a bound should return {@link Float#POSITIVE_INFINITY}, which is
+   * also the default.
+   * @lucene.experimental
+   */
+  public float maxScore() {
+    return Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Optional method: Tell the scorer that its iterator may safely ignore all
+   * documents whose score is less than the given {@code minScore}. This is a
+   * no-op by default.
+   *
+   * This method may only be called from collectors that do not need an exact
+   * count of matching documents, since documents that are not competitive
+   * may then be skipped without being collected. Successive calls must pass
+   * non-decreasing values.
+   * @lucene.experimental
+   */
+  public void setMinCompetitiveScore(float minScore) {
+    // no-op by default
+  }
+
   /** returns parent Weight
    * @lucene.experimental
    */
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.Set;
 
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
@@ -102,7 +104,25 @@ public class TermQuery extends Query {
       }
       PostingsEnum docs = termsEnum.postings(null, needsScores ? PostingsEnum.FREQS : PostingsEnum.NONE);
       assert docs != null;
-      return new TermScorer(this, docs, similarity.simScorer(stats, context));
+      return new TermScorer(this, docs, similarity.simScorer(stats, context), getMaxFreq(context, termsEnum));
+    }
+
+    /**
+     * Returns an upper bound of the frequency of the term in any document of
+     * the segment that {@code termsEnum} is positioned on.
+     */
+    private float getMaxFreq(LeafReaderContext context, TermsEnum termsEnum) throws IOException {
+      final FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(term.field());
+      if (fieldInfo != null && fieldInfo.getIndexOptions() == IndexOptions.DOCS) {
+        // freqs are not indexed, they are all equal to 1
+        return 1;
+      }
+      final long totalTermFreq = termsEnum.totalTermFreq();
+      if (totalTermFreq == -1) {
+        return Float.POSITIVE_INFINITY;
+      }
+      // every other document that contains the term has a freq of at least 1
+      return totalTermFreq - termsEnum.docFreq() + 1;
     }
 
     /**
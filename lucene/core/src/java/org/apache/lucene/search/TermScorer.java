@@ -27,6 +27,7 @@ import org.apache.lucene.search.similarities.Similarity;
 final class TermScorer extends Scorer {
   private final PostingsEnum postingsEnum;
   private final Similarity.SimScorer docScorer;
+  private final float maxFreq;
 
   /**
    * Construct a <code>TermScorer</code>.
@@ -40,9 +41,28 @@ final class TermScorer extends Scorer {
    *          to be used for score computations.
    */
   TermScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer) {
+    this(weight, td, docScorer, Float.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Construct a <code>TermScorer</code> that knows an upper bound of the
+   * frequency of the term in any document of the segment.
+   *
+   * @param weight
+   *          The weight of the <code>Term</code> in the query.
+   * @param td
+   *          An iterator over the documents matching the <code>Term</code>.
+   * @param docScorer
+   *          The <code>Similarity.SimScorer</code> implementation
+   *          to be used for score computations.
+   * @param maxFreq
+   *          An upper bound of the frequency of the term in any document.
+   */
+  TermScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer, float maxFreq) {
     super(weight);
     this.docScorer = docScorer;
     this.postingsEnum = td;
+    this.maxFreq = maxFreq;
   }
 
   @Override
@@ -66,6 +86,11 @@ final class TermScorer extends Scorer {
     return docScorer.score(postingsEnum.docID(), postingsEnum.freq());
   }
 
+  @Override
+  public float maxScore() {
+    return docScorer.maxScore(maxFreq);
+  }
+
   /** Returns a string representation of this <code>TermScorer</code>. */
   @Override
   public String toString() { return "scorer(" + weight + ")[" + super.toString() + "]"; }
@@ -36,21 +36,31 @@ import org.apache.lucene.index.LeafReaderContext;
  */
 public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
 
-  abstract static class ScorerLeafCollector implements LeafCollector {
+  abstract class ScorerLeafCollector implements LeafCollector {
 
     Scorer scorer;
 
     @Override
     public void setScorer(Scorer scorer) throws IOException {
       this.scorer = scorer;
+      updateMinCompetitiveScore();
+    }
+
+    /** Tell the scorer about the score that hits need to exceed in order
+     *  to be competitive, if we do not need to count all hits. */
+    void updateMinCompetitiveScore() {
+      // the queue is pre-populated with sentinels whose score is -Infinity
+      if (trackTotalHits == false && pqTop.score != Float.NEGATIVE_INFINITY) {
+        scorer.setMinCompetitiveScore(pqTop.score);
+      }
     }
 
   }
 
   private static class SimpleTopScoreDocCollector extends TopScoreDocCollector {
 
-    SimpleTopScoreDocCollector(int numHits) {
-      super(numHits);
+    SimpleTopScoreDocCollector(int numHits, boolean trackTotalHits) {
+      super(numHits, trackTotalHits);
     }
 
     @Override
@@ -77,6 +87,7 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
           pqTop.doc = doc + docBase;
           pqTop.score = score;
           pqTop = pq.updateTop();
+          updateMinCompetitiveScore();
         }
 
       };
@@ -89,8 +100,8 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
     private final ScoreDoc after;
     private int collectedHits;
 
-    PagingTopScoreDocCollector(int numHits, ScoreDoc after) {
-      super(numHits);
+    PagingTopScoreDocCollector(int numHits, ScoreDoc after, boolean trackTotalHits) {
+      super(numHits, trackTotalHits);
       this.after = after;
       this.collectedHits = 0;
     }
@@ -135,6 +146,7 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
           pqTop.doc = doc + docBase;
           pqTop.score = score;
           pqTop = pq.updateTop();
+          updateMinCompetitiveScore();
         }
       };
     }
@@ -165,23 +177,46 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
    * objects.
    */
   public static TopScoreDocCollector create(int numHits, ScoreDoc after) {
+    return create(numHits, after, true);
+  }
+
+  /**
+   * Creates a new {@link TopScoreDocCollector} given the number of hits to
+   * collect, the bottom of the previous page, and whether the total number
+   * of hits should be computed exactly.
+   *
+   * <p>When {@code trackTotalHits} is {@code false}, this collector tells
+   * scorers about the minimum score that hits need to have in order to be
+   * competitive via {@link Scorer#setMinCompetitiveScore(float)}, which
+   * allows some of them to skip non-competitive documents. As a consequence,
+   * {@link TopDocs#totalHits} is only a lower bound of the number of
+   * matching documents.
+   *
+   * <p><b>NOTE</b>: The instances returned by this method
+   * pre-allocate a full array of length
+   * <code>numHits</code>, and fill the array with sentinel
+   * objects.
+   */
+  public static TopScoreDocCollector create(int numHits, ScoreDoc after, boolean trackTotalHits) {
 
     if (numHits <= 0) {
       throw new IllegalArgumentException("numHits must be > 0; please use TotalHitCountCollector if you just need the total hit count");
     }
 
     if (after == null) {
-      return new SimpleTopScoreDocCollector(numHits);
+      return new SimpleTopScoreDocCollector(numHits, trackTotalHits);
     } else {
-      return new PagingTopScoreDocCollector(numHits, after);
+      return new PagingTopScoreDocCollector(numHits, after, trackTotalHits);
     }
   }
 
+  final boolean trackTotalHits;
   ScoreDoc pqTop;
 
   // prevents instantiation
-  TopScoreDocCollector(int numHits) {
+  TopScoreDocCollector(int numHits, boolean trackTotalHits) {
     super(new HitQueue(numHits, true));
+    this.trackTotalHits = trackTotalHits;
     // HitQueue implements getSentinelObject to return a ScoreDoc, so we know
     // that at this point top() is already initialized.
     pqTop = pq.top();
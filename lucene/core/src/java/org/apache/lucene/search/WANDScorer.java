@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link Scorer} for pure disjunctions that skips documents that can't
+ * produce a competitive score, using the WAND algorithm from "Efficient Query
+ * Evaluation using a Two-Level Retrieval Process" by Broder et al.
+ * <p>
+ * Sub scorers are partitioned into three sets:
+ * <ul>
+ *   <li>{@code lead}: a linked list of scorers that are positioned on the
+ *       current candidate,</li>
+ *   <li>{@code head}: a heap of scorers that are beyond the current
+ *       candidate, ordered by doc ID,</li>
+ *   <li>{@code tail}: a heap of scorers that are behind the current
+ *       candidate, ordered by max score. The sum of the max scores of these
+ *       scorers is always less than the minimum competitive score, so a
+ *       document can't be competitive if it only matches tail scorers.</li>
+ * </ul>
+ * As the minimum competitive score, which is set through
+ * {@link #setMinCompetitiveScore(float)}, goes up, more scorers fit in the
+ * tail and only the scorers from the head need to be advanced in order to
+ * find candidates. This scorer requires all its sub scorers to return a
+ * finite {@link Scorer#maxScore()}.
+ */
+final class WANDScorer extends Scorer {
+
+  private final DisiWrapper[] allScorers;
+  private final long cost;
+  private final float maxScore;
+
+  private float minCompetitiveScore;
+
+  // scorers positioned on the current candidate
+  private DisiWrapper lead;
+  private int doc;
+  private int freq;
+  private double leadMaxScore;
+
+  // scorers beyond the current candidate
+  private final DisiPriorityQueue head;
+
+  // scorers behind the current candidate
+  private final DisiWrapper[] tail;
+  private int tailSize;
+  private double tailMaxScore;
+
+  WANDScorer(Weight weight, Collection<Scorer> scorers) {
+    super(weight);
+    allScorers = new DisiWrapper[scorers.size()];
+    head = new DisiPriorityQueue(scorers.size());
+    tail = new DisiWrapper[scorers.size()];
+
+    long cost = 0;
+    double maxScoreSum = 0;
+    int i = 0;
+    // all scorers are on doc -1 initially, which is the current candidate
+    doc = -1;
+    for (Scorer scorer : scorers) {
+      final DisiWrapper w = new DisiWrapper(scorer);
+      w.maxScore = scorer.maxScore();
+      if (Float.isFinite(w.maxScore) == false) {
+        throw new IllegalArgumentException("WANDScorer requires scorers that have a finite max score, got " + scorer);
+      }
+      cost += w.cost;
+      maxScoreSum += w.maxScore;
+      allScorers[i++] = w;
+      addLead(w);
+    }
+    this.cost = cost;
+    this.maxScore = Math.nextUp((float) maxScoreSum);
+  }
+
+  @Override
+  public float maxScore() {
+    return maxScore;
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    assert minScore >= minCompetitiveScore : "min competitive scores must not decrease: " + minScore + " < " + minCompetitiveScore;
+    // increasing the min competitive score keeps the invariant on the tail valid
+    minCompetitiveScore = minScore;
+  }
+
+  private void addLead(DisiWrapper w) {
+    w.next = lead;
+    lead = w;
+    freq += 1;
+    leadMaxScore += w.maxScore;
+  }
+
+  /** Move all scorers from the lead to the tail, or to the head if they don't
+   *  fit in the tail, in which case they are advanced to {@code target}. */
+  private void pushBackLeads(int target) throws IOException {
+    for (DisiWrapper w = lead; w != null; w = w.next) {
+      final DisiWrapper evicted = insertTailWithOverFlow(w);
+      if (evicted != null) {
+        evicted.doc = evicted.iterator.advance(target);
+        head.add(evicted);
+      }
+    }
+    lead = null;
+  }
+
+  /** Make sure all scorers from the head are on or after {@code target},
+   *  moving scorers to the tail whenever possible. */
+  private void advanceHead(int target) throws IOException {
+    DisiWrapper headTop = head.top();
+    while (headTop != null && headTop.doc < target) {
+      final DisiWrapper evicted = insertTailWithOverFlow(headTop);
+      if (evicted != null) {
+        evicted.doc = evicted.iterator.advance(target);
+        headTop = head.updateTop(evicted);
+      } else {
+        head.pop();
+        headTop = head.top();
+      }
+    }
+  }
+
+  /** Pop the scorer with the highest max score from the tail and advance it
+   *  to the current candidate. */
+  private void advanceTail() throws IOException {
+    final DisiWrapper top = popTail();
+    top.doc = top.iterator.advance(doc);
+    if (top.doc == doc) {
+      addLead(top);
+    } else {
+      head.add(top);
+    }
+  }
+
+  /** Advance all scorers from the tail so that the lead contains all scorers
+   *  that match the current candidate. */
+  private void advanceAllTail() throws IOException {
+    while (tailSize > 0) {
+      advanceTail();
+    }
+  }
+
+  /** Use the top of the head as the next candidate. */
+  private void setDocAndFreq() {
+    freq = 0;
+    leadMaxScore = 0;
+    if (head.size() == 0) {
+      // all scorers are in the tail, so no document can be competitive anymore
+      doc = DocIdSetIterator.NO_MORE_DOCS;
+      return;
+    }
+    final DisiWrapper top = head.pop();
+    doc = top.doc;
+    addLead(top);
+    while (head.size() > 0 && head.top().doc == doc) {
+      addLead(head.pop());
+    }
+  }
+
+  /** Move to the next candidate that may produce a competitive score,
+   *  starting from the current candidate. */
+  private int doNextCandidate() throws IOException {
+    while (doc != DocIdSetIterator.NO_MORE_DOCS && leadMaxScore + tailMaxScore < minCompetitiveScore) {
+      pushBackLeads(doc + 1);
+      advanceHead(doc + 1);
+      setDocAndFreq();
+    }
+    return doc;
+  }
+
+  private final DocIdSetIterator approximation = new DocIdSetIterator() {
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      assert target > doc;
+      pushBackLeads(target);
+      advanceHead(target);
+      setDocAndFreq();
+      return doNextCandidate();
+    }
+
+    @Override
+    public long cost() {
+      return cost;
+    }
+  };
+
+  @Override
+  public TwoPhaseIterator twoPhaseIterator() {
+    return new TwoPhaseIterator(approximation) {
+
+      @Override
+      public boolean matches() throws IOException {
+        // advance tail scorers until the lead can produce a competitive score
+        while (leadMaxScore < minCompetitiveScore) {
+          if (leadMaxScore + tailMaxScore < minCompetitiveScore) {
+            return false;
+          }
+          advanceTail();
+        }
+        return true;
+      }
+
+      @Override
+      public float matchCost() {
+        // the number of scorers that may need to be advanced
+        return tail.length;
+      }
+    };
+  }
+
+  @Override
+  public DocIdSetIterator iterator() {
+    return TwoPhaseIterator.asDocIdSetIterator(twoPhaseIterator());
+  }
+
+  @Override
+  public int docID() {
+    return doc;
+  }
+
+  @Override
+  public int freq() throws IOException {
+    // we need to know about all matching scorers
+    advanceAllTail();
+    return freq;
+  }
+
+  @Override
+  public float score() throws IOException {
+    // we need to know about all matching scorers
+    advanceAllTail();
+    double score = 0;
+    for (DisiWrapper w = lead; w != null; w = w.next) {
+      score += w.scorer.score();
+    }
+    return (float) score;
+  }
+
+  @Override
+  public Collection<ChildScorer> getChildren() {
+    List<ChildScorer> children = new ArrayList<>();
+    for (DisiWrapper w : allScorers) {
+      children.add(new ChildScorer(w.scorer, "SHOULD"));
+    }
+    return children;
+  }
+
+  /** Insert an entry in the tail if the sum of the max scores of the tail
+   *  remains less than the min competitive score, and return {@code null}.
+   *  Otherwise, return the entry with the highest max score among the
+   *  inserted entry and the tail entries, and leave the tail unchanged if
+   *  this entry is the inserted one. */
+  private DisiWrapper insertTailWithOverFlow(DisiWrapper w) {
+    if (tailMaxScore + w.maxScore < minCompetitiveScore) {
+      addTail(w);
+      tailMaxScore += w.maxScore;
+      return null;
+    } else if (tailSize == 0) {
+      return w;
+    } else {
+      final DisiWrapper top = tail[0];
+      if (greaterMaxScore(top, w) == false) {
+        return w;
+      }
+      // swap the top of the tail with w, this keeps the sum of the max
+      // scores of the tail under the min competitive score
+      tail[0] = w;
+      downHeapMaxScore(tail, tailSize);
+      tailMaxScore = tailMaxScore - top.maxScore + w.maxScore;
+      return top;
+    }
+  }
+
+  private void addTail(DisiWrapper w) {
+    tail[tailSize] = w;
+    upHeapMaxScore(tail, tailSize);
+    tailSize += 1;
+  }
+
+  private DisiWrapper popTail() {
+    assert tailSize > 0;
+    final DisiWrapper result = tail[0];
+    tail[0] = tail[--tailSize];
+    tail[tailSize] = null;
+    downHeapMaxScore(tail, tailSize);
+    tailMaxScore -= result.maxScore;
+    if (tailSize == 0) {
+      // prevent accumulated rounding errors
+      tailMaxScore = 0;
+    }
+    return result;
+  }
+
+  /** Heap helpers for the tail, which is ordered by max score, highest first.
+   *  Ties are broken by cost, so that the cheapest scorers are advanced
+   *  first. */
+  private static boolean greaterMaxScore(DisiWrapper w1, DisiWrapper w2) {
+    if (w1.maxScore > w2.maxScore) {
+      return true;
+    } else if (w1.maxScore < w2.maxScore) {
+      return false;
+    } else {
+      return w1.cost < w2.cost;
+    }
+  }
+
+  private static void upHeapMaxScore(DisiWrapper[] heap, int i) {
+    final DisiWrapper node = heap[i];
+    int j = DisiPriorityQueue.parentNode(i);
+    while (j >= 0 && greaterMaxScore(node, heap[j])) {
+      heap[i] = heap[j];
+      i = j;
+      j = DisiPriorityQueue.parentNode(j);
+    }
+    heap[i] = node;
+  }
+
+  private static void downHeapMaxScore(DisiWrapper[] heap, int size) {
+    int i = 0;
+    final DisiWrapper node = heap[0];
+    int j = DisiPriorityQueue.leftNode(i);
+    while (j < size) {
+      final int k = DisiPriorityQueue.rightNode(j);
+      if (k < size && greaterMaxScore(heap[k], heap[j])) {
+        j = k;
+      }
+      if (greaterMaxScore(heap[j], node) == false) {
+        break;
+      }
+      heap[i] = heap[j];
+      i = j;
+      j = DisiPriorityQueue.leftNode(i);
+    }
+    heap[i] = node;
+  }
+}
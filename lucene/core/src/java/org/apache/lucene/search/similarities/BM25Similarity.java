@@ -243,6 +243,27 @@ public class BM25Similarity extends Similarity {
       float norm = norms == null ? k1 : cache[(byte)norms.get(doc) & 0xFF];
       return weightValue * freq / (freq + norm);
     }
+
+    @Override
+    public float maxScore(float maxFreq) {
+      // the score increases with the frequency and decreases with the norm,
+      // so the bound is reached for the highest frequency and the lowest norm
+      float minNorm;
+      if (norms == null) {
+        minNorm = k1;
+      } else {
+        minNorm = Float.POSITIVE_INFINITY;
+        for (float norm : cache) {
+          minNorm = Math.min(minNorm, norm);
+        }
+      }
+      if (weightValue < 0 || minNorm < 0) {
+        return Float.POSITIVE_INFINITY;
+      }
+      final double tfNorm = Float.isInfinite(maxFreq) ? 1 : maxFreq / (maxFreq + (double) minNorm);
+      // leave some slack for the rounding errors of the float arithmetic in score()
+      return (float) (weightValue * tfNorm * (1 + 1e-5));
+    }
     
     @Override
     public Explanation explain(int doc, Explanation freq) {
@@ -197,6 +197,17 @@ public abstract class Similarity {
      */
     public abstract float score(int doc, float freq);
 
+    /**
+     * Return an upper bound of the score that {@link #score(int, float)} may
+     * return for any document of the segment, given that the frequency is
+     * never greater than {@code maxFreq}. The default implementation returns
+     * {@link Float#POSITIVE_INFINITY}, meaning that scores are not bounded.
+     * @lucene.experimental
+     */
+    public float maxScore(float maxFreq) {
+      return Float.POSITIVE_INFINITY;
+    }
+
     /** Computes the amount of a sloppy phrase match, based on an edit distance. */
     public abstract float computeSlopFactor(int distance);
     
@@ -22,6 +22,10 @@ import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.lucene.util.WeakIdentityMap;
 
@@ -48,14 +52,22 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
 
   protected boolean isClone = false;
   protected final WeakIdentityMap<ByteBufferIndexInput,Boolean> clones;
+  protected Prefetcher prefetcher; // shared with all clones, null if prefetching is disabled
   
   public static ByteBufferIndexInput newInstance(String resourceDescription, ByteBuffer[] buffers, long length, int chunkSizePower, BufferCleaner cleaner, boolean trackClones) {
+    return newInstance(resourceDescription, buffers, length, chunkSizePower, cleaner, trackClones, null);
+  }
+
+  public static ByteBufferIndexInput newInstance(String resourceDescription, ByteBuffer[] buffers, long length, int chunkSizePower, BufferCleaner cleaner, boolean trackClones, Prefetcher prefetcher) {
     final WeakIdentityMap<ByteBufferIndexInput,Boolean> clones = trackClones ? WeakIdentityMap.<ByteBufferIndexInput,Boolean>newConcurrentHashMap() : null;
+    final ByteBufferIndexInput input;
     if (buffers.length == 1) {
-      return new SingleBufferImpl(resourceDescription, buffers[0], length, chunkSizePower, cleaner, clones);
+      input = new SingleBufferImpl(resourceDescription, buffers[0], length, chunkSizePower, cleaner, clones);
     } else {
-      return new MultiBufferImpl(resourceDescription, buffers, 0, length, chunkSizePower, cleaner, clones);
+      input = new MultiBufferImpl(resourceDescription, buffers, 0, length, chunkSizePower, cleaner, clones);
     }
+    input.prefetcher = prefetcher;
+    return input;
   }
   
   ByteBufferIndexInput(String resourceDescription, ByteBuffer[] buffers, long length, int chunkSizePower, BufferCleaner cleaner, WeakIdentityMap<ByteBufferIndexInput,Boolean> clones) {
@@ -250,6 +262,25 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     return length;
   }
 
+  @Override
+  public final void prefetch(long offset, long length) throws IOException {
+    if (offset < 0 || length < 0 || offset + length > this.length) {
+      throw new IllegalArgumentException("prefetch() out of bounds: offset=" + offset + ",length=" + length + ",fileLength=" + this.length + ": " + this);
+    }
+    final ByteBuffer[] buffers = this.buffers;
+    if (buffers == null) {
+      throw new AlreadyClosedException("Already closed: " + this);
+    }
+    if (prefetcher != null && length > 0) {
+      prefetcher.prefetch(buffers, bufferOffset() + offset, length, chunkSizePower);
+    }
+  }
+
+  /** Position in {@link #buffers} that offset 0 of this input maps to */
+  protected long bufferOffset() {
+    return 0L;
+  }
+
   @Override
   public final ByteBufferIndexInput clone() {
     final ByteBufferIndexInput clone = buildSlice((String) null, 0L, this.length);
@@ -285,6 +316,7 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     
     final ByteBufferIndexInput clone = newCloneInstance(getFullSliceDescription(sliceDescription), newBuffers, ofs, length);
     clone.isClone = true;
+    clone.prefetcher = prefetcher;
 
     // register the new clone in our clone list to clean it up on closing:
     if (clones != null) {
@@ -340,6 +372,11 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
       }
       
       if (isClone) return;
+
+      // wait for running prefetches before the buffers go away
+      if (prefetcher != null) {
+        prefetcher.close();
+      }
       
       // for extra safety unset also all clones' buffers:
       if (clones != null) {
@@ -386,6 +423,73 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     void freeBuffer(ByteBufferIndexInput parent, ByteBuffer b) throws IOException;
   }
   
+  /**
+   * Loads ranges of the buffers of one file (and its clones) into memory on background
+   * threads, by reading one byte of every page.  Once {@link #close} has been called, no
+   * more pages are touched, so the buffers can be safely unmapped.
+   */
+  static final class Prefetcher {
+    /** Bytes touched by one task, which bounds how long {@link #close} may wait */
+    static final int MAX_TASK_BYTES = 1 << 20;
+    private static final int PAGE_SIZE = 4096;
+
+    private final Executor executor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+    @SuppressWarnings("unused")
+    private volatile int sink; // keeps the page reads from being optimized away
+
+    Prefetcher(Executor executor) {
+      this.executor = executor;
+    }
+
+    void prefetch(ByteBuffer[] buffers, long pos, long length, int chunkSizePower) {
+      final long end = pos + length;
+      for (long start = pos; start < end; start += MAX_TASK_BYTES) {
+        final long taskStart = start;
+        final long taskEnd = Math.min(end, start + MAX_TASK_BYTES);
+        try {
+          executor.execute(() -> touch(buffers, taskStart, taskEnd, chunkSizePower));
+        } catch (RejectedExecutionException e) {
+          // the pool is busy or shut down: this is only a hint
+          return;
+        }
+      }
+    }
+
+    private void touch(ByteBuffer[] buffers, long start, long end, int chunkSizePower) {
+      if (!lock.readLock().tryLock()) {
+        return; // being closed
+      }
+      try {
+        if (closed) {
+          return;
+        }
+        final long chunkSizeMask = (1L << chunkSizePower) - 1L;
+        int sum = 0;
+        // one byte every PAGE_SIZE bytes, and the last one, hits every page of the range
+        for (long pos = start; pos < end; pos += PAGE_SIZE) {
+          sum += buffers[(int) (pos >>> chunkSizePower)].get((int) (pos & chunkSizeMask));
+        }
+        final long last = end - 1;
+        sum += buffers[(int) (last >>> chunkSizePower)].get((int) (last & chunkSizeMask));
+        sink = sum;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    /** Waits for running prefetches to finish, and disables any further ones. */
+    void close() {
+      lock.writeLock().lock();
+      try {
+        closed = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
   /** Optimization of ByteBufferIndexInput for when there is only one buffer */
   static final class SingleBufferImpl extends ByteBufferIndexInput {
 
@@ -534,5 +638,10 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     protected ByteBufferIndexInput buildSlice(String sliceDescription, long ofs, long length) {
       return super.buildSlice(sliceDescription, this.offset + ofs, length);
     }
+
+    @Override
+    protected long bufferOffset() {
+      return offset;
+    }
   }
 }
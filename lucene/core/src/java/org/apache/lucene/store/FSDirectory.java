@@ -246,10 +246,7 @@ public abstract class FSDirectory extends BaseDirectory {
   @Override
   public IndexOutput createOutput(String name, IOContext context) throws IOException {
     ensureOpen();
-
-    // If this file was pending delete, we are now bringing it back to life:
-    pendingDeletes.remove(name);
-    maybeDeletePendingFiles();
+    ensureCanWrite(name);
     return new FSIndexOutput(name);
   }
 
@@ -271,6 +268,14 @@ public abstract class FSDirectory extends BaseDirectory {
     }
   }
 
+  /** Must be called before the file {@code name} is created, whether through
+   *  {@link #createOutput} or by a wrapper that opens the file itself. */
+  protected void ensureCanWrite(String name) throws IOException {
+    // If this file was pending delete, we are now bringing it back to life:
+    pendingDeletes.remove(name);
+    maybeDeletePendingFiles();
+  }
+
   protected void ensureCanRead(String name) throws IOException {
     if (pendingDeletes.contains(name)) {
       throw new NoSuchFileException("file \"" + name + "\" is pending delete and cannot be opened for read");
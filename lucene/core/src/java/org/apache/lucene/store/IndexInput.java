@@ -96,6 +96,19 @@ public abstract class IndexInput extends DataInput implements Cloneable,Closeabl
     return (IndexInput) super.clone();
   }
   
+  /**
+   * Optional hint that the given range of this input will be read soon, so that the
+   * implementation can start loading it in the background while the caller does other
+   * work. The offset is relative to this input, like {@link #seek}. This never moves the
+   * file pointer.
+   * <p>
+   * The default implementation does nothing.
+   *
+   * @lucene.experimental
+   */
+  public void prefetch(long offset, long length) throws IOException {
+  }
+
   /**
    * Creates a slice of this index input, with the given description, offset, and length. 
    * The slice is seeked to the beginning.
@@ -32,13 +32,18 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 import org.apache.lucene.store.ByteBufferIndexInput.BufferCleaner;
 import org.apache.lucene.util.Constants;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.SuppressForbidden;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 /** File-based {@link Directory} implementation that uses
  *  mmap for reading, and {@link
@@ -92,6 +97,8 @@ import org.apache.lucene.util.SuppressForbidden;
 public class MMapDirectory extends FSDirectory {
   private boolean useUnmapHack = UNMAP_SUPPORTED;
   private boolean preload;
+  private int prefetchThreads;
+  private ThreadPoolExecutor prefetchExecutor;
 
   /** 
    * Default max chunk size.
@@ -221,6 +228,65 @@ public class MMapDirectory extends FSDirectory {
     return preload;
   }
   
+  /**
+   * Sets the number of background threads that load the ranges passed to
+   * {@link IndexInput#prefetch} into memory, by touching their pages, so that the
+   * page faults overlap with the work of the caller instead of stalling it.
+   * {@code 0}, the default, disables prefetching. Inputs opened with a
+   * {@link IOContext#readOnce read once} or merge context are read sequentially and
+   * never prefetch.
+   * <p>Must be called before any input is opened.
+   * @lucene.experimental
+   */
+  public synchronized void setPrefetchThreads(int prefetchThreads) {
+    if (prefetchThreads < 0) {
+      throw new IllegalArgumentException("prefetchThreads must be >= 0, got " + prefetchThreads);
+    }
+    if (prefetchExecutor != null) {
+      throw new IllegalStateException("prefetchThreads can not be changed once inputs have been opened");
+    }
+    this.prefetchThreads = prefetchThreads;
+  }
+
+  /**
+   * Returns the number of background prefetch threads.
+   * @see #setPrefetchThreads
+   */
+  public synchronized int getPrefetchThreads() {
+    return prefetchThreads;
+  }
+
+  private synchronized ByteBufferIndexInput.Prefetcher newPrefetcher(IOContext context) {
+    if (prefetchThreads == 0 || context.readOnce || context.context == IOContext.Context.MERGE) {
+      return null;
+    }
+    if (prefetchExecutor == null) {
+      // a hint only: drop prefetches rather than queueing behind a backlog
+      prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 10, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(1024), new NamedThreadFactory("MMapDirectoryPrefetch"),
+          new ThreadPoolExecutor.DiscardPolicy());
+      prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+    return new ByteBufferIndexInput.Prefetcher(prefetchExecutor);
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    final ThreadPoolExecutor executor;
+    synchronized (this) {
+      executor = prefetchExecutor;
+    }
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      }
+    }
+  }
+
   /**
    * Returns the current mmap chunk size.
    * @see #MMapDirectory(Path, LockFactory, int)
@@ -240,7 +306,7 @@ public class MMapDirectory extends FSDirectory {
       final boolean useUnmap = getUseUnmap();
       return ByteBufferIndexInput.newInstance(resourceDescription,
           map(resourceDescription, c, 0, c.size()), 
-          c.size(), chunkSizePower, useUnmap ? CLEANER : null, useUnmap);
+          c.size(), chunkSizePower, useUnmap ? CLEANER : null, useUnmap, newPrefetcher(context));
     }
   }
 
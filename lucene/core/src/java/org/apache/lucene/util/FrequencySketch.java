@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates how often keys have been accessed recently, for caches that only
+ * admit a new entry if it is more popular than the entry it would evict
+ * (TinyLFU admission). This is a count-min sketch of 4-bit counters, so
+ * estimates are at most 15. All counters are halved once the number of
+ * recorded accesses reaches ten times the number of counter slots so that old
+ * popularity fades away.
+ * <p>
+ * Counters are updated with compare-and-set operations, so this class may be
+ * used concurrently without locking.
+ * <p>This implementation was forked from the <code>FrequencySketch</code> of
+ * <a href="https://github.com/ben-manes/caffeine">Caffeine</a>, Copyright 2015
+ * by Ben Manes, which is licensed under the Apache License, Version 2.0.
+ *
+ * @lucene.internal
+ */
+public final class FrequencySketch {
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final AtomicLongArray table;
+  private final int tableMask;
+  private final int sampleSize;
+  private final AtomicInteger size;
+
+  /** @param maximumSize the number of entries of the cache this sketch is for */
+  public FrequencySketch(long maximumSize) {
+    // never go below 64 longs, ie. 1024 counters, so that small caches still get accurate estimates
+    final int length = Integer.highestOneBit((int) Math.max(64, Math.min(maximumSize, 1 << 22)) - 1) << 1;
+    table = new AtomicLongArray(length);
+    tableMask = length - 1;
+    sampleSize = 10 * length;
+    size = new AtomicInteger();
+  }
+
+  /** Returns the estimated number of recent accesses of the key with the given hash, at most 15. */
+  public int frequency(int hashCode) {
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      final long value = table.get(indexOf(hash, i));
+      frequency = Math.min(frequency, (int) ((value >>> ((start + i) << 2)) & 0xfL));
+    }
+    return frequency;
+  }
+
+  /** Records an access of the key with the given hash. */
+  public void increment(int hashCode) {
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && size.incrementAndGet() == sampleSize) {
+      // only the thread that crosses the threshold resets
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int i, int j) {
+    final int offset = j << 2;
+    final long mask = 0xfL << offset;
+    while (true) {
+      final long value = table.get(i);
+      if ((value & mask) == mask) {
+        return false;
+      }
+      if (table.compareAndSet(i, value, value + (1L << offset))) {
+        return true;
+      }
+    }
+  }
+
+  /** Halves every counter */
+  private void reset() {
+    for (int i = 0; i < table.length(); i++) {
+      long value;
+      do {
+        value = table.get(i);
+      } while (table.compareAndSet(i, value, (value >>> 1) & RESET_MASK) == false);
+    }
+    size.addAndGet(-(sampleSize >>> 1));
+  }
+
+  private int indexOf(int item, int i) {
+    long hash = SEEDS[i] * item;
+    hash += hash >>> 32;
+    return ((int) hash) & tableMask;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
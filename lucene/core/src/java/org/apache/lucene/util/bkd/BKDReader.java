@@ -292,6 +292,32 @@ public class BKDReader implements Accountable {
     }
   }
 
+  /** Hints that all leaf blocks under this inner node, which are contiguous on disk, are about to be read. */
+  private void prefetchLeaves(IntersectState state, int nodeID) throws IOException {
+    if (nodeID >= leafNodeOffset) {
+      return;
+    }
+    int first = nodeID;
+    while (first < leafNodeOffset) {
+      first = 2*first;
+    }
+    int last = nodeID;
+    while (last < leafNodeOffset) {
+      last = 2*last+1;
+    }
+    int firstLeaf = first - leafNodeOffset;
+    int lastLeaf = last - leafNodeOffset;
+    if (firstLeaf < leafBlockFPs.length && lastLeaf < leafBlockFPs.length) {
+      long startFP = Math.min(leafBlockFPs[firstLeaf], leafBlockFPs[lastLeaf]);
+      long endFP = Math.max(leafBlockFPs[firstLeaf], leafBlockFPs[lastLeaf]);
+      // the last block starts at endFP: include at least its doc IDs
+      long length = Math.min(state.in.length(), endFP + 1) - startFP;
+      if (length > 0) {
+        state.in.prefetch(startFP, length);
+      }
+    }
+  }
+
   /** Create a new {@link IntersectState} */
   public IntersectState getIntersectState(IntersectVisitor visitor) {
     return new IntersectState(in.clone(), numDims,
@@ -375,6 +401,7 @@ public class BKDReader implements Accountable {
       return;
     } else if (r == Relation.CELL_INSIDE_QUERY) {
       // This cell is fully inside of the query shape: recursively add all points in this cell without filtering
+      prefetchLeaves(state, nodeID);
       addAll(state, nodeID);
       return;
     } else {
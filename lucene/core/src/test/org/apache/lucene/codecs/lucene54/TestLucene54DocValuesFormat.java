@@ -33,6 +33,7 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.asserting.AssertingCodec;
 import org.apache.lucene.codecs.lucene54.Lucene54DocValuesProducer.SparseBits;
 import org.apache.lucene.codecs.lucene54.Lucene54DocValuesProducer.SparseLongValues;
+import org.apache.lucene.codecs.lucene54.Lucene54DocValuesProducer.SparseNumericIterator;
 import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -62,6 +63,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMFile;
 import org.apache.lucene.store.RAMInputStream;
@@ -439,6 +441,85 @@ public class TestLucene54DocValuesFormat extends BaseCompressingDocValuesFormatT
     }
   }
 
+  public void testSparseNumericIterator() {
+    final int iters = atLeast(5);
+    for (int iter = 0; iter < iters; ++iter) {
+      final int numDocs = TestUtil.nextInt(random(), 0, 100);
+      final long[] docIds = new long[numDocs];
+      final long[] values = new long[numDocs];
+      final long maxDoc;
+      if (numDocs == 0) {
+        maxDoc = 1 + random().nextInt(10);
+      } else {
+        docIds[0] = random().nextInt(10);
+        for (int i = 1; i < docIds.length; ++i) {
+          docIds[i] = docIds[i - 1] + 1 + random().nextInt(100);
+        }
+        maxDoc = docIds[numDocs - 1] + 1 + random().nextInt(10);
+      }
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = random().nextLong();
+      }
+      final LongValues docIdsValues = new LongValues() {
+        @Override
+        public long get(long index) {
+          return docIds[Math.toIntExact(index)];
+        }
+      };
+      final LongValues valuesValues = new LongValues() {
+        @Override
+        public long get(long index) {
+          return values[Math.toIntExact(index)];
+        }
+      };
+
+      // nextDoc
+      SparseNumericIterator it = new SparseNumericIterator(new SparseBits(maxDoc, numDocs, docIdsValues), valuesValues);
+      assertEquals(numDocs, it.cost());
+      for (int i = 0; i < numDocs; ++i) {
+        assertEquals(docIds[i], it.nextDoc());
+        assertEquals(values[i], it.longValue());
+      }
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, it.nextDoc());
+
+      // advance, mixed with nextDoc
+      it = new SparseNumericIterator(new SparseBits(maxDoc, numDocs, docIdsValues), valuesValues);
+      for (int target = random().nextInt(5); ; target = it.docID() + 1 + random().nextInt(50)) {
+        final int doc = random().nextBoolean() ? it.advance(target) : it.nextDoc();
+        if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+          assertTrue(numDocs == 0 || docIds[numDocs - 1] < target);
+          break;
+        }
+        final int idx = Arrays.binarySearch(docIds, doc);
+        assertTrue(idx >= 0);
+        assertEquals(values[idx], it.longValue());
+      }
+
+      // advanceExact, mixed with nextDoc
+      it = new SparseNumericIterator(new SparseBits(maxDoc, numDocs, docIdsValues), valuesValues);
+      for (int target = 0; target < maxDoc; target += random().nextInt(3)) {
+        if (random().nextInt(5) == 0) {
+          final int doc = it.nextDoc();
+          if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+            break;
+          }
+          final int idx = Arrays.binarySearch(docIds, doc);
+          assertTrue(idx >= 0);
+          assertTrue(idx == 0 || docIds[idx - 1] <= target);
+          assertEquals(values[idx], it.longValue());
+          target = doc;
+          continue;
+        }
+        final int idx = Arrays.binarySearch(docIds, target);
+        assertEquals(idx >= 0, it.advanceExact(target));
+        assertEquals(target, it.docID());
+        if (idx >= 0) {
+          assertEquals(values[idx], it.longValue());
+        }
+      }
+    }
+  }
+
   public void testSparseLongValues() {
     final int iters = atLeast(5);
     for (int iter = 0; iter < iters; ++iter) {
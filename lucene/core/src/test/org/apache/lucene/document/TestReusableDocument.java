@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.document;
+
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestReusableDocument extends LuceneTestCase {
+
+  public void testSameIndexAsFields() throws IOException {
+    // analyzers may randomly add payloads, make sure both writers get the same ones
+    final long analyzerSeed = random().nextLong();
+    final int maxBufferedDocs = TestUtil.nextInt(random(), 10, 200);
+    Directory fieldsDir = newDirectory();
+    Directory reusableDir = newDirectory();
+    IndexWriter fieldsWriter = new IndexWriter(fieldsDir, new IndexWriterConfig(new MockAnalyzer(new Random(analyzerSeed)))
+        .setMaxBufferedDocs(maxBufferedDocs)
+        .setMergePolicy(NoMergePolicy.INSTANCE));
+    IndexWriter reusableWriter = new IndexWriter(reusableDir, new IndexWriterConfig(new MockAnalyzer(new Random(analyzerSeed)))
+        .setMaxBufferedDocs(maxBufferedDocs)
+        .setMergePolicy(NoMergePolicy.INSTANCE));
+
+    final ReusableDocument reusable = new ReusableDocument();
+    final StringBuilder body = new StringBuilder();
+    final int numDocs = atLeast(300);
+    for (int i = 0; i < numDocs; ++i) {
+      final String id = Integer.toString(i);
+      body.setLength(0);
+      body.append(TestUtil.randomSimpleString(random(), 1, 20)).append(' ').append(TestUtil.randomSimpleString(random(), 1, 20));
+      final int intValue = random().nextInt();
+      final long longValue = random().nextLong();
+      final BytesRef bytes = new BytesRef(TestUtil.randomSimpleString(random(), 1, 10));
+
+      Document doc = new Document();
+      doc.add(new StringField("id", id, Field.Store.YES));
+      doc.add(new TextField("body", body.toString(), Field.Store.YES));
+      doc.add(new TextField("title", "title " + id, Field.Store.NO));
+      doc.add(new IntPoint("int", intValue));
+      doc.add(new LongPoint("long", longValue));
+      doc.add(new NumericDocValuesField("long", longValue));
+      doc.add(new SortedNumericDocValuesField("sortednumeric", intValue));
+      doc.add(new SortedNumericDocValuesField("sortednumeric", longValue));
+      doc.add(new BinaryDocValuesField("binary", bytes));
+      doc.add(new SortedDocValuesField("sorted", bytes));
+      doc.add(new SortedSetDocValuesField("sortedset", bytes));
+      doc.add(new StoredField("storedint", intValue));
+      doc.add(new StoredField("storedlong", longValue));
+      doc.add(new StoredField("storedbytes", bytes));
+      doc.add(new StoredField("storedstring", id));
+      fieldsWriter.addDocument(doc);
+
+      reusable.clear();
+      reusable.addStringField("id", id, Field.Store.YES);
+      reusable.addTextField("body", body, Field.Store.YES);
+      reusable.addTextField("title", "title " + id, Field.Store.NO);
+      reusable.addIntPoint("int", intValue);
+      reusable.addLongPoint("long", longValue);
+      reusable.addNumericDocValuesField("long", longValue);
+      reusable.addSortedNumericDocValuesField("sortednumeric", intValue);
+      reusable.addSortedNumericDocValuesField("sortednumeric", longValue);
+      reusable.addBinaryDocValuesField("binary", bytes);
+      reusable.addSortedDocValuesField("sorted", bytes);
+      reusable.addSortedSetDocValuesField("sortedset", bytes);
+      reusable.addStoredField("storedint", intValue);
+      reusable.addStoredField("storedlong", longValue);
+      reusable.addStoredField("storedbytes", bytes);
+      reusable.addStoredField("storedstring", id);
+      reusableWriter.addDocument(reusable);
+
+      if (rarely()) {
+        final Term term = new Term("id", Integer.toString(random().nextInt(i + 1)));
+        fieldsWriter.deleteDocuments(term);
+        reusableWriter.deleteDocuments(term);
+      }
+    }
+    fieldsWriter.commit();
+    reusableWriter.commit();
+
+    DirectoryReader fieldsReader = DirectoryReader.open(fieldsDir);
+    DirectoryReader reusableReader = DirectoryReader.open(reusableDir);
+    assertReaderEquals("reusable document", fieldsReader, reusableReader);
+    fieldsReader.close();
+    reusableReader.close();
+
+    fieldsWriter.close();
+    reusableWriter.close();
+    fieldsDir.close();
+    reusableDir.close();
+  }
+
+  public void testClear() {
+    ReusableDocument doc = new ReusableDocument();
+    final int numFields = TestUtil.nextInt(random(), 1, 50);
+    for (int i = 0; i < numFields; ++i) {
+      doc.addNumericDocValuesField("dv" + i, i);
+    }
+    assertEquals(numFields, doc.size());
+    doc.clear();
+    assertEquals(0, doc.size());
+    assertFalse(doc.iterator().hasNext());
+
+    doc.addStoredField("stored", 42);
+    Iterator<IndexableField> it = doc.iterator();
+    assertTrue(it.hasNext());
+    IndexableField field = it.next();
+    assertEquals("stored", field.name());
+    assertEquals(Integer.valueOf(42), field.numericValue());
+    assertNull(field.binaryValue());
+    assertNull(field.stringValue());
+    assertFalse(it.hasNext());
+  }
+
+  public void testIteratorReuse() {
+    ReusableDocument doc = new ReusableDocument();
+    doc.addStringField("id", "1", Field.Store.NO);
+    doc.addStoredField("stored", 1L);
+
+    Iterator<IndexableField> it = doc.iterator();
+    assertEquals("id", it.next().name());
+    // the first iterator is still being consumed
+    Iterator<IndexableField> other = doc.iterator();
+    assertNotSame(it, other);
+    assertEquals("id", other.next().name());
+    assertEquals("stored", other.next().name());
+    assertFalse(other.hasNext());
+    assertEquals("stored", it.next().name());
+    assertFalse(it.hasNext());
+
+    // exhausted iterators get reused
+    Iterator<IndexableField> reused = doc.iterator();
+    assertSame(other, reused);
+    assertEquals("id", reused.next().name());
+  }
+
+  public void testFieldValues() throws IOException {
+    ReusableDocument doc = new ReusableDocument();
+    doc.addLongPoint("point", 5L);
+    doc.addNumericDocValuesField("dv", -3L);
+    doc.addStoredField("bytes", new BytesRef("foo"));
+    doc.addStringField("string", new StringBuilder("bar"), Field.Store.YES);
+    Iterator<IndexableField> it = doc.iterator();
+
+    ReusableDocument.ReusableField point = (ReusableDocument.ReusableField) it.next();
+    assertEquals(new LongPoint("point", 5L).binaryValue(), point.binaryValue());
+    assertEquals(1, point.fieldType().pointDimensionCount());
+    assertEquals(Long.BYTES, point.fieldType().pointNumBytes());
+    assertNull(point.tokenStream(new MockAnalyzer(random()), null));
+    expectThrows(IllegalStateException.class, point::longValue);
+
+    ReusableDocument.ReusableField dv = (ReusableDocument.ReusableField) it.next();
+    assertEquals(-3L, dv.longValue());
+    assertEquals(Long.valueOf(-3L), dv.numericValue());
+
+    IndexableField bytes = it.next();
+    assertEquals(new BytesRef("foo"), bytes.binaryValue());
+    assertNull(bytes.numericValue());
+
+    IndexableField string = it.next();
+    assertEquals("bar", string.stringValue());
+    try (TokenStream ts = string.tokenStream(new MockAnalyzer(random()), null)) {
+      ts.reset();
+      assertTrue(ts.incrementToken());
+      assertFalse(ts.incrementToken());
+      ts.end();
+    }
+    assertFalse(it.hasNext());
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      doc.addStoredField("bytes", (BytesRef) null);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      doc.addTextField(null, "foo", Field.Store.NO);
+    });
+    assertEquals(4, doc.size());
+  }
+}
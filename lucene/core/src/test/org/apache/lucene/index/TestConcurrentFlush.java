@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+/** Tests flushing the parts of a segment with several threads, see {@link IndexWriterConfig#setFlushThreadCount(int)}. */
+public class TestConcurrentFlush extends LuceneTestCase {
+
+  // wide documents that have all kinds of fields
+  private static Document randomDocument(int id, int numFields) {
+    Document doc = new Document();
+    doc.add(new StringField("id", Integer.toString(id), Field.Store.YES));
+    FieldType vectorsType = new FieldType(TextField.TYPE_STORED);
+    vectorsType.setStoreTermVectors(true);
+    vectorsType.setStoreTermVectorPositions(true);
+    doc.add(new Field("body", TestUtil.randomSimpleString(random(), 1, 50) + " " + TestUtil.randomSimpleString(random(), 1, 50), vectorsType));
+    for (int i = 0; i < numFields; ++i) {
+      final int value = random().nextInt(100);
+      final BytesRef bytes = new BytesRef(Integer.toString(value));
+      doc.add(new TextField("text" + i, "value " + value, Field.Store.NO));
+      doc.add(new NumericDocValuesField("dv" + i, value));
+      doc.add(new SortedDocValuesField("sorted" + i, bytes));
+      doc.add(new SortedSetDocValuesField("sortedset" + i, bytes));
+      doc.add(new IntPoint("point" + i, value));
+      doc.add(new StoredField("stored" + i, value));
+    }
+    return doc;
+  }
+
+  public void testSameIndexAsSequentialFlush() throws IOException {
+    // analyzers may randomly add payloads, make sure both writers get the same ones
+    final long analyzerSeed = random().nextLong();
+    final int maxBufferedDocs = TestUtil.nextInt(random(), 10, 200);
+    Directory sequentialDir = newDirectory();
+    Directory concurrentDir = newDirectory();
+    IndexWriter sequential = new IndexWriter(sequentialDir, new IndexWriterConfig(new MockAnalyzer(new Random(analyzerSeed)))
+        .setMaxBufferedDocs(maxBufferedDocs)
+        .setMergePolicy(NoMergePolicy.INSTANCE)
+        .setFlushThreadCount(1));
+    IndexWriter concurrent = new IndexWriter(concurrentDir, new IndexWriterConfig(new MockAnalyzer(new Random(analyzerSeed)))
+        .setMaxBufferedDocs(maxBufferedDocs)
+        .setMergePolicy(NoMergePolicy.INSTANCE)
+        .setFlushThreadCount(TestUtil.nextInt(random(), 2, 6)));
+
+    final int numFields = TestUtil.nextInt(random(), 1, 30);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      final Document doc = randomDocument(i, numFields);
+      sequential.addDocument(doc);
+      concurrent.addDocument(doc);
+      if (rarely()) {
+        final Term term = new Term("id", Integer.toString(random().nextInt(i + 1)));
+        sequential.deleteDocuments(term);
+        concurrent.deleteDocuments(term);
+      }
+    }
+    sequential.commit();
+    concurrent.commit();
+
+    DirectoryReader sequentialReader = DirectoryReader.open(sequentialDir);
+    DirectoryReader concurrentReader = DirectoryReader.open(concurrentDir);
+    assertEquals(sequentialReader.leaves().size(), concurrentReader.leaves().size());
+    assertReaderEquals("concurrent flush", sequentialReader, concurrentReader);
+    sequentialReader.close();
+    concurrentReader.close();
+
+    sequential.close();
+    concurrent.close();
+    sequentialDir.close();
+    concurrentDir.close();
+  }
+
+  public void testExceptionInOnePart() throws IOException {
+    final Codec defaultCodec = TestUtil.getDefaultCodec();
+    final DocValuesFormat failingFormat = new DocValuesFormat("FailingDocValues") {
+      @Override
+      public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        throw new IOException("fake doc values failure");
+      }
+
+      @Override
+      public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        throw new UnsupportedOperationException();
+      }
+    };
+    final Codec codec = new FilterCodec(defaultCodec.getName(), defaultCodec) {
+      @Override
+      public DocValuesFormat docValuesFormat() {
+        return failingFormat;
+      }
+    };
+
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+        .setCodec(codec)
+        .setMergePolicy(NoMergePolicy.INSTANCE)
+        .setFlushThreadCount(TestUtil.nextInt(random(), 2, 6)));
+    final int numDocs = atLeast(10);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(randomDocument(i, 5));
+    }
+    Document doc = new Document();
+    doc.add(new NumericDocValuesField("dv", 1));
+    w.addDocument(doc);
+
+    // the other parts of the segment are still written and closed, and then the segment is aborted
+    IOException expected = expectThrows(IOException.class, () -> {
+      w.commit();
+    });
+    assertEquals("fake doc values failure", expected.getMessage());
+    assertEquals(0, expected.getSuppressed().length);
+    assertNotNull(w.getTragicException());
+    assertFalse(w.isOpen());
+    dir.close();
+  }
+}
@@ -670,4 +670,113 @@ public class TestConcurrentMergeScheduler extends LuceneTestCase {
 
     assertFalse(failed.get());
   }
+
+  public void testLoadFeedbackLimits() throws Exception {
+    ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+    cms.setMaxMergesAndThreads(6, 3);
+    cms.setLoadFeedback(() -> 0.0, 1000);
+    assertEquals(20.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(3, cms.getEffectiveMaxThreadCount());
+
+    // overloaded: halve the rate and drop one thread at a time, down to the floor
+    cms.updateLoad(2.0);
+    assertEquals(10.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(2, cms.getEffectiveMaxThreadCount());
+    cms.updateLoad(1.5);
+    assertEquals(5.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(1, cms.getEffectiveMaxThreadCount());
+    cms.updateLoad(3.0);
+    assertEquals(5.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(1, cms.getEffectiveMaxThreadCount());
+
+    // in between: hold
+    cms.updateLoad(0.9);
+    assertEquals(5.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(1, cms.getEffectiveMaxThreadCount());
+
+    // idle: gradually lift the limits again
+    cms.updateLoad(0.1);
+    assertEquals(7.5, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(2, cms.getEffectiveMaxThreadCount());
+    for (int i = 0; i < 30; i++) {
+      cms.updateLoad(0.1);
+    }
+    assertEquals(20.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(3, cms.getEffectiveMaxThreadCount());
+
+    cms.updateLoad(2.0);
+    assertEquals(10.0, cms.getIORateLimitMBPerSec(), 0.0);
+    cms.setLoadFeedback(null, 1000);
+    assertEquals(20.0, cms.getIORateLimitMBPerSec(), 0.0);
+    assertEquals(3, cms.getEffectiveMaxThreadCount());
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      cms.setLoadFeedback(() -> 0.0, 0);
+    });
+  }
+
+  public void testLoadFeedbackPolledDuringMerges() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    final CountDownLatch polled = new CountDownLatch(1);
+    ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler() {
+        @Override
+        protected void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+          try {
+            // make sure the feedback is polled while this merge is running:
+            assertTrue(polled.await(10, TimeUnit.SECONDS));
+          } catch (InterruptedException ie) {
+            throw new RuntimeException(ie);
+          }
+          super.doMerge(writer, merge);
+        }
+      };
+    cms.setLoadFeedback(() -> {
+        polled.countDown();
+        return 2.0;
+      }, 1);
+    iwc.setMergeScheduler(cms);
+    iwc.setMaxBufferedDocs(2);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (int i = 0; i < 20; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", "" + i, Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    assertEquals(0, polled.getCount());
+    assertEquals(1, cms.getEffectiveMaxThreadCount());
+    w.close();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      assertFalse(thread.getName().equals("Lucene Merge Load Feedback Thread") && thread.isAlive());
+    }
+    dir.close();
+  }
+
+  public void testLatencyLoadFeedback() throws Exception {
+    LatencyLoadFeedback feedback = new LatencyLoadFeedback(99, 100, 1000);
+    assertEquals(0.0, feedback.getLoad(), 0.0);
+    for (int i = 1; i <= 100; i++) {
+      feedback.recordLatency(i);
+    }
+    assertEquals(0.99, feedback.getLoad(), 0.0);
+    // only latencies recorded since the last poll count:
+    assertEquals(0.0, feedback.getLoad(), 0.0);
+
+    // only the most recent maxSamples latencies are kept:
+    for (int i = 0; i < 1000; i++) {
+      feedback.recordLatency(1000);
+    }
+    for (int i = 0; i < 1000; i++) {
+      feedback.recordLatency(50);
+    }
+    assertEquals(0.5, feedback.getLoad(), 0.0);
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      new LatencyLoadFeedback(0, 100, 1000);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      new LatencyLoadFeedback(99, 0, 1000);
+    });
+  }
 }
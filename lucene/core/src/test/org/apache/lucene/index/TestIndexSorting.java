@@ -646,8 +646,6 @@ public class TestIndexSorting extends LuceneTestCase {
       SegmentInfo info = leaf.getSegmentInfo().info;
       switch (info.getDiagnostics().get(IndexWriter.SOURCE)) {
         case IndexWriter.SOURCE_FLUSH:
-          assertNull(info.getIndexSort());
-          break;
         case IndexWriter.SOURCE_MERGE:
           assertEquals(indexSort, info.getIndexSort());
           final NumericDocValues values = leaf.getNumericDocValues("foo");
@@ -683,6 +681,62 @@ public class TestIndexSorting extends LuceneTestCase {
     dir.close();
   }
 
+  public void testFlushedSegmentIsSorted() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    Sort indexSort = new Sort(new SortField("foo", SortField.Type.LONG));
+    iwc.setIndexSort(indexSort);
+    iwc.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setRAMBufferSizeMB(16);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+
+    // documents are added in reverse sort order, so that every document
+    // moves when the segment gets sorted
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("foo", numDocs - i));
+      doc.add(new StringField("id", Integer.toString(i), Store.YES));
+      doc.add(new StringField("group", i % 2 == 0 ? "even" : "odd", Store.NO));
+      doc.add(new NumericDocValuesField("id", i));
+      doc.add(new NumericDocValuesField("dv", 0));
+      w.addDocument(doc);
+      if (i == numDocs / 2) {
+        // must only apply to the documents that have been added so far
+        w.deleteDocuments(new TermQuery(new Term("group", "odd")));
+        w.updateNumericDocValue(new Term("group", "even"), "dv", 1);
+      }
+    }
+    w.deleteDocuments(new Term("id", "0"));
+
+    DirectoryReader reader = DirectoryReader.open(w);
+    assertEquals(1, reader.leaves().size());
+    final SegmentReader leaf = (SegmentReader) getOnlyLeafReader(reader);
+    SegmentInfo info = leaf.getSegmentInfo().info;
+    assertEquals(IndexWriter.SOURCE_FLUSH, info.getDiagnostics().get(IndexWriter.SOURCE));
+    assertEquals(indexSort, info.getIndexSort());
+    final NumericDocValues foo = leaf.getNumericDocValues("foo");
+    final NumericDocValues ids = leaf.getNumericDocValues("id");
+    final NumericDocValues dv = leaf.getNumericDocValues("dv");
+    final Bits liveDocs = leaf.getLiveDocs();
+    assertNotNull(liveDocs);
+    for (int doc = 0; doc < leaf.maxDoc(); ++doc) {
+      assertEquals(doc + 1, foo.get(doc));
+      final int id = (int) ids.get(doc);
+      assertEquals(Integer.toString(id), leaf.document(doc).get("id"));
+      final boolean deleted = id == 0 || (id % 2 == 1 && id <= numDocs / 2);
+      assertEquals(deleted, liveDocs.get(doc) == false);
+      if (deleted == false) {
+        assertEquals(id % 2 == 0 && id <= numDocs / 2 ? 1 : 0, dv.get(doc));
+      }
+    }
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
   static class UpdateRunnable implements Runnable {
 
     private final int numDocs;
@@ -803,7 +857,7 @@ public class TestIndexSorting extends LuceneTestCase {
           final long value = random.nextInt(20);
 
           synchronized (values) {
-            w.updateDocValues(new Term("id", Integer.toString(id)), new NumericDocValuesField("foo", value));
+            w.updateDocValues(new Term("id", Integer.toString(id)), new NumericDocValuesField("bar", value));
             values.put(id, value);
           }
 
@@ -838,7 +892,8 @@ public class TestIndexSorting extends LuceneTestCase {
     for (int i = 0; i < numDocs; ++i) {
       Document doc = new Document();
       doc.add(new StringField("id", Integer.toString(i), Store.NO));
-      doc.add(new NumericDocValuesField("foo", -1));
+      doc.add(new NumericDocValuesField("foo", random().nextInt()));
+      doc.add(new NumericDocValuesField("bar", -1));
       w.addDocument(doc);
       values.put(i, -1L);
     }
@@ -862,13 +917,35 @@ public class TestIndexSorting extends LuceneTestCase {
     for (int i = 0; i < numDocs; ++i) {
       final TopDocs topDocs = searcher.search(new TermQuery(new Term("id", Integer.toString(i))), 1);
       assertEquals(1, topDocs.totalHits);
-      assertEquals(values.get(i).longValue(), MultiDocValues.getNumericValues(reader, "foo").get(topDocs.scoreDocs[0].doc));
+      assertEquals(values.get(i).longValue(), MultiDocValues.getNumericValues(reader, "bar").get(topDocs.scoreDocs[0].doc));
     }
     reader.close();
     w.close();
     dir.close();
   }
 
+  public void testIllegalUpdateIndexSortField() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    Sort indexSort = new Sort(new SortField("foo", SortField.Type.LONG));
+    iwc.setIndexSort(indexSort);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    Document doc = new Document();
+    doc.add(new StringField("id", "0", Store.NO));
+    doc.add(new NumericDocValuesField("foo", 1));
+    w.addDocument(doc);
+    IllegalArgumentException expected = expectThrows(IllegalArgumentException.class, () -> {
+      w.updateNumericDocValue(new Term("id", "0"), "foo", 2);
+    });
+    assertTrue(expected.getMessage().contains("cannot update docvalues field involved in the index sort"));
+    expected = expectThrows(IllegalArgumentException.class, () -> {
+      w.updateDocValues(new Term("id", "0"), new NumericDocValuesField("foo", 2));
+    });
+    assertTrue(expected.getMessage().contains("cannot update docvalues field involved in the index sort"));
+    w.close();
+    dir.close();
+  }
+
   public void testAddIndexes(boolean withDeletes, boolean useReaders) throws Exception {
     Directory dir = newDirectory();
     Sort indexSort = new Sort(new SortField("foo", SortField.Type.LONG));
@@ -72,6 +72,7 @@ public class TestIndexWriterConfig extends LuceneTestCase {
     assertEquals(DocumentsWriterPerThreadPool.class, conf.getIndexerThreadPool().getClass());
     assertEquals(FlushByRamOrCountsPolicy.class, conf.getFlushPolicy().getClass());
     assertEquals(IndexWriterConfig.DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB, conf.getRAMPerThreadHardLimitMB());
+    assertEquals(IndexWriterConfig.DEFAULT_FLUSH_THREAD_COUNT, conf.getFlushThreadCount());
     assertEquals(Codec.getDefault(), conf.getCodec());
     assertEquals(InfoStream.getDefault(), conf.getInfoStream());
     assertEquals(IndexWriterConfig.DEFAULT_USE_COMPOUND_FILE_SYSTEM, conf.getUseCompoundFile());
@@ -96,6 +97,7 @@ public class TestIndexWriterConfig extends LuceneTestCase {
     getters.add("getIndexerThreadPool");
     getters.add("getFlushPolicy");
     getters.add("getRAMPerThreadHardLimitMB");
+    getters.add("getFlushThreadCount");
     getters.add("getCodec");
     getters.add("getInfoStream");
     getters.add("getUseCompoundFile");
@@ -260,6 +262,10 @@ public class TestIndexWriterConfig extends LuceneTestCase {
     expectThrows(IllegalArgumentException.class, () -> {
       conf.setRAMPerThreadHardLimitMB(0);
     });
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      conf.setFlushThreadCount(0);
+    });
     
     // Test MergePolicy
     assertEquals(TieredMergePolicy.class, conf.getMergePolicy().getClass());
@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.carrotsearch.randomizedtesting.generators.RandomPicks;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestConcurrentQueryCache extends LuceneTestCase {
+
+  private static final String[] COLORS = new String[] {"blue", "red", "yellow", "green"};
+
+  public void testConcurrency() throws Throwable {
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(1 + random().nextInt(20), 1 + random().nextInt(10000), context -> random().nextBoolean());
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final SearcherFactory searcherFactory = new SearcherFactory() {
+      @Override
+      public IndexSearcher newSearcher(IndexReader reader, IndexReader previous) throws IOException {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCachingPolicy(MAYBE_CACHE_POLICY);
+        searcher.setQueryCache(queryCache);
+        return searcher;
+      }
+    };
+    final boolean applyDeletes = random().nextBoolean();
+    final SearcherManager mgr = new SearcherManager(w.w, applyDeletes, false, searcherFactory);
+    final AtomicBoolean indexing = new AtomicBoolean(true);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final int numDocs = atLeast(10000);
+    Thread[] threads = new Thread[3];
+    threads[0] = new Thread() {
+      public void run() {
+        Document doc = new Document();
+        StringField f = new StringField("color", "", Store.NO);
+        doc.add(f);
+        for (int i = 0; indexing.get() && i < numDocs; ++i) {
+          f.setStringValue(RandomPicks.randomFrom(random(), new String[] {"blue", "red", "yellow"}));
+          try {
+            w.addDocument(doc);
+            if ((i & 63) == 0) {
+              mgr.maybeRefresh();
+              if (rarely()) {
+                queryCache.clear();
+              }
+              if (rarely()) {
+                final String color = RandomPicks.randomFrom(random(), new String[] {"blue", "red", "yellow"});
+                w.deleteDocuments(new Term("color", color));
+              }
+            }
+          } catch (Throwable t) {
+            error.compareAndSet(null, t);
+            break;
+          }
+        }
+        indexing.set(false);
+      }
+    };
+    for (int i = 1; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          while (indexing.get()) {
+            try {
+              final IndexSearcher searcher = mgr.acquire();
+              try {
+                final String value = RandomPicks.randomFrom(random(), COLORS);
+                final Query q = new TermQuery(new Term("color", value));
+                TotalHitCountCollector collector = new TotalHitCountCollector();
+                searcher.search(q, collector); // will use the cache
+                final int totalHits1 = collector.getTotalHits();
+                final int totalHits2 = searcher.search(q, 1).totalHits; // will not use the cache because of scores
+                assertEquals(totalHits2, totalHits1);
+              } finally {
+                mgr.release(searcher);
+              }
+            } catch (Throwable t) {
+              error.compareAndSet(null, t);
+            }
+          }
+        }
+      };
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    if (error.get() != null) {
+      throw error.get();
+    }
+    queryCache.assertConsistent();
+    mgr.close();
+    w.close();
+    dir.close();
+    queryCache.assertConsistent();
+    assertEquals(0, queryCache.getCacheSize());
+  }
+
+  public void testAdmission() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+
+    Document doc = new Document();
+    StringField f = new StringField("color", "blue", Store.NO);
+    doc.add(f);
+    w.addDocument(doc);
+    f.setStringValue("red");
+    w.addDocument(doc);
+    f.setStringValue("green");
+    w.addDocument(doc);
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(2, 100000, context -> true);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+    final Query blue = new TermQuery(new Term("color", "blue"));
+    final Query red = new TermQuery(new Term("color", "red"));
+    final Query green = new TermQuery(new Term("color", "green"));
+
+    // red and green are cached right away since the cache is not full yet, and are then used a few times
+    for (int i = 0; i < 3; ++i) {
+      searcher.search(new ConstantScoreQuery(red), 1);
+    }
+    for (int i = 0; i < 3; ++i) {
+      searcher.search(new ConstantScoreQuery(green), 1);
+    }
+    assertEquals(Arrays.asList(red, green), queryCache.cachedQueries());
+    assertEquals(0, queryCache.getRejectionCount());
+
+    // a query that is used once is not worth evicting red for
+    searcher.search(new ConstantScoreQuery(blue), 1);
+    assertEquals(Arrays.asList(red, green), queryCache.cachedQueries());
+    assertTrue(queryCache.getRejectionCount() > 0);
+
+    // but it eventually becomes more popular than the least-recently used query
+    int iters = 0;
+    while (queryCache.cachedQueries().contains(blue) == false) {
+      assertTrue(++iters < 20);
+      searcher.search(new ConstantScoreQuery(blue), 1);
+    }
+    assertEquals(Arrays.asList(green, blue), queryCache.cachedQueries());
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testLRUOrderFollowsHits() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    for (String color : COLORS) {
+      f.setStringValue(color);
+      w.addDocument(doc);
+    }
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = new IndexSearcher(reader); // single-threaded so that hits are replayed in order
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(10, 100000, context -> true);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+    final Query red = new TermQuery(new Term("color", "red"));
+    final Query green = new TermQuery(new Term("color", "green"));
+    searcher.search(new ConstantScoreQuery(red), 1);
+    searcher.search(new ConstantScoreQuery(green), 1);
+    assertEquals(Arrays.asList(red, green), queryCache.cachedQueries());
+
+    // hits are buffered, and applied before reading the LRU order
+    searcher.search(new ConstantScoreQuery(red), 1);
+    assertEquals(Arrays.asList(green, red), queryCache.cachedQueries());
+
+    // many more hits than fit into the read buffers
+    for (int i = 0; i < 10 * ConcurrentQueryCache.READ_BUFFER_SIZE; ++i) {
+      searcher.search(new ConstantScoreQuery(random().nextBoolean() ? red : green), 1);
+    }
+    searcher.search(new ConstantScoreQuery(green), 1);
+    assertEquals(Arrays.asList(red, green), queryCache.cachedQueries());
+    assertEquals(queryCache.getTotalCount(), queryCache.getHitCount() + queryCache.getMissCount());
+    assertEquals(2 * reader.leaves().size(), queryCache.getMissCount());
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testClearCoreCacheKeyOnClose() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    final int numDocs = atLeast(10);
+    for (int i = 0; i < numDocs; ++i) {
+      f.setStringValue(RandomPicks.randomFrom(random(), COLORS));
+      w.addDocument(doc);
+    }
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(Integer.MAX_VALUE, Long.MAX_VALUE, context -> true);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+    for (String color : COLORS) {
+      searcher.search(new ConstantScoreQuery(new TermQuery(new Term("color", color))), 1);
+    }
+    assertEquals(COLORS.length * reader.leaves().size(), queryCache.getCacheSize());
+    assertEquals(queryCache.getCacheSize(), queryCache.getCacheCount());
+    final long ramBytesUsed = queryCache.ramBytesUsed();
+    assertTrue(ramBytesUsed > 0);
+    queryCache.assertConsistent();
+
+    // the writer shares segment cores with the reader
+    reader.close();
+    w.close();
+    assertEquals(0, queryCache.getCacheSize());
+    assertEquals(queryCache.getCacheCount(), queryCache.getEvictionCount());
+    assertTrue(queryCache.ramBytesUsed() < ramBytesUsed);
+    queryCache.assertConsistent();
+
+    queryCache.clear();
+    assertEquals(0, queryCache.ramBytesUsed());
+    assertEquals(Collections.emptyList(), queryCache.cachedQueries());
+    dir.close();
+  }
+
+  public void testRandom() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      f.setStringValue(RandomPicks.randomFrom(random(), COLORS));
+      w.addDocument(doc);
+      if (rarely()) {
+        w.deleteDocuments(new Term("color", RandomPicks.randomFrom(random(), COLORS)));
+      }
+    }
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher uncachedSearcher = newSearcher(reader);
+    uncachedSearcher.setQueryCache(null);
+    final IndexSearcher searcher = newSearcher(reader);
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(1 + random().nextInt(5), 1 + random().nextInt(100000), context -> random().nextBoolean());
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(MAYBE_CACHE_POLICY);
+
+    final int iters = atLeast(200);
+    for (int i = 0; i < iters; ++i) {
+      final BooleanQuery.Builder bq = new BooleanQuery.Builder();
+      bq.add(new TermQuery(new Term("color", RandomPicks.randomFrom(random(), COLORS))), Occur.SHOULD);
+      bq.add(new TermQuery(new Term("color", RandomPicks.randomFrom(random(), COLORS))), random().nextBoolean() ? Occur.SHOULD : Occur.MUST_NOT);
+      final Query q = new ConstantScoreQuery(bq.build());
+      assertEquals(uncachedSearcher.count(q), searcher.count(q));
+      if (rarely()) {
+        queryCache.assertConsistent();
+      }
+    }
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testConcurrentHitsDoNotBlock() throws Throwable {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    doc.add(new StringField("color", "red", Store.NO));
+    w.addDocument(doc);
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(10, 100000, context -> true);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+    final Query red = new ConstantScoreQuery(new TermQuery(new Term("color", "red")));
+    assertEquals(1, count(searcher, red));
+
+    final int numThreads = 4;
+    final int numSearches = atLeast(1000);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int j = 0; j < numSearches; ++j) {
+              assertEquals(1, count(searcher, red));
+            }
+          } catch (Throwable t) {
+            error.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (error.get() != null) {
+      throw error.get();
+    }
+    assertEquals(1, queryCache.getMissCount());
+    assertEquals(numThreads * numSearches, queryCache.getHitCount());
+    assertEquals(1, queryCache.getCacheCount());
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  // IndexSearcher.count would bypass the cache for term queries
+  private static int count(IndexSearcher searcher, Query query) throws IOException {
+    final TotalHitCountCollector collector = new TotalHitCountCollector();
+    searcher.search(query, collector);
+    return collector.getTotalHits();
+  }
+
+  public void testFrequencyIsRecordedOncePerUse() throws IOException {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numSegments = atLeast(3);
+    for (int i = 0; i < numSegments; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("color", "red", Store.NO));
+      w.addDocument(doc);
+      w.commit();
+    }
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    final ConcurrentQueryCache queryCache = new ConcurrentQueryCache(10, 100000, context -> true);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+    final Query red = new ConstantScoreQuery(new TermQuery(new Term("color", "red")));
+    final int numSearches = 1 + random().nextInt(5);
+    for (int i = 0; i < numSearches; ++i) {
+      // the first search misses on every segment, the next ones hit
+      assertEquals(reader.maxDoc(), count(searcher, red));
+    }
+    assertEquals(numSearches, queryCache.frequency(new TermQuery(new Term("color", "red"))));
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestCostBasedQueryCachingPolicy extends LuceneTestCase {
+
+  public void testNeverCacheMatchAll() throws Exception {
+    Query q = new MatchAllDocsQuery();
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy();
+    for (int i = 0; i < 1000; ++i) {
+      policy.onUse(q);
+      policy.onCache(q, null, 1000000, 10);
+    }
+    assertFalse(policy.shouldCache(q));
+  }
+
+  public void testProbeBeforeMeasurement() throws Exception {
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy();
+    Query costly = IntPoint.newRangeQuery("intField", 1, 1000);
+    Query cheap = new TermQuery(new Term("field", "value"));
+    assertFalse(policy.shouldCache(costly));
+    assertNull(policy.getStats(costly));
+
+    policy.onUse(costly);
+    assertFalse(policy.shouldCache(costly));
+    policy.onUse(costly);
+    assertTrue(policy.shouldCache(costly));
+
+    for (int i = 1; i < 20; ++i) {
+      policy.onUse(cheap);
+      assertFalse(policy.shouldCache(cheap));
+    }
+    policy.onUse(cheap);
+    assertTrue(policy.shouldCache(cheap));
+    assertEquals(-1, policy.getStats(cheap).getNanosSavedPerByte(), 0d);
+  }
+
+  public void testBenefitPerByte() throws Exception {
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy(16, 0.01);
+    // a slow range query producing small sets is worth caching after 2 uses
+    Query range = IntPoint.newRangeQuery("intField", 1, 1000);
+    policy.onUse(range);
+    policy.onUse(range);
+    policy.onCache(range, null, 5_000_000, 100_000);
+    assertTrue(policy.shouldCache(range));
+    CostBasedQueryCachingPolicy.Stats stats = policy.getStats(range);
+    assertEquals(2, stats.getUseCount());
+    assertEquals(1, stats.getBuildCount());
+    assertEquals(5_000_000, stats.getBuildTimeNanos(), 0d);
+    assertEquals(100_000, stats.getRamBytesUsed(), 0d);
+    assertEquals(2 * 5_000_000d / 100_001, stats.getNanosSavedPerByte(), 1e-9);
+
+    // a fast term query producing large sets is not, even if used all the time
+    Query term = new TermQuery(new Term("field", "value"));
+    for (int i = 0; i < 50; ++i) {
+      policy.onUse(term);
+    }
+    policy.onCache(term, null, 200, 1_250_000);
+    assertFalse(policy.shouldCache(term));
+
+    // measurements are averaged
+    policy.onCache(range, null, 1_000_000, 100_000);
+    assertEquals(3_000_000, policy.getStats(range).getBuildTimeNanos(), 0d);
+    assertEquals(2, policy.getStats(range).getBuildCount());
+  }
+
+  public void testMaxTrackedQueries() throws Exception {
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy(2, 0.01);
+    Query q1 = new TermQuery(new Term("field", "1"));
+    Query q2 = new TermQuery(new Term("field", "2"));
+    Query q3 = new TermQuery(new Term("field", "3"));
+    policy.onUse(q1);
+    policy.onUse(q2);
+    policy.onUse(q1);
+    policy.onUse(q3);
+    assertNotNull(policy.getStats(q1));
+    assertNull(policy.getStats(q2));
+    assertNotNull(policy.getStats(q3));
+    // measurements of untracked queries are ignored
+    policy.onCache(q2, null, 1000, 10);
+    assertNull(policy.getStats(q2));
+  }
+
+  public void testUseCountsDecay() throws Exception {
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy(1, 0.01);
+    Query q = new TermQuery(new Term("field", "value"));
+    // the sample size is 10 times the number of tracked queries
+    for (int i = 0; i < 9; ++i) {
+      policy.onUse(q);
+    }
+    assertEquals(9, policy.getStats(q).getUseCount());
+    policy.onUse(q);
+    assertEquals(5, policy.getStats(q).getUseCount());
+  }
+
+  public void testMeasuredByQueryCache() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new IntPoint("intField", i));
+      w.addDocument(doc);
+    }
+    DirectoryReader reader = w.getReader();
+    IndexSearcher searcher = newSearcher(reader);
+    final QueryCache queryCache = random().nextBoolean()
+        ? new LRUQueryCache(100, 1 << 20, context -> true)
+        : new ConcurrentQueryCache(100, 1 << 20, context -> true);
+    searcher.setQueryCache(queryCache);
+    // every measured query is worth caching
+    CostBasedQueryCachingPolicy policy = new CostBasedQueryCachingPolicy(16, 0);
+    searcher.setQueryCachingPolicy(policy);
+
+    Query range = IntPoint.newRangeQuery("intField", 10, 50);
+    assertEquals(41, searcher.count(range));
+    assertEquals(0, policy.getStats(range).getBuildCount());
+    // second use: probe on all segments
+    assertEquals(41, searcher.count(range));
+    CostBasedQueryCachingPolicy.Stats stats = policy.getStats(range);
+    assertEquals(2, stats.getUseCount());
+    assertTrue(stats.getBuildCount() > 0);
+    assertTrue(stats.getRamBytesUsed() > 0);
+    assertTrue(stats.getNanosSavedPerByte() >= 0);
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -30,10 +31,12 @@ import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.IndexSearcher.LeafSlice;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
@@ -118,6 +121,120 @@ public class TestIndexSearcher extends LuceneTestCase {
     TestUtil.shutdownExecutorService(service);
   }
 
+  public void testSlices() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(newLogMergePolicy()));
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(new Document());
+      if (random().nextInt(20) == 0) {
+        w.commit();
+      }
+    }
+    IndexReader r = w.getReader();
+    w.close();
+
+    final List<LeafReaderContext> leaves = r.leaves();
+    final int maxDocsPerSlice = TestUtil.nextInt(random(), 1, 100);
+    final int maxSegmentsPerSlice = TestUtil.nextInt(random(), 1, 5);
+    LeafSlice[] slices = IndexSearcher.slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+
+    // every doc is covered exactly once, in order
+    int expectedDoc = 0;
+    for (LeafSlice slice : slices) {
+      if (slice.isPartition()) {
+        assertEquals(1, slice.leaves.length);
+        assertEquals(expectedDoc, slice.leaves[0].docBase + slice.minDoc);
+        assertTrue(slice.maxDoc - slice.minDoc <= maxDocsPerSlice);
+        expectedDoc = slice.leaves[0].docBase + slice.maxDoc;
+      } else {
+        assertTrue(slice.leaves.length <= maxSegmentsPerSlice);
+        for (LeafReaderContext ctx : slice.leaves) {
+          assertTrue(ctx.reader().maxDoc() <= maxDocsPerSlice);
+          assertEquals(expectedDoc, ctx.docBase);
+          expectedDoc += ctx.reader().maxDoc();
+        }
+      }
+    }
+    assertEquals(r.maxDoc(), expectedDoc);
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.slices(leaves, 0, 5);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.slices(leaves, 10, 0);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      new LeafSlice(leaves.get(0), 0, leaves.get(0).reader().maxDoc() + 1);
+    });
+
+    IOUtils.close(r, dir);
+  }
+
+  public void testSearchWithPartitionedSlices() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("foo", random().nextBoolean() ? "bar" : "baz", Store.NO));
+      if (random().nextBoolean()) {
+        doc.add(new StringField("foo", "quux", Store.NO));
+      }
+      doc.add(new SortedDocValuesField("sort", new BytesRef(Integer.toString(random().nextInt(50)))));
+      w.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      w.deleteDocuments(new Term("foo", "baz"));
+    }
+    IndexReader r = w.getReader();
+    w.close();
+
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    final int maxDocsPerSlice = TestUtil.nextInt(random(), 1, 100);
+    final int maxSegmentsPerSlice = TestUtil.nextInt(random(), 1, 5);
+    IndexSearcher s1 = new IndexSearcher(r);
+    IndexSearcher s2 = new IndexSearcher(r, service) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+      }
+    };
+    s2.setQueryCache(null);
+
+    Query[] queries = new Query[] {
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("foo", "bar")),
+        new BooleanQuery.Builder()
+          .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+          .add(new TermQuery(new Term("foo", "quux")), Occur.SHOULD)
+          .build()
+    };
+    Sort sort = new Sort(new SortField("sort", SortField.Type.STRING), SortField.FIELD_DOC);
+    for (Query query : queries) {
+      final int n = TestUtil.nextInt(random(), 1, numDocs);
+      TopDocs expected = s1.search(query, n);
+      TopDocs actual = s2.search(query, n);
+      CheckHits.checkEqual(query, expected.scoreDocs, actual.scoreDocs);
+      assertEquals(expected.totalHits, actual.totalHits);
+
+      TopFieldDocs expectedSorted = s1.search(query, n, sort);
+      TopFieldDocs actualSorted = s2.search(query, n, sort);
+      assertEquals(expectedSorted.totalHits, actualSorted.totalHits);
+      assertEquals(expectedSorted.scoreDocs.length, actualSorted.scoreDocs.length);
+      for (int i = 0; i < expectedSorted.scoreDocs.length; ++i) {
+        assertEquals(expectedSorted.scoreDocs[i].doc, actualSorted.scoreDocs[i].doc);
+      }
+
+      assertEquals(s1.count(query), s2.count(query));
+    }
+
+    TestUtil.shutdownExecutorService(service);
+    IOUtils.close(r, dir);
+  }
+
   @Test
   public void testSearchAfterPassedMaxDoc() throws Exception {
     // LUCENE-5128: ensure we get a meaningful message if searchAfter exceeds maxDoc
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestWANDScorer extends LuceneTestCase {
+
+  private static final String[] TERMS = new String[] { "a", "b", "c", "d", "e", "f", "g", "h" };
+
+  private static Directory dir;
+  private static IndexReader reader;
+  private static IndexSearcher searcher;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir,
+        newIndexWriterConfig(new MockAnalyzer(random())).setSimilarity(new BM25Similarity()));
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      StringBuilder text = new StringBuilder();
+      for (int j = 0; j < TERMS.length; ++j) {
+        // make term frequencies and document frequencies vary across terms
+        if (random().nextInt(j + 2) == 0) {
+          final int freq = 1 + random().nextInt(1 + j * 2);
+          for (int k = 0; k < freq; ++k) {
+            text.append(TERMS[j]).append(' ');
+          }
+        }
+      }
+      // vary lengths as well
+      final int numFillers = random().nextInt(10);
+      for (int k = 0; k < numFillers; ++k) {
+        text.append("z ");
+      }
+      doc.add(new TextField("foo", text.toString(), Store.NO));
+      w.addDocument(doc);
+    }
+    reader = w.getReader();
+    w.close();
+    searcher = newSearcher(reader);
+    searcher.setSimilarity(new BM25Similarity());
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    reader.close();
+    dir.close();
+    super.tearDown();
+  }
+
+  private static BooleanQuery randomDisjunction() {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    final int numClauses = TestUtil.nextInt(random(), 2, TERMS.length);
+    for (int i = 0; i < numClauses; ++i) {
+      Query q = new TermQuery(new Term("foo", TERMS[random().nextInt(TERMS.length)]));
+      if (random().nextBoolean()) {
+        q = new BoostQuery(q, 1 + random().nextInt(5));
+      }
+      builder.add(q, Occur.SHOULD);
+    }
+    if (random().nextInt(5) == 0) {
+      builder.add(new TermQuery(new Term("foo", TERMS[random().nextInt(TERMS.length)])), Occur.MUST_NOT);
+    }
+    return builder.build();
+  }
+
+  public void testTermMaxScore() throws IOException {
+    for (String term : TERMS) {
+      Weight weight = searcher.createNormalizedWeight(new TermQuery(new Term("foo", term)), true);
+      for (LeafReaderContext ctx : reader.leaves()) {
+        Scorer scorer = weight.scorer(ctx);
+        if (scorer == null) {
+          continue;
+        }
+        final float maxScore = scorer.maxScore();
+        assertTrue(Float.isFinite(maxScore));
+        DocIdSetIterator it = scorer.iterator();
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+          assertTrue(scorer.score() <= maxScore);
+        }
+      }
+    }
+  }
+
+  public void testSkipsNonCompetitiveDocuments() throws IOException {
+    for (int iter = 0; iter < 20; ++iter) {
+      BooleanQuery query = randomDisjunction();
+      // use a plain searcher in order to get access to the BooleanWeight
+      IndexSearcher searcher = new IndexSearcher(reader);
+      searcher.setSimilarity(new BM25Similarity());
+      BooleanWeight weight = (BooleanWeight) searcher.createNormalizedWeight(query, true);
+      for (LeafReaderContext ctx : reader.leaves()) {
+        Scorer scorer = weight.scorer(ctx);
+        if (scorer == null) {
+          continue;
+        }
+        Map<Integer, Float> expected = new HashMap<>();
+        float maxScore = 0;
+        for (int doc = scorer.iterator().nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = scorer.iterator().nextDoc()) {
+          final float score = scorer.score();
+          expected.put(doc, score);
+          maxScore = Math.max(maxScore, score);
+        }
+
+        final float minCompetitiveScore = random().nextFloat() * maxScore;
+        Scorer wandScorer = weight.wandScorer(ctx);
+        assertNotNull(wandScorer);
+        assertTrue(wandScorer.maxScore() >= maxScore);
+        wandScorer.setMinCompetitiveScore(minCompetitiveScore);
+        int numCompetitiveDocs = 0;
+        for (int doc = wandScorer.iterator().nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = wandScorer.iterator().nextDoc()) {
+          assertTrue(expected.containsKey(doc));
+          assertEquals(expected.get(doc), wandScorer.score(), 0f);
+          if (wandScorer.score() >= minCompetitiveScore) {
+            numCompetitiveDocs++;
+          }
+        }
+        int expectedNumCompetitiveDocs = 0;
+        for (float score : expected.values()) {
+          if (score >= minCompetitiveScore) {
+            expectedNumCompetitiveDocs++;
+          }
+        }
+        assertEquals(expectedNumCompetitiveDocs, numCompetitiveDocs);
+      }
+    }
+  }
+
+  public void testTopDocsWithoutTotalHits() throws IOException {
+    for (int iter = 0; iter < 20; ++iter) {
+      BooleanQuery query = randomDisjunction();
+      final int numHits = TestUtil.nextInt(random(), 1, 20);
+      TopScoreDocCollector exact = TopScoreDocCollector.create(numHits, null, true);
+      searcher.search(query, exact);
+      TopScoreDocCollector approximate = TopScoreDocCollector.create(numHits, null, false);
+      searcher.search(query, approximate);
+      TopDocs expected = exact.topDocs();
+      TopDocs actual = approximate.topDocs();
+      assertTrue(actual.totalHits <= expected.totalHits);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+      }
+    }
+  }
+
+  public void testSwitchToWAND() throws IOException {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(new BM25Similarity());
+    for (int iter = 0; iter < 20; ++iter) {
+      BooleanQuery query = randomDisjunction();
+      final int numHits = TestUtil.nextInt(random(), 1, 10);
+      TopScoreDocCollector exact = TopScoreDocCollector.create(numHits, null, true);
+      searcher.search(query, exact);
+
+      // use small intervals so that we switch to WAND in the middle of segments
+      BooleanWeight weight = (BooleanWeight) searcher.createNormalizedWeight(query, true);
+      TopScoreDocCollector approximate = TopScoreDocCollector.create(numHits, null, false);
+      for (LeafReaderContext ctx : reader.leaves()) {
+        LeafCollector leafCollector = approximate.getLeafCollector(ctx);
+        BulkScorer in = weight.booleanScorer(ctx);
+        if (in == null) {
+          continue;
+        }
+        final int interval = TestUtil.nextInt(random(), 1, 100);
+        BulkScorer bulkScorer = new MinCompetitiveScoreBulkScorer(in, weight, ctx, interval);
+        bulkScorer.score(leafCollector, ctx.reader().getLiveDocs());
+      }
+
+      TopDocs expected = exact.topDocs();
+      TopDocs actual = approximate.topDocs();
+      assertTrue(actual.totalHits <= expected.totalHits);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+      }
+    }
+  }
+
+  public void testSearchAfterWithoutTotalHits() throws IOException {
+    for (int iter = 0; iter < 10; ++iter) {
+      BooleanQuery query = randomDisjunction();
+      TopDocs firstPage = searcher.search(query, 5);
+      if (firstPage.scoreDocs.length < 5) {
+        continue;
+      }
+      final ScoreDoc after = firstPage.scoreDocs[4];
+      TopScoreDocCollector exact = TopScoreDocCollector.create(10, after, true);
+      searcher.search(query, exact);
+      TopScoreDocCollector approximate = TopScoreDocCollector.create(10, after, false);
+      searcher.search(query, approximate);
+      TopDocs expected = exact.topDocs();
+      TopDocs actual = approximate.topDocs();
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+      }
+    }
+  }
+}
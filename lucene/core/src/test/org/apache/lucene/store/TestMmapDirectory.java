@@ -20,6 +20,8 @@ package org.apache.lucene.store;
 import java.io.IOException;
 import java.nio.file.Path;
 
+import org.apache.lucene.util.TestUtil;
+
 /**
  * Tests MMapDirectory
  */
@@ -29,6 +31,7 @@ public class TestMmapDirectory extends BaseDirectoryTestCase {
   protected Directory getDirectory(Path path) throws IOException {
     MMapDirectory m = new MMapDirectory(path);
     m.setPreload(random().nextBoolean());
+    m.setPrefetchThreads(random().nextInt(3));
     return m;
   }
   
@@ -38,5 +41,22 @@ public class TestMmapDirectory extends BaseDirectoryTestCase {
     assumeTrue("test requires a jre that supports unmapping: " + MMapDirectory.UNMAP_NOT_SUPPORTED_REASON,
         MMapDirectory.UNMAP_SUPPORTED);
   }
-  
+
+  /** Prefetches racing with closing the input must not touch unmapped memory */
+  public void testPrefetchWhileClosing() throws Exception {
+    MMapDirectory dir = new MMapDirectory(createTempDir("testPrefetchWhileClosing"), 1 << TestUtil.nextInt(random(), 10, 20));
+    dir.setPrefetchThreads(TestUtil.nextInt(random(), 1, 4));
+    try (IndexOutput out = dir.createOutput("bytes", IOContext.DEFAULT)) {
+      out.writeBytes(new byte[1 << 22], 1 << 22);
+    }
+    for (int iter = 0; iter < 20; iter++) {
+      IndexInput in = dir.openInput("bytes", IOContext.DEFAULT);
+      IndexInput slice = in.slice("slice", 4096, in.length() - 4096);
+      in.prefetch(0, in.length());
+      slice.prefetch(random().nextInt(4096), 1 << 20);
+      in.close();
+      expectThrows(AlreadyClosedException.class, () -> slice.prefetch(0, 1));
+    }
+    dir.close();
+  }
 }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util;
+
+
+public class TestFrequencySketch extends LuceneTestCase {
+
+  public void testIncrement() {
+    final FrequencySketch sketch = new FrequencySketch(16);
+    final int key = random().nextInt();
+    assertEquals(0, sketch.frequency(key));
+    for (int i = 1; i <= 20; ++i) {
+      sketch.increment(key);
+      assertEquals(Math.min(i, 15), sketch.frequency(key));
+    }
+    // other keys fill up the sample until counters are halved
+    for (int i = 0; i < 640; ++i) {
+      sketch.increment(key + 1 + i);
+    }
+    assertTrue(sketch.frequency(key) <= 7);
+  }
+
+  public void testConcurrentIncrements() throws InterruptedException {
+    final FrequencySketch sketch = new FrequencySketch(1 << 20);
+    final int key = random().nextInt();
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 3; ++j) {
+            sketch.increment(key);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // no increment gets lost
+    assertEquals(12, sketch.frequency(key));
+  }
+}
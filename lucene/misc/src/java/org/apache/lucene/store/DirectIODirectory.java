@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalLong;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import org.apache.lucene.store.IOContext.Context;
+
+/**
+ * A {@link Directory} wrapper that bypasses the OS level IO cache
+ * (using DIRECT I/O) for any {@link IndexInput} and {@link IndexOutput}
+ * used during merging of segments larger than a specified size (default
+ * 10 MB).  This avoids evicting hot pages that are still in-use for
+ * searching, keeping search more responsive while large merges run.
+ * For all other cases (searching, flushing) we delegate to the wrapped
+ * {@link FSDirectory}.
+ *
+ * <p>Unlike {@link NativeUnixDirectory} this does not need any native
+ * code: files are opened through {@link FileChannel} with the JDK's
+ * {@code com.sun.nio.file.ExtendedOpenOption.DIRECT} option, which is
+ * available as of Java 10, and all reads and writes go through direct
+ * buffers aligned to the file store's block size.  On JVMs that don't
+ * support the option this directory transparently delegates everything
+ * to the wrapped directory; see {@link #isDirectIOSupported()}.
+ *
+ * <p>The underlying file system must support {@code O_DIRECT}
+ * (most local Linux file systems do, tmpfs does not).
+ *
+ * @lucene.experimental
+ */
+public class DirectIODirectory extends FilterDirectory {
+
+  /** Default buffer size before writing to disk (256 KB);
+   *  larger means less IO load but more RAM and direct
+   *  buffer storage space consumed during merging. */
+  public final static int DEFAULT_MERGE_BUFFER_SIZE = 256 * 1024;
+
+  /** Default min expected merge size before direct IO is
+   *  used (10 MB): */
+  public final static long DEFAULT_MIN_BYTES_DIRECT = 10 * 1024 * 1024;
+
+  /** Block size used for alignment when the file store doesn't report one. */
+  private final static int DEFAULT_BLOCK_SIZE = 4096;
+
+  // all of these are only available as of Java 9/10, so we look them up reflectively:
+  private final static OpenOption DIRECT_OPEN_OPTION;
+  private final static MethodHandle ALIGNED_SLICE;
+  private final static MethodHandle GET_BLOCK_SIZE;
+
+  static {
+    OpenOption direct = null;
+    MethodHandle alignedSlice = null, getBlockSize = null;
+    try {
+      final Class<?> clazz = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+      for (Object option : clazz.getEnumConstants()) {
+        if ("DIRECT".equals(((Enum<?>) option).name())) {
+          direct = (OpenOption) option;
+        }
+      }
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      alignedSlice = lookup.findVirtual(ByteBuffer.class, "alignedSlice", MethodType.methodType(ByteBuffer.class, int.class));
+      getBlockSize = lookup.findVirtual(FileStore.class, "getBlockSize", MethodType.methodType(long.class));
+    } catch (ReflectiveOperationException | SecurityException | ClassCastException e) {
+      direct = null;
+    }
+    if (direct == null || alignedSlice == null || getBlockSize == null) {
+      DIRECT_OPEN_OPTION = null;
+      ALIGNED_SLICE = null;
+      GET_BLOCK_SIZE = null;
+    } else {
+      DIRECT_OPEN_OPTION = direct;
+      ALIGNED_SLICE = alignedSlice;
+      GET_BLOCK_SIZE = getBlockSize;
+    }
+  }
+
+  /** Returns true if this JVM can open files with direct I/O. */
+  public static boolean isDirectIOSupported() {
+    return DIRECT_OPEN_OPTION != null;
+  }
+
+  private final FSDirectory fsDir;
+  private final int blockSize;
+  private final int mergeBufferSize;
+  private final long minBytesDirect;
+
+  /** Create a new DirectIODirectory wrapping the provided directory.
+   *
+   * @param delegate the directory to wrap; all files are read and written
+   *   from its {@link FSDirectory#getDirectory() path}
+   * @param mergeBufferSize Size of buffer to use for
+   *    merging, rounded up to a multiple of the file store's block
+   *    size.  See {@link #DEFAULT_MERGE_BUFFER_SIZE}.
+   * @param minBytesDirect Merges, or files to be opened for
+   *   reading, smaller than this will
+   *   not use direct IO.  See {@link
+   *   #DEFAULT_MIN_BYTES_DIRECT}
+   * @throws IOException If there is a low-level I/O error
+   */
+  public DirectIODirectory(FSDirectory delegate, int mergeBufferSize, long minBytesDirect) throws IOException {
+    super(delegate);
+    if (mergeBufferSize <= 0) {
+      throw new IllegalArgumentException("mergeBufferSize must be > 0 (got: " + mergeBufferSize + ")");
+    }
+    this.fsDir = delegate;
+    this.blockSize = getBlockSize(delegate.getDirectory());
+    final long alignedBufferSize = (mergeBufferSize + blockSize - 1L) / blockSize * blockSize;
+    if (alignedBufferSize > Integer.MAX_VALUE - blockSize) {
+      throw new IllegalArgumentException("mergeBufferSize is too large (got: " + mergeBufferSize + ")");
+    }
+    this.mergeBufferSize = (int) alignedBufferSize;
+    this.minBytesDirect = minBytesDirect;
+  }
+
+  /** Create a new DirectIODirectory wrapping the provided directory,
+   *  using {@link #DEFAULT_MERGE_BUFFER_SIZE} and {@link #DEFAULT_MIN_BYTES_DIRECT}.
+   *
+   * @param delegate the directory to wrap
+   * @throws IOException If there is a low-level I/O error
+   */
+  public DirectIODirectory(FSDirectory delegate) throws IOException {
+    this(delegate, DEFAULT_MERGE_BUFFER_SIZE, DEFAULT_MIN_BYTES_DIRECT);
+  }
+
+  private static int getBlockSize(Path path) throws IOException {
+    if (GET_BLOCK_SIZE == null) {
+      return DEFAULT_BLOCK_SIZE;
+    }
+    final FileStore store = Files.getFileStore(path);
+    try {
+      return Math.toIntExact((long) GET_BLOCK_SIZE.invokeExact(store));
+    } catch (UnsupportedOperationException e) {
+      return DEFAULT_BLOCK_SIZE;
+    } catch (IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  /** Returns the path of the wrapped directory. */
+  public Path getDirectory() {
+    return fsDir.getDirectory();
+  }
+
+  /**
+   * Decides whether the given file should be read or written with direct I/O.
+   * By default this is the case for merges of at least {@code minBytesDirect}
+   * bytes, and for inputs only if the file itself is at least that large.
+   * Inputs are only considered if they are opened for a merge.
+   *
+   * @param name the file name
+   * @param context the context the file is opened with
+   * @param fileLength the length of the file for inputs, empty for outputs
+   */
+  protected boolean useDirectIO(String name, IOContext context, OptionalLong fileLength) {
+    return isDirectIOSupported()
+        && context.context == Context.MERGE
+        && context.mergeInfo.estimatedMergeBytes >= minBytesDirect
+        && fileLength.orElse(minBytesDirect) >= minBytesDirect;
+  }
+
+  @Override
+  public IndexInput openInput(String name, IOContext context) throws IOException {
+    fsDir.ensureOpen();
+    // only merges read with direct I/O: don't stat the file for every other input
+    if (context.context == Context.MERGE && useDirectIO(name, context, OptionalLong.of(fileLength(name)))) {
+      fsDir.ensureCanRead(name);
+      return new DirectIOIndexInput(getDirectory().resolve(name), blockSize, mergeBufferSize);
+    } else {
+      return in.openInput(name, context);
+    }
+  }
+
+  @Override
+  public IndexOutput createOutput(String name, IOContext context) throws IOException {
+    fsDir.ensureOpen();
+    if (useDirectIO(name, context, OptionalLong.empty())) {
+      fsDir.ensureCanWrite(name);
+      return new DirectIOIndexOutput(getDirectory().resolve(name), name, blockSize, mergeBufferSize);
+    } else {
+      return in.createOutput(name, context);
+    }
+  }
+
+  private static OpenOption[] openOptions(OpenOption... options) {
+    if (DIRECT_OPEN_OPTION == null) {
+      return options;
+    }
+    final OpenOption[] withDirect = new OpenOption[options.length + 1];
+    System.arraycopy(options, 0, withDirect, 0, options.length);
+    withDirect[options.length] = DIRECT_OPEN_OPTION;
+    return withDirect;
+  }
+
+  /** Allocates a direct buffer whose address and capacity are multiples of {@code blockSize}. */
+  private static ByteBuffer allocateAligned(int size, int blockSize) {
+    assert size % blockSize == 0;
+    if (ALIGNED_SLICE == null) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    try {
+      final ByteBuffer aligned = (ByteBuffer) ALIGNED_SLICE.invokeExact(ByteBuffer.allocateDirect(size + blockSize - 1), blockSize);
+      aligned.limit(size);
+      return aligned.slice();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  private final static class DirectIOIndexOutput extends IndexOutput {
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final Checksum digest;
+
+    // file offset of the first byte in the buffer; always block aligned
+    private long filePos;
+    private boolean isOpen;
+
+    DirectIOIndexOutput(Path path, String name, int blockSize, int bufferSize) throws IOException {
+      super("DirectIOIndexOutput(path=\"" + path + "\")", name);
+      channel = FileChannel.open(path, openOptions(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW));
+      this.blockSize = blockSize;
+      buffer = allocateAligned(bufferSize, blockSize);
+      digest = new BufferedChecksum(new CRC32());
+      isOpen = true;
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+      buffer.put(b);
+      digest.update(b);
+      if (buffer.hasRemaining() == false) {
+        dump();
+      }
+    }
+
+    @Override
+    public void writeBytes(byte[] src, int offset, int len) throws IOException {
+      digest.update(src, offset, len);
+      while (len > 0) {
+        final int chunk = Math.min(len, buffer.remaining());
+        buffer.put(src, offset, chunk);
+        offset += chunk;
+        len -= chunk;
+        if (buffer.hasRemaining() == false) {
+          dump();
+        }
+      }
+    }
+
+    private void dump() throws IOException {
+      final int size = buffer.position();
+      buffer.flip();
+      // direct IO must always write whole blocks; the padding of the
+      // final block is truncated away on close
+      buffer.limit((size + blockSize - 1) / blockSize * blockSize);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, filePos + buffer.position());
+      }
+      filePos += size;
+      buffer.clear();
+    }
+
+    @Override
+    public long getFilePointer() {
+      return filePos + buffer.position();
+    }
+
+    @Override
+    public long getChecksum() throws IOException {
+      return digest.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isOpen) {
+        isOpen = false;
+        try (FileChannel ch = channel) {
+          dump();
+          ch.truncate(filePos);
+        }
+      }
+    }
+  }
+
+  private final static class DirectIOIndexInput extends IndexInput {
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final long length;
+    private final boolean isClone;
+
+    // file offset of the first byte in the buffer
+    private long filePos;
+    private boolean isOpen;
+
+    DirectIOIndexInput(Path path, int blockSize, int bufferSize) throws IOException {
+      super("DirectIOIndexInput(path=\"" + path + "\")");
+      channel = FileChannel.open(path, openOptions(StandardOpenOption.READ));
+      this.blockSize = blockSize;
+      buffer = allocateAligned(bufferSize, blockSize);
+      buffer.limit(0);
+      length = channel.size();
+      isOpen = true;
+      isClone = false;
+    }
+
+    // for clone
+    private DirectIOIndexInput(DirectIOIndexInput other) throws IOException {
+      super(other.toString());
+      channel = other.channel;
+      blockSize = other.blockSize;
+      buffer = allocateAligned(other.buffer.capacity(), blockSize);
+      buffer.limit(0);
+      length = other.length;
+      isOpen = true;
+      isClone = true;
+      seek(other.getFilePointer());
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isOpen && !isClone) {
+        isOpen = false;
+        channel.close();
+      }
+    }
+
+    @Override
+    public long getFilePointer() {
+      return filePos + buffer.position();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+      if (pos >= filePos && pos <= filePos + buffer.limit()) {
+        buffer.position((int) (pos - filePos));
+      } else if (pos > length) {
+        throw new EOFException("seek past EOF: pos=" + pos + " vs length=" + length + ": " + this);
+      } else {
+        // lazily refill on the next read
+        filePos = pos;
+        buffer.limit(0);
+      }
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+      if (buffer.hasRemaining() == false) {
+        refill();
+      }
+      return buffer.get();
+    }
+
+    @Override
+    public void readBytes(byte[] dst, int offset, int len) throws IOException {
+      while (len > 0) {
+        if (buffer.hasRemaining() == false) {
+          refill();
+        }
+        final int chunk = Math.min(len, buffer.remaining());
+        buffer.get(dst, offset, chunk);
+        offset += chunk;
+        len -= chunk;
+      }
+    }
+
+    private void refill() throws IOException {
+      final long pos = getFilePointer();
+      if (pos >= length) {
+        throw new EOFException("read past EOF: " + this);
+      }
+      // direct IO must always read whole blocks from an aligned offset
+      final long alignedPos = pos - pos % blockSize;
+      final int delta = (int) (pos - alignedPos);
+      final int toRead = (int) Math.min(buffer.capacity(), length - alignedPos);
+      buffer.clear();
+      try {
+        // only the final block of the file may come back short
+        while (buffer.position() < toRead) {
+          if (channel.read(buffer, alignedPos + buffer.position()) < 0) {
+            break;
+          }
+        }
+      } catch (IOException ioe) {
+        throw new IOException(ioe.getMessage() + ": " + this, ioe);
+      }
+      if (buffer.position() <= delta) {
+        throw new EOFException("read past EOF: " + this);
+      }
+      buffer.flip();
+      buffer.position(delta);
+      filePos = alignedPos;
+    }
+
+    @Override
+    public DirectIOIndexInput clone() {
+      try {
+        return new DirectIOIndexInput(this);
+      } catch (IOException ioe) {
+        throw new RuntimeException("IOException during clone: " + this, ioe);
+      }
+    }
+
+    @Override
+    public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+      return BufferedIndexInput.wrap(sliceDescription, this, offset, length);
+    }
+  }
+}
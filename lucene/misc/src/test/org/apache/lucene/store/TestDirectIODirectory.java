@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.store;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+import org.apache.lucene.util.TestUtil;
+
+/**
+ * Tests DirectIODirectory, forcing every file through the aligned
+ * direct IO code path (without O_DIRECT if the JVM doesn't support it)
+ */
+public class TestDirectIODirectory extends BaseDirectoryTestCase {
+
+  @Override
+  protected Directory getDirectory(Path path) throws IOException {
+    return new DirectIODirectory(FSDirectory.open(path), TestUtil.nextInt(random(), 1, 4 * 4096), 0) {
+      @Override
+      protected boolean useDirectIO(String name, IOContext context, OptionalLong fileLength) {
+        return true;
+      }
+    };
+  }
+
+  public void testUseDirectIOOnlyForLargeMerges() throws Exception {
+    try (DirectIODirectory dir = new DirectIODirectory(FSDirectory.open(createTempDir()), DirectIODirectory.DEFAULT_MERGE_BUFFER_SIZE, 1024)) {
+      final IOContext smallMerge = new IOContext(new MergeInfo(10, 1023, false, 1));
+      final IOContext largeMerge = new IOContext(new MergeInfo(10, 1024, false, 1));
+      assertFalse(dir.useDirectIO("foo", IOContext.DEFAULT, OptionalLong.empty()));
+      assertFalse(dir.useDirectIO("foo", smallMerge, OptionalLong.empty()));
+      assertFalse(dir.useDirectIO("foo", largeMerge, OptionalLong.of(1023)));
+      assertEquals(DirectIODirectory.isDirectIOSupported(), dir.useDirectIO("foo", largeMerge, OptionalLong.empty()));
+      assertEquals(DirectIODirectory.isDirectIOSupported(), dir.useDirectIO("foo", largeMerge, OptionalLong.of(1024)));
+    }
+  }
+
+  public void testMergeRoundTrip() throws Exception {
+    final IOContext merge = new IOContext(new MergeInfo(10, 1 << 20, false, 1));
+    try (Directory dir = getDirectory(createTempDir())) {
+      final byte[] bytes = new byte[TestUtil.nextInt(random(), 1, 100000)];
+      random().nextBytes(bytes);
+      final long checksum;
+      try (IndexOutput out = dir.createOutput("foo", merge)) {
+        out.writeBytes(bytes, bytes.length);
+        checksum = out.getChecksum();
+      }
+      assertEquals(bytes.length, dir.fileLength("foo"));
+      try (IndexInput in = dir.openInput("foo", merge)) {
+        assertEquals(bytes.length, in.length());
+        final byte[] read = new byte[bytes.length];
+        in.readBytes(read, 0, read.length);
+        assertArrayEquals(bytes, read);
+        final int pos = random().nextInt(bytes.length);
+        in.seek(pos);
+        assertEquals(bytes[pos], in.readByte());
+        final IndexInput clone = in.clone();
+        assertEquals(pos + 1, clone.getFilePointer());
+      }
+      try (ChecksumIndexInput in = dir.openChecksumInput("foo", merge)) {
+        in.seek(bytes.length);
+        assertEquals(checksum, in.getChecksum());
+      }
+    }
+  }
+}
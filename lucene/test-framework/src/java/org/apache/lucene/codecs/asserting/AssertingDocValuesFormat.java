@@ -30,6 +30,7 @@ import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.NumericDocValuesIterator;
 import org.apache.lucene.index.RandomAccessOrds;
 import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.SegmentWriteState;
@@ -233,6 +234,14 @@ public class AssertingDocValuesFormat extends DocValuesFormat {
       return new AssertingLeafReader.AssertingNumericDocValues(values, maxDoc);
     }
 
+    @Override
+    public NumericDocValuesIterator getNumericIterator(FieldInfo field) throws IOException {
+      assert field.getDocValuesType() == DocValuesType.NUMERIC;
+      NumericDocValuesIterator values = in.getNumericIterator(field);
+      assert values != null;
+      return new AssertingLeafReader.AssertingNumericDocValuesIterator(values, maxDoc);
+    }
+
     @Override
     public BinaryDocValues getBinary(FieldInfo field) throws IOException {
       assert field.getDocValuesType() == DocValuesType.BINARY;
@@ -405,6 +405,77 @@ public class AssertingLeafReader extends FilterLeafReader {
     }    
   }
   
+  /** Wraps a NumericDocValuesIterator but with additional asserts */
+  public static class AssertingNumericDocValuesIterator extends NumericDocValuesIterator {
+    private final Thread creationThread = Thread.currentThread();
+    private final NumericDocValuesIterator in;
+    private final int maxDoc;
+    private int doc = -1;
+    private boolean exists;
+
+    public AssertingNumericDocValuesIterator(NumericDocValuesIterator in, int maxDoc) {
+      this.in = in;
+      this.maxDoc = maxDoc;
+      assert in.docID() == -1;
+      assert in.cost() >= 0;
+    }
+
+    @Override
+    public int docID() {
+      assertThread("Numeric doc values iterator", creationThread);
+      assert doc == in.docID();
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      assertThread("Numeric doc values iterator", creationThread);
+      assert doc != NO_MORE_DOCS : "nextDoc() called after NO_MORE_DOCS";
+      int nextDoc = in.nextDoc();
+      assert nextDoc > doc : "backwards nextDoc from " + doc + " to " + nextDoc;
+      assert nextDoc == NO_MORE_DOCS || nextDoc < maxDoc;
+      doc = nextDoc;
+      exists = doc != NO_MORE_DOCS;
+      return doc;
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      assertThread("Numeric doc values iterator", creationThread);
+      assert target >= 0;
+      assert target > doc : "target must be > docID(), got " + target + " <= " + doc;
+      int advanced = in.advance(target);
+      assert advanced >= target : "backwards advance from: " + target + " to: " + advanced;
+      assert advanced == NO_MORE_DOCS || advanced < maxDoc;
+      doc = advanced;
+      exists = doc != NO_MORE_DOCS;
+      return doc;
+    }
+
+    @Override
+    public boolean advanceExact(int target) throws IOException {
+      assertThread("Numeric doc values iterator", creationThread);
+      assert target >= 0 && target < maxDoc;
+      assert target >= doc : "target must be >= docID(), got " + target + " < " + doc;
+      exists = in.advanceExact(target);
+      assert in.docID() == target;
+      doc = target;
+      return exists;
+    }
+
+    @Override
+    public long longValue() throws IOException {
+      assertThread("Numeric doc values iterator", creationThread);
+      assert exists : "longValue() called on a document that has no value";
+      return in.longValue();
+    }
+
+    @Override
+    public long cost() {
+      return in.cost();
+    }
+  }
+
   /** Wraps a BinaryDocValues but with additional asserts */
   public static class AssertingBinaryDocValues extends BinaryDocValues {
     private final Thread creationThread = Thread.currentThread();
@@ -680,6 +751,20 @@ public class AssertingLeafReader extends FilterLeafReader {
     }
   }
 
+  @Override
+  public NumericDocValuesIterator getNumericDocValuesIterator(String field) throws IOException {
+    NumericDocValuesIterator it = super.getNumericDocValuesIterator(field);
+    FieldInfo fi = getFieldInfos().fieldInfo(field);
+    if (it != null) {
+      assert fi != null;
+      assert fi.getDocValuesType() == DocValuesType.NUMERIC;
+      return new AssertingNumericDocValuesIterator(it, maxDoc());
+    } else {
+      assert fi == null || fi.getDocValuesType() != DocValuesType.NUMERIC;
+      return null;
+    }
+  }
+
   @Override
   public BinaryDocValues getBinaryDocValues(String field) throws IOException {
     BinaryDocValues dv = super.getBinaryDocValues(field);
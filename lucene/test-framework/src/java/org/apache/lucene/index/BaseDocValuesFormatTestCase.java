@@ -49,6 +49,7 @@ import org.apache.lucene.index.CheckIndex.Status.DocValuesStatus;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -1336,6 +1337,119 @@ public abstract class BaseDocValuesFormatTestCase extends BaseIndexFileFormatTes
     }
   }
   
+  public void testNumericIteratorVsRandomAccess() throws Exception {
+    int numIterations = atLeast(1);
+    for (int i = 0; i < numIterations; i++) {
+      // exercise dense fields as well as fields that are sparse enough for
+      // codecs to only encode documents that have a value
+      final int gap = new int[] {1, 2, 20, 200}[random().nextInt(4)];
+      doTestNumericIteratorVsRandomAccess(gap);
+    }
+  }
+
+  private void doTestNumericIteratorVsRandomAccess(int gap) throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, conf);
+
+    int numDocs = atLeast(2000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+      if (random().nextInt(gap) == 0) {
+        doc.add(new NumericDocValuesField("dv", random().nextLong()));
+      }
+      writer.addDocument(doc);
+      if (random().nextInt(301) == 0) {
+        writer.commit();
+      }
+    }
+
+    int numDeletions = random().nextInt(numDocs/10);
+    for (int i = 0; i < numDeletions; i++) {
+      int id = random().nextInt(numDocs);
+      writer.deleteDocuments(new Term("id", Integer.toString(id)));
+    }
+    if (random().nextBoolean()) {
+      writer.forceMerge(1);
+    }
+    writer.close();
+
+    DirectoryReader ir = DirectoryReader.open(dir);
+    for (LeafReaderContext context : ir.leaves()) {
+      LeafReader r = context.reader();
+      NumericDocValues values = r.getNumericDocValues("dv");
+      if (values == null) {
+        assertNull(r.getNumericDocValuesIterator("dv"));
+        continue;
+      }
+      Bits docsWithField = r.getDocsWithField("dv");
+
+      // sequential
+      NumericDocValuesIterator it = r.getNumericDocValuesIterator("dv");
+      assertEquals(-1, it.docID());
+      for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+        assertTrue(docsWithField.get(doc));
+        assertEquals(values.get(doc), it.longValue());
+      }
+      int count = 0;
+      for (int i = 0; i < r.maxDoc(); i++) {
+        if (docsWithField.get(i)) {
+          count++;
+        }
+      }
+      it = r.getNumericDocValuesIterator("dv");
+      int iteratorCount = 0;
+      while (it.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        iteratorCount++;
+      }
+      assertEquals(count, iteratorCount);
+
+      // advance
+      it = r.getNumericDocValuesIterator("dv");
+      for (int target = random().nextInt(gap * 3); target < r.maxDoc(); target += 1 + random().nextInt(gap * 3)) {
+        if (target <= it.docID()) {
+          continue;
+        }
+        int doc = it.advance(target);
+        int expected = target;
+        while (expected < r.maxDoc() && docsWithField.get(expected) == false) {
+          expected++;
+        }
+        if (expected == r.maxDoc()) {
+          assertEquals(DocIdSetIterator.NO_MORE_DOCS, doc);
+          break;
+        }
+        assertEquals(expected, doc);
+        assertEquals(values.get(doc), it.longValue());
+      }
+
+      // advanceExact
+      it = r.getNumericDocValuesIterator("dv");
+      for (int target = random().nextInt(gap * 3); target < r.maxDoc(); target += random().nextInt(gap * 3)) {
+        assertEquals(docsWithField.get(target), it.advanceExact(target));
+        assertEquals(target, it.docID());
+        if (docsWithField.get(target)) {
+          assertEquals(values.get(target), it.longValue());
+        }
+        if (random().nextInt(10) == 0) {
+          int doc = it.nextDoc();
+          if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+            break;
+          }
+          assertTrue(doc > target);
+          assertTrue(docsWithField.get(doc));
+          for (int i = target + 1; i < doc; i++) {
+            assertFalse(docsWithField.get(i));
+          }
+          target = doc;
+        }
+      }
+    }
+    ir.close();
+    dir.close();
+  }
+
   private void doTestBinaryVsStoredFields(int minLength, int maxLength) throws Exception {
     Directory dir = newDirectory();
     IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
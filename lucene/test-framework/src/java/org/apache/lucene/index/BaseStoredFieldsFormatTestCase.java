@@ -299,6 +299,35 @@ public abstract class BaseStoredFieldsFormatTestCase extends BaseIndexFileFormat
     dir.close();
   }
 
+  public void testPrefetch() throws Exception {
+    MMapDirectory mmapDir = new MMapDirectory(createTempDir("testPrefetch"));
+    mmapDir.setPrefetchThreads(TestUtil.nextInt(random(), 1, 2));
+    Directory dir = new MockDirectoryWrapper(random(), mmapDir);
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(300);
+    for (int id = 0; id < numDocs; id++) {
+      Document doc = new Document();
+      doc.add(new StoredField("id", id));
+      doc.add(new StoredField("body", TestUtil.randomUnicodeString(random(), 100)));
+      w.addDocument(doc);
+    }
+    final DirectoryReader r = w.getReader();
+    w.close();
+
+    for (int iter = 0; iter < 20; iter++) {
+      int[] docs = new int[TestUtil.nextInt(random(), 1, 20)];
+      for (int i = 0; i < docs.length; i++) {
+        docs[i] = random().nextInt(numDocs);
+        r.prefetchDocument(docs[i]);
+      }
+      for (int docID : docs) {
+        assertEquals(docID, r.document(docID).getField("id").numericValue().intValue());
+      }
+    }
+    r.close();
+    dir.close();
+  }
+
   public void testIndexedBit() throws Exception {
     Directory dir = newDirectory();
     RandomIndexWriter w = new RandomIndexWriter(random(), dir);
@@ -39,6 +39,8 @@ public class AssertingScorer extends Scorer {
 
   IteratorState state = IteratorState.START;
   int doc;
+  float minCompetitiveScore = 0;
+  float maxScore = Float.NaN; // lazily computed
 
   private AssertingScorer(Random random, Scorer in, boolean needsScores) {
     super(in.weight);
@@ -69,9 +71,27 @@ public class AssertingScorer extends Scorer {
     assert iterating();
     final float score = in.score();
     assert !Float.isNaN(score) : "NaN score for in="+in;
+    assert score <= maxScore() : "score " + score + " is greater than the max score " + maxScore() + " for in=" + in;
     return score;
   }
 
+  @Override
+  public float maxScore() {
+    if (Float.isNaN(maxScore)) {
+      maxScore = in.maxScore();
+      assert !Float.isNaN(maxScore) : "NaN max score for in=" + in;
+    }
+    return maxScore;
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    assert needsScores;
+    assert minScore >= minCompetitiveScore : "min competitive scores must not decrease: " + minScore + " < " + minCompetitiveScore;
+    minCompetitiveScore = minScore;
+    in.setMinCompetitiveScore(minScore);
+  }
+
   @Override
   public Collection<ChildScorer> getChildren() {
     // We cannot hide that we hold a single child, else
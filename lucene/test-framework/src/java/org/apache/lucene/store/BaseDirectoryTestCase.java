@@ -1048,6 +1048,36 @@ public abstract class BaseDirectoryTestCase extends LuceneTestCase {
     dir.close();
   }
   
+  /** prefetch hints must not move the file pointer or change what is read, on the file or its slices */
+  public void testPrefetch() throws Exception {
+    Directory dir = getDirectory(createTempDir("prefetch"));
+    IndexOutput output = dir.createOutput("bytes", newIOContext(random()));
+    final int num = TestUtil.nextInt(random(), 1, 100000);
+    byte bytes[] = new byte[num];
+    random().nextBytes(bytes);
+    output.writeBytes(bytes, bytes.length);
+    output.close();
+
+    IndexInput input = dir.openInput("bytes", newIOContext(random()));
+    for (int iter = 0; iter < 20; iter++) {
+      int sliceStart = random().nextInt(num);
+      IndexInput in = random().nextBoolean() ? input.clone() : input.slice("slice", sliceStart, num - sliceStart);
+      int offset = in == input ? 0 : (int) (num - in.length());
+      long pos = TestUtil.nextLong(random(), 0, in.length());
+      in.seek(pos);
+      long start = TestUtil.nextLong(random(), 0, in.length());
+      in.prefetch(start, TestUtil.nextLong(random(), 0, in.length() - start));
+      assertEquals(pos, in.getFilePointer());
+      byte data[] = new byte[(int) (in.length() - pos)];
+      in.readBytes(data, 0, data.length);
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(bytes[offset + (int) pos + i], data[i]);
+      }
+    }
+    input.close();
+    dir.close();
+  }
+
   /** 
    * This test that writes larger than the size of the buffer output
    * will correctly increment the file pointer.
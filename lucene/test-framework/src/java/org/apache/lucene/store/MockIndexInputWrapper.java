@@ -125,6 +125,12 @@ public class MockIndexInputWrapper extends IndexInput {
     return delegate.length();
   }
 
+  @Override
+  public void prefetch(long offset, long length) throws IOException {
+    ensureOpen();
+    delegate.prefetch(offset, length);
+  }
+
   @Override
   public byte readByte() throws IOException {
     ensureOpen();
@@ -224,7 +224,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
       Cache cache = new BlockDirectoryCache(blockCache, path, metrics, blockCacheGlobal);
       int readBufferSize = params.getInt("solr.hdfs.blockcache.read.buffersize", blockSize);
       hdfsDir = new HdfsDirectory(new Path(path), lockFactory, conf, readBufferSize);
-      dir = new BlockDirectory(path, hdfsDir, cache, null, blockCacheReadEnabled, false, cacheMerges, cacheReadOnce);
+      dir = new BlockDirectory(path, hdfsDir, cache, null, blockCacheReadEnabled, false, cacheMerges, cacheReadOnce, metrics);
     } else {
       hdfsDir = new HdfsDirectory(new Path(path), conf);
       dir = hdfsDir;
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
  * <ul>
  *  <li>unmap -- See {@link MMapDirectory#setUseUnmap(boolean)}</li>
  *  <li>maxChunkSize -- The Max chunk size.  See {@link MMapDirectory#MMapDirectory(Path, LockFactory, int)}</li>
+ *  <li>prefetchThreads -- Threads that load ranges into memory ahead of use, 0 to disable.  See {@link MMapDirectory#setPrefetchThreads(int)}</li>
  * </ul>
  *
  **/
@@ -43,6 +44,7 @@ public class MMapDirectoryFactory extends StandardDirectoryFactory {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   boolean unmapHack;
   private int maxChunk;
+  private int prefetchThreads;
 
   @Override
   public void init(NamedList args) {
@@ -53,6 +55,7 @@ public class MMapDirectoryFactory extends StandardDirectoryFactory {
       throw new IllegalArgumentException("maxChunk must be greater than 0");
     }
     unmapHack = params.getBool("unmap", true);
+    prefetchThreads = params.getInt("prefetchThreads", 0);
   }
 
   @Override
@@ -64,6 +67,7 @@ public class MMapDirectoryFactory extends StandardDirectoryFactory {
     } catch (IllegalArgumentException e) {
       log.warn("Unmap not supported on this JVM, continuing on without setting unmap", e);
     }
+    mapDirectory.setPrefetchThreads(prefetchThreads);
     return mapDirectory;
   }
   
@@ -234,6 +234,9 @@ public class SolrConfig extends Config implements MapSerializable {
     queryResultWindowSize = Math.max(1, getInt("query/queryResultWindowSize", 1));
     queryResultMaxDocsCached = getInt("query/queryResultMaxDocsCached", Integer.MAX_VALUE);
     enableLazyFieldLoading = getBool("query/enableLazyFieldLoading", false);
+    searcherThreadPoolSize = getInt("query/searcherThreadPoolSize", 0);
+    segmentFilterCacheSize = getInt("query/segmentFilterCache/@size", 0);
+    segmentFilterCacheMaxRamMB = getDouble("query/segmentFilterCache/@maxRamMB", 256);
 
 
     filterCacheConfig = CacheConfig.getConfig(this, "query/filterCache");
@@ -462,6 +465,9 @@ public class SolrConfig extends Config implements MapSerializable {
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  public final int searcherThreadPoolSize;
+  public final int segmentFilterCacheSize;
+  public final double segmentFilterCacheMaxRamMB;
   // DocSet
   public final float hashSetInverseLoadFactor;
   public final int hashDocSetMaxSize;
@@ -827,6 +833,9 @@ public class SolrConfig extends Config implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    m.put("searcherThreadPoolSize", searcherThreadPoolSize);
+    m.put("segmentFilterCacheSize", segmentFilterCacheSize);
+    m.put("segmentFilterCacheMaxRamMB", segmentFilterCacheMaxRamMB);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
     if (jmxConfig != null) result.put("jmx", jmxConfig.toMap());
     for (SolrPluginInfo plugin : plugins) {
@@ -88,9 +88,11 @@ import org.apache.solr.schema.IndexSchemaFactory;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SegmentFilterCache;
 import org.apache.solr.search.SolrFieldCacheMBean;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.ValueSourceParser;
+import org.apache.solr.search.facet.GlobalOrdinalCache;
 import org.apache.solr.search.stats.LocalStatsCache;
 import org.apache.solr.search.stats.StatsCache;
 import org.apache.solr.update.DefaultSolrCoreState;
@@ -218,6 +220,31 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     return solrConfig;
   }
 
+  /**
+   * Gets the thread pool that searchers use to search the slices of the index
+   * concurrently, or null if the <code>searcherThreadPoolSize</code> of the
+   * configuration is not greater than 1.
+   */
+  public ExecutorService getSearcherThreadPool() {
+    return searcherThreadPool;
+  }
+
+  /**
+   * Gets the per-segment filter cache that is shared by all searchers of this core, or null if
+   * <code>segmentFilterCache</code> is not configured.
+   */
+  public SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
+  /**
+   * Gets the global ordinals of string fields, shared by all searchers of this core so that
+   * they are rebuilt incrementally on reopen.
+   */
+  public GlobalOrdinalCache getGlobalOrdinalCache() {
+    return globalOrdinalCache;
+  }
+
   /**
    * Gets the schema resource name used by this core instance.
    * @since solr 1.3
@@ -677,6 +704,18 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     resourceLoader = config.getResourceLoader();
     this.solrConfig = config;
     this.configSetProperties = configSetProperties;
+    if (config.searcherThreadPoolSize > 1) {
+      searcherThreadPool = ExecutorUtil.newMDCAwareFixedThreadPool(config.searcherThreadPoolSize,
+          new DefaultSolrThreadFactory("searcherThreadPool"));
+    } else {
+      searcherThreadPool = null;
+    }
+    if (config.segmentFilterCacheSize > 0) {
+      segmentFilterCache = new SegmentFilterCache(config.segmentFilterCacheSize,
+          (long) (config.segmentFilterCacheMaxRamMB * 1024L * 1024L));
+    } else {
+      segmentFilterCache = null;
+    }
 
     if (updateHandler == null) {
       directoryFactory = initDirectoryFactory();
@@ -697,6 +736,9 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     // Initialize JMX
     this.infoRegistry = initInfoRegistry(name, config);
     infoRegistry.put("fieldCache", new SolrFieldCacheMBean());
+    if (segmentFilterCache != null) {
+      infoRegistry.put("segmentFilterCache", segmentFilterCache);
+    }
 
     initSchema(config, schema);
 
@@ -1205,6 +1247,23 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
       }
     }
 
+    if (searcherThreadPool != null) {
+      try {
+        // searchers are closed, nothing can submit to this pool anymore
+        ExecutorUtil.shutdownAndAwaitTermination(searcherThreadPool);
+      } catch (Throwable e) {
+        SolrException.log(log, e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+    }
+
+    if (segmentFilterCache != null) {
+      segmentFilterCache.clear();
+    }
+    globalOrdinalCache.clear();
+
     try {
       infoRegistry.clear();
     } catch (Throwable e) {
@@ -1399,6 +1458,11 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
 
   final ExecutorService searcherExecutor = ExecutorUtil.newMDCAwareSingleThreadExecutor(
       new DefaultSolrThreadFactory("searcherExecutor"));
+  // used by searchers to run a single query on several threads, null if disabled
+  private final ExecutorService searcherThreadPool;
+  // shared by all searchers so that entries of unchanged segments survive reopens, null if disabled
+  private final SegmentFilterCache segmentFilterCache;
+  private final GlobalOrdinalCache globalOrdinalCache = new GlobalOrdinalCache();
   private int onDeckSearchers;  // number of searchers preparing
   // Lock ordering: one can acquire the openSearcherLock and then the searcherLock, but not vice-versa.
   private Object searcherLock = new Object();  // the sync object for the searcher
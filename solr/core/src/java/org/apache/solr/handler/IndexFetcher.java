@@ -134,6 +134,9 @@ public class IndexFetcher {
 
   private volatile List<Map<String, Object>> filesDownloaded;
 
+  /** Bytes of the files in {@link #filesDownloaded} that an earlier, failed attempt already fetched */
+  private volatile long bytesResumed;
+
   private volatile List<Map<String, Object>> confFilesDownloaded;
 
   private volatile List<Map<String, Object>> tlogFilesDownloaded;
@@ -148,6 +151,11 @@ public class IndexFetcher {
 
   private volatile boolean stop = false;
 
+  /** set when one of several parallel file downloads fails, so that the others give up too */
+  private volatile boolean fetchFailed = false;
+
+  private final int fetchThreads;
+
   private boolean useInternalCompression = false;
 
   private boolean useExternalCompression = false;
@@ -185,6 +193,11 @@ public class IndexFetcher {
     useExternalCompression = EXTERNAL.equals(compress);
     connTimeout = getParameter(initArgs, HttpClientUtil.PROP_CONNECTION_TIMEOUT, 30000, null);
     soTimeout = getParameter(initArgs, HttpClientUtil.PROP_SO_TIMEOUT, 120000, null);
+    Object threads = initArgs.get(FETCH_THREADS);
+    fetchThreads = threads == null ? DEFAULT_FETCH_THREADS : Integer.parseInt(threads.toString());
+    if (fetchThreads < 1) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "'" + FETCH_THREADS + "' must be at least 1");
+    }
 
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
@@ -281,6 +294,7 @@ public class IndexFetcher {
     markReplicationStart();
     Directory tmpIndexDir = null;
     String tmpIndex;
+    String tmpIdxDirName = null;
     Directory indexDir = null;
     String indexDirPath;
     boolean deleteTmpIdxDir = true;
@@ -368,6 +382,7 @@ public class IndexFetcher {
       fsyncService = ExecutorUtil.newMDCAwareSingleThreadExecutor(new DefaultSolrThreadFactory("fsyncService"));
       // use a synchronized list because the list is read by other threads (to show details)
       filesDownloaded = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+      bytesResumed = 0;
       // if the generation of master is older than that of the slave , it means they are not compatible to be copied
       // then a new index directory to be created and all the files need to be copied
       boolean isFullCopyNeeded = IndexDeletionPolicyWrapper
@@ -375,7 +390,14 @@ public class IndexFetcher {
           || commit.getGeneration() >= latestGeneration || forceReplication;
 
       String timestamp = new SimpleDateFormat(SnapShooter.DATE_FMT, Locale.ROOT).format(new Date());
-      String tmpIdxDirName = "index." + timestamp;
+      // resume into the directory of an earlier failed attempt, if there is one: the files it
+      // completed are verified against the master's checksums and kept instead of fetched again
+      tmpIdxDirName = replicationHandler.takePartialIndexDirName();
+      if (tmpIdxDirName == null || !solrCore.getDirectoryFactory().exists(solrCore.getDataDir() + tmpIdxDirName)) {
+        tmpIdxDirName = "index." + timestamp;
+      } else {
+        LOG.info("Resuming replication into {}", tmpIdxDirName);
+      }
       tmpIndex = solrCore.getDataDir() + tmpIdxDirName;
 
       tmpIndexDir = solrCore.getDirectoryFactory().get(tmpIndex, DirContext.DEFAULT, solrCore.getSolrConfig().indexConfig.lockType);
@@ -526,7 +548,7 @@ public class IndexFetcher {
         }
 
         if (!isFullCopyNeeded && !forceReplication && !successfulInstall) {
-          cleanup(solrCore, tmpIndexDir, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
+          cleanup(solrCore, tmpIndexDir, tmpIdxDirName, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
           cleanupDone = true;
           // we try with a full copy of the index
           LOG.warn(
@@ -549,13 +571,15 @@ public class IndexFetcher {
       }
     } finally {
       if (!cleanupDone) {
-        cleanup(solrCore, tmpIndexDir, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
+        cleanup(solrCore, tmpIndexDir, tmpIdxDirName, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
       }
     }
   }
 
-  private void cleanup(final SolrCore core, Directory tmpIndexDir,
+  private void cleanup(final SolrCore core, Directory tmpIndexDir, String tmpIdxDirName,
       Directory indexDir, boolean deleteTmpIdxDir, File tmpTlogDir, boolean successfulInstall) throws IOException {
+    // unless the user aborted, keep what a failed attempt downloaded so the next one can resume from it
+    boolean keepTmpIdxDir = deleteTmpIdxDir && !successfulInstall && !stop && tmpIdxDirName != null;
     try {
       if (!successfulInstall) {
         try {
@@ -571,15 +595,20 @@ public class IndexFetcher {
       }
 
       filesToDownload = filesDownloaded = confFilesDownloaded = confFilesToDownload = tlogFilesToDownload = tlogFilesDownloaded = null;
+      bytesResumed = 0;
       markReplicationStop();
       dirFileFetcher = null;
       localFileFetcher = null;
       if (fsyncService != null && !fsyncService.isShutdown()) fsyncService.shutdown();
       fsyncService = null;
       stop = false;
+      fetchFailed = false;
       fsyncException = null;
     } finally {
-      if (deleteTmpIdxDir && tmpIndexDir != null) {
+      if (keepTmpIdxDir && tmpIndexDir != null) {
+        LOG.info("Keeping {} to resume the next replication attempt", tmpIdxDirName);
+        replicationHandler.setPartialIndexDirName(tmpIdxDirName);
+      } else if (deleteTmpIdxDir && tmpIndexDir != null) {
         try {
           core.getDirectoryFactory().doneWithDirectory(tmpIndexDir);
           core.getDirectoryFactory().remove(tmpIndexDir);
@@ -703,6 +732,8 @@ public class IndexFetcher {
     for (Map<String, Object> file : getFilesDownloaded()) {
       bytesDownloaded += (Long) file.get(SIZE);
     }
+    //but not of the files kept from an earlier attempt
+    bytesDownloaded -= bytesResumed;
 
     //get size from list of conf files to download
     for (Map<String, Object> file : getConfFilesDownloaded()) {
@@ -853,25 +884,137 @@ public class IndexFetcher {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Download files to dir: " + Arrays.asList(indexDir.listAll()));
     }
-    long bytesDownloaded = 0;
+    List<Map<String,Object>> filesToFetch = new ArrayList<>();
     for (Map<String,Object> file : filesToDownload) {
       String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
       CompareResult compareResult = compareFile(indexDir, filename, size, (Long) file.get(CHECKSUM));
       if (!compareResult.equal || downloadCompleteIndex
           || filesToAlwaysDownloadIfNoChecksums(filename, size, compareResult)) {
-        dirFileFetcher = new DirectoryFileFetcher(tmpIndexDir, file,
-            (String) file.get(NAME), FILE, latestGeneration);
-        currentFile = file;
-        dirFileFetcher.fetchFile();
-        bytesDownloaded += dirFileFetcher.getBytesDownloaded();
-        filesDownloaded.add(new HashMap<>(file));
+        if (isFetchedAlready(tmpIndexDir, file)) {
+          LOG.info("Skipping download for " + filename + " because an earlier attempt fetched it");
+          filesDownloaded.add(new HashMap<>(file));
+          bytesResumed += size;
+        } else if (downloadCompleteIndex && compareResult.equal && compareResult.checkSummed
+            && isIntact(indexDir, filename)) {
+          // a full copy still shares most segments with our index; copy those locally
+          LOG.info("Copying " + filename + " from the local index because it matches the master's copy");
+          tmpIndexDir.copyFrom(indexDir, filename, filename, DirectoryFactory.IOCONTEXT_NO_CACHE);
+          fsyncService.submit(() -> {
+            try {
+              tmpIndexDir.sync(Collections.singleton(filename));
+            } catch (IOException e) {
+              fsyncException = e;
+            }
+          });
+          filesDownloaded.add(new HashMap<>(file));
+        } else {
+          filesToFetch.add(file);
+        }
       } else {
         LOG.info("Skipping download for " + file.get(NAME)
             + " because it already exists");
       }
     }
-    return bytesDownloaded;
+    return fetchIndexFiles(filesToFetch, tmpIndexDir, latestGeneration);
+  }
+
+  /**
+   * Fetches the given files from the master, using up to {@link #fetchThreads} parallel downloads.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFiles(List<Map<String,Object>> files, Directory tmpIndexDir, long latestGeneration)
+      throws Exception {
+    long bytesDownloaded = 0;
+    if (fetchThreads == 1 || files.size() <= 1) {
+      for (Map<String,Object> file : files) {
+        bytesDownloaded += fetchIndexFile(file, tmpIndexDir, latestGeneration);
+      }
+      return bytesDownloaded;
+    }
+
+    ExecutorService executor = ExecutorUtil.newMDCAwareFixedThreadPool(Math.min(fetchThreads, files.size()),
+        new DefaultSolrThreadFactory("indexFetcher"));
+    try {
+      List<Future<Long>> futures = new ArrayList<>(files.size());
+      for (Map<String,Object> file : files) {
+        futures.add(executor.submit(() -> {
+          try {
+            return fetchIndexFile(file, tmpIndexDir, latestGeneration);
+          } catch (Exception e) {
+            fetchFailed = true;
+            throw e;
+          }
+        }));
+      }
+      Exception failure = null;
+      for (Future<Long> future : futures) {
+        try {
+          bytesDownloaded += future.get();
+        } catch (ExecutionException e) {
+          Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+          // prefer the download that failed over the ones that gave up because of it
+          if (failure == null || (failure instanceof ReplicationHandlerException && !stop)) {
+            failure = cause;
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return bytesDownloaded;
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  private long fetchIndexFile(Map<String,Object> file, Directory tmpIndexDir, long latestGeneration) throws Exception {
+    DirectoryFileFetcher fetcher = new DirectoryFileFetcher(tmpIndexDir, file,
+        (String) file.get(NAME), FILE, latestGeneration);
+    // with parallel downloads, the details report the most recently started file
+    dirFileFetcher = fetcher;
+    currentFile = file;
+    fetcher.fetchFile();
+    filesDownloaded.add(new HashMap<>(file));
+    // its bytes now count through filesDownloaded rather than as the file in progress
+    if (dirFileFetcher == fetcher) {
+      dirFileFetcher = null;
+    }
+    return fetcher.getBytesDownloaded();
+  }
+
+  /**
+   * Returns true if an earlier, failed attempt left a complete copy of this file in the temporary index
+   * directory. A copy that does not match the master's length and checksum is deleted.
+   */
+  private static boolean isFetchedAlready(Directory tmpIndexDir, Map<String,Object> file) throws IOException {
+    String filename = (String) file.get(NAME);
+    Long checksum = (Long) file.get(CHECKSUM);
+    if (!slowFileExists(tmpIndexDir, filename)) {
+      return false;
+    }
+    if (checksum != null) {
+      CompareResult compareResult = compareFile(tmpIndexDir, filename, (Long) file.get(SIZE), checksum);
+      if (compareResult.equal && compareResult.checkSummed && isIntact(tmpIndexDir, filename)) {
+        return true;
+      }
+    }
+    tmpIndexDir.deleteFile(filename);
+    return false;
+  }
+
+  /**
+   * Verifies the checksum of the entire file, so that only an uncorrupted local copy replaces a download.
+   */
+  private static boolean isIntact(Directory dir, String filename) {
+    try (IndexInput in = dir.openInput(filename, IOContext.READONCE)) {
+      CodecUtil.checksumEntireFile(in);
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Local copy of {} is not intact, downloading it", filename, e);
+      return false;
+    }
   }
   
   static boolean filesToAlwaysDownloadIfNoChecksums(String filename,
@@ -1466,10 +1609,13 @@ public class IndexFetcher {
       try {
         while (true) {
           if (stop) {
-            stop = false;
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
+          if (fetchFailed) {
+            aborted = true;
+            throw new ReplicationHandlerException("Replication failed fetching another file");
+          }
           long checkSumServer = -1;
           fis.readFully(intbytes);
           //read the size of the packet
@@ -1494,8 +1640,8 @@ public class IndexFetcher {
             long checkSumClient = checksum.getValue();
             if (checkSumClient != checkSumServer) {
               LOG.error("Checksum not matched between client and server for file: {}", fileName);
-              //if checksum is wrong it is a problem return for retry
-              return 1;
+              //if checksum is wrong it is a problem: retry from the last good packet
+              throw new IOException("Checksum mismatch for packet at offset " + bytesDownloaded);
             }
           }
           //if everything is fine, write down the packet to the file
@@ -1735,6 +1881,8 @@ public class IndexFetcher {
 
   private static final int MAX_RETRIES = 5;
 
+  private static final int DEFAULT_FETCH_THREADS = 2;
+
   private static final int NO_CONTENT = 1;
 
   private static final int ERR = 2;
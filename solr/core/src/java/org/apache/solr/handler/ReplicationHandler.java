@@ -79,6 +79,7 @@ import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.DirectoryFactory.DirContext;
 import org.apache.solr.core.IndexDeletionPolicyWrapper;
 import org.apache.solr.core.SolrCore;
@@ -377,6 +378,50 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   private volatile IndexFetcher currentIndexFetcher;
 
+  /**
+   * Name of an index directory left behind by a failed fetch, to be resumed by the next one. It is only
+   * remembered while this core is open: closing or reloading the core deletes the directory, and one
+   * orphaned by a crash is removed by {@link SolrCore#cleanupOldIndexDirectories()} at startup.
+   */
+  private volatile String partialIndexDirName;
+
+  String takePartialIndexDirName() {
+    String name = partialIndexDirName;
+    partialIndexDirName = null;
+    return name;
+  }
+
+  void setPartialIndexDirName(String name) {
+    partialIndexDirName = name;
+  }
+
+  /**
+   * Deletes the index directory left behind by a failed fetch, if any, since no later fetch will resume it.
+   */
+  private void removePartialIndexDir(SolrCore core) {
+    String name = takePartialIndexDirName();
+    if (name == null) {
+      return;
+    }
+    DirectoryFactory dirFactory = core.getDirectoryFactory();
+    String path = core.getDataDir() + name;
+    try {
+      if (!dirFactory.exists(path)) {
+        return;
+      }
+      Directory dir = dirFactory.get(path, DirContext.DEFAULT, core.getSolrConfig().indexConfig.lockType);
+      try {
+        dirFactory.doneWithDirectory(dir);
+        dirFactory.remove(dir);
+      } finally {
+        dirFactory.release(dir);
+      }
+      LOG.info("Removed {} left behind by a failed replication", path);
+    } catch (IOException e) {
+      SolrException.log(LOG, "Error removing directory " + path, e);
+    }
+  }
+
   public boolean doFetch(SolrParams solrParams, boolean forceReplication) {
     String masterUrl = solrParams == null ? null : solrParams.get(MASTER_URL);
     if (!indexFetchLock.tryLock())
@@ -1296,6 +1341,7 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
       @Override
       public void preClose(SolrCore core) {
         if (executorService != null) executorService.shutdown(); // we don't wait for shutdown - this can deadlock core reload
+        removePartialIndexDir(core);
       }
 
       @Override
@@ -1736,6 +1782,8 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String COMPRESSION = "compression";
 
+  public static final String FETCH_THREADS = "fetchThreads";
+
   public static final String EXTERNAL = "external";
 
   public static final String INTERNAL = "internal";
@@ -15,8 +15,10 @@
  * limitations under the License.
  */
 package org.apache.solr.handler.component;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -25,16 +27,31 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.solr.client.solrj.ResponseParser;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrResponse;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpClientUtil;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient.Builder;
 import org.apache.solr.client.solrj.impl.LBHttpSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
@@ -66,13 +83,26 @@ public class HttpShardHandler extends ShardHandler {
   private Set<Future<ShardResponse>> pending;
   private Map<String,List<String>> shardToURLs;
   private HttpClient httpClient;
+  private CloseableHttpAsyncClient asyncClient;
+  private BlockingQueue<Future<ShardResponse>> completionQueue;
 
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  // same as LBHttpSolrClient: status codes on which a request is retried on another replica
+  private static final Set<Integer> RETRY_CODES = new HashSet<>(Arrays.asList(404, 403, 503, 500));
+
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory, HttpClient httpClient) {
     this.httpClient = httpClient;
     this.httpShardHandlerFactory = httpShardHandlerFactory;
-    completionService = httpShardHandlerFactory.newCompletionService();
+    // the non-blocking client is configured like the default client, so it can't stand in for a custom one
+    if (httpShardHandlerFactory.getAsyncClient() != null && httpClient == httpShardHandlerFactory.defaultClient) {
+      asyncClient = httpShardHandlerFactory.getAsyncClient();
+      // async requests are queued alongside the tasks that are still executed on threads, see submit
+      completionQueue = new LinkedBlockingQueue<>();
+      completionService = new ExecutorCompletionService<>(httpShardHandlerFactory.getThreadPoolExecutor(), completionQueue);
+    } else {
+      completionService = httpShardHandlerFactory.newCompletionService();
+    }
     pending = new HashSet<>();
 
     // maps "localhost:8983|localhost:7574" to a shuffled List("http://localhost:8983","http://localhost:7574")
@@ -159,6 +189,18 @@ public class HttpShardHandler extends ShardHandler {
     // do this outside of the callable for thread safety reasons
     final List<String> urls = getURLs(shard, preferredHostAddress);
 
+    if (canSubmitAsync(urls)) {
+      params.remove(CommonParams.WT); // use default (currently javabin)
+      params.remove(CommonParams.VERSION);
+      QueryRequest req = makeQueryRequest(sreq, params, shard);
+      req.setMethod(SolrRequest.METHOD.POST);
+
+      AsyncShardRequest asyncRequest = new AsyncShardRequest(sreq, shard, urls, req);
+      pending.add(asyncRequest);
+      asyncRequest.sendToNextReplica();
+      return;
+    }
+
     Callable<ShardResponse> task = () -> {
 
       ShardResponse srsp = new ShardResponse();
@@ -230,6 +272,215 @@ public class HttpShardHandler extends ShardHandler {
     }
   }
   
+  /**
+   * Whether a request to the given replicas can be sent with the non-blocking
+   * http client. It is only set up with the plain http scheme registry, so
+   * requests to https urls are still executed with the blocking client.
+   */
+  private boolean canSubmitAsync(List<String> urls) {
+    if (asyncClient == null || urls.isEmpty()) {
+      return false;
+    }
+    for (String url : urls) {
+      if (!url.startsWith("http://")) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A shard request that is sent with the factory's non-blocking http client.
+   * Its callbacks run on the client's I/O threads: they retry on the next
+   * replica when a replica can't serve the request, like
+   * {@link LBHttpSolrClient} does, and queue the request for {@link #take(boolean)}
+   * once it is done. The response is only parsed when {@link #get()} is
+   * called by the thread that takes it, so that I/O threads never parse.
+   * <p>
+   * Cancelling aborts the exchange that is in flight, whether or not
+   * interruption is requested, so that no more resources are spent on a
+   * response that nobody will read.
+   */
+  private class AsyncShardRequest implements Future<ShardResponse>, FutureCallback<HttpResponse> {
+    private final ShardRequest sreq;
+    private final String shard;
+    private final List<String> urls;
+    private final QueryRequest req;
+    private final long startTime = System.nanoTime();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    // guarded by this
+    private int urlIndex = -1;
+    private HttpRequestBase method;
+    private Future<HttpResponse> exchange;
+    private HttpResponse httpResponse;
+    private Exception exception;
+    private boolean cancelled;
+    private ShardResponse shardResponse;
+
+    AsyncShardRequest(ShardRequest sreq, String shard, List<String> urls, QueryRequest req) {
+      this.sreq = sreq;
+      this.shard = shard;
+      this.urls = urls;
+      this.req = req;
+    }
+
+    private HttpSolrClient newClient(String url) {
+      HttpSolrClient client = new Builder(url).withHttpClient(httpClient).build();
+      client.setConnectionTimeout(httpShardHandlerFactory.connectionTimeout);
+      client.setSoTimeout(httpShardHandlerFactory.soTimeout);
+      return client;
+    }
+
+    private boolean hasNextReplica() {
+      return !cancelled && urlIndex + 1 < urls.size();
+    }
+
+    /** Sends the request to the next replica, returns false and completes this request if there is none. */
+    synchronized boolean sendToNextReplica() {
+      if (!hasNextReplica()) {
+        finish();
+        return false;
+      }
+      String url = urls.get(++urlIndex);
+      try (HttpSolrClient client = newClient(url)) {
+        method = client.createRequest(req, null);
+      } catch (Exception e) {
+        exception = e;
+        finish();
+        return false;
+      }
+      exchange = asyncClient.execute(method, HttpClientUtil.createNewHttpClientRequestContext(), this);
+      return true;
+    }
+
+    private void finish() {
+      if (done.getCount() > 0) {
+        done.countDown();
+        completionQueue.add(this);
+      }
+    }
+
+    @Override
+    public synchronized void completed(HttpResponse response) {
+      if (RETRY_CODES.contains(response.getStatusLine().getStatusCode()) && hasNextReplica()) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        sendToNextReplica();
+        return;
+      }
+      httpResponse = response;
+      finish();
+    }
+
+    @Override
+    public synchronized void failed(Exception ex) {
+      exception = ex;
+      if (ex instanceof IOException && hasNextReplica()) {
+        sendToNextReplica();
+        return;
+      }
+      finish();
+    }
+
+    @Override
+    public synchronized void cancelled() {
+      finish();
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+      if (isDone()) {
+        return false;
+      }
+      cancelled = true;
+      if (exchange == null || !exchange.cancel(true)) {
+        finish();
+      }
+      return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return done.getCount() == 0;
+    }
+
+    @Override
+    public ShardResponse get() throws InterruptedException, ExecutionException {
+      done.await();
+      return getShardResponse();
+    }
+
+    @Override
+    public ShardResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit)) {
+        throw new TimeoutException();
+      }
+      return getShardResponse();
+    }
+
+    private synchronized ShardResponse getShardResponse() {
+      if (cancelled) {
+        throw new CancellationException();
+      }
+      if (shardResponse == null) {
+        shardResponse = createShardResponse();
+      }
+      return shardResponse;
+    }
+
+    private ShardResponse createShardResponse() {
+      ShardResponse srsp = new ShardResponse();
+      if (sreq.nodeName != null) {
+        srsp.setNodeName(sreq.nodeName);
+      }
+      srsp.setShardRequest(sreq);
+      srsp.setShard(shard);
+      SimpleSolrResponse ssr = new SimpleSolrResponse();
+      srsp.setSolrResponse(ssr);
+
+      String url = urls.get(urlIndex);
+      srsp.setShardAddress(url);
+      try {
+        if (httpResponse == null) {
+          throw exception;
+        }
+        try (HttpSolrClient client = newClient(url)) {
+          ResponseParser parser = req.getResponseParser() != null ? req.getResponseParser() : client.getParser();
+          ssr.nl = client.processResponse(method, httpResponse, parser);
+        }
+      } catch (Exception e) {
+        Exception th = wrapIOException(e, url);
+        srsp.setException(th);
+        if (th instanceof SolrException) {
+          srsp.setResponseCode(((SolrException)th).code());
+        } else {
+          srsp.setResponseCode(-1);
+        }
+      }
+
+      ssr.elapsedTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+
+      return transfomResponse(sreq, srsp, shard);
+    }
+  }
+
+  /** Wraps I/O errors the same way as {@link HttpSolrClient} does. */
+  private static Exception wrapIOException(Exception e, String url) {
+    if (e instanceof ConnectException) {
+      return new SolrServerException("Server refused connection at: " + url, e);
+    } else if (e instanceof SocketTimeoutException) {
+      return new SolrServerException("Timeout occured while waiting response from server at: " + url, e);
+    } else if (e instanceof IOException) {
+      return new SolrServerException("IOException occured when talking to server at: " + url, e);
+    }
+    return e;
+  }
+
   /**
    * Subclasses could modify the request based on the shard
    */
@@ -19,10 +19,14 @@ package org.apache.solr.handler.component;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.LBHttpSolrClient;
 import org.apache.solr.client.solrj.impl.LBHttpSolrClient.Builder;
+import org.apache.solr.client.solrj.impl.SolrHttpClientBuilder;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
@@ -68,6 +72,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   );
 
   protected CloseableHttpClient defaultClient;
+  protected CloseableHttpAsyncClient asyncClient;
   private LBHttpSolrClient loadbalancer;
   //default values:
   int soTimeout = UpdateShardHandlerConfig.DEFAULT_DISTRIBUPDATESOTIMEOUT;
@@ -79,6 +84,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   int keepAliveTime = 5;
   int queueSize = -1;
   boolean accessPolicy = false;
+  boolean asyncRequests = false;
 
   private String scheme = null;
 
@@ -106,6 +112,10 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   // due to connection pooling limitations / races
   static final String USE_RETRIES = "useRetries";
 
+  // Issue shard requests with a non-blocking http client, completing them through
+  // callbacks rather than with a thread per request
+  static final String INIT_ASYNC_REQUESTS = "asyncRequests";
+
   /**
    * Get {@link ShardHandler} that uses the default http client.
    */
@@ -139,6 +149,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     this.keepAliveTime = getParameter(args, MAX_THREAD_IDLE_TIME, keepAliveTime,sb);
     this.queueSize = getParameter(args, INIT_SIZE_OF_QUEUE, queueSize,sb);
     this.accessPolicy = getParameter(args, INIT_FAIRNESS_POLICY, accessPolicy,sb);
+    this.asyncRequests = getParameter(args, INIT_ASYNC_REQUESTS, asyncRequests,sb);
     log.info("created with {}",sb);
     
     // magic sysprop to make tests reproducible: set by SolrTestCaseJ4.
@@ -164,6 +175,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     this.defaultClient = HttpClientUtil.createClient(clientParams);
     
     this.loadbalancer = createLoadbalancer(defaultClient);
+
+    if (this.asyncRequests) {
+      this.asyncClient = createAsyncClient();
+      this.asyncClient.start();
+    }
   }
   
   protected ModifiableSolrParams getClientParams() {
@@ -173,6 +189,43 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     return clientParams;
   }
 
+  /**
+   * Creates the non-blocking http client that shard requests are sent with when
+   * {@value #INIT_ASYNC_REQUESTS} is enabled. It is configured like the default
+   * client: same connection limits, timeouts, authentication and request interceptors.
+   */
+  protected CloseableHttpAsyncClient createAsyncClient() {
+    HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+        .setMaxConnPerRoute(maxConnectionsPerHost)
+        .setMaxConnTotal(maxConnections)
+        .setThreadFactory(new DefaultSolrThreadFactory("httpShardAsyncIO"))
+        .setDefaultRequestConfig(HttpClientUtil.createDefaultRequestConfigBuilder()
+            .setConnectTimeout(connectionTimeout)
+            .setSocketTimeout(soTimeout)
+            .build())
+        .addInterceptorLast(HttpClientUtil.getDynamicInterceptor());
+
+    SolrHttpClientBuilder solrBuilder = HttpClientUtil.getHttpClientBuilder();
+    if (solrBuilder.getAuthSchemeRegistryProvider() != null) {
+      builder.setDefaultAuthSchemeRegistry(solrBuilder.getAuthSchemeRegistryProvider().getAuthSchemeRegistry());
+    }
+    if (solrBuilder.getCookieSpecRegistryProvider() != null) {
+      builder.setDefaultCookieSpecRegistry(solrBuilder.getCookieSpecRegistryProvider().getCookieSpecRegistry());
+    }
+    if (solrBuilder.getCredentialsProviderProvider() != null) {
+      builder.setDefaultCredentialsProvider(solrBuilder.getCredentialsProviderProvider().getCredentialsProvider());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the non-blocking http client that shard requests are sent with, or
+   * null if {@value #INIT_ASYNC_REQUESTS} is disabled.
+   */
+  CloseableHttpAsyncClient getAsyncClient() {
+    return asyncClient;
+  }
+
   protected ThreadPoolExecutor getThreadPoolExecutor(){
     return this.commExecutor;
   }
@@ -207,8 +260,16 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
           loadbalancer.close();
         }
       } finally { 
-        if (defaultClient != null) {
-          HttpClientUtil.close(defaultClient);
+        try {
+          if (asyncClient != null) {
+            asyncClient.close();
+          }
+        } catch (IOException e) {
+          log.warn("Could not close the async http client", e);
+        } finally {
+          if (defaultClient != null) {
+            HttpClientUtil.close(defaultClient);
+          }
         }
       }
     }
@@ -251,6 +251,12 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
     in.document(docID, visitor);
   }
 
+  @Override
+  public void prefetchDocument(int docID) throws IOException {
+    ensureOpen();
+    in.prefetchDocument(docID);
+  }
+
   @Override
   public Bits getLiveDocs() {
     ensureOpen();
@@ -44,9 +44,18 @@ import org.slf4j.LoggerFactory;
 public class BinaryResponseWriter implements BinaryQueryResponseWriter {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * Name of the boolean init arg that enables writing documents straight from their stored
+   * fields, see {@link Resolver#setWriteDocsDirectly(boolean)}.
+   */
+  public static final String WRITE_DOCS_DIRECTLY = "writeDocsDirectly";
+
+  private boolean writeDocsDirectly = false;
+
   @Override
   public void write(OutputStream out, SolrQueryRequest req, SolrQueryResponse response) throws IOException {
     Resolver resolver = new Resolver(req, response.getReturnFields());
+    resolver.setWriteDocsDirectly(writeDocsDirectly);
     Boolean omitHeader = req.getParams().getBool(CommonParams.OMIT_HEADER);
     if (omitHeader != null && omitHeader) response.removeResponseHeader();
     new JavaBinCodec(resolver).setWritableDocFields(resolver).marshal(response.getValues(), out);
@@ -64,19 +73,35 @@ public class BinaryResponseWriter implements BinaryQueryResponseWriter {
 
   @Override
   public void init(NamedList args) {
-    /* NOOP */
+    if (args != null) {
+      Object writeDirectly = args.get(WRITE_DOCS_DIRECTLY);
+      if (writeDirectly != null) {
+        writeDocsDirectly = Boolean.parseBoolean(writeDirectly.toString());
+      }
+    }
   }
 
   public static class Resolver implements JavaBinCodec.ObjectResolver , JavaBinCodec.WritableDocFields {
     protected final SolrQueryRequest solrQueryRequest;
     protected IndexSchema schema;
     protected ReturnFields returnFields;
+    private boolean writeDocsDirectly;
 
     public Resolver(SolrQueryRequest req, ReturnFields returnFields) {
       solrQueryRequest = req;
       this.returnFields = returnFields;
     }
 
+    /**
+     * If true, documents that don't need to be transformed are written straight from
+     * their stored fields and docValues, without creating a {@link SolrDocument} per
+     * document. This saves a lot of garbage when responses have many documents, but
+     * documents that are not in the document cache are not added to it.
+     */
+    public void setWriteDocsDirectly(boolean writeDocsDirectly) {
+      this.writeDocsDirectly = writeDocsDirectly;
+    }
+
     @Override
     public Object resolve(Object o, JavaBinCodec codec) throws IOException {
       if (o instanceof ResultContext) {
@@ -121,6 +146,15 @@ public class BinaryResponseWriter implements BinaryQueryResponseWriter {
     protected void writeResultsBody( ResultContext res, JavaBinCodec codec ) throws IOException {
       codec.writeTag(JavaBinCodec.ARR, res.getDocList().size());
       Iterator<SolrDocument> docStreamer = res.getProcessedDocuments();
+      if (writeDocsDirectly && docStreamer instanceof DocsStreamer
+          && ((DocsStreamer) docStreamer).canWriteDirectly()) {
+        final DocsStreamer docs = (DocsStreamer) docStreamer;
+        final JavaBinDocumentWriter writer = new JavaBinDocumentWriter(res.getSearcher(), codec, this, this);
+        while (docs.hasNext()) {
+          docs.writeNext(writer);
+        }
+        return;
+      }
       while (docStreamer.hasNext()) {
         SolrDocument doc = docStreamer.next();
         codec.writeSolrDocument(doc);
@@ -107,6 +107,15 @@ public class DocsStreamer implements Iterator<SolrDocument> {
     }
 
     if (transformer != null) transformer.setContext(rctx);
+
+    if (!onlyPseudoFields && docs.size() > 1 && rctx.getSearcher().isPrefetchEnabled()) {
+      // start loading all the documents, rather than one at a time as they are written
+      try {
+        rctx.getSearcher().prefetchDocs(docs);
+      } catch (IOException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error prefetching documents", e);
+      }
+    }
   }
 
 
@@ -152,6 +161,24 @@ public class DocsStreamer implements Iterator<SolrDocument> {
 
   }
 
+  /**
+   * Whether documents may be written with {@link #writeNext(JavaBinDocumentWriter)}, which
+   * is only possible if they don't need to be transformed.
+   */
+  boolean canWriteDirectly() {
+    return transformer == null && !onlyPseudoFields;
+  }
+
+  /**
+   * Write the next document with the given writer, instead of returning it as a
+   * {@link SolrDocument} like {@link #next()}.
+   */
+  void writeNext(JavaBinDocumentWriter writer) throws IOException {
+    int id = docIterator.nextDoc();
+    idx++;
+    writer.write(id, dvFieldsToReturn);
+  }
+
   public static SolrDocument getDoc(Document doc, final IndexSchema schema) {
     SolrDocument out = new SolrDocument();
     for (IndexableField f : doc.getFields()) {
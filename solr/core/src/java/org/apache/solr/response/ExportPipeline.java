@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.schema.BoolField;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.schema.TrieDateField;
+import org.apache.solr.schema.TrieDoubleField;
+import org.apache.solr.schema.TrieFloatField;
+import org.apache.solr.schema.TrieIntField;
+import org.apache.solr.schema.TrieLongField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.DefaultSolrThreadFactory;
+
+/**
+ * Sorts and writes the documents of an export in a single pass, for {@link SortingResponseWriter}.
+ * <p>
+ * The hits of each segment are read into primitive arrays (the doc id, plus one <code>long</code>
+ * key per sort field encoded so that natural <code>long</code> order is the export order) and radix
+ * sorted, with the segments spread over up to <code>threads</code> threads.  The sorted segments are
+ * then merged with a priority queue, tied hits coming in increasing global doc id like in the batched
+ * sort, and the merged stream is cut in batches whose fields are read from docValues and rendered on
+ * other threads, while the calling thread writes finished batches to the response in order.
+ * <p>
+ * Unlike the batched sort of {@link SortingResponseWriter}, which scans all hits once per
+ * 30,000 exported documents, this holds the keys of all hits in memory at once, see
+ * {@link #ramBytesPerHit(int)}.  {@link SortingResponseWriter} only uses it for exports that fit
+ * its memory budget.
+ */
+final class ExportPipeline {
+
+  /** No export uses more threads than there are processors */
+  static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Runs the sorting and rendering tasks of all exports.  It is bounded: once its threads are busy,
+   * tasks queue up, and once the queue is full the exporting thread runs the task itself.
+   */
+  static final ThreadPoolExecutor exportExecutor = new ExecutorUtil.MDCAwareThreadPoolExecutor(
+      MAX_THREADS,
+      MAX_THREADS,
+      10, TimeUnit.SECONDS, // terminate idle threads after 10 sec
+      new ArrayBlockingQueue<Runnable>(MAX_THREADS * 4),
+      new DefaultSolrThreadFactory("exportExecutor"),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+  static {
+    exportExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns an upper bound of the memory used per hit with the given number of sort fields: the doc
+   * id and its keys, plus the two <code>int</code> arrays of the radix sort while a segment is sorted.
+   */
+  static long ramBytesPerHit(int numSortFields) {
+    return 3 * Integer.BYTES + (long) numSortFields * Long.BYTES;
+  }
+
+  /** Number of documents rendered per task */
+  static final int BATCH_SIZE = 4096;
+
+  private final SortingResponseWriter responseWriter;
+  private final SolrIndexSearcher searcher;
+  private final List<LeafReaderContext> leaves;
+  private final String[] fields;
+  private final SortField[] sortFields;
+  private final FieldType[] sortTypes;
+  private final MultiDocValues.OrdinalMap[] ordinalMaps;
+  private final FixedBitSet[] sets;
+  private final int threads;
+
+  ExportPipeline(SortingResponseWriter responseWriter, SolrIndexSearcher searcher, String[] fields,
+                 SortField[] sortFields, FixedBitSet[] sets, int threads) throws IOException {
+    this.responseWriter = responseWriter;
+    this.searcher = searcher;
+    this.leaves = searcher.getTopReaderContext().leaves();
+    this.fields = fields;
+    this.sortFields = sortFields;
+    this.sets = sets;
+    this.threads = threads;
+    this.sortTypes = new FieldType[sortFields.length];
+    this.ordinalMaps = new MultiDocValues.OrdinalMap[sortFields.length];
+    for (int i = 0; i < sortFields.length; i++) {
+      sortTypes[i] = searcher.getSchema().getField(sortFields[i].getField()).getType();
+      if (sortTypes[i] instanceof StrField || sortTypes[i] instanceof BoolField) {
+        // string keys are global ords, so that they can be compared across segments
+        SortedDocValues vals = searcher.getLeafReader().getSortedDocValues(sortFields[i].getField());
+        if (vals instanceof MultiDocValues.MultiSortedDocValues) {
+          ordinalMaps[i] = ((MultiDocValues.MultiSortedDocValues) vals).mapping;
+        }
+      }
+    }
+  }
+
+  /** Reads the key of one sort field for the documents of one segment. */
+  private interface SortKeyReader {
+    long get(int docId);
+  }
+
+  private SortKeyReader getSortKeyReader(int field, LeafReaderContext leaf) throws IOException {
+    String name = sortFields[field].getField();
+    FieldType ft = sortTypes[field];
+    if (ft instanceof TrieIntField || ft instanceof TrieLongField || ft instanceof TrieDateField) {
+      NumericDocValues vals = DocValues.getNumeric(leaf.reader(), name);
+      return vals::get;
+    } else if (ft instanceof TrieFloatField) {
+      NumericDocValues vals = DocValues.getNumeric(leaf.reader(), name);
+      return docId -> NumericUtils.floatToSortableInt(Float.intBitsToFloat((int) vals.get(docId)));
+    } else if (ft instanceof TrieDoubleField) {
+      NumericDocValues vals = DocValues.getNumeric(leaf.reader(), name);
+      return docId -> NumericUtils.doubleToSortableLong(Double.longBitsToDouble(vals.get(docId)));
+    } else if (ft instanceof StrField || ft instanceof BoolField) {
+      SortedDocValues vals = DocValues.getSorted(leaf.reader(), name);
+      LongValues globalOrds = ordinalMaps[field] == null ? null : ordinalMaps[field].getGlobalOrds(leaf.ord);
+      return docId -> {
+        int ord = vals.getOrd(docId);
+        // missing values sort first, like SortingResponseWriter.StringValue
+        if (ord < 0 || globalOrds == null) {
+          return ord;
+        }
+        return globalOrds.get(ord);
+      };
+    } else {
+      throw new IOException("Sort fields must be one of the following types: int,float,long,double,string,date,boolean");
+    }
+  }
+
+  /** The hits of one segment in export order. */
+  private static final class SegmentRun {
+    final int ord;
+    final int docBase;
+    final int[] docs;
+    final long[][] keys;
+    int upto;
+
+    SegmentRun(int ord, int docBase, int[] docs, long[][] keys) {
+      this.ord = ord;
+      this.docBase = docBase;
+      this.docs = docs;
+      this.keys = keys;
+    }
+  }
+
+  private SegmentRun sortSegment(LeafReaderContext leaf) throws IOException {
+    FixedBitSet set = sets[leaf.ord];
+    int numHits = set.cardinality();
+    if (numHits == 0) {
+      return null;
+    }
+
+    SortKeyReader[] readers = new SortKeyReader[sortFields.length];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = getSortKeyReader(i, leaf);
+    }
+
+    int[] docs = new int[numHits];
+    long[][] keys = new long[sortFields.length][numHits];
+    DocIdSetIterator it = new BitSetIterator(set, numHits);
+    int upto = 0;
+    for (int docId = it.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = it.nextDoc()) {
+      docs[upto] = docId;
+      for (int i = 0; i < readers.length; i++) {
+        long key = readers[i].get(docId);
+        // ~ reverses the order without overflowing:
+        keys[i][upto] = sortFields[i].getReverse() ? ~key : key;
+      }
+      upto++;
+    }
+
+    int[] order = radixSort(keys, numHits);
+    // permute in place rather than into copies, so that the hits are never held twice
+    permute(order, docs, keys);
+    return new SegmentRun(leaf.ord, leaf.docBase, docs, keys);
+  }
+
+  /**
+   * Reorders <code>docs</code> and <code>keys</code> so that the hit at index <code>i</code> is the
+   * one that was at index <code>order[i]</code>, following the cycles of the permutation.
+   * <code>order</code> is used to mark visited entries and is left unusable.
+   */
+  static void permute(int[] order, int[] docs, long[][] keys) {
+    long[] savedKeys = new long[keys.length];
+    for (int start = 0; start < order.length; start++) {
+      if (order[start] < 0) {
+        continue;
+      }
+      int savedDoc = docs[start];
+      for (int field = 0; field < keys.length; field++) {
+        savedKeys[field] = keys[field][start];
+      }
+      int i = start;
+      while (true) {
+        int from = order[i];
+        order[i] = ~from;
+        if (from == start) {
+          docs[i] = savedDoc;
+          for (int field = 0; field < keys.length; field++) {
+            keys[field][i] = savedKeys[field];
+          }
+          break;
+        }
+        docs[i] = docs[from];
+        for (int field = 0; field < keys.length; field++) {
+          keys[field][i] = keys[field][from];
+        }
+        i = from;
+      }
+    }
+  }
+
+  /**
+   * Returns the permutation that sorts the hits by their keys, the first sort field being the most
+   * significant.  This is a stable LSD radix sort one byte at a time, starting from the last sort
+   * field, so hits with equal keys stay in doc id order.  Bytes that are the same for all hits are
+   * skipped, which makes the common case of small numbers and ords cheap.
+   */
+  static int[] radixSort(long[][] keys, int numHits) {
+    int[] order = new int[numHits];
+    for (int i = 0; i < numHits; i++) {
+      order[i] = i;
+    }
+    int[] tmp = new int[numHits];
+    int[][] histograms = new int[Long.BYTES][256];
+    for (int field = keys.length - 1; field >= 0; field--) {
+      long[] fieldKeys = keys[field];
+      for (int[] histogram : histograms) {
+        Arrays.fill(histogram, 0);
+      }
+      for (int i = 0; i < numHits; i++) {
+        long key = fieldKeys[i] ^ Long.MIN_VALUE; // compare as unsigned
+        for (int b = 0; b < Long.BYTES; b++) {
+          histograms[b][(int) (key >>> (b << 3)) & 0xFF]++;
+        }
+      }
+      for (int b = 0; b < Long.BYTES; b++) {
+        int[] histogram = histograms[b];
+        int shift = b << 3;
+        if (histogram[bucket(fieldKeys[0], shift)] == numHits) {
+          continue;
+        }
+        int sum = 0;
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+          int count = histogram[bucket];
+          histogram[bucket] = sum;
+          sum += count;
+        }
+        for (int i = 0; i < numHits; i++) {
+          int hit = order[i];
+          tmp[histogram[bucket(fieldKeys[hit], shift)]++] = hit;
+        }
+        int[] swap = order;
+        order = tmp;
+        tmp = swap;
+      }
+    }
+    return order;
+  }
+
+  private static int bucket(long key, int shift) {
+    return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+  }
+
+  private static final class SegmentQueue extends PriorityQueue<SegmentRun> {
+
+    SegmentQueue(int size) {
+      super(size);
+    }
+
+    @Override
+    protected boolean lessThan(SegmentRun a, SegmentRun b) {
+      long[][] aKeys = a.keys;
+      long[][] bKeys = b.keys;
+      for (int i = 0; i < aKeys.length; i++) {
+        int cmp = Long.compare(aKeys[i][a.upto], bKeys[i][b.upto]);
+        if (cmp != 0) {
+          return cmp < 0;
+        }
+      }
+      return a.docBase + a.docs[a.upto] < b.docBase + b.docs[b.upto];
+    }
+  }
+
+  /** Sorts the segments on up to <code>threads</code> threads, the calling thread taking one share. */
+  private List<SegmentRun> sortSegments() throws IOException {
+    List<LeafReaderContext> bySize = new ArrayList<>();
+    for (LeafReaderContext leaf : leaves) {
+      if (sets[leaf.ord].cardinality() > 0) {
+        bySize.add(leaf);
+      }
+    }
+    int nThreads = Math.max(1, Math.min(threads, bySize.size()));
+    // balance the partitions by number of hits, handing out the biggest segments first
+    Collections.sort(bySize, (a, b) -> Integer.compare(sets[b.ord].cardinality(), sets[a.ord].cardinality()));
+    List<List<LeafReaderContext>> partitions = new ArrayList<>(nThreads);
+    long[] partitionHits = new long[nThreads];
+    for (int i = 0; i < nThreads; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (LeafReaderContext leaf : bySize) {
+      int smallest = 0;
+      for (int i = 1; i < nThreads; i++) {
+        if (partitionHits[i] < partitionHits[smallest]) smallest = i;
+      }
+      partitions.get(smallest).add(leaf);
+      partitionHits[smallest] += sets[leaf.ord].cardinality();
+    }
+
+    SegmentRun[] runs = new SegmentRun[leaves.size()];
+    List<Future<Void>> futures = new ArrayList<>(nThreads - 1);
+    try {
+      for (int i = 1; i < nThreads; i++) {
+        final List<LeafReaderContext> partition = partitions.get(i);
+        FutureTask<Void> task = new FutureTask<>(() -> {
+          for (LeafReaderContext leaf : partition) {
+            runs[leaf.ord] = sortSegment(leaf);
+          }
+          return null;
+        });
+        futures.add(task);
+        exportExecutor.execute(task);
+      }
+
+      for (LeafReaderContext leaf : partitions.get(0)) {
+        runs[leaf.ord] = sortSegment(leaf);
+      }
+
+      for (Future<Void> future : futures) {
+        getResult(future);
+      }
+    } finally {
+      for (Future<Void> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    List<SegmentRun> result = new ArrayList<>();
+    for (SegmentRun run : runs) {
+      if (run != null) {
+        result.add(run);
+      }
+    }
+    return result;
+  }
+
+  /** Renders a batch of documents, each preceded by a comma unless it is the very first one. */
+  private CharArrayWriter render(int[] ords, int[] docs, int numDocs, boolean first) throws IOException {
+    // field writers keep per-document state, so each batch gets its own:
+    SortingResponseWriter.FieldWriter[] fieldWriters = responseWriter.getFieldWriters(fields, searcher);
+    CharArrayWriter out = new CharArrayWriter(numDocs * 16 * fieldWriters.length);
+    for (int i = 0; i < numDocs; i++) {
+      if (i > 0 || first == false) {
+        out.write(',');
+      }
+      out.write('{');
+      LeafReader reader = leaves.get(ords[i]).reader();
+      int fieldIndex = 0;
+      for (SortingResponseWriter.FieldWriter fieldWriter : fieldWriters) {
+        if (fieldWriter.write(docs[i], reader, out, fieldIndex)) {
+          ++fieldIndex;
+        }
+      }
+      out.write('}');
+    }
+    return out;
+  }
+
+  /** Writes all the documents, comma separated, in export order. */
+  void write(Writer writer) throws IOException {
+    // only the queue references the runs, so that each one can be freed as soon as it is consumed
+    SegmentQueue queue = new SegmentQueue(Math.max(1, leaves.size()));
+    for (SegmentRun run : sortSegments()) {
+      queue.add(run);
+    }
+
+    // batches being rendered, in export order
+    Deque<Future<CharArrayWriter>> pending = new ArrayDeque<>();
+    try {
+      boolean first = true;
+      int[] ords = new int[BATCH_SIZE];
+      int[] docs = new int[BATCH_SIZE];
+      int numDocs = 0;
+      while (queue.size() > 0) {
+        SegmentRun top = queue.top();
+        ords[numDocs] = top.ord;
+        docs[numDocs] = top.docs[top.upto];
+        if (++top.upto == top.docs.length) {
+          queue.pop();
+        } else {
+          queue.updateTop();
+        }
+
+        if (++numDocs == BATCH_SIZE || queue.size() == 0) {
+          if (threads <= 1) {
+            render(ords, docs, numDocs, first).writeTo(writer);
+          } else {
+            final int[] batchOrds = ords;
+            final int[] batchDocs = docs;
+            final int batchSize = numDocs;
+            final boolean batchFirst = first;
+            FutureTask<CharArrayWriter> task = new FutureTask<>(() -> render(batchOrds, batchDocs, batchSize, batchFirst));
+            pending.add(task);
+            exportExecutor.execute(task);
+            ords = new int[BATCH_SIZE];
+            docs = new int[BATCH_SIZE];
+            // the writes overlap with the rendering of the next batches:
+            while (pending.size() >= threads) {
+              getResult(pending.poll()).writeTo(writer);
+            }
+          }
+          numDocs = 0;
+          first = false;
+        }
+      }
+      while (pending.isEmpty() == false) {
+        getResult(pending.poll()).writeTo(writer);
+      }
+    } finally {
+      for (Future<CharArrayWriter> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Interrupted while exporting", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error while exporting", cause);
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.schema.TrieField;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Writes documents in the javabin format straight from their stored fields, without
+ * creating a {@link SolrDocument} or {@link org.apache.lucene.document.Document} per
+ * document.
+ * <p>
+ * javabin documents start with their number of fields, and the values of a multi-valued
+ * field are written together as an array. So the values of every field are first encoded
+ * into a buffer of that field, which is reused across documents, and buffers are then
+ * copied to the output in the order in which fields were first seen. Values of string,
+ * text and trie fields are encoded directly from the bytes or numbers that the stored
+ * fields reader provides, other values go through the {@link JavaBinCodec.ObjectResolver}
+ * like they would with {@link JavaBinCodec#writeSolrDocument(SolrDocument)}. The output
+ * is the same as if the document had been written with
+ * {@link JavaBinCodec#writeSolrDocument(SolrDocument)}.
+ * <p>
+ * Instances are not thread-safe, and may only be used for a single response.
+ */
+final class JavaBinDocumentWriter extends StoredFieldVisitor {
+
+  private final SolrIndexSearcher searcher;
+  private final IndexSchema schema;
+  private final JavaBinCodec codec;
+  private final JavaBinCodec.WritableDocFields writableDocFields;
+  /** Encodes values into the buffers of fields. */
+  private final JavaBinCodec valueCodec;
+  private final Map<String, FieldBuffer> buffers = new HashMap<>();
+  /** Fields of the current document, in the order in which they were first seen. */
+  private final List<FieldBuffer> docFields = new ArrayList<>();
+  /** Holds the non-stored docValues fields of the current document. */
+  private final SolrDocument docValues = new SolrDocument();
+  private int docCount;
+
+  JavaBinDocumentWriter(SolrIndexSearcher searcher, JavaBinCodec codec,
+                        JavaBinCodec.ObjectResolver resolver, JavaBinCodec.WritableDocFields writableDocFields) {
+    this.searcher = searcher;
+    this.schema = searcher.getSchema(); // make sure to use the schema from the searcher and not the request (cross-core)
+    this.codec = codec;
+    this.writableDocFields = writableDocFields;
+    this.valueCodec = new JavaBinCodec(resolver);
+  }
+
+  /**
+   * Write the document with the given id, decorated with the given non-stored docValues
+   * fields if not null.
+   */
+  void write(int docId, Set<String> dvFieldsToReturn) throws IOException {
+    docCount++;
+    docFields.clear();
+    searcher.doc(docId, this);
+
+    int size = docFields.size();
+    if (dvFieldsToReturn != null) {
+      docValues.clear();
+      searcher.decorateDocValueFields(docValues, docId, dvFieldsToReturn);
+      for (String name : docValues.getFieldNames()) {
+        if (writableDocFields.isWritable(name)) {
+          size++;
+        }
+      }
+    }
+
+    codec.writeTag(JavaBinCodec.SOLRDOC);
+    codec.writeTag(JavaBinCodec.ORDERED_MAP, size);
+    final FastOutputStream out = codec.getOutputStream();
+    for (FieldBuffer field : docFields) {
+      codec.writeExternString(field.name);
+      if (field.multiValued || field.numValues > 1) {
+        codec.writeTag(JavaBinCodec.ARR, field.numValues);
+      }
+      field.out.flushBuffer();
+      field.bytes.writeTo(out);
+    }
+    if (dvFieldsToReturn != null) {
+      for (Map.Entry<String, Object> entry : docValues) {
+        if (writableDocFields.isWritable(entry.getKey())) {
+          codec.writeExternString(entry.getKey());
+          codec.writeVal(entry.getValue());
+        }
+      }
+    }
+  }
+
+  @Override
+  public Status needsField(FieldInfo fieldInfo) throws IOException {
+    return writableDocFields.isWritable(fieldInfo.name) ? Status.YES : Status.NO;
+  }
+
+  @Override
+  public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+    final FieldBuffer field = startValue(fieldInfo);
+    if (field.kind == FieldBuffer.STRING) {
+      valueCodec.writeTag(JavaBinCodec.STR, value.length);
+      field.out.write(value);
+    } else {
+      // same as DocumentStoredFieldVisitor
+      final FieldType ft = new FieldType(TextField.TYPE_STORED);
+      ft.setStoreTermVectors(fieldInfo.hasVectors());
+      ft.setOmitNorms(fieldInfo.omitsNorms());
+      ft.setIndexOptions(fieldInfo.getIndexOptions());
+      valueCodec.writeVal(new StoredField(fieldInfo.name, new String(value, StandardCharsets.UTF_8), ft));
+    }
+  }
+
+  @Override
+  public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+    startValue(fieldInfo);
+    valueCodec.writeVal(new StoredField(fieldInfo.name, value));
+  }
+
+  @Override
+  public void intField(FieldInfo fieldInfo, int value) throws IOException {
+    final FieldBuffer field = startValue(fieldInfo);
+    if (field.kind == FieldBuffer.NUMBER) {
+      valueCodec.writeInt(value);
+    } else {
+      writeNumber(fieldInfo, value);
+    }
+  }
+
+  @Override
+  public void longField(FieldInfo fieldInfo, long value) throws IOException {
+    final FieldBuffer field = startValue(fieldInfo);
+    if (field.kind == FieldBuffer.NUMBER) {
+      valueCodec.writeLong(value);
+    } else if (field.kind == FieldBuffer.DATE) {
+      valueCodec.writeTag(JavaBinCodec.DATE);
+      field.out.writeLong(value);
+    } else {
+      writeNumber(fieldInfo, value);
+    }
+  }
+
+  @Override
+  public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+    final FieldBuffer field = startValue(fieldInfo);
+    if (field.kind == FieldBuffer.NUMBER) {
+      valueCodec.writeFloat(value);
+    } else {
+      writeNumber(fieldInfo, value);
+    }
+  }
+
+  @Override
+  public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+    final FieldBuffer field = startValue(fieldInfo);
+    if (field.kind == FieldBuffer.NUMBER) {
+      valueCodec.writeTag(JavaBinCodec.DOUBLE);
+      field.out.writeDouble(value);
+    } else {
+      writeNumber(fieldInfo, value);
+    }
+  }
+
+  private void writeNumber(FieldInfo fieldInfo, Number value) throws IOException {
+    final StoredField f;
+    if (value instanceof Integer) {
+      f = new StoredField(fieldInfo.name, value.intValue());
+    } else if (value instanceof Long) {
+      f = new StoredField(fieldInfo.name, value.longValue());
+    } else if (value instanceof Float) {
+      f = new StoredField(fieldInfo.name, value.floatValue());
+    } else {
+      f = new StoredField(fieldInfo.name, value.doubleValue());
+    }
+    valueCodec.writeVal(f);
+  }
+
+  /** Get the buffer of the given field, ready to encode a new value. */
+  private FieldBuffer startValue(FieldInfo fieldInfo) {
+    FieldBuffer field = buffers.get(fieldInfo.name);
+    if (field == null) {
+      field = new FieldBuffer(fieldInfo.name, schema.getFieldOrNull(fieldInfo.name));
+      buffers.put(fieldInfo.name, field);
+    }
+    if (field.docCount != docCount) {
+      field.docCount = docCount;
+      field.numValues = 0;
+      field.bytes.reset();
+      docFields.add(field);
+    }
+    field.numValues++;
+    valueCodec.init(field.out);
+    return field;
+  }
+
+  /** Encoded values of a field for the current document. */
+  private static final class FieldBuffer {
+    /** Values that need to go through the resolver. */
+    static final int OTHER = 0;
+    /** String values that are written as-is. */
+    static final int STRING = 1;
+    /** Numeric values that are written as-is. */
+    static final int NUMBER = 2;
+    /** Numeric values that are written as dates. */
+    static final int DATE = 3;
+
+    final String name;
+    final boolean multiValued;
+    final int kind;
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    final FastOutputStream out = new FastOutputStream(bytes, new byte[256], 0);
+    int docCount = -1;
+    int numValues;
+
+    FieldBuffer(String name, SchemaField schemaField) {
+      this.name = name;
+      this.multiValued = schemaField != null && schemaField.multiValued();
+      this.kind = kind(schemaField);
+    }
+
+    /** Whether values can be encoded without converting them to an object first, see DocsStreamer#getValue. */
+    private static int kind(SchemaField schemaField) {
+      if (schemaField == null) {
+        return OTHER;
+      }
+      final org.apache.solr.schema.FieldType type = schemaField.getType();
+      if (DocsStreamer.KNOWN_TYPES.contains(type.getClass()) == false) {
+        return OTHER;
+      }
+      if (type instanceof StrField || type instanceof org.apache.solr.schema.TextField) {
+        return STRING;
+      }
+      if (type instanceof TrieField) {
+        return ((TrieField) type).getType() == TrieField.TrieTypes.DATE ? DATE : NUMBER;
+      }
+      return OTHER;
+    }
+  }
+
+}
@@ -62,12 +62,39 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * Writes all the documents matching an export query, sorted, with their docValues fields.
+ * <p>
+ * By default documents are sorted in batches of 30,000, which uses little memory but scans all
+ * hits once per batch.  When the <code>threads</code> init arg (default: 0), or the
+ * <code>export.threads</code> request parameter, is greater than 0, they are instead sorted and
+ * written by an {@link ExportPipeline}, which sorts the segments in parallel and renders documents
+ * on other threads while they are being written, using at most as many threads as there are
+ * processors.  Since the pipeline holds the sort keys of all
+ * hits in memory, exports whose keys would take more than <code>maxPipelineRAMMB</code> (init arg,
+ * default: 256) still use the batched sort.
+ */
 public class SortingResponseWriter implements QueryResponseWriter {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /** Request parameter overriding the number of threads used to export the documents */
+  public static final String EXPORT_THREADS = "export.threads";
+
+  private int threads = 0;
+  private long maxPipelineRAMBytes = 256L * 1024 * 1024;
+
   public void init(NamedList args) {
-    /* NOOP */
+    if (args != null) {
+      Object threads = args.get("threads");
+      if (threads != null) {
+        this.threads = Integer.parseInt(threads.toString());
+      }
+      Object maxPipelineRAMMB = args.get("maxPipelineRAMMB");
+      if (maxPipelineRAMMB != null) {
+        this.maxPipelineRAMBytes = Long.parseLong(maxPipelineRAMMB.toString()) * 1024 * 1024;
+      }
+    }
   }
 
   public String getContentType(SolrQueryRequest req, SolrQueryResponse res) {
@@ -161,6 +188,18 @@ public class SortingResponseWriter implements QueryResponseWriter {
     //Write the data.
     List<LeafReaderContext> leaves = req.getSearcher().getTopReaderContext().leaves();
     SortDoc sortDoc = getSortDoc(req.getSearcher(), sort.getSort());
+    int threads = Math.max(0, Math.min(params.getInt(EXPORT_THREADS, this.threads), ExportPipeline.MAX_THREADS));
+    if (threads > 0 && (long) totalHits * ExportPipeline.ramBytesPerHit(sort.getSort().length) <= maxPipelineRAMBytes) {
+      try {
+        new ExportPipeline(this, req.getSearcher(), fields, sort.getSort(), sets, threads).write(writer);
+      } catch (Throwable e) {
+        throw handleWriteException(e);
+      }
+      writer.write("]}}");
+      writer.flush();
+      return;
+    }
+
     int count = 0;
     int queueSize = 30000;
     SortQueue queue = new SortQueue(queueSize, sortDoc);
@@ -208,21 +247,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
           s.reset();
         }
       } catch(Throwable e) {
-        Throwable ex = e;
-        e.printStackTrace();
-        while(ex != null) {
-          String m = ex.getMessage();
-          if(m != null && m.contains("Broken pipe")) {
-            throw new IgnoreException();
-          }
-          ex = ex.getCause();
-        }
-
-        if(e instanceof IOException) {
-          throw ((IOException)e);
-        } else {
-          throw new IOException(e);
-        }
+        throw handleWriteException(e);
       }
     }
 
@@ -231,6 +256,24 @@ public class SortingResponseWriter implements QueryResponseWriter {
     writer.flush();
   }
 
+  /** Returns the exception to rethrow: the caller logs errors, and early client disconnects are ignored. */
+  private IOException handleWriteException(Throwable e) {
+    Throwable ex = e;
+    while(ex != null) {
+      String m = ex.getMessage();
+      if(m != null && m.contains("Broken pipe")) {
+        return new IgnoreException();
+      }
+      ex = ex.getCause();
+    }
+
+    if(e instanceof IOException) {
+      return ((IOException)e);
+    } else {
+      return new IOException(e);
+    }
+  }
+
   public static class IgnoreException extends IOException {
     public void printStackTrace(PrintWriter pw) {
       pw.print("Early Client Disconnect");
@@ -471,6 +514,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
 
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.ord = context.ord;
+      this.docBase = context.docBase;
       for(SortValue value : sortValues) {
         value.setNextReader(context);
       }
@@ -490,6 +534,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
     public void setValues(SortDoc sortDoc) throws IOException {
       this.docId = sortDoc.docId;
       this.ord = sortDoc.ord;
+      this.docBase = sortDoc.docBase;
       SortValue[] vals = sortDoc.sortValues;
       for(int i=0; i<vals.length; i++) {
         sortValues[i].setCurrentValue(vals[i]);
@@ -524,7 +569,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
           return false;
         }
       }
-      return docId+docBase < sd.docId+sd.docBase;
+      return docId+docBase > sd.docId+sd.docBase;
     }
 
     public String toString() {
@@ -538,6 +583,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
 
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.ord = context.ord;
+      this.docBase = context.docBase;
       value1.setNextReader(context);
     }
 
@@ -554,6 +600,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
     public void setValues(SortDoc sortDoc) throws IOException {
       this.docId = sortDoc.docId;
       this.ord = sortDoc.ord;
+      this.docBase = sortDoc.docBase;
       value1.setCurrentValue(((SingleValueSortDoc)sortDoc).value1);
     }
 
@@ -594,6 +641,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
 
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.ord = context.ord;
+      this.docBase = context.docBase;
       value1.setNextReader(context);
       value2.setNextReader(context);
     }
@@ -613,6 +661,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
     public void setValues(SortDoc sortDoc) throws IOException {
       this.docId = sortDoc.docId;
       this.ord = sortDoc.ord;
+      this.docBase = sortDoc.docBase;
       value1.setCurrentValue(((DoubleValueSortDoc)sortDoc).value1);
       value2.setCurrentValue(((DoubleValueSortDoc)sortDoc).value2);
     }
@@ -662,6 +711,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
 
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.ord = context.ord;
+      this.docBase = context.docBase;
       value1.setNextReader(context);
       value2.setNextReader(context);
       value3.setNextReader(context);
@@ -684,6 +734,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
     public void setValues(SortDoc sortDoc) throws IOException {
       this.docId = sortDoc.docId;
       this.ord = sortDoc.ord;
+      this.docBase = sortDoc.docBase;
       value1.setCurrentValue(((TripleValueSortDoc)sortDoc).value1);
       value2.setCurrentValue(((TripleValueSortDoc)sortDoc).value2);
       value3.setCurrentValue(((TripleValueSortDoc)sortDoc).value3);
@@ -748,6 +799,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
 
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.ord = context.ord;
+      this.docBase = context.docBase;
       value1.setNextReader(context);
       value2.setNextReader(context);
       value3.setNextReader(context);
@@ -773,6 +825,7 @@ public class SortingResponseWriter implements QueryResponseWriter {
     public void setValues(SortDoc sortDoc) throws IOException {
       this.docId = sortDoc.docId;
       this.ord = sortDoc.ord;
+      this.docBase = sortDoc.docBase;
       value1.setCurrentValue(((QuadValueSortDoc)sortDoc).value1);
       value2.setCurrentValue(((QuadValueSortDoc)sortDoc).value2);
       value3.setCurrentValue(((QuadValueSortDoc)sortDoc).value3);
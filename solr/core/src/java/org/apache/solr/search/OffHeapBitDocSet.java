@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A read-only bit set that reads the words of an {@link OffHeapDocSetCache} entry directly from
+ * off-heap memory. The view holds a reference to the entry until it is {@link #close() closed},
+ * which must happen once the view is no longer used, typically at the end of the request.
+ * Operations that produce a new set return on-heap {@link BitDocSet}s.
+ */
+final class OffHeapBitDocSet extends DocSetBase {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OffHeapBitDocSet.class);
+
+  private final OffHeapDocSetCache.BitsEntry entry;
+  private final LongBuffer words;
+  private final int numWords;
+  private final int numBits;
+  private final int size;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  OffHeapBitDocSet(OffHeapDocSetCache.BitsEntry entry) {
+    this.entry = entry;
+    this.words = entry.words;
+    this.numBits = entry.numBits;
+    this.numWords = FixedBitSet.bits2words(numBits);
+    this.size = entry.size;
+  }
+
+  private void ensureOpen() {
+    if (closed.get()) {
+      throw new AlreadyClosedException("this DocSet has been released to the cache that it comes from");
+    }
+  }
+
+  /** Returns the index of the first set bit at or after <code>index</code>, or {@link DocIdSetIterator#NO_MORE_DOCS}. */
+  private int nextSetBit(int index) {
+    int i = index >> 6;
+    if (i >= numWords) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    long word = words.get(i) >> index;  // skip all the bits to the right of index
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+    while (++i < numWords) {
+      word = words.get(i);
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  /** Returns the words of <code>set</code> if it is bit set based, or null. */
+  private static LongBuffer wordsOf(DocSet set) {
+    if (set instanceof BitDocSet) {
+      final FixedBitSet bits = ((BitDocSet) set).getBits();
+      return LongBuffer.wrap(bits.getBits(), 0, FixedBitSet.bits2words(bits.length()));
+    } else if (set instanceof OffHeapBitDocSet) {
+      final OffHeapBitDocSet other = (OffHeapBitDocSet) set;
+      other.ensureOpen();
+      return other.words;
+    }
+    return null;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    ensureOpen();
+    return (words.get(doc >> 6) & (1L << doc)) != 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public DocIterator iterator() {
+    ensureOpen();
+    return new DocIterator() {
+      int pos = nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int nextDoc() {
+        final int doc = pos;
+        pos = doc + 1 < numBits ? nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS;
+        return doc;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  /** Returns an on-heap copy of the bits of this set. */
+  @Override
+  protected FixedBitSet getBits() {
+    ensureOpen();
+    final long[] copy = new long[numWords];
+    words.duplicate().get(copy);
+    return new FixedBitSet(copy, numBits);
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    final LongBuffer otherWords = wordsOf(other);
+    if (otherWords == null) {
+      // smaller sets are more efficient at intersecting
+      return other.intersection(this);
+    }
+    ensureOpen();
+    final FixedBitSet bits = new FixedBitSet(numBits);
+    final long[] result = bits.getBits();
+    final int n = Math.min(numWords, otherWords.limit());
+    for (int i = 0; i < n; ++i) {
+      result[i] = words.get(i) & otherWords.get(i);
+    }
+    return new BitDocSet(bits);
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    final LongBuffer otherWords = wordsOf(other);
+    if (otherWords == null) {
+      return other.intersectionSize(this);
+    }
+    ensureOpen();
+    final int n = Math.min(numWords, otherWords.limit());
+    int count = 0;
+    for (int i = 0; i < n; ++i) {
+      count += Long.bitCount(words.get(i) & otherWords.get(i));
+    }
+    return count;
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    final LongBuffer otherWords = wordsOf(other);
+    if (otherWords == null) {
+      return other.intersects(this);
+    }
+    ensureOpen();
+    final int n = Math.min(numWords, otherWords.limit());
+    for (int i = 0; i < n; ++i) {
+      if ((words.get(i) & otherWords.get(i)) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    FixedBitSet newbits = getBits();
+    if (other instanceof BitDocSet) {
+      FixedBitSet otherBits = ((BitDocSet) other).getBits();
+      newbits = FixedBitSet.ensureCapacity(newbits, otherBits.length());
+      newbits.or(otherBits);
+    } else {
+      DocIterator iter = other.iterator();
+      while (iter.hasNext()) {
+        int doc = iter.nextDoc();
+        newbits = FixedBitSet.ensureCapacity(newbits, doc);
+        newbits.set(doc);
+      }
+    }
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    FixedBitSet newbits = getBits();
+    newbits.andNot(toBitSet(other));
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public void addAllTo(DocSet target) {
+    if (target instanceof BitDocSet) {
+      ensureOpen();
+      final long[] targetWords = ((BitDocSet) target).getBits().getBits();
+      final int n = Math.min(numWords, targetWords.length);
+      for (int i = 0; i < n; ++i) {
+        targetWords[i] |= words.get(i);
+      }
+    } else {
+      super.addAllTo(target);
+    }
+  }
+
+  @Override
+  public Filter getTopFilter() {
+    return new Filter() {
+      final OffHeapDocSetCache.BitsEntry cached = entry;
+
+      @Override
+      public DocIdSet getDocIdSet(final LeafReaderContext context, final Bits acceptDocs) {
+        ensureOpen();
+        LeafReader reader = context.reader();
+        // all Solr DocSets that are used as filters only include live docs
+        final Bits acceptDocs2 = acceptDocs == null ? null : (reader.getLiveDocs() == acceptDocs ? null : acceptDocs);
+
+        final int base = context.docBase;
+        final int max = base + reader.maxDoc();   // one past the max doc in this segment.
+
+        return BitsFilteredDocIdSet.wrap(new DocIdSet() {
+          @Override
+          public DocIdSetIterator iterator() {
+            return new DocIdSetIterator() {
+              int adjustedDoc = -1;
+
+              @Override
+              public int docID() {
+                return adjustedDoc;
+              }
+
+              @Override
+              public int nextDoc() {
+                return advance(adjustedDoc + 1);
+              }
+
+              @Override
+              public int advance(int target) {
+                if (target == NO_MORE_DOCS) return adjustedDoc = NO_MORE_DOCS;
+                int adjusted = target + base;
+                if (adjusted >= max) {
+                  return adjustedDoc = NO_MORE_DOCS;
+                } else {
+                  final int pos = nextSetBit(adjusted);
+                  return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+                }
+              }
+
+              @Override
+              public long cost() {
+                // pro-rated for the segment
+                return (long) (size * ((FixedBitSet.bits2words(max - base) << 6) / (float) numBits));
+              }
+            };
+          }
+
+          @Override
+          public long ramBytesUsed() {
+            return 0L;
+          }
+
+          @Override
+          public Bits bits() {
+            return new Bits() {
+              @Override
+              public boolean get(int index) {
+                final int doc = index + base;
+                return (words.get(doc >> 6) & (1L << doc)) != 0;
+              }
+
+              @Override
+              public int length() {
+                return max - base;
+              }
+            };
+          }
+
+        }, context.isTopLevel ? acceptDocs : acceptDocs2);
+      }
+
+      @Override
+      public String toString(String field) {
+        return "OffHeapBitSetDocTopFilter";
+      }
+
+      @Override
+      public boolean equals(Object other) {
+        return sameClassAs(other) &&
+               cached == getClass().cast(other).cached;
+      }
+
+      @Override
+      public int hashCode() {
+        return classHash() * 31 + System.identityHashCode(cached);
+      }
+    };
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  /** Releases the reference that this view holds on the off-heap memory of its entry. */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      entry.decRef();
+    }
+  }
+}
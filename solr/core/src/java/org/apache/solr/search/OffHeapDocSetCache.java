@@ -0,0 +1,601 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.common.util.SuppressForbidden;
+import org.apache.solr.request.SolrRequestInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SolrCache} for {@link DocSet}s, typically used as the <code>filterCache</code>, that keeps
+ * cached sets outside of the Java heap.
+ * <p>
+ * Bit sets are copied to direct buffers as-is while sorted sets of ids are delta-encoded with
+ * variable-length integers, which usually takes between 1 and 2 bytes per document instead of 4.
+ * <p>
+ * Within a request, hits on bit sets return a read-only view that reads the direct buffer in place,
+ * so that large sets are never copied back to the heap. Each view holds a reference to its entry
+ * that is released when the request ends. Sorted sets, which are small, as well as sets that are
+ * looked up outside of a request are decoded to an on-heap {@link SortedIntDocSet} or
+ * {@link BitDocSet} instead.
+ * <p>
+ * Entries are spread over several stripes that each have their own lock and their own LRU
+ * ordering, so that concurrent lookups on different keys rarely contend. The <code>size</code> and
+ * <code>maxRamMB</code> limits are split evenly across stripes, <code>maxRamMB</code> being compared
+ * to the number of off-heap bytes used by entries.
+ * <p>
+ * Configuration example:
+ * <pre class="prettyprint">
+ * &lt;filterCache class="solr.OffHeapDocSetCache" size="512" maxRamMB="4096" stripes="16" autowarmCount="128"/&gt;
+ * </pre>
+ * <p>
+ * The memory of an entry is freed as soon as it has been evicted and is no longer used by any
+ * request. If the JVM does not allow freeing direct buffers explicitly, memory is only released
+ * once the buffer is garbage collected, in which case <code>-XX:MaxDirectMemorySize</code> should
+ * leave some room above <code>maxRamMB</code>.
+ *
+ * @see SolrCache
+ */
+public class OffHeapDocSetCache<K> extends SolrCacheBase implements SolrCache<K,DocSet> {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Rough per-entry on-heap overhead: buffer object, entry, key reference and linked hash table entry. */
+  static final long HEAP_BYTES_PER_ENTRY = 128;
+
+  /** Frees the memory of a direct buffer, or null if the JVM does not allow it. */
+  private static final Consumer<ByteBuffer> BUFFER_FREER =
+      AccessController.doPrivileged((PrivilegedAction<Consumer<ByteBuffer>>) OffHeapDocSetCache::bufferFreer);
+
+  @SuppressForbidden(reason = "Needs access to the cleaner of direct buffers to free them, like MMapDirectory's unmap hack")
+  private static Consumer<ByteBuffer> bufferFreer() {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      final Class<?> directBufferClass = Class.forName("java.nio.DirectByteBuffer");
+      final Method m = directBufferClass.getMethod("cleaner");
+      m.setAccessible(true);
+      final MethodHandle cleanerMethod = lookup.unreflect(m);
+      final Class<?> cleanerClass = cleanerMethod.type().returnType();
+      final MethodHandle cleanMethod = Runnable.class.isAssignableFrom(cleanerClass)
+          ? lookup.unreflect(Runnable.class.getMethod("run"))
+          : lookup.unreflect(cleanerClass.getMethod("clean"));
+      return buffer -> {
+        try {
+          final Object cleaner = cleanerMethod.invoke(buffer);
+          if (cleaner != null) {
+            cleanMethod.invoke(cleaner);
+          }
+        } catch (Throwable t) {
+          // the buffer will be released once it is garbage collected
+          log.warn("Unable to free an off-heap buffer", t);
+        }
+      };
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("Off-heap memory will only be freed on garbage collection, direct buffers cannot be freed explicitly: " + e);
+      return null;
+    }
+  }
+
+  private static void free(ByteBuffer buffer) {
+    if (BUFFER_FREER != null && buffer.isDirect()) {
+      BUFFER_FREER.accept(buffer);
+    }
+  }
+
+  /* An instance of this class will be shared across multiple instances
+   * of an OffHeapDocSetCache at the same time.  Make sure everything is thread safe.
+   */
+  private static class CumulativeStats {
+    AtomicLong lookups = new AtomicLong();
+    AtomicLong hits = new AtomicLong();
+    AtomicLong inserts = new AtomicLong();
+    AtomicLong evictions = new AtomicLong();
+  }
+
+  private CumulativeStats stats;
+
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong inserts = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  // used to order entries across stripes when autowarming
+  private final AtomicLong accessClock = new AtomicLong();
+
+  private long warmupTime = 0;
+
+  private Stripe<K>[] stripes;
+  private long maxRamBytes;
+  private String description = "Off-Heap DocSet Cache";
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object init(Map args, Object persistence, CacheRegenerator regenerator) {
+    super.init(args, regenerator);
+    String str = (String) args.get("size");
+    final int limit = str == null ? 1024 : Integer.parseInt(str);
+    str = (String) args.get("maxRamMB");
+    maxRamBytes = str == null ? Long.MAX_VALUE : (long) (Double.parseDouble(str) * 1024L * 1024L);
+    if (limit <= 0 || maxRamBytes <= 0) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Cache: " + name()
+          + " must have size > 0 and maxRamMB > 0");
+    }
+    str = (String) args.get("stripes");
+    // no point in having more stripes than entries
+    final int numStripes = Math.max(1, Math.min(limit, str == null ? 16 : Integer.parseInt(str)));
+
+    final int stripeLimit = (limit + numStripes - 1) / numStripes;
+    final long stripeMaxRamBytes = maxRamBytes == Long.MAX_VALUE ? Long.MAX_VALUE : maxRamBytes / numStripes;
+    stripes = new Stripe[numStripes];
+    for (int i = 0; i < numStripes; ++i) {
+      stripes[i] = new Stripe<>(stripeLimit, stripeMaxRamBytes);
+    }
+    description = generateDescription(limit, numStripes);
+
+    if (persistence == null) {
+      // must be the first time a cache of this type is being created
+      persistence = new CumulativeStats();
+    }
+    stats = (CumulativeStats) persistence;
+    return persistence;
+  }
+
+  private String generateDescription(int limit, int numStripes) {
+    String description = "Off-Heap DocSet Cache(maxSize=" + limit + ", stripes=" + numStripes;
+    if (isAutowarmingOn()) {
+      description += ", " + getAutowarmDescription();
+    }
+    if (maxRamBytes != Long.MAX_VALUE) {
+      description += ", maxRamMB=" + (maxRamBytes / 1024L / 1024L);
+    }
+    description += ')';
+    return description;
+  }
+
+  private Stripe<K> stripe(Object key) {
+    final int h = key == null ? 0 : key.hashCode();
+    return stripes[Math.floorMod(h ^ (h >>> 16), stripes.length)];
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Stripe<K> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.map.size();
+      }
+    }
+    return size;
+  }
+
+  /** Return the number of off-heap bytes used by entries of this cache. */
+  public long offHeapBytesUsed() {
+    long bytes = 0;
+    for (Stripe<K> stripe : stripes) {
+      synchronized (stripe) {
+        bytes += stripe.bytesUsed;
+      }
+    }
+    return bytes;
+  }
+
+  @Override
+  public DocSet put(K key, DocSet value) {
+    if (getState() == State.LIVE) {
+      stats.inserts.incrementAndGet();
+    }
+    inserts.incrementAndGet();
+
+    // encode outside of the lock
+    final Entry entry = Entry.encode(value);
+    final Stripe<K> stripe = stripe(key);
+    final Entry old;
+    synchronized (stripe) {
+      entry.lastAccess = accessClock.incrementAndGet();
+      old = stripe.map.put(key, entry);
+      stripe.bytesUsed += entry.bytesUsed();
+      if (old != null) {
+        stripe.bytesUsed -= old.bytesUsed();
+      }
+      final int evicted = stripe.evict();
+      if (evicted > 0) {
+        evictions.addAndGet(evicted);
+        stats.evictions.addAndGet(evicted);
+      }
+    }
+    if (old == null) {
+      return null;
+    }
+    // the reference of the cache is passed on to the caller
+    return use(old);
+  }
+
+  @Override
+  public DocSet get(K key) {
+    final Stripe<K> stripe = stripe(key);
+    final Entry entry;
+    synchronized (stripe) {
+      entry = stripe.map.get(key);
+      if (entry != null) {
+        entry.lastAccess = accessClock.incrementAndGet();
+        // entries are only released under the lock, so this entry cannot have been freed yet
+        entry.incRef();
+      }
+    }
+    if (getState() == State.LIVE) {
+      // only increment lookups and hits if we are live.
+      lookups.incrementAndGet();
+      stats.lookups.incrementAndGet();
+      if (entry != null) {
+        hits.incrementAndGet();
+        stats.hits.incrementAndGet();
+      }
+    }
+    // decode outside of the lock, buffers are never modified once encoded
+    return entry == null ? null : use(entry);
+  }
+
+  /** Returns the entry of a key, for testing. */
+  Entry entry(K key) {
+    final Stripe<K> stripe = stripe(key);
+    synchronized (stripe) {
+      return stripe.map.get(key);
+    }
+  }
+
+  /**
+   * Returns the set of an entry that the caller holds a reference to. Bit sets that are looked up
+   * within a request are served from off-heap memory until the request ends, other sets are copied
+   * to the heap and the reference is released immediately.
+   */
+  private static DocSet use(Entry entry) {
+    final SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo != null && entry instanceof BitsEntry) {
+      final OffHeapBitDocSet view = new OffHeapBitDocSet((BitsEntry) entry);
+      requestInfo.addCloseHook(view);
+      return view;
+    }
+    try {
+      return entry.decode();
+    } finally {
+      entry.decRef();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Stripe<K> stripe : stripes) {
+      synchronized (stripe) {
+        for (Entry entry : stripe.map.values()) {
+          entry.decRef();
+        }
+        stripe.map.clear();
+        stripe.bytesUsed = 0;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void warm(SolrIndexSearcher searcher, SolrCache<K,DocSet> old) {
+    if (regenerator == null) return;
+    long warmingStartTime = System.nanoTime();
+    OffHeapDocSetCache<K> other = (OffHeapDocSetCache<K>) old;
+
+    // warm entries
+    if (isAutowarmingOn()) {
+      List<Map.Entry<K,Entry>> entries = new ArrayList<>();
+      for (Stripe<K> stripe : other.stripes) {
+        synchronized (stripe) {
+          for (Map.Entry<K,Entry> e : stripe.map.entrySet()) {
+            // the old cache may be closed while warming
+            e.getValue().incRef();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+          }
+        }
+      }
+      try {
+        // sort from the least recently used to the most recently used entry
+        entries.sort((e1, e2) -> Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess));
+        final int sz = autowarm.getWarmCount(entries.size());
+
+        // autowarm from the oldest to the newest entries so that the ordering will be
+        // correct in the new cache.
+        for (Map.Entry<K,Entry> e : entries.subList(entries.size() - sz, entries.size())) {
+          try (DocSet value = e.getValue().view()) {
+            boolean continueRegen = regenerator.regenerateItem(searcher, this, old, e.getKey(), value);
+            if (!continueRegen) break;
+          } catch (Exception ex) {
+            SolrException.log(log, "Error during auto-warming of key:" + e.getKey(), ex);
+          }
+        }
+      } finally {
+        for (Map.Entry<K,Entry> e : entries) {
+          e.getValue().decRef();
+        }
+      }
+    }
+
+    warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void close() {
+    // entries that are still used by requests are freed once these requests end
+    clear();
+  }
+
+  //////////////////////// SolrInfoMBeans methods //////////////////////
+
+  @Override
+  public String getName() {
+    return OffHeapDocSetCache.class.getName();
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+
+  @Override
+  public String getSource() {
+    return null;
+  }
+
+  @Override
+  public NamedList getStatistics() {
+    NamedList lst = new SimpleOrderedMap();
+    long lookups = this.lookups.get();
+    long hits = this.hits.get();
+    lst.add("lookups", lookups);
+    lst.add("hits", hits);
+    lst.add("hitratio", calcHitRatio(lookups, hits));
+    lst.add("inserts", inserts.get());
+    lst.add("evictions", evictions.get());
+    final int size = size();
+    lst.add("size", size);
+    lst.add("offHeapBytesUsed", offHeapBytesUsed());
+    lst.add("heapBytesUsed", RamUsageEstimator.shallowSizeOfInstance(OffHeapDocSetCache.class) + size * HEAP_BYTES_PER_ENTRY);
+    if (maxRamBytes != Long.MAX_VALUE) {
+      lst.add("maxRamMB", maxRamBytes / 1024L / 1024L);
+    }
+    lst.add("warmupTime", warmupTime);
+
+    long clookups = stats.lookups.get();
+    long chits = stats.hits.get();
+    lst.add("cumulative_lookups", clookups);
+    lst.add("cumulative_hits", chits);
+    lst.add("cumulative_hitratio", calcHitRatio(clookups, chits));
+    lst.add("cumulative_inserts", stats.inserts.get());
+    lst.add("cumulative_evictions", stats.evictions.get());
+    return lst;
+  }
+
+  @Override
+  public String toString() {
+    return name() + getStatistics().toString();
+  }
+
+  /** A subset of the cache with its own lock, LRU ordering and limits. */
+  private static class Stripe<K> {
+    final int limit;
+    final long maxRamBytes;
+    final LinkedHashMap<K,Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+    long bytesUsed;
+
+    Stripe(int limit, long maxRamBytes) {
+      this.limit = limit;
+      this.maxRamBytes = maxRamBytes;
+    }
+
+    /** Evict least recently used entries until limits are met, returns the number of evicted entries. */
+    int evict() {
+      int evicted = 0;
+      Iterator<Entry> it = map.values().iterator();
+      while ((map.size() > limit || bytesUsed > maxRamBytes) && it.hasNext()) {
+        Entry eldest = it.next();
+        bytesUsed -= eldest.bytesUsed();
+        it.remove();
+        eldest.decRef();
+        evicted++;
+      }
+      return evicted;
+    }
+  }
+
+  /**
+   * An encoded {@link DocSet} whose content lives in a direct buffer. The cache holds one reference
+   * to the entry and every set that reads the buffer in place holds another one, the buffer is freed
+   * when the last reference is released.
+   */
+  static abstract class Entry {
+    final ByteBuffer buffer;
+    final int size;
+    long lastAccess;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    Entry(ByteBuffer buffer, int size) {
+      this.buffer = buffer;
+      this.size = size;
+    }
+
+    long bytesUsed() {
+      return buffer.capacity();
+    }
+
+    void incRef() {
+      refCount.incrementAndGet();
+    }
+
+    void decRef() {
+      final int count = refCount.decrementAndGet();
+      assert count >= 0 : "entry released too many times";
+      if (count == 0) {
+        free(buffer);
+      }
+    }
+
+    /** Returns true if all references to this entry have been released. */
+    boolean isReleased() {
+      return refCount.get() == 0;
+    }
+
+    /** Returns an on-heap copy of the cached set. */
+    abstract DocSet decode();
+
+    /**
+     * Returns a set that may read the buffer in place, which must be closed before the reference
+     * that the caller holds on this entry is released.
+     */
+    DocSet view() {
+      return decode();
+    }
+
+    static Entry encode(DocSet set) {
+      if (set instanceof BitDocSet) {
+        return BitsEntry.encode((BitDocSet) set);
+      } else {
+        final int[] docs;
+        if (set instanceof SortedIntDocSet) {
+          docs = ((SortedIntDocSet) set).getDocs();
+        } else {
+          docs = new int[set.size()];
+          DocIterator it = set.iterator();
+          for (int i = 0; i < docs.length; ++i) {
+            docs[i] = it.nextDoc();
+          }
+          Arrays.sort(docs);
+        }
+        return SortedIntsEntry.encode(docs, set.size());
+      }
+    }
+  }
+
+  /** Stores the words of a {@link BitDocSet} as-is. */
+  static class BitsEntry extends Entry {
+    final int numBits;
+    final LongBuffer words;
+
+    BitsEntry(ByteBuffer buffer, int size, int numBits) {
+      super(buffer, size);
+      this.numBits = numBits;
+      this.words = buffer.duplicate().order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    static BitsEntry encode(BitDocSet set) {
+      final FixedBitSet bits = set.getBits();
+      final int numWords = FixedBitSet.bits2words(bits.length());
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(numWords * Long.BYTES).order(ByteOrder.nativeOrder());
+      buffer.asLongBuffer().put(bits.getBits(), 0, numWords);
+      return new BitsEntry(buffer, set.size(), bits.length());
+    }
+
+    @Override
+    DocSet decode() {
+      final long[] copy = new long[FixedBitSet.bits2words(numBits)];
+      words.duplicate().get(copy);
+      return new BitDocSet(new FixedBitSet(copy, numBits), size);
+    }
+
+    @Override
+    DocSet view() {
+      // holds its own reference so that closing the view does not release the caller's one
+      incRef();
+      return new OffHeapBitDocSet(this);
+    }
+  }
+
+  /** Stores the deltas between consecutive ids of a sorted set as variable-length integers. */
+  static class SortedIntsEntry extends Entry {
+
+    SortedIntsEntry(ByteBuffer buffer, int size) {
+      super(buffer, size);
+    }
+
+    static SortedIntsEntry encode(int[] docs, int size) {
+      int numBytes = 0;
+      int prev = 0;
+      for (int i = 0; i < size; ++i) {
+        numBytes += vIntLength(docs[i] - prev);
+        prev = docs[i];
+      }
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(numBytes);
+      prev = 0;
+      for (int i = 0; i < size; ++i) {
+        int delta = docs[i] - prev;
+        while ((delta & ~0x7F) != 0) {
+          buffer.put((byte) ((delta & 0x7F) | 0x80));
+          delta >>>= 7;
+        }
+        buffer.put((byte) delta);
+        prev = docs[i];
+      }
+      return new SortedIntsEntry(buffer, size);
+    }
+
+    private static int vIntLength(int i) {
+      int length = 1;
+      while ((i & ~0x7F) != 0) {
+        i >>>= 7;
+        length++;
+      }
+      return length;
+    }
+
+    @Override
+    DocSet decode() {
+      final int[] docs = new int[size];
+      int doc = 0;
+      int pos = 0;
+      for (int i = 0; i < size; ++i) {
+        byte b = buffer.get(pos++);
+        int delta = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+          b = buffer.get(pos++);
+          delta |= (b & 0x7F) << shift;
+        }
+        doc += delta;
+        docs[i] = doc;
+      }
+      return new SortedIntDocSet(docs);
+    }
+  }
+}
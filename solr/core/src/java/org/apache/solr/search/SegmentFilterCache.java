@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PointInSetQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RoaringDocIdSet;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoMBean;
+
+/**
+ * A cache of the documents matching filters on a per-segment basis, keyed on the
+ * {@link LeafReader#getCoreCacheKey() core cache key} of segments, similarly to
+ * Lucene's {@link org.apache.lucene.search.LRUQueryCache}.
+ * <p>
+ * Unlike the <code>filterCache</code>, which is tied to a {@link SolrIndexSearcher}, a single instance of
+ * this cache is shared by all searchers of a {@link SolrCore}, so that entries of segments that did not
+ * change survive commits: computing (or autowarming) a filter on a new searcher only needs to run the
+ * query against new segments. Cached sets ignore deletions, which are applied when building the
+ * top-level {@link DocSet}.
+ * <p>
+ * Only queries whose matches on a segment only depend on this segment can be cached, see
+ * {@link #isCacheable(Query)}.
+ * <p>
+ * This cache is enabled by configuring <code>&lt;segmentFilterCache size="..." maxRamMB="..."/&gt;</code>
+ * in the <code>&lt;query&gt;</code> section of <code>solrconfig.xml</code>.
+ *
+ * @lucene.experimental
+ */
+public class SegmentFilterCache implements SolrInfoMBean, Accountable {
+
+  // approximate memory usage of a query and of a linked hash table entry
+  static final long QUERY_DEFAULT_RAM_BYTES_USED = 192;
+  static final long HASHTABLE_RAM_BYTES_PER_ENTRY =
+      2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF // key + value
+      * 2; // hash tables need to be oversized to avoid collisions, assume 2x capacity
+  static final long LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY =
+      HASHTABLE_RAM_BYTES_PER_ENTRY
+      + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF; // previous & next references
+
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+
+  // LRU map of all cached entries
+  private final Map<CacheKey, DocIdSet> cache;
+  // core cache keys that have a listener to clean up entries when the segment is closed
+  private final Map<Object, Boolean> registeredCoreKeys;
+  private final LeafReader.CoreClosedListener onCoreClose;
+
+  // these variables are protected by the lock on this
+  private long ramBytesUsed;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public SegmentFilterCache(int maxSize, long maxRamBytesUsed) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be > 0, got " + maxSize);
+    }
+    if (maxRamBytesUsed <= 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be > 0, got " + maxRamBytesUsed);
+    }
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    this.registeredCoreKeys = new IdentityHashMap<>();
+    this.onCoreClose = this::clearCoreCacheKey;
+  }
+
+  /**
+   * Whether the documents that the given query matches on a segment only depend on this segment, which is
+   * required for them to be cached. This is the case of most queries that are used as filters, such as term,
+   * range, prefix or boolean queries, but not of queries that need to see the whole index such as joins,
+   * or of arbitrary Solr queries which are not known to be segment-local.
+   */
+  public static boolean isCacheable(Query query) {
+    if (query instanceof WrappedQuery) {
+      return isCacheable(((WrappedQuery) query).getWrappedQuery());
+    } else if (query instanceof ConstantScoreQuery) {
+      return isCacheable(((ConstantScoreQuery) query).getQuery());
+    } else if (query instanceof BoostQuery) {
+      return isCacheable(((BoostQuery) query).getQuery());
+    } else if (query instanceof BooleanQuery) {
+      for (BooleanClause clause : (BooleanQuery) query) {
+        if (isCacheable(clause.getQuery()) == false) {
+          return false;
+        }
+      }
+      return true;
+    } else if (query instanceof DisjunctionMaxQuery) {
+      for (Query disjunct : (DisjunctionMaxQuery) query) {
+        if (isCacheable(disjunct) == false) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return query instanceof TermQuery
+        || query instanceof MultiTermQuery
+        || query instanceof PointRangeQuery
+        || query instanceof PointInSetQuery
+        || query instanceof PhraseQuery
+        || query instanceof MultiPhraseQuery
+        || query instanceof TermsQuery;
+  }
+
+  /**
+   * Return the set of live documents of the given searcher that match the query, computing and caching the
+   * matches of segments that are not in the cache yet. The query must be {@link #isCacheable(Query) cacheable}.
+   */
+  public DocSet getDocSet(SolrIndexSearcher searcher, Query query) throws IOException {
+    assert isCacheable(query) : query;
+    final int maxDoc = searcher.maxDoc();
+    Weight weight = null; // only created if one segment is missing from the cache
+    final DocIdSet[] sets = new DocIdSet[searcher.getTopReaderContext().leaves().size()];
+    long cost = 0;
+    for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+      final Object coreKey = ctx.reader().getCoreCacheKey();
+      DocIdSet set = get(coreKey, query);
+      if (set == null) {
+        if (weight == null) {
+          weight = searcher.createNormalizedWeight(query, false);
+        }
+        set = cacheImpl(weight.bulkScorer(ctx), ctx.reader().maxDoc());
+        putIfAbsent(ctx.reader(), query, set);
+      }
+      sets[ctx.ord] = set;
+      final DocIdSetIterator it = set.iterator();
+      if (it != null) {
+        cost += it.cost();
+      }
+    }
+
+    final DocSetBuilder builder = new DocSetBuilder(maxDoc, cost);
+    for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+      final DocIdSetIterator it = sets[ctx.ord].iterator();
+      if (it == null) {
+        continue;
+      }
+      final Bits liveDocs = ctx.reader().getLiveDocs();
+      for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          builder.add(ctx.docBase + doc);
+        }
+      }
+    }
+    return builder.buildUniqueInOrder(null);
+  }
+
+  /** Record the documents that a scorer matches, like LRUQueryCache does. */
+  static DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+    if (scorer == null) {
+      return DocIdSet.EMPTY;
+    } else if (scorer.cost() * 100 >= maxDoc) {
+      // FixedBitSet is faster for dense sets
+      final FixedBitSet bitSet = new FixedBitSet(maxDoc);
+      final long[] cost = new long[1];
+      scorer.score(new LeafCollector() {
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {}
+
+        @Override
+        public void collect(int doc) throws IOException {
+          cost[0]++;
+          bitSet.set(doc);
+        }
+      }, null);
+      return new BitDocIdSet(bitSet, cost[0]);
+    } else {
+      final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+      scorer.score(new LeafCollector() {
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {}
+
+        @Override
+        public void collect(int doc) throws IOException {
+          builder.add(doc);
+        }
+      }, null);
+      return builder.build();
+    }
+  }
+
+  synchronized DocIdSet get(Object coreKey, Query query) {
+    final DocIdSet set = cache.get(new CacheKey(coreKey, query));
+    if (set == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return set;
+  }
+
+  synchronized void putIfAbsent(LeafReader reader, Query query, DocIdSet set) {
+    final Object coreKey = reader.getCoreCacheKey();
+    final CacheKey key = new CacheKey(coreKey, query);
+    if (cache.containsKey(key)) {
+      // another thread computed the same entry concurrently
+      return;
+    }
+    if (registeredCoreKeys.put(coreKey, Boolean.TRUE) == null) {
+      reader.addCoreClosedListener(onCoreClose);
+    }
+    cache.put(key, set);
+    ramBytesUsed += ramBytesUsed(key, set);
+    evictIfNecessary();
+  }
+
+  private static long ramBytesUsed(CacheKey key, DocIdSet set) {
+    final long queryRamBytesUsed = key.query instanceof Accountable
+        ? ((Accountable) key.query).ramBytesUsed()
+        : QUERY_DEFAULT_RAM_BYTES_USED;
+    return queryRamBytesUsed + set.ramBytesUsed() + LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+  }
+
+  private void evictIfNecessary() {
+    final Iterator<Map.Entry<CacheKey, DocIdSet>> it = cache.entrySet().iterator();
+    while ((cache.size() > maxSize || ramBytesUsed > maxRamBytesUsed) && it.hasNext()) {
+      final Map.Entry<CacheKey, DocIdSet> eldest = it.next();
+      ramBytesUsed -= ramBytesUsed(eldest.getKey(), eldest.getValue());
+      it.remove();
+      evictionCount++;
+    }
+  }
+
+  /** Remove all entries of the segment that has the given core cache key. */
+  public synchronized void clearCoreCacheKey(Object coreKey) {
+    if (registeredCoreKeys.remove(coreKey) == null) {
+      return;
+    }
+    final Iterator<Map.Entry<CacheKey, DocIdSet>> it = cache.entrySet().iterator();
+    while (it.hasNext()) {
+      final Map.Entry<CacheKey, DocIdSet> entry = it.next();
+      if (entry.getKey().coreKey == coreKey) {
+        ramBytesUsed -= ramBytesUsed(entry.getKey(), entry.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  /** Remove all entries from this cache. */
+  public synchronized void clear() {
+    cache.clear();
+    registeredCoreKeys.clear();
+    ramBytesUsed = 0;
+  }
+
+  /** Return the number of cached entries, ie. (segment, query) pairs. */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  //////////////////////// SolrInfoMBeans methods //////////////////////
+
+  @Override
+  public String getName() {
+    return SegmentFilterCache.class.getName();
+  }
+
+  @Override
+  public String getVersion() {
+    return SolrCore.version;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Per-segment filter cache(maxSize=" + maxSize + ", maxRamMB=" + (maxRamBytesUsed / 1024L / 1024L) + ")";
+  }
+
+  @Override
+  public Category getCategory() {
+    return Category.CACHE;
+  }
+
+  @Override
+  public String getSource() {
+    return null;
+  }
+
+  @Override
+  public URL[] getDocs() {
+    return null;
+  }
+
+  @Override
+  public synchronized NamedList getStatistics() {
+    NamedList lst = new SimpleOrderedMap();
+    final long lookups = hitCount + missCount;
+    lst.add("lookups", lookups);
+    lst.add("hits", hitCount);
+    lst.add("hitratio", SolrCacheBase.calcHitRatio(lookups, hitCount));
+    lst.add("evictions", evictionCount);
+    lst.add("size", cache.size());
+    lst.add("segments", registeredCoreKeys.size());
+    lst.add("ramBytesUsed", ramBytesUsed);
+    return lst;
+  }
+
+  @Override
+  public String toString() {
+    return getName() + getStatistics().toString();
+  }
+
+  private static class CacheKey {
+    final Object coreKey;
+    final Query query;
+
+    CacheKey(Object coreKey, Query query) {
+      this.coreKey = coreKey;
+      this.query = query;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof CacheKey == false) {
+        return false;
+      }
+      final CacheKey that = (CacheKey) obj;
+      return coreKey == that.coreKey && query.equals(that.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(coreKey) + query.hashCode();
+    }
+  }
+}
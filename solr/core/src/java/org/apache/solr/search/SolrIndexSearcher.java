@@ -33,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -66,6 +67,7 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -93,6 +95,8 @@ import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
@@ -162,10 +166,14 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final int queryResultWindowSize;
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
+  // if non-null, used to collect top docs on several slices of the index concurrently
+  private final ExecutorService searcherThreadPool;
   public final boolean enableLazyFieldLoading;
+  private final boolean prefetchEnabled;
 
   private final boolean cachingEnabled;
   private final SolrCache<Query,DocSet> filterCache;
+  private final SegmentFilterCache segmentFilterCache;
   private final SolrCache<QueryResultKey,DocList> queryResultCache;
   private final SolrCache<Integer,Document> documentCache;
   private final SolrCache<String,UnInvertedField> fieldValueCache;
@@ -289,8 +297,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   public SolrIndexSearcher(SolrCore core, String path, IndexSchema schema, String name, DirectoryReader r,
       boolean closeReader, boolean enableCache, boolean reserveDirectory, DirectoryFactory directoryFactory)
           throws IOException {
-    super(wrapReader(core, r));
+    super(wrapReader(core, r), core.getSearcherThreadPool());
 
+    this.searcherThreadPool = core.getSearcherThreadPool();
     this.path = path;
     this.directoryFactory = directoryFactory;
     this.reader = (DirectoryReader) super.readerContext.reader();
@@ -315,6 +324,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
 
     this.closeReader = closeReader;
+    this.prefetchEnabled = isPrefetchEnabled(getIndexReader().directory());
     setSimilarity(schema.getSimilarity());
 
     final SolrConfig solrConfig = core.getSolrConfig();
@@ -324,6 +334,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.enableLazyFieldLoading = solrConfig.enableLazyFieldLoading;
 
     this.cachingEnabled = enableCache;
+    this.segmentFilterCache = enableCache ? core.getSegmentFilterCache() : null;
     if (cachingEnabled) {
       final ArrayList<SolrCache> clist = new ArrayList<>();
       fieldValueCache = solrConfig.fieldValueCacheConfig == null ? null
@@ -781,6 +792,32 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return d;
   }
 
+  /**
+   * Returns whether the directory of this searcher loads prefetched ranges in the background,
+   * ie. whether {@link #prefetchDocs} is worth calling.
+   */
+  public boolean isPrefetchEnabled() {
+    return prefetchEnabled;
+  }
+
+  private static boolean isPrefetchEnabled(Directory dir) {
+    dir = FilterDirectory.unwrap(dir);
+    return dir instanceof MMapDirectory && ((MMapDirectory) dir).getPrefetchThreads() > 0;
+  }
+
+  /**
+   * Hints that the stored fields of these documents will be retrieved soon, so that a
+   * directory that supports it can start reading them in the background.
+   *
+   * @see org.apache.lucene.index.IndexReader#prefetchDocument(int)
+   */
+  public void prefetchDocs(DocList docs) throws IOException {
+    final DirectoryReader reader = getIndexReader();
+    for (DocIterator iter = docs.iterator(); iter.hasNext();) {
+      reader.prefetchDocument(iter.nextDoc());
+    }
+  }
+
   /**
    * This will fetch and add the docValues fields to a given SolrDocument/SolrInputDocument
    *
@@ -1004,6 +1041,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     DocSet answer = getDocSet(q);
     if (answer instanceof BitDocSet) {
       return (BitDocSet) answer;
+    } else if (answer instanceof OffHeapBitDocSet) {
+      // already cached as a bit set, only copy it to the heap
+      return new BitDocSet(((OffHeapBitDocSet) answer).getBits(), answer.size());
     }
 
     FixedBitSet bs = new FixedBitSet(maxDoc());
@@ -1051,7 +1091,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       }
     }
 
-    DocSet absAnswer = getDocSetNC(absQ, null);
+    DocSet absAnswer = getPositiveDocSetNC(absQ);
     DocSet answer = positive ? absAnswer : getLiveDocs().andNot(absAnswer);
 
     if (filterCache != null) {
@@ -1069,11 +1109,19 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       answer = filterCache.get(q);
       if (answer != null) return answer;
     }
-    answer = getDocSetNC(q, null);
+    answer = getPositiveDocSetNC(q);
     if (filterCache != null) filterCache.put(q, answer);
     return answer;
   }
 
+  // only handle positive (non negative) queries, uses the per-segment filter cache when possible
+  private DocSet getPositiveDocSetNC(Query q) throws IOException {
+    if (segmentFilterCache != null && SegmentFilterCache.isCacheable(q)) {
+      return segmentFilterCache.getDocSet(this, q);
+    }
+    return getDocSetNC(q, null);
+  }
+
   private static Query matchAllDocsQuery = new MatchAllDocsQuery();
   private BitDocSet liveDocs;
 
@@ -1426,7 +1474,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (filterCache != null) {
       first = filterCache.get(absQ);
       if (first == null) {
-        first = getDocSetNC(absQ, null);
+        first = getPositiveDocSetNC(absQ);
         filterCache.put(absQ, first);
       }
       return positive ? first.intersection(filter) : filter.andNot(first);
@@ -1741,6 +1789,64 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  /**
+   * Whether the top docs of the given command may be collected on several slices of the index concurrently
+   * using the searcher thread pool. This is only possible when nothing needs to see all matches in doc ID
+   * order on a single thread, ie. there is no post filter, no early termination and no time limit.
+   */
+  private boolean canSearchConcurrently(QueryCommand cmd, ProcessedFilter pf) {
+    return searcherThreadPool != null
+        && pf.postFilter == null
+        && cmd.getSegmentTerminateEarly() == false
+        && cmd.getTerminateEarly() == false
+        && cmd.getTimeAllowed() <= 0
+        && (cmd.getQuery() instanceof RankQuery) == false;
+  }
+
+  /**
+   * Collect the top <code>len</code> docs of the given query concurrently on the slices of the index and merge
+   * them, see {@link #canSearchConcurrently}.
+   */
+  private TopDocs searchConcurrently(Query query, int len, QueryCommand cmd) throws IOException {
+    final boolean needScores = (cmd.getFlags() & GET_SCORES) != 0;
+    final Sort weightedSort = cmd.getSort() == null ? null : weightSort(cmd.getSort());
+    final CursorMark cursor = cmd.getCursorMark();
+    final FieldDoc searchAfter = (null != cursor ? cursor.getSearchAfterFieldDoc() : null);
+
+    final CollectorManager<TopDocsCollector, TopDocs> manager = new CollectorManager<TopDocsCollector, TopDocs>() {
+      @Override
+      public TopDocsCollector newCollector() throws IOException {
+        if (weightedSort == null) {
+          assert null == cursor : "have cursor but no sort";
+          return TopScoreDocCollector.create(len);
+        } else {
+          // fields are always filled since they are needed to merge results of the slices
+          return TopFieldCollector.create(weightedSort, len, searchAfter, true, needScores, needScores);
+        }
+      }
+
+      @Override
+      public TopDocs reduce(Collection<TopDocsCollector> collectors) throws IOException {
+        if (weightedSort == null) {
+          final TopDocs[] topDocs = new TopDocs[collectors.size()];
+          int i = 0;
+          for (TopDocsCollector collector : collectors) {
+            topDocs[i++] = collector.topDocs();
+          }
+          return TopDocs.merge(len, topDocs);
+        } else {
+          final TopFieldDocs[] topDocs = new TopFieldDocs[collectors.size()];
+          int i = 0;
+          for (TopDocsCollector collector : collectors) {
+            topDocs[i++] = (TopFieldDocs) collector.topDocs();
+          }
+          return TopDocs.merge(weightedSort, len, topDocs);
+        }
+      }
+    };
+    return search(query, manager);
+  }
+
   private void getDocListNC(QueryResult qr, QueryCommand cmd) throws IOException {
     int len = cmd.getSupersetMaxDoc();
     int last = len;
@@ -1813,12 +1919,18 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       // no docs on this page, so cursor doesn't change
       qr.setNextCursorMark(cmd.getCursorMark());
     } else {
-      final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
-      Collector collector = topCollector;
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+      final TopDocs topDocs;
+      if (canSearchConcurrently(cmd, pf)) {
+        topDocs = searchConcurrently(query, len, cmd);
+        totalHits = topDocs.totalHits;
+      } else {
+        final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
+        Collector collector = topCollector;
+        buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
 
-      totalHits = topCollector.getTotalHits();
-      TopDocs topDocs = topCollector.topDocs(0, len);
+        totalHits = topCollector.getTotalHits();
+        topDocs = topCollector.topDocs(0, len);
+      }
       populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
 
       maxScore = totalHits > 0 ? topDocs.getMaxScore() : 0.0f;
@@ -49,6 +49,7 @@ import org.apache.solr.search.DocSet;
 import org.apache.solr.search.HashDocSet;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SortedIntDocSet;
+import org.apache.solr.uninverting.UninvertingReader;
 
 
 public class FacetField extends FacetRequest {
@@ -64,6 +65,7 @@ public class FacetField extends FacetRequest {
   SortDirection sortDirection;
   FacetMethod method;
   int cacheDf;  // 0 means "default", -1 means "never cache"
+  int threads;  // number of threads to count segments on with the dv method. 0 means the requesting thread only, negative means one per processor; never more than the number of segments or processors
 
   // experimental - force perSeg collection when using dv method, currently for testing purposes only.
   Boolean perSeg;
@@ -141,6 +143,13 @@ public class FacetField extends FacetRequest {
       return new FacetFieldProcessorDV(fcontext, this, sf);
     }
 
+    if (method != FacetMethod.UIF && ntype == null
+        && ft.getUninversionType(sf) == UninvertingReader.Type.SORTED_SET_BINARY) {
+      // multi-valued strings uninverted per segment: unlike UIF, a reopen only uninverts the new
+      // segments, and their global ords are merged into the cached ones
+      return new FacetFieldProcessorDV(fcontext, this, sf);
+    }
+
     // Top-level multi-valued field cache (UIF)
     return new FacetFieldProcessorUIF(fcontext, this, sf);
   }
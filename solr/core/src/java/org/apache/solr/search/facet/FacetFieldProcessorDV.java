@@ -17,12 +17,19 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.DocIdSet;
@@ -31,16 +38,36 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.Filter;
+import org.apache.solr.util.DefaultSolrThreadFactory;
 
 class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
   static boolean unwrap_singleValued_multiDv = true;  // only set to false for test coverage
 
   boolean multiValuedField;
   SortedSetDocValues si;  // only used for term lookups (for both single and multi-valued)
-  MultiDocValues.OrdinalMap ordinalMap = null; // maps per-segment ords to global ords
-
+  GlobalOrdinals globalOrds = null; // maps per-segment ords to global ords
+
+  /** No request counts on more threads than there are processors */
+  static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Runs the per-segment counting tasks of facets with the "threads" option.  It is shared by all requests
+   * and bounded: once its threads are busy, tasks queue up, and once the queue is full the requesting
+   * thread counts the partition itself.
+   */
+  static final ThreadPoolExecutor segmentExecutor = new ExecutorUtil.MDCAwareThreadPoolExecutor(
+      MAX_THREADS,
+      MAX_THREADS,
+      10, TimeUnit.SECONDS, // terminate idle threads after 10 sec
+      new ArrayBlockingQueue<Runnable>(MAX_THREADS * 4),
+      new DefaultSolrThreadFactory("facetSegmentExecutor"),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+  static {
+    segmentExecutor.allowCoreThreadTimeOut(true);
+  }
 
   public FacetFieldProcessorDV(FacetContext fcontext, FacetField freq, SchemaField sf) {
     super(fcontext, freq, sf);
@@ -52,17 +79,16 @@ class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
   }
 
   protected void findStartAndEndOrds() throws IOException {
-    if (multiValuedField) {
+    List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
+    if (leaves.size() > 1) {
+      // cached across searchers, and rebuilt incrementally on reopen
+      globalOrds = fcontext.searcher.getCore().getGlobalOrdinalCache().get(fcontext.searcher, sf.getName(), multiValuedField);
+      si = globalOrds.getValues(leaves);
+    } else if (multiValuedField) {
       si = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null);
-      if (si instanceof MultiDocValues.MultiSortedSetDocValues) {
-        ordinalMap = ((MultiDocValues.MultiSortedSetDocValues)si).mapping;
-      }
     } else {
       SortedDocValues single = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null);
       si = DocValues.singleton(single);  // multi-valued view
-      if (single instanceof MultiDocValues.MultiSortedDocValues) {
-        ordinalMap = ((MultiDocValues.MultiSortedDocValues)single).mapping;
-      }
     }
 
     if (si.getValueCount() >= Integer.MAX_VALUE) {
@@ -119,13 +145,112 @@ class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
     final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
     Filter filter = fcontext.base.getTopFilter();
 
+    int maxThreads = Math.min(leaves.size(), MAX_THREADS);
+    int nThreads = freq.threads < 0 ? maxThreads : Math.min(freq.threads, maxThreads);
+    if (countOnly && nThreads > 1) {
+      collectParallel(leaves, filter, accumSeg, canDoPerSeg, nThreads);
+      return;
+    }
+
+    SegCollector collector = new SegCollector(countAcc);
     for (int subIdx = 0; subIdx < leaves.size(); subIdx++) {
       LeafReaderContext subCtx = leaves.get(subIdx);
-
       setNextReaderFirstPhase(subCtx);
+      collector.collectSegment(subIdx, subCtx, filter, accumSeg, canDoPerSeg);
+    }
+  }
+
+  /**
+   * Counts the segments on up to nThreads threads, each into its own count array, and then
+   * sums those arrays into countAcc.  Only used when counts are the only thing being collected,
+   * since other accumulators can not be merged.  The calling thread takes one of the partitions
+   * and counts directly into countAcc.
+   */
+  private void collectParallel(List<LeafReaderContext> leaves, Filter filter, boolean accumSeg, boolean canDoPerSeg, int nThreads) throws IOException {
+    // balance the partitions by number of docs, handing out the biggest segments first
+    List<LeafReaderContext> bySize = new ArrayList<>(leaves);
+    Collections.sort(bySize, (a, b) -> Integer.compare(b.reader().maxDoc(), a.reader().maxDoc()));
+    List<List<LeafReaderContext>> partitions = new ArrayList<>(nThreads);
+    long[] partitionDocs = new long[nThreads];
+    for (int i = 0; i < nThreads; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (LeafReaderContext subCtx : bySize) {
+      int smallest = 0;
+      for (int i = 1; i < nThreads; i++) {
+        if (partitionDocs[i] < partitionDocs[smallest]) smallest = i;
+      }
+      partitions.get(smallest).add(subCtx);
+      partitionDocs[smallest] += subCtx.reader().maxDoc();
+    }
+
+    if (fcontext.getDebugInfo() != null) {
+      fcontext.getDebugInfo().putInfoItem("threads", nThreads);
+    }
+
+    List<SegCollector> collectors = new ArrayList<>(nThreads - 1);
+    List<Future<Void>> futures = new ArrayList<>(nThreads - 1);
+    try {
+      for (int i = 1; i < nThreads; i++) {
+        final List<LeafReaderContext> partition = partitions.get(i);
+        final SegCollector collector = new SegCollector(new CountSlotArrAcc(fcontext, nTerms));
+        collectors.add(collector);
+        FutureTask<Void> task = new FutureTask<>(() -> {
+          for (LeafReaderContext subCtx : partition) {
+            collector.collectSegment(subCtx.ord, subCtx, filter, accumSeg, canDoPerSeg);
+          }
+          return null;
+        });
+        futures.add(task);
+        segmentExecutor.execute(task);
+      }
+
+      SegCollector local = new SegCollector(countAcc);
+      for (LeafReaderContext subCtx : partitions.get(0)) {
+        local.collectSegment(subCtx.ord, subCtx, filter, accumSeg, canDoPerSeg);
+      }
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Interrupted while collecting facet counts", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error while collecting facet counts", cause);
+    } finally {
+      for (Future<Void> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    for (SegCollector collector : collectors) {
+      CountSlotAcc counts = collector.counts;
+      for (int slot = 0; slot < nTerms; slot++) {
+        int count = counts.getCount(slot);
+        if (count > 0) {
+          countAcc.incrementCount(slot, count);
+        }
+      }
+    }
+  }
+
+  /** Collects segments into a count accumulator.  Each thread collecting in parallel has its own. */
+  private class SegCollector {
+    final CountSlotAcc counts;
+    private int[] reuse;
 
+    SegCollector(CountSlotAcc counts) {
+      this.counts = counts;
+    }
+
+    void collectSegment(int subIdx, LeafReaderContext subCtx, Filter filter, boolean accumSeg, boolean canDoPerSeg) throws IOException {
       DocIdSet dis = filter.getDocIdSet(subCtx, null); // solr docsets already exclude any deleted docs
       DocIdSetIterator disi = dis.iterator();
+      if (disi == null) return;
 
       SortedDocValues singleDv = null;
       SortedSetDocValues multiDv = null;
@@ -147,7 +272,7 @@ class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
         }
       }
 
-      LongValues toGlobal = ordinalMap == null ? null : ordinalMap.getGlobalOrds(subIdx);
+      LongValues toGlobal = globalOrds == null ? null : globalOrds.getGlobalOrds(subIdx);
 
       if (singleDv != null) {
         if (accumSeg) {
@@ -172,118 +297,115 @@ class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
       }
     }
 
-    reuse = null;  // better GC
-  }
-
-  private int[] reuse;
-  private int[] getCountArr(int maxNeeded) {
-    if (reuse == null) {
-      // make the count array large enough for any segment
-      // FUTURE: (optionally) directly use the array of the CountAcc for an optimized index..
-      reuse = new int[(int) si.getValueCount() + 1];
-    } else {
-      Arrays.fill(reuse, 0, maxNeeded, 0);
+    private int[] getCountArr(int maxNeeded) {
+      if (reuse == null) {
+        // make the count array large enough for any segment
+        // FUTURE: (optionally) directly use the array of the CountAcc for an optimized index..
+        reuse = new int[(int) si.getValueCount() + 1];
+      } else {
+        Arrays.fill(reuse, 0, maxNeeded, 0);
+      }
+      return reuse;
     }
-    return reuse;
-  }
 
-  private void collectPerSeg(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int segMax = singleDv.getValueCount() + 1;
-    final int[] counts = getCountArr( segMax );
+    private void collectPerSeg(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int segMax = singleDv.getValueCount() + 1;
+      final int[] segCounts = getCountArr( segMax );
 
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      counts[ singleDv.getOrd(doc) + 1 ]++;
-    }
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        segCounts[ singleDv.getOrd(doc) + 1 ]++;
+      }
 
-    for (int i=1; i<segMax; i++) {
-      int segCount = counts[i];
-      if (segCount > 0) {
-        int slot = toGlobal == null ? (i - 1) : (int) toGlobal.get(i - 1);
-        countAcc.incrementCount(slot, segCount);
+      for (int i=1; i<segMax; i++) {
+        int segCount = segCounts[i];
+        if (segCount > 0) {
+          int slot = toGlobal == null ? (i - 1) : (int) toGlobal.get(i - 1);
+          counts.incrementCount(slot, segCount);
+        }
       }
     }
-  }
 
 
-  private void collectPerSeg(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int segMax = (int)multiDv.getValueCount();
-    final int[] counts = getCountArr( segMax );
+    private void collectPerSeg(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int segMax = (int)multiDv.getValueCount();
+      final int[] segCounts = getCountArr( segMax );
 
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      multiDv.setDocument(doc);
-      for(;;) {
-        int segOrd = (int)multiDv.nextOrd();
-        if (segOrd < 0) break;
-        counts[segOrd]++;
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        multiDv.setDocument(doc);
+        for(;;) {
+          int segOrd = (int)multiDv.nextOrd();
+          if (segOrd < 0) break;
+          segCounts[segOrd]++;
+        }
       }
-    }
 
-    for (int i=0; i<segMax; i++) {
-      int segCount = counts[i];
-      if (segCount > 0) {
-        int slot = toGlobal == null ? (i) : (int) toGlobal.get(i);
-        countAcc.incrementCount(slot, segCount);
+      for (int i=0; i<segMax; i++) {
+        int segCount = segCounts[i];
+        if (segCount > 0) {
+          int slot = toGlobal == null ? (i) : (int) toGlobal.get(i);
+          counts.incrementCount(slot, segCount);
+        }
       }
     }
-  }
 
-  private void collectDocs(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      int segOrd = singleDv.getOrd(doc);
-      if (segOrd < 0) continue;
-      collect(doc, segOrd, toGlobal);
+    private void collectDocs(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        int segOrd = singleDv.getOrd(doc);
+        if (segOrd < 0) continue;
+        collect(doc, segOrd, toGlobal);
+      }
     }
-  }
 
-  private void collectCounts(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      int segOrd = singleDv.getOrd(doc);
-      if (segOrd < 0) continue;
-      int ord = (int)toGlobal.get(segOrd);
-      countAcc.incrementCount(ord, 1);
+    private void collectCounts(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        int segOrd = singleDv.getOrd(doc);
+        if (segOrd < 0) continue;
+        int ord = (int)toGlobal.get(segOrd);
+        counts.incrementCount(ord, 1);
+      }
     }
-  }
 
-  private void collectDocs(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      multiDv.setDocument(doc);
-      for(;;) {
-        int segOrd = (int)multiDv.nextOrd();
-        if (segOrd < 0) break;
-        collect(doc, segOrd, toGlobal);
+    private void collectDocs(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        multiDv.setDocument(doc);
+        for(;;) {
+          int segOrd = (int)multiDv.nextOrd();
+          if (segOrd < 0) break;
+          collect(doc, segOrd, toGlobal);
+        }
       }
     }
-  }
 
-  private void collectCounts(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      multiDv.setDocument(doc);
-      for(;;) {
-        int segOrd = (int)multiDv.nextOrd();
-        if (segOrd < 0) break;
-        int ord = (int)toGlobal.get(segOrd);
-        countAcc.incrementCount(ord, 1);
+    private void collectCounts(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        multiDv.setDocument(doc);
+        for(;;) {
+          int segOrd = (int)multiDv.nextOrd();
+          if (segOrd < 0) break;
+          int ord = (int)toGlobal.get(segOrd);
+          counts.incrementCount(ord, 1);
+        }
       }
     }
-  }
 
-  private void collect(int doc, int segOrd, LongValues toGlobal) throws IOException {
-    int ord = (toGlobal != null && segOrd >= 0) ? (int)toGlobal.get(segOrd) : segOrd;
+    private void collect(int doc, int segOrd, LongValues toGlobal) throws IOException {
+      int ord = (toGlobal != null && segOrd >= 0) ? (int)toGlobal.get(segOrd) : segOrd;
 
-    int arrIdx = ord - startTermIndex;
-    if (arrIdx >= 0 && arrIdx < nTerms) {
-      countAcc.incrementCount(arrIdx, 1);
-      if (collectAcc != null) {
-        collectAcc.collect(doc, arrIdx);
-      }
-      if (allBucketsAcc != null) {
-        allBucketsAcc.collect(doc, arrIdx);
+      int arrIdx = ord - startTermIndex;
+      if (arrIdx >= 0 && arrIdx < nTerms) {
+        counts.incrementCount(arrIdx, 1);
+        if (collectAcc != null) {
+          collectAcc.collect(doc, arrIdx);
+        }
+        if (allBucketsAcc != null) {
+          allBucketsAcc.collect(doc, arrIdx);
+        }
       }
     }
   }
@@ -540,6 +540,7 @@ class FacetFieldParser extends FacetParser<FacetField> {
       facet.allBuckets = getBoolean(m, "allBuckets", facet.allBuckets);
       facet.method = FacetField.FacetMethod.fromString(getString(m, "method", null));
       facet.cacheDf = (int)getLong(m, "cacheDf", facet.cacheDf);
+      facet.threads = (int)getLong(m, "threads", facet.threads);
 
       facet.perSeg = (Boolean)m.get("perSeg");
 
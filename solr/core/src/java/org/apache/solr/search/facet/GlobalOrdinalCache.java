@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Keeps the most recently built {@link GlobalOrdinals} of each field of a core, so that the global ordinals
+ * for a new searcher are built incrementally from those of the previous one instead of from scratch.
+ * The two most recent maps are kept, so the outgoing and the incoming searcher can both be served
+ * while a new searcher is warming.
+ * <p>
+ * Builds run outside of any lock: there is one build per field and reader, and requests for the same reader
+ * wait for it, while requests on other readers keep using the maps that were already built for them.
+ *
+ * @lucene.internal
+ */
+public class GlobalOrdinalCache {
+
+  /** Identifies the doc values that a map is built for. */
+  private static class Key {
+    final Object[] segmentKeys;
+    final boolean multiValued;
+
+    Key(Object[] segmentKeys, boolean multiValued) {
+      this.segmentKeys = segmentKeys;
+      this.multiValued = multiValued;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key == false) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return multiValued == other.multiValued && Arrays.equals(segmentKeys, other.segmentKeys);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(segmentKeys) + Boolean.hashCode(multiValued);
+    }
+  }
+
+  private static class Entry {
+    final ConcurrentMap<Key,FutureTask<GlobalOrdinals>> builds = new ConcurrentHashMap<>();
+    // the most recently completed build, which the next build starts from; guarded by this
+    Key latestKey;
+    GlobalOrdinals latest;
+  }
+
+  private final ConcurrentMap<String,Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the global ordinals of a string field for the leaves of the given searcher.
+   *
+   * @param multiValued whether to use the field's sorted-set (as opposed to sorted) doc values
+   */
+  public GlobalOrdinals get(SolrIndexSearcher searcher, String field, boolean multiValued) throws IOException {
+    List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+    Key key = new Key(GlobalOrdinals.segmentKeys(leaves), multiValued);
+    Entry entry = entries.computeIfAbsent(field, k -> new Entry());
+    FutureTask<GlobalOrdinals> build = entry.builds.get(key);
+    if (build == null) {
+      final GlobalOrdinals base;
+      synchronized (entry) {
+        base = entry.latest;
+      }
+      FutureTask<GlobalOrdinals> task = new FutureTask<>(() -> GlobalOrdinals.build(field, multiValued, leaves, base));
+      build = entry.builds.putIfAbsent(key, task);
+      if (build == null) {
+        // we won the race: build on this thread, concurrent requests for the same reader wait for us
+        build = task;
+        task.run();
+        publish(entry, key, task);
+      }
+    }
+    return getResult(build);
+  }
+
+  /** Makes a completed build the base of the next one, and drops all but the two most recent maps. */
+  private static void publish(Entry entry, Key key, FutureTask<GlobalOrdinals> task) throws IOException {
+    GlobalOrdinals ords;
+    try {
+      ords = getResult(task);
+    } catch (IOException | RuntimeException e) {
+      // let the next request try again
+      entry.builds.remove(key, task);
+      throw e;
+    }
+    synchronized (entry) {
+      Key previousKey = entry.latestKey;
+      entry.latestKey = key;
+      entry.latest = ords;
+      entry.builds.keySet().removeIf(k -> k.equals(key) == false && k.equals(previousKey) == false);
+    }
+  }
+
+  private static GlobalOrdinals getResult(FutureTask<GlobalOrdinals> build) throws IOException {
+    try {
+      return build.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Interrupted while building global ordinals", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error while building global ordinals", cause);
+    }
+  }
+
+  /** Discards all cached global ordinals. */
+  public void clear() {
+    entries.clear();
+  }
+}
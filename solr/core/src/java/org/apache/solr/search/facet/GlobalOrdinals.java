@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.solr.common.SolrException;
+
+/**
+ * Maps the per-segment ordinals of a string field's (possibly uninverted) doc values to a global ordinal space,
+ * like {@link OrdinalMap}.  Unlike an OrdinalMap, it can be built from the map of an earlier reader: the mappings
+ * of the segments both readers share are kept (or renumbered without comparing terms), and only the terms of new
+ * segments are merged in, so reopening a reader costs in proportion to what changed.
+ *
+ * @see GlobalOrdinalCache
+ * @lucene.internal
+ */
+public class GlobalOrdinals implements Accountable {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(GlobalOrdinals.class);
+
+  final String field;
+  final boolean multiValued;
+  // identifies the segment of each leaf; equal keys mean equal terms
+  final Object[] segmentKeys;
+  // for every segment, segmentOrd -> globalOrd
+  final PackedInts.Reader[] segmentToGlobal;
+  // globalOrd -> a segment containing the term, and the term's ord there
+  final PackedInts.Reader firstSegment;
+  final PackedInts.Reader firstSegmentOrd;
+  // globalOrd -> number of segments containing the term, so that removing a segment can tell which terms are gone
+  final PackedInts.Reader segmentCounts;
+  final int valueCount;
+
+  private GlobalOrdinals(String field, boolean multiValued, Object[] segmentKeys, PackedInts.Reader[] segmentToGlobal,
+                         PackedInts.Reader firstSegment, PackedInts.Reader firstSegmentOrd,
+                         PackedInts.Reader segmentCounts, int valueCount) {
+    this.field = field;
+    this.multiValued = multiValued;
+    this.segmentKeys = segmentKeys;
+    this.segmentToGlobal = segmentToGlobal;
+    this.firstSegment = firstSegment;
+    this.firstSegmentOrd = firstSegmentOrd;
+    this.segmentCounts = segmentCounts;
+    this.valueCount = valueCount;
+  }
+
+  /** Returns the number of unique terms across all segments. */
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /** Returns the mapping from the ordinals of the given segment to global ordinals. */
+  public LongValues getGlobalOrds(int segmentIndex) {
+    final PackedInts.Reader map = segmentToGlobal[segmentIndex];
+    return new LongValues() {
+      @Override
+      public long get(long ord) {
+        return map.get((int) ord);
+      }
+    };
+  }
+
+  /**
+   * Returns a view of the global terms, for {@link SortedSetDocValues#lookupOrd} and
+   * {@link SortedSetDocValues#lookupTerm} only.
+   *
+   * @param leaves the leaves this map was built for
+   */
+  public SortedSetDocValues getValues(List<LeafReaderContext> leaves) throws IOException {
+    assert leaves.size() == segmentKeys.length;
+    final SortedSetDocValues[] values = new SortedSetDocValues[leaves.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getValues(leaves.get(i).reader(), field, multiValued);
+    }
+    return new SortedSetDocValues() {
+      @Override
+      public long nextOrd() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void setDocument(int docID) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public BytesRef lookupOrd(long ord) {
+        return values[(int) firstSegment.get((int) ord)].lookupOrd(firstSegmentOrd.get((int) ord));
+      }
+
+      @Override
+      public long getValueCount() {
+        return valueCount;
+      }
+    };
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long size = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(segmentKeys)
+        + RamUsageEstimator.shallowSizeOf(segmentToGlobal) + firstSegment.ramBytesUsed()
+        + firstSegmentOrd.ramBytesUsed() + segmentCounts.ramBytesUsed();
+    for (PackedInts.Reader map : segmentToGlobal) {
+      size += map.ramBytesUsed();
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "GlobalOrdinals(field=" + field + ",segments=" + segmentKeys.length + ",valueCount=" + valueCount + ")";
+  }
+
+  boolean isFor(Object[] keys) {
+    return Arrays.equals(segmentKeys, keys);
+  }
+
+  static Object[] segmentKeys(List<LeafReaderContext> leaves) {
+    Object[] keys = new Object[leaves.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = segmentKey(leaves.get(i).reader());
+    }
+    return keys;
+  }
+
+  /**
+   * Segment name and id identify the terms of a segment without holding on to its reader;
+   * deletions do not change them.
+   */
+  private static Object segmentKey(LeafReader reader) {
+    LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+    if (unwrapped instanceof SegmentReader) {
+      SegmentInfo info = ((SegmentReader) unwrapped).getSegmentInfo().info;
+      if (info.getId() != null) {
+        return info.name + "_" + StringHelper.idToString(info.getId());
+      }
+    }
+    return reader.getCoreCacheKey();
+  }
+
+  static SortedSetDocValues getValues(LeafReader reader, String field, boolean multiValued) throws IOException {
+    if (multiValued) {
+      SortedSetDocValues values = reader.getSortedSetDocValues(field);
+      return values == null ? DocValues.emptySortedSet() : values;
+    } else {
+      SortedDocValues values = reader.getSortedDocValues(field);
+      return values == null ? DocValues.emptySortedSet() : DocValues.singleton(values);
+    }
+  }
+
+  /**
+   * Builds the global ordinals of a field for the given leaves.
+   *
+   * @param previous global ordinals of the same field for an earlier reader, or null
+   * @return <code>previous</code> if it was built for the same segments
+   */
+  public static GlobalOrdinals build(String field, boolean multiValued, List<LeafReaderContext> leaves,
+                                     GlobalOrdinals previous) throws IOException {
+    Object[] keys = segmentKeys(leaves);
+    if (previous != null && previous.multiValued == multiValued && previous.isFor(keys)) {
+      return previous;
+    }
+
+    SortedSetDocValues[] values = new SortedSetDocValues[leaves.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getValues(leaves.get(i).reader(), field, multiValued);
+    }
+    if (previous == null || previous.multiValued != multiValued) {
+      return buildFull(field, multiValued, keys, values);
+    }
+
+    // match the segments of the previous reader
+    Map<Object,Integer> previousIndex = new HashMap<>();
+    for (int j = 0; j < previous.segmentKeys.length; j++) {
+      previousIndex.put(previous.segmentKeys[j], j);
+    }
+    int[] previousSegment = new int[values.length];
+    int[] newSegment = new int[previous.segmentKeys.length];
+    Arrays.fill(newSegment, -1);
+    int retained = 0;
+    long addedValueCount = 0;
+    for (int i = 0; i < values.length; i++) {
+      Integer j = previousIndex.get(keys[i]);
+      if (j != null && newSegment[j] == -1) {
+        previousSegment[i] = j;
+        newSegment[j] = i;
+        retained++;
+      } else {
+        previousSegment[i] = -1;
+        addedValueCount += values[i].getValueCount();
+      }
+    }
+
+    // merging terms in one at a time only pays off while few of them are new (e.g. after a flush,
+    // but not after a large merge); otherwise a full merge of all segments is cheaper
+    if (retained == 0 || addedValueCount > previous.valueCount / 2) {
+      return buildFull(field, multiValued, keys, values);
+    }
+    return buildIncremental(field, multiValued, keys, values, previous, previousSegment, newSegment);
+  }
+
+  private static GlobalOrdinals buildFull(String field, boolean multiValued, Object[] keys,
+                                          SortedSetDocValues[] values) throws IOException {
+    OrdinalMap map = OrdinalMap.build(null, values, PackedInts.DEFAULT);
+    int valueCount = checkValueCount(field, map.getValueCount());
+    int numSegments = values.length;
+
+    PackedInts.Mutable segmentCounts = newMutable(valueCount, numSegments);
+    PackedInts.Reader[] segmentToGlobal = new PackedInts.Reader[numSegments];
+    long maxSegmentValueCount = 0;
+    for (int i = 0; i < numSegments; i++) {
+      int size = (int) values[i].getValueCount();
+      maxSegmentValueCount = Math.max(maxSegmentValueCount, size);
+      LongValues globalOrds = map.getGlobalOrds(i);
+      PackedInts.Mutable segmentMap = newMutable(size, valueCount - 1);
+      for (int ord = 0; ord < size; ord++) {
+        int globalOrd = (int) globalOrds.get(ord);
+        segmentMap.set(ord, globalOrd);
+        segmentCounts.set(globalOrd, segmentCounts.get(globalOrd) + 1);
+      }
+      segmentToGlobal[i] = segmentMap;
+    }
+
+    PackedInts.Mutable firstSegment = newMutable(valueCount, numSegments - 1);
+    PackedInts.Mutable firstSegmentOrd = newMutable(valueCount, maxSegmentValueCount);
+    for (int globalOrd = 0; globalOrd < valueCount; globalOrd++) {
+      firstSegment.set(globalOrd, map.getFirstSegmentNumber(globalOrd));
+      firstSegmentOrd.set(globalOrd, map.getFirstSegmentOrd(globalOrd));
+    }
+    return new GlobalOrdinals(field, multiValued, keys, segmentToGlobal, firstSegment, firstSegmentOrd,
+        segmentCounts, valueCount);
+  }
+
+  private static GlobalOrdinals buildIncremental(String field, boolean multiValued, Object[] keys,
+                                                 SortedSetDocValues[] values, GlobalOrdinals previous,
+                                                 int[] previousSegment, int[] newSegment) throws IOException {
+    final int numSegments = values.length;
+    final int previousCount = previous.valueCount;
+    long maxSegmentValueCount = 0;
+    for (SortedSetDocValues v : values) {
+      maxSegmentValueCount = Math.max(maxSegmentValueCount, v.getValueCount());
+    }
+
+    // 1. drop the terms of removed segments, and find a remaining segment for terms whose first segment is gone
+    PackedInts.Mutable counts = newMutable(previousCount, Math.max(numSegments, previous.segmentKeys.length));
+    PackedInts.Mutable first = newMutable(previousCount, numSegments); // numSegments means "none yet"
+    PackedInts.Mutable firstOrd = newMutable(previousCount, maxSegmentValueCount);
+    for (int g = 0; g < previousCount; g++) {
+      counts.set(g, previous.segmentCounts.get(g));
+    }
+    for (int j = 0; j < newSegment.length; j++) {
+      if (newSegment[j] == -1) {
+        PackedInts.Reader map = previous.segmentToGlobal[j];
+        for (int ord = 0; ord < map.size(); ord++) {
+          int g = (int) map.get(ord);
+          counts.set(g, counts.get(g) - 1);
+        }
+      }
+    }
+    int orphans = 0;
+    int firstRemoved = previousCount;
+    for (int g = 0; g < previousCount; g++) {
+      if (counts.get(g) == 0) {
+        firstRemoved = Math.min(firstRemoved, g);
+        continue;
+      }
+      int segment = newSegment[(int) previous.firstSegment.get(g)];
+      if (segment == -1) {
+        first.set(g, numSegments);
+        orphans++;
+      } else {
+        first.set(g, segment);
+        firstOrd.set(g, previous.firstSegmentOrd.get(g));
+      }
+    }
+    for (int i = 0; i < numSegments && orphans > 0; i++) {
+      if (previousSegment[i] != -1) {
+        PackedInts.Reader map = previous.segmentToGlobal[previousSegment[i]];
+        for (int ord = 0; ord < map.size(); ord++) {
+          int g = (int) map.get(ord);
+          if (first.get(g) == numSegments) {
+            first.set(g, i);
+            firstOrd.set(g, ord);
+            orphans--;
+          }
+        }
+      }
+    }
+    assert orphans == 0;
+
+    // 2. find where each term of the added segments goes among the remaining terms
+    int numAdded = 0;
+    for (int i = 0; i < numSegments; i++) {
+      if (previousSegment[i] == -1) numAdded++;
+    }
+    SortedSetDocValues[] added = new SortedSetDocValues[numAdded];
+    int[] addedSegment = new int[numAdded];
+    for (int i = 0, a = 0; i < numSegments; i++) {
+      if (previousSegment[i] == -1) {
+        added[a] = values[i];
+        addedSegment[a++] = i;
+      }
+    }
+    OrdinalMap addedMap = OrdinalMap.build(null, added, PackedInts.DEFAULT);
+    int addedCount = checkValueCount(field, addedMap.getValueCount());
+    PackedInts.Mutable position = newMutable(addedCount, previousCount);
+    FixedBitSet matched = new FixedBitSet(addedCount);
+    int lo = 0;
+    for (int k = 0; k < addedCount; k++) {
+      BytesRef term = BytesRef.deepCopyOf(added[addedMap.getFirstSegmentNumber(k)]
+          .lookupOrd(addedMap.getFirstSegmentOrd(k)));
+      lo = nextRemaining(counts, lowerBound(term, lo, previousCount, counts, first, firstOrd, values), previousCount);
+      position.set(k, lo);
+      if (lo < previousCount && values[(int) first.get(lo)].lookupOrd(firstOrd.get(lo)).equals(term)) {
+        matched.set(k);
+      }
+    }
+
+    // 3. number the merged terms
+    PackedInts.Mutable oldToNew = newMutable(previousCount, (long) previousCount + addedCount);
+    PackedInts.Mutable addedToNew = newMutable(addedCount, (long) previousCount + addedCount);
+    int firstInserted = previousCount;
+    long newOrd = 0;
+    int k = 0;
+    for (int g = 0; g < previousCount; g++) {
+      while (k < addedCount && position.get(k) == g && !matched.get(k)) {
+        firstInserted = Math.min(firstInserted, g);
+        addedToNew.set(k++, newOrd++);
+      }
+      if (counts.get(g) == 0) continue;
+      if (k < addedCount && position.get(k) == g) {
+        assert matched.get(k);
+        addedToNew.set(k++, newOrd);
+      }
+      oldToNew.set(g, newOrd++);
+    }
+    while (k < addedCount) {
+      addedToNew.set(k++, newOrd++);
+    }
+    int valueCount = checkValueCount(field, newOrd);
+    // global ords below this did not move
+    int firstChanged = Math.min(firstRemoved, firstInserted);
+
+    // 4. build the new map
+    PackedInts.Mutable segmentCounts = newMutable(valueCount, numSegments);
+    PackedInts.Mutable firstSegment = newMutable(valueCount, numSegments - 1);
+    PackedInts.Mutable firstSegmentOrd = newMutable(valueCount, maxSegmentValueCount);
+    for (int g = 0; g < previousCount; g++) {
+      int c = (int) counts.get(g);
+      if (c > 0) {
+        int ng = (int) oldToNew.get(g);
+        segmentCounts.set(ng, c);
+        firstSegment.set(ng, first.get(g));
+        firstSegmentOrd.set(ng, firstOrd.get(g));
+      }
+    }
+    PackedInts.Reader[] segmentToGlobal = new PackedInts.Reader[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      if (previousSegment[i] != -1) {
+        PackedInts.Reader map = previous.segmentToGlobal[previousSegment[i]];
+        int size = map.size();
+        if (size == 0 || map.get(size - 1) < firstChanged) {
+          // segment ords map to global ords in order, so none of this segment's global ords moved
+          segmentToGlobal[i] = map;
+        } else {
+          PackedInts.Mutable newMap = newMutable(size, valueCount - 1);
+          for (int ord = 0; ord < size; ord++) {
+            newMap.set(ord, oldToNew.get((int) map.get(ord)));
+          }
+          segmentToGlobal[i] = newMap;
+        }
+      }
+    }
+    for (int a = 0; a < numAdded; a++) {
+      int i = addedSegment[a];
+      int size = (int) added[a].getValueCount();
+      LongValues addedOrds = addedMap.getGlobalOrds(a);
+      PackedInts.Mutable newMap = newMutable(size, valueCount - 1);
+      for (int ord = 0; ord < size; ord++) {
+        int ng = (int) addedToNew.get((int) addedOrds.get(ord));
+        newMap.set(ord, ng);
+        long c = segmentCounts.get(ng);
+        if (c == 0) {
+          firstSegment.set(ng, i);
+          firstSegmentOrd.set(ng, ord);
+        }
+        segmentCounts.set(ng, c + 1);
+      }
+      segmentToGlobal[i] = newMap;
+    }
+
+    return new GlobalOrdinals(field, multiValued, keys, segmentToGlobal, firstSegment, firstSegmentOrd,
+        segmentCounts, valueCount);
+  }
+
+  /** Returns the first of the previous global ords in [lo, hi) whose term is at least <code>term</code>, ignoring removed terms. */
+  private static int lowerBound(BytesRef term, int lo, int hi, PackedInts.Reader counts, PackedInts.Reader first,
+                                PackedInts.Reader firstOrd, SortedSetDocValues[] values) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int g = nextRemaining(counts, mid, hi);
+      if (g == hi) {
+        hi = mid;
+      } else if (values[(int) first.get(g)].lookupOrd(firstOrd.get(g)).compareTo(term) < 0) {
+        lo = g + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int nextRemaining(PackedInts.Reader counts, int from, int to) {
+    while (from < to && counts.get(from) == 0) {
+      from++;
+    }
+    return from;
+  }
+
+  private static PackedInts.Mutable newMutable(int size, long maxValue) {
+    return PackedInts.getMutable(size, PackedInts.bitsRequired(Math.max(0, maxValue)), PackedInts.DEFAULT);
+  }
+
+  private static int checkValueCount(String field, long valueCount) {
+    if (valueCount >= Integer.MAX_VALUE) {
+      throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+          "Field has too many unique values. field=" + field + " nterms= " + valueCount);
+    }
+    return (int) valueCount;
+  }
+}
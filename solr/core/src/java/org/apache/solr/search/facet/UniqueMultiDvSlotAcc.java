@@ -18,9 +18,9 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
@@ -29,23 +29,22 @@ import org.apache.solr.search.SolrIndexSearcher;
 
 class UniqueMultiDvSlotAcc extends UniqueSlotAcc {
   final SortedSetDocValues topLevel;
-  final SortedSetDocValues[] subDvs;
-  final MultiDocValues.OrdinalMap ordMap;
+  final GlobalOrdinals ordMap;
   LongValues toGlobal;
   SortedSetDocValues subDv;
 
   public UniqueMultiDvSlotAcc(FacetContext fcontext, String field, int numSlots, HLLAgg.HLLFactory factory) throws IOException {
     super(fcontext, field, numSlots, factory);
     SolrIndexSearcher searcher = fcontext.qcontext.searcher();
-    topLevel = FieldUtil.getSortedSetDocValues(fcontext.qcontext, searcher.getSchema().getField(field), null);
-    nTerms = (int) topLevel.getValueCount();
-    if (topLevel instanceof MultiDocValues.MultiSortedSetDocValues) {
-      ordMap = ((MultiDocValues.MultiSortedSetDocValues) topLevel).mapping;
-      subDvs = ((MultiDocValues.MultiSortedSetDocValues) topLevel).values;
+    List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+    if (leaves.size() > 1) {
+      ordMap = searcher.getCore().getGlobalOrdinalCache().get(searcher, field, true);
+      topLevel = ordMap.getValues(leaves);
     } else {
       ordMap = null;
-      subDvs = null;
+      topLevel = FieldUtil.getSortedSetDocValues(fcontext.qcontext, searcher.getSchema().getField(field), null);
     }
+    nTerms = (int) topLevel.getValueCount();
   }
 
   @Override
@@ -56,8 +55,8 @@ class UniqueMultiDvSlotAcc extends UniqueSlotAcc {
   @Override
   public void setNextReader(LeafReaderContext readerContext) throws IOException {
     super.setNextReader(readerContext);
-    if (subDvs != null) {
-      subDv = subDvs[readerContext.ord];
+    if (ordMap != null) {
+      subDv = GlobalOrdinals.getValues(readerContext.reader(), field.getName(), true);
       toGlobal = ordMap.getGlobalOrds(readerContext.ord);
     } else {
       assert readerContext.ord==0 || topLevel.getValueCount() == 0;
@@ -18,46 +18,54 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.List;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.LongValues;
 import org.apache.solr.search.SolrIndexSearcher;
 
 class UniqueSinglevaluedSlotAcc extends UniqueSlotAcc {
-  final SortedDocValues topLevel;
-  final SortedDocValues[] subDvs;
-  final MultiDocValues.OrdinalMap ordMap;
+  final SortedDocValues topLevel;  // only used if there is a single segment
+  final SortedSetDocValues globalValues;  // lookups in the global ord space if there are several
+  final GlobalOrdinals ordMap;
   LongValues toGlobal;
   SortedDocValues subDv;
 
   public UniqueSinglevaluedSlotAcc(FacetContext fcontext, String field, int numSlots, HLLAgg.HLLFactory factory) throws IOException {
     super(fcontext, field, numSlots, factory);
     SolrIndexSearcher searcher = fcontext.qcontext.searcher();
-    topLevel = FieldUtil.getSortedDocValues(fcontext.qcontext, searcher.getSchema().getField(field), null);
-    nTerms = topLevel.getValueCount();
-    if (topLevel instanceof MultiDocValues.MultiSortedDocValues) {
-      ordMap = ((MultiDocValues.MultiSortedDocValues)topLevel).mapping;
-      subDvs = ((MultiDocValues.MultiSortedDocValues)topLevel).values;
+    List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+    if (leaves.size() > 1) {
+      ordMap = searcher.getCore().getGlobalOrdinalCache().get(searcher, field, false);
+      globalValues = ordMap.getValues(leaves);
+      topLevel = null;
+      nTerms = ordMap.getValueCount();
     } else {
       ordMap = null;
-      subDvs = null;
+      globalValues = null;
+      topLevel = FieldUtil.getSortedDocValues(fcontext.qcontext, searcher.getSchema().getField(field), null);
+      nTerms = topLevel.getValueCount();
     }
   }
 
   @Override
   protected BytesRef lookupOrd(int ord) {
-    return topLevel.lookupOrd(ord);
+    return ordMap != null ? globalValues.lookupOrd(ord) : topLevel.lookupOrd(ord);
   }
 
   @Override
   public void setNextReader(LeafReaderContext readerContext) throws IOException {
     super.setNextReader(readerContext);
-    if (subDvs != null) {
-      subDv = subDvs[readerContext.ord];
+    if (ordMap != null) {
+      subDv = readerContext.reader().getSortedDocValues(field.getName());
+      if (subDv == null) {
+        subDv = DocValues.emptySorted();
+      }
       toGlobal = ordMap.getGlobalOrds(readerContext.ord);
     } else {
       assert readerContext.ord==0 || topLevel.getValueCount() == 0;
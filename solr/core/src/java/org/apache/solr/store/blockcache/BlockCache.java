@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.apache.lucene.util.FrequencySketch;
 
 /**
  * @lucene.experimental
@@ -30,6 +31,8 @@ public class BlockCache {
   
   public static final int _128M = 134217728;
   public static final int _32K = 32768;
+  /** Number of eviction candidates that are looked up at once, since looking them up locks the cache. */
+  static final int VICTIM_BATCH_SIZE = 64;
   private final Cache<BlockCacheKey,BlockCacheLocation> cache;
   private final ByteBuffer[] banks;
   private final BlockLocks[] locks;
@@ -38,6 +41,11 @@ public class BlockCache {
   private final int numberOfBlocksPerBank;
   private final int maxEntries;
   private final Metrics metrics;
+  private final FrequencySketch sketch;
+  // the blocks that were next in eviction order when last looked up, guarded by victimLock
+  private final Object victimLock = new Object();
+  private BlockCacheKey[] victims = new BlockCacheKey[0];
+  private int victimUpto;
   
   public BlockCache(Metrics metrics, boolean directAllocation, long totalMemory) {
     this(metrics, directAllocation, totalMemory, _128M);
@@ -70,10 +78,14 @@ public class BlockCache {
 
     RemovalListener<BlockCacheKey,BlockCacheLocation> listener = 
         notification -> releaseLocation(notification.getValue());
+    // Eviction notifications run on the calling thread so that evicted blocks are free again
+    // before the next store looks for an empty location.
     cache = Caffeine.newBuilder()
         .removalListener(listener)
         .maximumSize(maxEntries)
+        .executor(Runnable::run)
         .build();
+    sketch = new FrequencySketch(maxEntries);
     this.blockSize = blockSize;
   }
   
@@ -104,9 +116,14 @@ public class BlockCache {
     BlockCacheLocation location = cache.getIfPresent(blockCacheKey);
     boolean newLocation = false;
     if (location == null) {
+      if (!admit(blockCacheKey)) {
+        metrics.blockCacheAdmissionReject.incrementAndGet();
+        return false;
+      }
       newLocation = true;
       location = new BlockCacheLocation();
       if (!findEmptyLocation(location)) {
+        metrics.blockCacheStoreFail.incrementAndGet();
         return false;
       }
     }
@@ -127,6 +144,7 @@ public class BlockCache {
   
   public boolean fetch(BlockCacheKey blockCacheKey, byte[] buffer,
       int blockOffset, int off, int length) {
+    sketch.increment(blockCacheKey.hashCode());
     BlockCacheLocation location = cache.getIfPresent(blockCacheKey);
     if (location == null) {
       return false;
@@ -140,7 +158,8 @@ public class BlockCache {
     ByteBuffer bank = getBank(bankId);
     bank.position(offset + blockOffset);
     bank.get(buffer, off, length);
-    return true;
+    // the block may have been evicted and its location reused while we were reading it
+    return !location.isRemoved();
   }
   
   public boolean fetch(BlockCacheKey blockCacheKey, byte[] buffer) {
@@ -148,6 +167,54 @@ public class BlockCache {
     return fetch(blockCacheKey, buffer, 0, 0, blockSize);
   }
   
+  /**
+   * Once the cache is full, a new block is only let in if it has been read more often recently
+   * than the block it would evict.  Without this, a single pass over a large file (a merge, an
+   * export) would push every hot block out of the LRU.
+   * <p>
+   * Looking up the coldest blocks takes the eviction lock of the cache and copies them, so they
+   * are looked up {@link #VICTIM_BATCH_SIZE} at a time and consumed as blocks get admitted.
+   */
+  private boolean admit(BlockCacheKey candidate) {
+    if (cache.estimatedSize() < maxEntries) {
+      return true;
+    }
+    int candidateFrequency = sketch.frequency(candidate.hashCode());
+    synchronized (victimLock) {
+      BlockCacheKey victim = nextVictim();
+      if (victim == null) {
+        return true;
+      }
+      if (candidateFrequency > sketch.frequency(victim.hashCode())) {
+        // the victim is about to be evicted
+        victimUpto++;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /** Returns the next block in eviction order that is still cached, or null if there is none. */
+  private BlockCacheKey nextVictim() {
+    assert Thread.holdsLock(victimLock);
+    boolean refreshed = false;
+    while (true) {
+      if (victimUpto == victims.length) {
+        if (refreshed) {
+          return null;
+        }
+        victims = cache.policy().eviction().get().coldest(VICTIM_BATCH_SIZE).keySet().toArray(new BlockCacheKey[0]);
+        victimUpto = 0;
+        refreshed = true;
+      } else if (cache.asMap().containsKey(victims[victimUpto])) {
+        return victims[victimUpto];
+      } else {
+        // already evicted or released
+        victimUpto++;
+      }
+    }
+  }
+
   private boolean findEmptyLocation(BlockCacheLocation location) {
     // This is a tight loop that will try and find a location to
     // place the block before giving up
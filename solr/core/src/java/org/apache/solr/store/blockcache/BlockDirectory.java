@@ -95,6 +95,7 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
 
   private boolean cacheMerges;
   private boolean cacheReadOnce;
+  private final Metrics metrics;
 
   public BlockDirectory(String dirName, Directory directory, Cache cache,
       Set<String> blockCacheFileTypes, boolean blockCacheReadEnabled,
@@ -105,7 +106,17 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
   public BlockDirectory(String dirName, Directory directory, Cache cache,
       Set<String> blockCacheFileTypes, boolean blockCacheReadEnabled,
       boolean blockCacheWriteEnabled, boolean cacheMerges, boolean cacheReadOnce) throws IOException {
+    this(dirName, directory, cache, blockCacheFileTypes, blockCacheReadEnabled, blockCacheWriteEnabled, cacheMerges, cacheReadOnce, null);
+  }
+
+  /**
+   * @param metrics if not null, cache lookups are also counted per {@link IOContext.Context} and per file extension
+   */
+  public BlockDirectory(String dirName, Directory directory, Cache cache,
+      Set<String> blockCacheFileTypes, boolean blockCacheReadEnabled,
+      boolean blockCacheWriteEnabled, boolean cacheMerges, boolean cacheReadOnce, Metrics metrics) throws IOException {
     super(directory);
+    this.metrics = metrics;
     this.cacheMerges = cacheMerges;
     this.cacheReadOnce = cacheReadOnce;
     this.dirName = dirName;
@@ -130,12 +141,36 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
       throws IOException {
     final IndexInput source = super.openInput(name, context);
     if (useReadCache(name, context)) {
-      return new CachedIndexInput(source, blockSize, name,
+      CachedIndexInput input = new CachedIndexInput(source, blockSize, name,
           getFileCacheName(name), cache, bufferSize);
+      if (metrics != null) {
+        input.setStats(metrics.getContextStats(getContextName(context)), metrics.getFileTypeStats(getFileType(name)));
+      }
+      return input;
+    }
+    if (metrics != null && blockCacheReadEnabled && (blockCacheFileTypes == null || isCachableFile(name))) {
+      // left out of the cache because of how it is being read
+      metrics.getContextStats(getContextName(context)).bypassed.incrementAndGet();
     }
     return source;
   }
   
+  private static String getContextName(IOContext context) {
+    if (context.context == IOContext.Context.READ && context.readOnce) {
+      return "READONCE";
+    }
+    return context.context.name();
+  }
+
+  private static String getFileType(String name) {
+    String ext = IndexFileNames.getExtension(name);
+    if (ext == null) {
+      // e.g. segments_N
+      return IndexFileNames.parseSegmentName(name);
+    }
+    return ext;
+  }
+
   private boolean isCachableFile(String name) {
     for (String ext : blockCacheFileTypes) {
       if (name.endsWith(ext)) {
@@ -158,6 +193,8 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
     private final long fileLength;
     private final String cacheName;
     private final Cache cache;
+    private Metrics.CacheStats contextStats;
+    private Metrics.CacheStats fileTypeStats;
     
     public CachedIndexInput(IndexInput source, int blockSize, String name,
         String cacheName, Cache cache, int bufferSize) {
@@ -169,6 +206,11 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
       this.cache = cache;
       store = BufferStore.instance(blockSize);
     }
+
+    void setStats(Metrics.CacheStats contextStats, Metrics.CacheStats fileTypeStats) {
+      this.contextStats = contextStats;
+      this.fileTypeStats = fileTypeStats;
+    }
     
     @Override
     public IndexInput clone() {
@@ -203,8 +245,16 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
       int blockOffset = (int) getPosition(position);
       int lengthToReadInBlock = Math.min(len, blockSize - blockOffset);
       if (checkCache(blockId, blockOffset, b, off, lengthToReadInBlock)) {
+        if (contextStats != null) {
+          contextStats.hits.incrementAndGet();
+          fileTypeStats.hits.incrementAndGet();
+        }
         return lengthToReadInBlock;
       } else {
+        if (contextStats != null) {
+          contextStats.misses.incrementAndGet();
+          fileTypeStats.misses.incrementAndGet();
+        }
         readIntoCacheAndResult(blockId, blockOffset, b, off,
             lengthToReadInBlock);
       }
@@ -39,10 +39,23 @@ public class Metrics extends SolrCacheBase implements SolrInfoMBean {
     public AtomicLong times = new AtomicLong();
   }
 
+  /**
+   * Block cache lookups for one kind of read, either one {@link org.apache.lucene.store.IOContext.Context}
+   * or one index file extension.
+   */
+  public static class CacheStats {
+    public AtomicLong hits = new AtomicLong();
+    public AtomicLong misses = new AtomicLong();
+    /** files opened without the cache because of their IOContext */
+    public AtomicLong bypassed = new AtomicLong();
+  }
+
   public AtomicLong blockCacheHit = new AtomicLong(0);
   public AtomicLong blockCacheMiss = new AtomicLong(0);
   public AtomicLong blockCacheEviction = new AtomicLong(0);
   public AtomicLong blockCacheSize = new AtomicLong(0);
+  public AtomicLong blockCacheStoreFail = new AtomicLong(0);
+  public AtomicLong blockCacheAdmissionReject = new AtomicLong(0);
   public AtomicLong rowReads = new AtomicLong(0);
   public AtomicLong rowWrites = new AtomicLong(0);
   public AtomicLong recordReads = new AtomicLong(0);
@@ -52,6 +65,8 @@ public class Metrics extends SolrCacheBase implements SolrInfoMBean {
   public AtomicLong shardBuffercacheAllocate = new AtomicLong(0);
   public AtomicLong shardBuffercacheLost = new AtomicLong(0);
   public Map<String,MethodCall> methodCalls = new ConcurrentHashMap<>();
+  public Map<String,CacheStats> contextStats = new ConcurrentHashMap<>();
+  public Map<String,CacheStats> fileTypeStats = new ConcurrentHashMap<>();
   
   public AtomicLong tableCount = new AtomicLong(0);
   public AtomicLong rowCount = new AtomicLong(0);
@@ -89,6 +104,8 @@ public class Metrics extends SolrCacheBase implements SolrInfoMBean {
     stats.add("hitratio", calcHitRatio(lookups, hits));
     stats.add("evictions", getPerSecond(blockCacheEviction.getAndSet(0), seconds));
     stats.add("size", blockCacheSize.get());
+    stats.add("storeFails", getPerSecond(blockCacheStoreFail.getAndSet(0), seconds));
+    stats.add("admissionRejects", getPerSecond(blockCacheAdmissionReject.getAndSet(0), seconds));
     stats.add("row.reads", getPerSecond(rowReads.getAndSet(0), seconds));
     stats.add("row.writes", getPerSecond(rowWrites.getAndSet(0), seconds));
     stats.add("record.reads", getPerSecond(recordReads.getAndSet(0), seconds));
@@ -107,6 +124,8 @@ public class Metrics extends SolrCacheBase implements SolrInfoMBean {
       stats.add("methodcalls." + key + ".count", getPerSecond(invokes, seconds));
       stats.add("methodcalls." + key + ".time", avgTimes);
     }
+    addCacheStats(stats, "context.", contextStats, seconds);
+    addCacheStats(stats, "filetype.", fileTypeStats, seconds);
     stats.add("tables", tableCount.get());
     stats.add("rows", rowCount.get());
     stats.add("records", recordCount.get());
@@ -118,6 +137,28 @@ public class Metrics extends SolrCacheBase implements SolrInfoMBean {
     return stats;
   }
 
+  /** The lookup stats for reads made with the given {@link org.apache.lucene.store.IOContext.Context} */
+  public CacheStats getContextStats(String context) {
+    return contextStats.computeIfAbsent(context, k -> new CacheStats());
+  }
+
+  /** The lookup stats for reads of index files with the given extension */
+  public CacheStats getFileTypeStats(String extension) {
+    return fileTypeStats.computeIfAbsent(extension, k -> new CacheStats());
+  }
+
+  private void addCacheStats(NamedList<Number> stats, String prefix, Map<String,CacheStats> statsMap, float seconds) {
+    for (Entry<String,CacheStats> entry : statsMap.entrySet()) {
+      String key = prefix + entry.getKey();
+      CacheStats value = entry.getValue();
+      long hits = value.hits.getAndSet(0);
+      long lookups = hits + value.misses.getAndSet(0);
+      stats.add(key + ".lookups", getPerSecond(lookups, seconds));
+      stats.add(key + ".hitratio", calcHitRatio(lookups, hits));
+      stats.add(key + ".bypassed", getPerSecond(value.bypassed.getAndSet(0), seconds));
+    }
+  }
+
   private float getPerSecond(long value, float seconds) {
     return (float) (value / seconds);
   }
@@ -371,6 +371,11 @@ public class UninvertingReader extends FilterLeafReader {
     return in.getCombinedCoreAndDeletesKey();
   }
 
+  @Override
+  public void prefetchDocument(int docID) throws IOException {
+    in.prefetchDocument(docID);
+  }
+
   @Override
   public String toString() {
     return "Uninverting(" + in.toString() + ")";
@@ -26,6 +26,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.document.Document;
@@ -914,6 +915,20 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
     if (this.ulog != null) {
       lst.add("transaction_logs_total_size", ulog.getTotalLogsSize());
       lst.add("transaction_logs_total_number", ulog.getTotalLogsNumber());
+      long syncRequests = ulog.getSyncRequests();
+      long syncs = ulog.getSyncs();
+      lst.add("transaction_logs_sync_requests", syncRequests);
+      lst.add("transaction_logs_syncs", syncs);
+      lst.add("transaction_logs_avg_sync_batch_size", syncs == 0 ? 0f : (float) syncRequests / syncs);
+      lst.add("transaction_logs_avg_sync_time_ms",
+          syncRequests == 0 ? 0f : (float) (ulog.getSyncRequestsTimeNanos() / 1e6 / syncRequests));
+    }
+    if (core.getCoreDescriptor().getCoreContainer().isZooKeeperAware()) {
+      // forwarding to replicas is shared by all the cores of this node
+      UpdateShardHandler updateShardHandler = core.getCoreDescriptor().getCoreContainer().getUpdateShardHandler();
+      lst.add("node_forwarded_updates", updateShardHandler.getForwardedUpdates());
+      lst.add("node_forward_queue_full", updateShardHandler.getForwardQueueFullCount());
+      lst.add("node_forward_queue_full_time_ms", TimeUnit.NANOSECONDS.toMillis(updateShardHandler.getForwardQueueFullNanos()));
     }
     return lst;
   }
@@ -284,23 +284,31 @@ public class HdfsTransactionLog extends TransactionLog {
   }
 
   @Override
-  public void finish(UpdateLog.SyncLevel syncLevel) {
-    if (syncLevel == UpdateLog.SyncLevel.NONE) return;
+  boolean doFinish(UpdateLog.SyncLevel syncLevel) {
+    if (syncLevel == UpdateLog.SyncLevel.NONE) return false;
     try {
+      long position;
       synchronized (this) {
         fos.flushBuffer();
+        position = fos.size();
       }
 
       if (syncLevel == UpdateLog.SyncLevel.FSYNC) {
-        tlogOutStream.hsync();
+        return syncTo(position);
       } else {
         tlogOutStream.hflush();
+        return false;
       }
 
     } catch (IOException e) {
       throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
     }
   }
+
+  @Override
+  protected void sync() throws IOException {
+    tlogOutStream.hsync();
+  }
   
   @Override
   public void close() {
@@ -18,25 +18,32 @@ package org.apache.solr.update;
 
 import org.apache.http.HttpResponse;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
 import org.apache.solr.client.solrj.impl.BinaryResponseParser;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient; // jdoc
 import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.ZkCoreNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ContentStream;
+import org.apache.solr.common.util.ContentStreamBase;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.Diagnostics;
 import org.apache.solr.update.processor.DistributedUpdateProcessor.RequestReplicationTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.ConnectException;
 import java.util.ArrayList;
@@ -177,16 +184,17 @@ public class SolrCmdDistributor {
   
   public void distribDelete(DeleteUpdateCommand cmd, List<Node> nodes, ModifiableSolrParams params, boolean sync) throws IOException {
     
+    // a single request for all nodes, so that it is only marshalled once
+    UpdateRequest uReq = new SharedUpdateRequest();
+    uReq.setParams(params);
+    uReq.setCommitWithin(cmd.commitWithin);
+    if (cmd.isDeleteById()) {
+      uReq.deleteById(cmd.getId(), cmd.getRoute(), cmd.getVersion());
+    } else {
+      uReq.deleteByQuery(cmd.query);
+    }
+
     for (Node node : nodes) {
-      UpdateRequest uReq = new UpdateRequest();
-      uReq.setParams(params);
-      uReq.setCommitWithin(cmd.commitWithin);
-      if (cmd.isDeleteById()) {
-        uReq.deleteById(cmd.getId(), cmd.getRoute(), cmd.getVersion());
-      } else {
-        uReq.deleteByQuery(cmd.query);
-      }
-      
       submit(new Req(cmd, node, uReq, sync), false);
     }
   }
@@ -200,12 +208,14 @@ public class SolrCmdDistributor {
   }
   
   public void distribAdd(AddUpdateCommand cmd, List<Node> nodes, ModifiableSolrParams params, boolean synchronous, RequestReplicationTracker rrt) throws IOException {  
+    // a single request for all nodes, so that the document is only marshalled once
+    UpdateRequest uReq = new SharedUpdateRequest();
+    if (cmd.isLastDocInBatch)
+      uReq.lastDocInBatch();
+    uReq.setParams(params);
+    uReq.add(cmd.solrDoc, cmd.commitWithin, cmd.overwrite);
+
     for (Node node : nodes) {
-      UpdateRequest uReq = new UpdateRequest();
-      if (cmd.isLastDocInBatch)
-        uReq.lastDocInBatch();
-      uReq.setParams(params);
-      uReq.add(cmd.solrDoc, cmd.commitWithin, cmd.overwrite);
       submit(new Req(cmd, node, uReq, synchronous, rrt, cmd.pollQueueTime), false);
     }
     
@@ -260,6 +270,7 @@ public class SolrCmdDistributor {
       blockAndDoRetries();
 
       try (HttpSolrClient client = new HttpSolrClient.Builder(req.node.getUrl()).withHttpClient(clients.getHttpClient()).build()) {
+        client.setRequestWriter(new SharedUpdateRequestWriter());
         client.request(req.uReq);
       } catch (Exception e) {
         throw new SolrException(ErrorCode.SERVER_ERROR, "Failed synchronous update on shard " + req.node + " update: " + req.uReq , e);
@@ -290,6 +301,7 @@ public class SolrCmdDistributor {
   private void doRequest(final Req req) {
     try {
       SolrClient solrClient = clients.getSolrClient(req);
+      clients.getUpdateShardHandler().updateForwarded();
       solrClient.request(req.uReq);
     } catch (Exception e) {
       SolrException.log(log, e);
@@ -366,6 +378,48 @@ public class SolrCmdDistributor {
   }
     
 
+  /**
+   * An update request that is forwarded to several nodes. It is marshalled to
+   * javabin once, by whichever stream writes it first, and the other streams
+   * as well as retries write the same bytes.
+   */
+  static class SharedUpdateRequest extends UpdateRequest {
+    private byte[] marshalled;
+
+    synchronized byte[] marshal() throws IOException {
+      if (marshalled == null) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JavaBinUpdateRequestCodec().marshal(this, out);
+        marshalled = out.toByteArray();
+      }
+      return marshalled;
+    }
+  }
+
+  /** A {@link BinaryRequestWriter} that writes {@link SharedUpdateRequest}s from their marshalled bytes. */
+  static class SharedUpdateRequestWriter extends BinaryRequestWriter {
+
+    @Override
+    public ContentStream getContentStream(UpdateRequest request) throws IOException {
+      if (request instanceof SharedUpdateRequest) {
+        ContentStreamBase.ByteArrayStream stream =
+            new ContentStreamBase.ByteArrayStream(((SharedUpdateRequest) request).marshal(), "javabin");
+        stream.setContentType(getUpdateContentType());
+        return stream;
+      }
+      return super.getContentStream(request);
+    }
+
+    @Override
+    public void write(SolrRequest request, OutputStream os) throws IOException {
+      if (request instanceof SharedUpdateRequest) {
+        os.write(((SharedUpdateRequest) request).marshal());
+      } else {
+        super.write(request, os);
+      }
+    }
+  }
+
   public static Diagnostics.Callable testing_errorHook;  // called on error when forwarding request.  Currently data=[this, Request]
 
   
@@ -29,7 +29,6 @@ import java.util.concurrent.ExecutorService;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.solr.client.solrj.SolrClient;
-import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
 import org.apache.solr.client.solrj.impl.BinaryResponseParser;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
 import org.apache.solr.common.SolrException;
@@ -50,8 +49,10 @@ public class StreamingSolrClients {
   private List<Error> errors = Collections.synchronizedList(new ArrayList<Error>());
 
   private ExecutorService updateExecutor;
+  private final UpdateShardHandler updateShardHandler;
 
   public StreamingSolrClients(UpdateShardHandler updateShardHandler) {
+    this.updateShardHandler = updateShardHandler;
     this.updateExecutor = updateShardHandler.getUpdateExecutor();
     
     httpClient = updateShardHandler.getHttpClient();
@@ -74,7 +75,7 @@ public class StreamingSolrClients {
       // the queue is more than half full.
       client = new ErrorReportingConcurrentUpdateSolrClient(url, httpClient, 100, runnerCount, updateExecutor, true, req);
       client.setParser(new BinaryResponseParser());
-      client.setRequestWriter(new BinaryRequestWriter());
+      client.setRequestWriter(new SolrCmdDistributor.SharedUpdateRequestWriter());
       client.setPollQueueTime(req.pollQueueTime);
       Set<String> queryParams = new HashSet<>(2);
       queryParams.add(DistributedUpdateProcessor.DISTRIB_FROM);
@@ -115,6 +116,10 @@ public class StreamingSolrClients {
   public ExecutorService getUpdateExecutor() {
     return updateExecutor;
   }
+
+  public UpdateShardHandler getUpdateShardHandler() {
+    return updateShardHandler;
+  }
   
   class ErrorReportingConcurrentUpdateSolrClient extends ConcurrentUpdateSolrClient {
     private final SolrCmdDistributor.Req req;
@@ -141,5 +146,10 @@ public class StreamingSolrClients {
     public void onSuccess(HttpResponse resp) {
       req.trackRequestResult(resp, true);
     }
+
+    @Override
+    public void onQueueFull(long waitNanos) {
+      updateShardHandler.forwardQueueFull(waitNanos);
+    }
   }
 }
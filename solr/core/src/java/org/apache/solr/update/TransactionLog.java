@@ -19,6 +19,7 @@ package org.apache.solr.update;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.lang.invoke.MethodHandles;
@@ -86,6 +87,12 @@ public class TransactionLog implements Closeable {
   long snapshot_size;
   int snapshot_numRecords;
 
+  // group commit: everything before syncedPosition is on stable storage, and
+  // syncing is true while a thread syncs on behalf of all waiting ones
+  private final Object syncLock = new Object();
+  private long syncedPosition;  // guarded by syncLock
+  private boolean syncing;      // guarded by syncLock
+
   // write a BytesRef as a byte array
   JavaBinCodec.ObjectResolver resolver = new JavaBinCodec.ObjectResolver() {
     @Override
@@ -520,25 +527,91 @@ public class TransactionLog implements Closeable {
     }
   }
 
+  /**
+   * Makes the records written so far visible to readers of the log file and,
+   * with {@link UpdateLog.SyncLevel#FSYNC}, durable.
+   */
   public void finish(UpdateLog.SyncLevel syncLevel) {
-    if (syncLevel == UpdateLog.SyncLevel.NONE) return;
+    doFinish(syncLevel);
+  }
+
+  /**
+   * Implements {@link #finish}.
+   *
+   * @return true if this call synced the log, false if it didn't need to
+   * because a sync by a concurrent caller already covered its records
+   */
+  boolean doFinish(UpdateLog.SyncLevel syncLevel) {
+    if (syncLevel == UpdateLog.SyncLevel.NONE) return false;
     try {
+      long position;
       synchronized (this) {
         fos.flushBuffer();
+        position = fos.size();
       }
 
       if (syncLevel == UpdateLog.SyncLevel.FSYNC) {
         // Since fsync is outside of synchronized block, we can end up with a partial
         // last record on power failure (which is OK, and does not represent an error...
         // we just need to be aware of it when reading).
-        raf.getFD().sync();
+        return syncTo(position);
       }
-
+      return false;
     } catch (IOException e) {
       throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
     }
   }
 
+  /**
+   * Makes sure that everything before {@code position} is on stable storage.
+   * This is a group commit: only one thread syncs at a time, and each sync
+   * covers everything that was written before it started, so that threads
+   * that come while a sync is in progress wait for it and then share a single
+   * sync rather than issuing one each.
+   *
+   * @return true if this call synced the log
+   */
+  protected boolean syncTo(long position) throws IOException {
+    synchronized (syncLock) {
+      while (syncedPosition < position && syncing) {
+        try {
+          syncLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for the transaction log to be synced");
+        }
+      }
+      if (syncedPosition >= position) {
+        return false;
+      }
+      syncing = true;
+    }
+
+    long syncedTo = -1;
+    try {
+      long target;
+      synchronized (this) {
+        fos.flushBuffer();
+        target = fos.size();
+      }
+      sync();
+      syncedTo = target;
+    } finally {
+      synchronized (syncLock) {
+        syncing = false;
+        // if the sync failed, waiting threads will retry it
+        syncedPosition = Math.max(syncedPosition, syncedTo);
+        syncLock.notifyAll();
+      }
+    }
+    return true;
+  }
+
+  /** Forces the data that was flushed to the log file to stable storage. */
+  protected void sync() throws IOException {
+    raf.getFD().sync();
+  }
+
   public void close() {
     try {
       if (debug) {
@@ -39,6 +39,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.lucene.util.BytesRef;
@@ -181,6 +182,12 @@ public class UpdateLog implements PluginInfoInitialized {
 
   protected SyncLevel defaultSyncLevel = SyncLevel.FLUSH;
 
+  // group commit statistics: requests that asked for an fsync, fsyncs that were
+  // actually performed on their behalf, and the time requests spent waiting for them
+  private final AtomicLong syncRequests = new AtomicLong();
+  private final AtomicLong syncs = new AtomicLong();
+  private final AtomicLong syncRequestsTimeNanos = new AtomicLong();
+
   volatile UpdateHandler uhandler;    // a core reload can change this reference!
   protected volatile boolean cancelApplyBufferUpdate;
   List<Long> startingVersions;
@@ -805,12 +812,38 @@ public class UpdateLog implements PluginInfoInitialized {
     }
 
     try {
-      currLog.finish(syncLevel);
+      long start = System.nanoTime();
+      boolean synced = currLog.doFinish(syncLevel);
+      if (syncLevel == SyncLevel.FSYNC) {
+        syncRequestsTimeNanos.addAndGet(System.nanoTime() - start);
+        syncRequests.incrementAndGet();
+        if (synced) {
+          syncs.incrementAndGet();
+        }
+      }
     } finally {
       currLog.decref();
     }
   }
 
+  /** Number of requests that waited for the transaction log to be fsynced. */
+  public long getSyncRequests() {
+    return syncRequests.get();
+  }
+
+  /**
+   * Number of fsyncs of the transaction log. Concurrent requests share fsyncs,
+   * so {@code getSyncRequests() / getSyncs()} is the average group commit size.
+   */
+  public long getSyncs() {
+    return syncs.get();
+  }
+
+  /** Total time that requests spent waiting for the transaction log to be fsynced, in nanoseconds. */
+  public long getSyncRequestsTimeNanos() {
+    return syncRequestsTimeNanos.get();
+  }
+
 
   public Future<RecoveryInfo> recoverFromLog() {
     recoveryInfo = new RecoveryInfo();
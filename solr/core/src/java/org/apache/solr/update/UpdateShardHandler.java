@@ -18,6 +18,7 @@ package org.apache.solr.update;
 
 import java.lang.invoke.MethodHandles;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -52,6 +53,11 @@ public class UpdateShardHandler {
 
   private final PoolingHttpClientConnectionManager clientConnectionManager;
 
+  // statistics about the updates that leaders forward to their replicas, across all cores
+  private final AtomicLong forwardedUpdates = new AtomicLong();
+  private final AtomicLong forwardQueueFullCount = new AtomicLong();
+  private final AtomicLong forwardQueueFullNanos = new AtomicLong();
+
   public UpdateShardHandler(UpdateShardHandlerConfig cfg) {
     clientConnectionManager = new PoolingHttpClientConnectionManager(HttpClientUtil.getSchemaRegisteryProvider().getSchemaRegistry());
     if (cfg != null ) {
@@ -67,6 +73,33 @@ public class UpdateShardHandler {
   public HttpClient getHttpClient() {
     return client;
   }
+
+  void updateForwarded() {
+    forwardedUpdates.incrementAndGet();
+  }
+
+  void forwardQueueFull(long waitNanos) {
+    forwardQueueFullCount.incrementAndGet();
+    forwardQueueFullNanos.addAndGet(waitNanos);
+  }
+
+  /** Number of updates that were forwarded to other nodes, counting one per target node. */
+  public long getForwardedUpdates() {
+    return forwardedUpdates.get();
+  }
+
+  /**
+   * Number of forwarded updates that had to wait for the stream to their target
+   * node to catch up, because it couldn't keep up with the rate of updates.
+   */
+  public long getForwardQueueFullCount() {
+    return forwardQueueFullCount.get();
+  }
+
+  /** Total time that forwarded updates waited for streams to catch up, in nanoseconds. */
+  public long getForwardQueueFullNanos() {
+    return forwardQueueFullNanos.get();
+  }
   
   /**
    * This method returns an executor that is not meant for disk IO and that will
@@ -16,17 +16,51 @@
  */
 package org.apache.solr.update;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 // TODO: make inner?
 // TODO: store the highest possible in the index on a commit (but how to not block adds?)
 // TODO: could also store highest possible in the transaction log after a commit.
 // Or on a new index, just scan "version" for the max?
-/** @lucene.internal */
+/**
+ * Tracks the highest version seen for the ids hashing to this bucket.
+ * <p>
+ * Updates to {@link #highest} are lock-free (compare-and-set), so they can be
+ * read and raised without holding the bucket's monitor.  Callers still
+ * synchronize on the bucket to order the add of a given id with its version.
+ *
+ * @lucene.internal
+ */
 public class VersionBucket {
-  public long highest;
+  private static final AtomicLongFieldUpdater<VersionBucket> HIGHEST =
+      AtomicLongFieldUpdater.newUpdater(VersionBucket.class, "highest");
+
+  public volatile long highest;
 
+  /** Raises the highest version to <code>abs(val)</code>, unless this bucket has not been seeded yet. */
   public void updateHighest(long val) {
-    if (highest != 0) {
-      highest = Math.max(highest, Math.abs(val));
+    final long abs = Math.abs(val);
+    for (;;) {
+      long current = highest;
+      if (current == 0 || current >= abs) {
+        return;
+      }
+      if (HIGHEST.compareAndSet(this, current, abs)) {
+        return;
+      }
+    }
+  }
+
+  /** Raises the highest version to <code>val</code>, seeding the bucket if needed. */
+  public void seedHighest(long val) {
+    for (;;) {
+      long current = highest;
+      if (current >= val) {
+        return;
+      }
+      if (HIGHEST.compareAndSet(this, current, val)) {
+        return;
+      }
     }
   }
 }
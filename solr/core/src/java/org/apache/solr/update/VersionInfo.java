@@ -19,6 +19,7 @@ package org.apache.solr.update;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -51,7 +52,9 @@ public class VersionInfo {
   private final VersionBucket[] buckets;
   private SchemaField versionField;
   private SchemaField idField;
-  final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+  // Non-fair: every update takes the read lock, and fair acquisition makes each of them
+  // check the wait queue. A queued writer (blockUpdates) still blocks new readers.
+  final ReadWriteLock lock = new ReentrantReadWriteLock(false);
 
   /**
    * Gets and returns the {@link #VERSION_FIELD} from the specified 
@@ -150,31 +153,30 @@ public class VersionInfo {
   // that times are somewhat synchronized in the cluster).
   // Good if we want to relax some constraints to scale down to where only one node may be
   // up at a time.  Possibly harder to detect missing messages (because versions are not contiguous).
-  private long vclock;
-  private final Object clockSync = new Object();
+  private final AtomicLong vclock = new AtomicLong();
 
   @SuppressForbidden(reason = "need currentTimeMillis just for getting realistic version stamps, does not assume monotonicity")
   public long getNewClock() {
-    synchronized (clockSync) {
-      long time = System.currentTimeMillis();
-      long result = time << 20;
-      if (result <= vclock) {
-        result = vclock + 1;
+    long result = System.currentTimeMillis() << 20;
+    for (;;) {
+      long current = vclock.get();
+      long next = result <= current ? current + 1 : result;
+      if (vclock.compareAndSet(current, next)) {
+        return next;
       }
-      vclock = result;
-      return vclock;
     }
   }
 
   public long getOldClock() {
-    synchronized (clockSync) {
-      return vclock;
-    }
+    return vclock.get();
   }
 
   public void updateClock(long clock) {
-    synchronized (clockSync) {
-      vclock = Math.max(vclock, clock);
+    for (;;) {
+      long current = vclock.get();
+      if (current >= clock || vclock.compareAndSet(current, clock)) {
+        return;
+      }
     }
   }
 
@@ -257,11 +259,8 @@ public class VersionInfo {
 
   public void seedBucketsWithHighestVersion(long highestVersion) {
     for (int i=0; i<buckets.length; i++) {
-      // should not happen, but in case other threads are calling updateHighest on the version bucket
-      synchronized (buckets[i]) {
-        if (buckets[i].highest < highestVersion)
-          buckets[i].highest = highestVersion;
-      }
+      // lock-free, in case other threads are calling updateHighest on the version bucket
+      buckets[i].seedHighest(highestVersion);
     }
   }
 }
@@ -34,12 +34,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.LuceneTestCase.Slow;
 import org.apache.lucene.util.TestUtil;
 import org.apache.solr.BaseDistributedSearchTestCase;
@@ -64,6 +69,7 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CachingDirectoryFactory;
 import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.DirectoryFactory.DirContext;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.StandardDirectoryFactory;
 import org.apache.solr.util.FileUtils;
@@ -786,6 +792,93 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
   }
   
   
+  @Test
+  public void doTestResumeIndexFetch() throws Exception {
+    // no polling
+    slave.copyConfigFile(CONF_DIR + "solrconfig-slave1.xml", "solrconfig.xml");
+    slaveJetty.stop();
+    slaveJetty = createJetty(slave);
+    slaveClient.close();
+    slaveClient = createNewSolrClient(slaveJetty.getLocalPort());
+
+    masterClient.deleteByQuery("*:*");
+    for (int i = 0; i < nDocs; i++)
+      index(masterClient, "id", i, "name", "name = " + i);
+    masterClient.commit();
+    NamedList masterQueryRsp = rQuery(nDocs, "*:*", masterClient);
+    SolrDocumentList masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
+
+    // leave behind what a failed fetch would: one complete file, one truncated one
+    String partialDirName = "index.partial";
+    long indexBytes = 0;
+    long keptBytes;
+    try (SolrCore masterCore = masterJetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME);
+         SolrCore slaveCore = slaveJetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      IndexCommit commit = masterCore.getDeletionPolicy().getLatestCommit();
+      List<String> files = new ArrayList<>();
+      for (String file : commit.getFileNames()) {
+        if (!file.startsWith("segments_")) {
+          files.add(file);
+        }
+      }
+      assertTrue(files.size() >= 2);
+      Directory masterDir = masterCore.getDirectoryFactory().get(masterCore.getIndexDir(), DirContext.DEFAULT,
+          masterCore.getSolrConfig().indexConfig.lockType);
+      Directory partialDir = slaveCore.getDirectoryFactory().get(slaveCore.getDataDir() + partialDirName,
+          DirContext.DEFAULT, slaveCore.getSolrConfig().indexConfig.lockType);
+      try {
+        for (String file : commit.getFileNames()) {
+          indexBytes += masterDir.fileLength(file);
+        }
+        keptBytes = masterDir.fileLength(files.get(0));
+        assertTrue(keptBytes > 0);
+        partialDir.copyFrom(masterDir, files.get(0), files.get(0), IOContext.DEFAULT);
+        try (IndexInput in = masterDir.openInput(files.get(1), IOContext.READONCE);
+             IndexOutput out = partialDir.createOutput(files.get(1), IOContext.DEFAULT)) {
+          out.copyBytes(in, in.length() / 2);
+        }
+      } finally {
+        masterCore.getDirectoryFactory().release(masterDir);
+        slaveCore.getDirectoryFactory().release(partialDir);
+      }
+      ((ReplicationHandler) slaveCore.getRequestHandler(ReplicationHandler.PATH)).setPartialIndexDirName(partialDirName);
+    }
+
+    String masterUrl = buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH+"?command=fetchindex&masterUrl=";
+    masterUrl += buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH;
+    URL url = new URL(masterUrl);
+    InputStream stream = url.openStream();
+    stream.close();
+
+    // the fetch installed a valid index ...
+    NamedList slaveQueryRsp = rQuery(nDocs, "*:*", slaveClient);
+    SolrDocumentList slaveQueryResult = (SolrDocumentList) slaveQueryRsp.get("response");
+    assertEquals(nDocs, slaveQueryResult.getNumFound());
+    String cmp = BaseDistributedSearchTestCase.compare(masterQueryResult, slaveQueryResult, 0, null);
+    assertEquals(null, cmp);
+    assertVersions(masterClient, slaveClient);
+
+    // ... without downloading the complete file again
+    try (SolrCore slaveCore = slaveJetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      ReplicationHandler handler = (ReplicationHandler) slaveCore.getRequestHandler(ReplicationHandler.PATH);
+      long bytesDownloaded = Long.parseLong(
+          handler.loadReplicationProperties().getProperty(IndexFetcher.LAST_CYCLE_BYTES_DOWNLOADED));
+      assertTrue("downloaded " + bytesDownloaded + " of " + indexBytes + " bytes, " + keptBytes + " were kept",
+          bytesDownloaded > 0 && bytesDownloaded <= indexBytes - keptBytes);
+
+      // a partial directory that no fetch resumes does not outlive the core
+      handler.setPartialIndexDirName(partialDirName);
+      Directory partialDir = slaveCore.getDirectoryFactory().get(slaveCore.getDataDir() + partialDirName,
+          DirContext.DEFAULT, slaveCore.getSolrConfig().indexConfig.lockType);
+      slaveCore.getDirectoryFactory().release(partialDir);
+      assertTrue(slaveCore.getDirectoryFactory().exists(slaveCore.getDataDir() + partialDirName));
+    }
+    slaveJetty.getCoreContainer().reload(DEFAULT_TEST_CORENAME);
+    try (SolrCore slaveCore = slaveJetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      assertFalse(slaveCore.getDirectoryFactory().exists(slaveCore.getDataDir() + partialDirName));
+    }
+  }
+
   @Test 
   public void doTestStressReplication() throws Exception {
     // change solrconfig on slave
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import org.apache.solr.BaseDistributedSearchTestCase;
+import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.ShardParams;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs distributed requests with {@link HttpShardHandlerFactory}'s non-blocking
+ * http client, including the fail over from the dead replicas that
+ * {@link BaseDistributedSearchTestCase} randomly adds to every shard.
+ */
+public class DistributedAsyncShardRequestsTest extends BaseDistributedSearchTestCase {
+
+  private static final String t1 = "a_t";
+  private static final String i1 = "a_i1";
+
+  @BeforeClass
+  public static void enableAsyncShardRequests() {
+    System.setProperty("asyncShardRequests", "true");
+  }
+
+  @AfterClass
+  public static void clearAsyncShardRequests() {
+    System.clearProperty("asyncShardRequests");
+  }
+
+  public DistributedAsyncShardRequestsTest() {
+    stress = 0;
+  }
+
+  @Test
+  @ShardsFixed(num = 3)
+  public void test() throws Exception {
+    for (JettySolrRunner jetty : jettys) {
+      HttpShardHandlerFactory factory = (HttpShardHandlerFactory) jetty.getCoreContainer().getShardHandlerFactory();
+      assertNotNull(factory.getAsyncClient());
+    }
+
+    del("*:*");
+    for (int i = 0; i < 50; i++) {
+      index(id, i, i1, i % 7, t1, "word" + (i % 5) + " common");
+    }
+    commit();
+
+    handle.clear();
+    handle.put("timestamp", SKIPVAL);
+    handle.put("_version_", SKIPVAL);
+    handle.put("maxScore", SKIPVAL);
+
+    query("q", "*:*", "sort", i1 + " desc, id asc", "rows", 20);
+    query("q", t1 + ":common", "fl", "id," + i1, "sort", "id asc", "start", 5, "rows", 10);
+    query("q", "*:*", "rows", 0, "facet", "true", "facet.field", i1, "facet.field", t1);
+    query("q", "*:*", "rows", 0, "stats", "true", "stats.field", i1);
+    query("q", "*:*", "fl", "id", "sort", "id asc", "group", "true", "group.field", i1);
+
+    // the failure of a shard without live replica is reported, not thrown, with shards.tolerant
+    QueryResponse rsp = queryServer(params("q", "*:*",
+        "shards", getShardsString() + "," + deadServers[0],
+        ShardParams.SHARDS_TOLERANT, "true"));
+    assertEquals(Boolean.TRUE, rsp.getHeader().get("partialResults"));
+    assertEquals(50, rsp.getResults().getNumFound());
+  }
+}
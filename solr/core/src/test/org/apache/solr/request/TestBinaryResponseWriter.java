@@ -28,6 +28,7 @@ import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.response.BinaryQueryResponseWriter;
+import org.apache.solr.response.BinaryResponseWriter;
 import org.apache.solr.response.BinaryResponseWriter.Resolver;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.search.SolrReturnFields;
@@ -72,6 +73,51 @@ public class TestBinaryResponseWriter extends AbstractSolrTestCase {
     req.close();
   }
 
+  public void testWriteDocsDirectly() throws Exception {
+    BinaryResponseWriter directWriter = new BinaryResponseWriter();
+    NamedList<Object> args = new NamedList<>();
+    args.add(BinaryResponseWriter.WRITE_DOCS_DIRECTLY, "true");
+    directWriter.init(args);
+    BinaryResponseWriter writer = new BinaryResponseWriter();
+    writer.init(new NamedList<>());
+
+    for (int i = 0; i < 20; i++) {
+      assertU(adoc("id", Integer.toString(200 + i),
+          "uuid", UUID.randomUUID().toString(),
+          "foo_s", "a" + i, "foo_s", "b" + i,
+          "bar_s1", "single\u00e9" + i,
+          "num_i", Integer.toString(i - 10),
+          "nums_is", Integer.toString(i), "nums_is", Integer.toString(-i),
+          "num_l", Long.toString(Long.MAX_VALUE - i),
+          "num_f", Float.toString(i / 3f),
+          "num_d", Double.toString(-i / 7d),
+          "date_dt", "2016-0" + (1 + i % 9) + "-01T00:00:00Z",
+          "flag_b", Boolean.toString(i % 2 == 0),
+          "body_t", "some text " + i));
+      if (random().nextInt(5) == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    for (String fl : new String[] {"*", "id,foo_s,num_i,date_dt", "*_s*,num_*", "id,uuid,flag_b", "id,score", "id,[docid]"}) {
+      LocalSolrQueryRequest req = lrf.makeRequest("q", "id:2*", "fl", fl, "rows", "100", "sort", "id asc");
+      SolrQueryResponse rsp = h.queryAndResponse(req.getParams().get(CommonParams.QT), req);
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      writer.write(expected, req, rsp);
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      directWriter.write(actual, req, rsp);
+      assertArrayEquals("fl=" + fl, expected.toByteArray(), actual.toByteArray());
+
+      NamedList res = (NamedList) new JavaBinCodec().unmarshal(new ByteArrayInputStream(actual.toByteArray()));
+      assertEquals(20, ((SolrDocumentList) res.get("response")).size());
+      req.close();
+    }
+
+    assertU(delQ("id:2*"));
+    assertU(commit());
+  }
+
   public void testResolverSolrDocumentPartialFields() throws Exception {
     LocalSolrQueryRequest req = lrf.makeRequest("q", "*:*",
                                                 "fl", "id,xxx,ddd_s"); 
@@ -16,7 +16,9 @@
  */
 package org.apache.solr.response;
 
+import org.apache.lucene.util.TestUtil;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.*;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
 
@@ -100,9 +102,30 @@ public class TestSortingResponseWriter extends SolrTestCaseJ4 {
         "stringdv_m", "everton"));
     assertU(commit());
 
-
+    // bulk docs for comparing the export pipeline with the batched sort, more than one
+    // render batch of them; their intdv is unique and outside the ranges queried above
+    String[] strings = {"alpha", "bravo", "charlie", "delta"};
+    for (int i = 0; i < ExportPipeline.BATCH_SIZE + 500; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", "bulk" + i);
+      doc.addField("intdv", BULK_INT_BASE + i);
+      doc.addField("floatdv", random().nextInt(3) + 0.5f);
+      doc.addField("longdv", random().nextInt(5) - 2L);
+      doc.addField("doubledv", random().nextInt(10) * 1.5d);
+      if (random().nextInt(5) != 0) {
+        doc.addField("stringdv", strings[random().nextInt(strings.length)]);
+      }
+      assertU(adoc(doc));
+      // several segments, so that tied hits of different segments are interleaved
+      if (i % 1000 == 999 || random().nextInt(1000) == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
   }
 
+  private static final int BULK_INT_BASE = 100000000;
+
   @Test
   public void testSortingOutput() throws Exception {
 
@@ -173,4 +196,92 @@ public class TestSortingResponseWriter extends SolrTestCaseJ4 {
 
 
   }
+
+  @Test
+  public void testPipelineMatchesBatchedSort() throws Exception {
+    String q = "intdv:[" + BULK_INT_BASE + " TO *]";
+    String[] sorts = {
+        "intdv desc",
+        "floatdv asc,intdv asc",
+        "stringdv asc,longdv desc,intdv desc",
+        "stringdv desc,doubledv asc,floatdv desc,intdv asc",
+        "longdv asc,intdv desc"
+    };
+    for (String sort : sorts) {
+      String expected = h.query(req("q", q, "qt", "/export", "fl", "intdv,stringdv,longdv", "sort", sort, "export.threads", "0"));
+      assertTrue(expected.contains("\"numFound\":" + (ExportPipeline.BATCH_SIZE + 500)));
+      // the last one is clamped to the number of processors
+      for (String threads : new String[] {"1", "2", "" + TestUtil.nextInt(random(), 3, 8), "10000"}) {
+        String actual = h.query(req("q", q, "qt", "/export", "fl", "intdv,stringdv,longdv", "sort", sort, "export.threads", threads));
+        assertEquals("sort=" + sort + " threads=" + threads, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testPipelineBreaksTiesLikeBatchedSort() throws Exception {
+    // few distinct values, so most hits tie on all sort fields and are ordered by doc id alone
+    String q = "intdv:[" + BULK_INT_BASE + " TO *]";
+    String[] sorts = {
+        "longdv asc",
+        "stringdv desc",
+        "floatdv asc,longdv desc",
+        "stringdv asc,floatdv desc,longdv asc",
+        "longdv desc,stringdv asc,floatdv asc,doubledv desc"
+    };
+    for (String sort : sorts) {
+      String expected = h.query(req("q", q, "qt", "/export", "fl", "intdv", "sort", sort, "export.threads", "0"));
+      for (String threads : new String[] {"1", "" + TestUtil.nextInt(random(), 2, 8)}) {
+        String actual = h.query(req("q", q, "qt", "/export", "fl", "intdv", "sort", sort, "export.threads", threads));
+        assertEquals("sort=" + sort + " threads=" + threads, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSort() throws Exception {
+    int numHits = TestUtil.nextInt(random(), 1, 2000);
+    long[][] keys = new long[TestUtil.nextInt(random(), 1, 4)][numHits];
+    for (long[] fieldKeys : keys) {
+      long bound = 1L << random().nextInt(64);
+      for (int i = 0; i < numHits; i++) {
+        fieldKeys[i] = random().nextBoolean() ? random().nextLong() % bound : -(random().nextLong() % bound);
+      }
+    }
+    int[] order = ExportPipeline.radixSort(keys, numHits);
+    for (int i = 1; i < numHits; i++) {
+      int cmp = 0;
+      for (int field = 0; field < keys.length && cmp == 0; field++) {
+        cmp = Long.compare(keys[field][order[i - 1]], keys[field][order[i]]);
+      }
+      assertTrue(cmp < 0 || (cmp == 0 && order[i - 1] < order[i]));
+    }
+  }
+
+  @Test
+  public void testPermute() throws Exception {
+    int numHits = TestUtil.nextInt(random(), 1, 2000);
+    long[][] keys = new long[TestUtil.nextInt(random(), 1, 4)][numHits];
+    int[] docs = new int[numHits];
+    for (int i = 0; i < numHits; i++) {
+      docs[i] = random().nextInt();
+      for (long[] fieldKeys : keys) {
+        fieldKeys[i] = random().nextLong();
+      }
+    }
+    long[][] expectedKeys = new long[keys.length][];
+    for (int field = 0; field < keys.length; field++) {
+      expectedKeys[field] = keys[field].clone();
+    }
+    int[] expectedDocs = docs.clone();
+    int[] order = ExportPipeline.radixSort(keys, numHits);
+    int[] expectedOrder = order.clone();
+    ExportPipeline.permute(order, docs, keys);
+    for (int i = 0; i < numHits; i++) {
+      assertEquals(expectedDocs[expectedOrder[i]], docs[i]);
+      for (int field = 0; field < keys.length; field++) {
+        assertEquals(expectedKeys[field][expectedOrder[i]], keys[field][i]);
+      }
+    }
+  }
 }
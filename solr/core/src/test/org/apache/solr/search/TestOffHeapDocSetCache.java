@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+
+/**
+ * Test for <code>org.apache.solr.search.OffHeapDocSetCache</code>
+ */
+public class TestOffHeapDocSetCache extends LuceneTestCase {
+
+  private static DocSet randomDocSet(int maxDoc) {
+    final int numDocs = random().nextInt(maxDoc);
+    if (random().nextBoolean()) {
+      FixedBitSet bits = new FixedBitSet(maxDoc);
+      for (int i = 0; i < numDocs; ++i) {
+        bits.set(random().nextInt(maxDoc));
+      }
+      return new BitDocSet(bits);
+    } else {
+      final int[] docs = new int[numDocs];
+      int doc = -1;
+      int len = 0;
+      for (int i = 0; i < numDocs && doc < maxDoc - 1; ++i) {
+        doc += TestUtil.nextInt(random(), 1, random().nextBoolean() ? 3 : 1 << 20);
+        if (doc >= maxDoc) {
+          break;
+        }
+        docs[len++] = doc;
+      }
+      return new SortedIntDocSet(docs, len);
+    }
+  }
+
+  private static BitDocSet randomBitDocSet(int maxDoc) {
+    FixedBitSet bits = new FixedBitSet(maxDoc);
+    final int numDocs = random().nextInt(maxDoc + 1);
+    for (int i = 0; i < numDocs; ++i) {
+      bits.set(random().nextInt(maxDoc));
+    }
+    return new BitDocSet(bits);
+  }
+
+  private static OffHeapDocSetCache<Object> newCache(Map<String, String> params, Object persistence) {
+    OffHeapDocSetCache<Object> cache = new OffHeapDocSetCache<>();
+    cache.init(params, persistence, new NoOpRegenerator());
+    cache.setState(SolrCache.State.LIVE);
+    return cache;
+  }
+
+  public void testRoundTrip() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "1000");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    final int maxDoc = TestUtil.nextInt(random(), 1, 1 << 22);
+    List<DocSet> sets = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      DocSet set = randomDocSet(maxDoc);
+      sets.add(set);
+      assertNull(cache.put(i, set));
+    }
+    assertEquals(50, cache.size());
+    for (int i = 0; i < 50; ++i) {
+      DocSet expected = sets.get(i);
+      DocSet actual = cache.get(i);
+      assertEquals(expected.getClass(), actual.getClass());
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected, actual);
+    }
+    assertNull(cache.get(50));
+    cache.close();
+  }
+
+  public void testMaxSize() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("stripes", "1");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    for (int i = 0; i < 101; i++) {
+      cache.put(i + 1, new SortedIntDocSet(new int[] {i + 1}));
+    }
+    assertEquals(100, cache.size());
+    assertEquals(new SortedIntDocSet(new int[] {25}), cache.get(25));
+    assertNull(cache.get(110));
+    assertNull(cache.get(1)); // first item put in should be the first out
+    NamedList<Serializable> nl = cache.getStatistics();
+    assertEquals(3L, nl.get("lookups"));
+    assertEquals(1L, nl.get("hits"));
+    assertEquals(101L, nl.get("inserts"));
+    assertEquals(1L, nl.get("evictions"));
+    cache.close();
+  }
+
+  public void testMaxRamSize() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("maxRamMB", "1");
+    params.put("stripes", "1");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    // 512KB each
+    cache.put("1", new BitDocSet(new FixedBitSet(512 * 1024 * 8)));
+    assertEquals(512 * 1024, cache.offHeapBytesUsed());
+    cache.put("2", new BitDocSet(new FixedBitSet(512 * 1024 * 8)));
+    assertEquals(2, cache.size());
+    assertEquals(1024 * 1024, cache.offHeapBytesUsed());
+    cache.get("1"); // "2" is now the least recently used entry
+    cache.put("3", new BitDocSet(new FixedBitSet(8)));
+    assertEquals(2, cache.size());
+    assertNull(cache.get("2"));
+    assertNotNull(cache.get("1"));
+    assertEquals(512 * 1024 + 1 * 8, cache.offHeapBytesUsed());
+    assertEquals(1L, cache.getStatistics().get("evictions"));
+
+    // replacing an entry releases the bytes of the previous value
+    cache.put("1", new BitDocSet(new FixedBitSet(64)));
+    assertEquals(8 + 8, cache.offHeapBytesUsed());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.offHeapBytesUsed());
+    cache.close();
+  }
+
+  public void testIllegalConfig() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "0");
+    expectThrows(SolrException.class, () -> newCache(params, null));
+  }
+
+  public void testAutowarm() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("autowarmCount", "50%");
+    params.put("stripes", Integer.toString(TestUtil.nextInt(random(), 1, 16)));
+    OffHeapDocSetCache<Object> cache = new OffHeapDocSetCache<>();
+    Object persistence = cache.init(params, null, new NoOpRegenerator());
+    cache.setState(SolrCache.State.LIVE);
+    for (int i = 1; i <= 100; i++) {
+      cache.put(i, new SortedIntDocSet(new int[] {i}));
+    }
+    // make the first entries the most recently used ones
+    for (int i = 1; i <= 10; i++) {
+      assertNotNull(cache.get(i));
+    }
+
+    OffHeapDocSetCache<Object> cacheNew = new OffHeapDocSetCache<>();
+    cacheNew.init(params, persistence, new NoOpRegenerator());
+    cacheNew.warm(null, cache);
+    cacheNew.setState(SolrCache.State.LIVE);
+    cache.close();
+
+    assertEquals(50, cacheNew.size());
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(new SortedIntDocSet(new int[] {i}), cacheNew.get(i));
+    }
+    for (int i = 11; i <= 60; i++) {
+      assertNull(cacheNew.get(i));
+    }
+    for (int i = 61; i <= 100; i++) {
+      assertEquals(new SortedIntDocSet(new int[] {i}), cacheNew.get(i));
+    }
+    NamedList<Serializable> nl = cacheNew.getStatistics();
+    assertEquals(100L, nl.get("cumulative_inserts"));
+    cacheNew.close();
+  }
+
+  public void testConcurrentAccess() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "20");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    final int maxDoc = 1000;
+    final DocSet[] sets = new DocSet[50];
+    for (int i = 0; i < sets.length; ++i) {
+      sets[i] = randomDocSet(maxDoc);
+    }
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; ++t) {
+      final Random random = new Random(random().nextLong());
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; ++i) {
+            int key = random.nextInt(sets.length);
+            DocSet set = cache.get(key);
+            if (set == null) {
+              cache.put(key, sets[key]);
+            } else {
+              assertEquals(sets[key], set);
+            }
+          }
+        }
+      };
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // 16 stripes that may hold up to 2 entries each
+    assertTrue(cache.size() <= 32);
+    cache.close();
+  }
+
+  public void testOffHeapView() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "10");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    final int maxDoc = TestUtil.nextInt(random(), 1, 10000);
+    BitDocSet expected = randomBitDocSet(maxDoc);
+    BitDocSet otherExpected = randomBitDocSet(maxDoc);
+    cache.put("a", expected);
+    cache.put("b", otherExpected);
+
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(null, new SolrQueryResponse()));
+    final DocSet actual;
+    try {
+      actual = cache.get("a");
+      assertTrue(actual instanceof OffHeapBitDocSet);
+      final DocSet otherActual = cache.get("b");
+      assertTrue(otherActual instanceof OffHeapBitDocSet);
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected, actual);
+      for (int doc = 0; doc < maxDoc; ++doc) {
+        assertEquals(expected.exists(doc), actual.exists(doc));
+      }
+
+      final DocSet sorted = randomDocSet(maxDoc);
+      for (DocSet other : new DocSet[] {otherExpected, otherActual, sorted}) {
+        assertEquals(expected.intersectionSize(other), actual.intersectionSize(other));
+        assertEquals(expected.intersects(other), actual.intersects(other));
+        assertEquals(expected.intersection(other), actual.intersection(other));
+        assertEquals(expected.union(other), actual.union(other));
+        assertEquals(expected.andNot(other), actual.andNot(other));
+        assertEquals(expected.andNotSize(other), actual.andNotSize(other));
+        // the other way around
+        assertEquals(other.intersectionSize(expected), other.intersectionSize(actual));
+        assertEquals(other.intersection(expected), other.intersection(actual));
+      }
+      BitDocSet target = new BitDocSet(new FixedBitSet(maxDoc));
+      actual.addAllTo(target);
+      target.invalidateSize();
+      assertEquals(expected, target);
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+    }
+    // released at the end of the request
+    expectThrows(AlreadyClosedException.class, () -> actual.exists(0));
+    cache.close();
+  }
+
+  public void testOffHeapViewFilter() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(new Document());
+      if (rarely()) {
+        w.commit();
+      }
+    }
+    DirectoryReader reader = w.getReader();
+    w.close();
+
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "10");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    BitDocSet expected = randomBitDocSet(reader.maxDoc());
+    cache.put("a", expected);
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(null, new SolrQueryResponse()));
+    try {
+      DocSet actual = cache.get("a");
+      assertTrue(actual instanceof OffHeapBitDocSet);
+      Filter expectedFilter = expected.getTopFilter();
+      Filter actualFilter = actual.getTopFilter();
+      for (LeafReaderContext context : reader.leaves()) {
+        DocIdSet expectedSet = expectedFilter.getDocIdSet(context, null);
+        DocIdSet actualSet = actualFilter.getDocIdSet(context, null);
+        DocIdSetIterator expectedIt = expectedSet.iterator();
+        DocIdSetIterator actualIt = actualSet.iterator();
+        Bits actualBits = actualSet.bits();
+        for (int doc = 0; doc < context.reader().maxDoc(); ++doc) {
+          assertEquals(expectedSet.bits().get(doc), actualBits.get(doc));
+        }
+        int doc = -1;
+        while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+          if (random().nextBoolean()) {
+            doc = expectedIt.nextDoc();
+            assertEquals(doc, actualIt.nextDoc());
+          } else {
+            final int target = doc + TestUtil.nextInt(random(), 1, 5);
+            doc = expectedIt.advance(target);
+            assertEquals(doc, actualIt.advance(target));
+          }
+        }
+      }
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+    }
+    cache.close();
+    reader.close();
+    dir.close();
+  }
+
+  public void testReleaseEvictedEntries() {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "1");
+    params.put("stripes", "1");
+    OffHeapDocSetCache<Object> cache = newCache(params, null);
+    cache.put("a", new BitDocSet(new FixedBitSet(128)));
+    OffHeapDocSetCache.Entry entry = cache.entry("a");
+
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(null, new SolrQueryResponse()));
+    try {
+      assertNotNull(cache.get("a"));
+      // evict the entry while a request still uses it
+      cache.put("b", new BitDocSet(new FixedBitSet(128)));
+      assertNull(cache.get("a"));
+      assertFalse(entry.isReleased());
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+    }
+    assertTrue(entry.isReleased());
+
+    // no request: the set is copied to the heap and nothing is retained
+    entry = cache.entry("b");
+    DocSet copy = cache.get("b");
+    assertTrue(copy instanceof BitDocSet);
+    assertFalse(entry.isReleased());
+    cache.close();
+    assertTrue(entry.isReleased());
+    assertEquals(0, copy.size());
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.index.TieredMergePolicyFactory;
+import org.apache.solr.util.RefCounted;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for <code>org.apache.solr.search.SegmentFilterCache</code>
+ */
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // segments must not be merged for statistics to be predictable
+    systemSetPropertySolrTestsMergePolicy(TieredMergePolicy.class.getName());
+    systemSetPropertySolrTestsMergePolicyFactory(TieredMergePolicyFactory.class.getName());
+    initCore("solrconfig-segmentfiltercache.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() throws Exception {
+    systemClearPropertySolrTestsMergePolicy();
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    clearIndex();
+    assertU(commit());
+    h.getCore().getSegmentFilterCache().clear();
+  }
+
+  private static long stat(String name) {
+    NamedList stats = h.getCore().getSegmentFilterCache().getStatistics();
+    return ((Number) stats.get(name)).longValue();
+  }
+
+  private static int numLeaves() {
+    RefCounted<SolrIndexSearcher> holder = h.getCore().getSearcher();
+    try {
+      return holder.get().getTopReaderContext().leaves().size();
+    } finally {
+      holder.decref();
+    }
+  }
+
+  @Test
+  public void testIsCacheable() {
+    Query term = new TermQuery(new Term("cat_s", "a"));
+    assertTrue(SegmentFilterCache.isCacheable(term));
+    assertTrue(SegmentFilterCache.isCacheable(TermRangeQuery.newStringRange("cat_s", "a", "b", true, true)));
+    assertTrue(SegmentFilterCache.isCacheable(new WrappedQuery(term)));
+    assertTrue(SegmentFilterCache.isCacheable(new BooleanQuery.Builder()
+        .add(term, Occur.SHOULD)
+        .add(new TermQuery(new Term("cat_s", "b")), Occur.MUST_NOT)
+        .build()));
+    assertFalse(SegmentFilterCache.isCacheable(new MatchAllDocsQuery()));
+    assertFalse(SegmentFilterCache.isCacheable(new BooleanQuery.Builder()
+        .add(term, Occur.SHOULD)
+        .add(new MatchAllDocsQuery(), Occur.SHOULD)
+        .build()));
+  }
+
+  @Test
+  public void testEntriesSurviveCommits() throws Exception {
+    final long hits = stat("hits");
+    final long lookups = stat("lookups");
+    assertU(adoc("id", "1", "cat_s", "a"));
+    assertU(adoc("id", "2", "cat_s", "a"));
+    assertU(adoc("id", "3", "cat_s", "b"));
+    assertU(commit());
+    final int firstLeaves = numLeaves();
+
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//result[@numFound='2']");
+    assertEquals(hits, stat("hits"));
+    assertEquals(lookups + firstLeaves, stat("lookups"));
+    assertEquals(firstLeaves, stat("size"));
+
+    // the filterCache of the new searcher is empty, but entries of existing segments are reused
+    assertU(adoc("id", "4", "cat_s", "a"));
+    assertU(adoc("id", "5", "cat_s", "c"));
+    assertU(commit());
+    final int secondLeaves = numLeaves();
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//result[@numFound='3']");
+    assertEquals(hits + firstLeaves, stat("hits"));
+    assertEquals(lookups + firstLeaves + secondLeaves, stat("lookups"));
+
+    // deletions are applied on top of cached entries
+    assertU(delI("1"));
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//result[@numFound='2']");
+    assertQ(req("q", "*:*", "fq", "-cat_s:a"), "//result[@numFound='2']");
+    assertEquals(hits + firstLeaves + secondLeaves, stat("hits"));
+
+    // queries that can't be cached per segment still work
+    assertQ(req("q", "*:*", "fq", "{!join from=id to=id}cat_s:a"), "//result[@numFound='2']");
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    final int numDocs = atLeast(50);
+    for (int i = 0; i < numDocs; ++i) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", Integer.toString(random().nextInt(5)),
+          "val_i", Integer.toString(random().nextInt(100))));
+      if (random().nextInt(10) == 0) {
+        assertU(commit());
+      }
+      if (random().nextInt(20) == 0) {
+        assertU(delI(Integer.toString(random().nextInt(i + 1))));
+      }
+    }
+    assertU(commit());
+
+    RefCounted<SolrIndexSearcher> holder = h.getCore().getSearcher();
+    try {
+      SolrIndexSearcher searcher = holder.get();
+      SegmentFilterCache cache = h.getCore().getSegmentFilterCache();
+      for (int i = 0; i < 5; ++i) {
+        Query q = new TermQuery(new Term("cat_s", Integer.toString(i)));
+        int[] expected = toArray(DocSetUtil.createDocSetGeneric(searcher, q));
+        assertArrayEquals(expected, toArray(cache.getDocSet(searcher, q)));
+        // second time from the cache
+        assertArrayEquals(expected, toArray(cache.getDocSet(searcher, q)));
+      }
+    } finally {
+      holder.decref();
+    }
+  }
+
+  private static int[] toArray(DocSet set) {
+    int[] docs = new int[set.size()];
+    DocIterator it = set.iterator();
+    for (int i = 0; i < docs.length; ++i) {
+      docs[i] = it.nextDoc();
+    }
+    assertFalse(it.hasNext());
+    return docs;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.List;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestGlobalOrdinals extends LuceneTestCase {
+
+  public void testIncrementalMatchesFull() throws Exception {
+    doTestIncremental(true);
+    doTestIncremental(false);
+  }
+
+  private void doTestIncremental(boolean multiValued) throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    IndexWriter writer = new IndexWriter(dir, iwc);
+    int numTerms = TestUtil.nextInt(random(), 1, 500);
+    int id = 0;
+    DirectoryReader reader = null;
+    GlobalOrdinals ords = null;
+    int numReopens = atLeast(20);
+    for (int reopen = 0; reopen < numReopens; reopen++) {
+      int numDocs = TestUtil.nextInt(random(), 1, 50);
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        doc.add(new StringField("id", Integer.toString(id++), Field.Store.NO));
+        int numValues = multiValued ? random().nextInt(4) : random().nextInt(2);
+        for (int v = 0; v < numValues; v++) {
+          BytesRef value = new BytesRef("term" + random().nextInt(numTerms));
+          doc.add(multiValued ? new SortedSetDocValuesField("field", value) : new SortedDocValuesField("field", value));
+        }
+        writer.addDocument(doc);
+      }
+      if (random().nextInt(4) == 0) {
+        writer.deleteDocuments(new Term("id", Integer.toString(random().nextInt(id))));
+      }
+      if (random().nextInt(10) == 0) {
+        writer.forceMerge(TestUtil.nextInt(random(), 1, 3));
+      }
+
+      if (reader == null) {
+        reader = DirectoryReader.open(writer);
+      } else {
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer);
+        if (newReader != null) {
+          reader.close();
+          reader = newReader;
+        }
+      }
+
+      GlobalOrdinals previous = ords;
+      ords = GlobalOrdinals.build("field", multiValued, reader.leaves(), previous);
+      assertGlobalOrdinals(reader.leaves(), ords, multiValued);
+      // a map built from nothing agrees
+      GlobalOrdinals full = GlobalOrdinals.build("field", multiValued, reader.leaves(), null);
+      assertEquals(full.getValueCount(), ords.getValueCount());
+      assertSame(ords, GlobalOrdinals.build("field", multiValued, reader.leaves(), ords));
+    }
+    reader.close();
+    writer.close();
+    dir.close();
+  }
+
+  private void assertGlobalOrdinals(List<LeafReaderContext> leaves, GlobalOrdinals ords, boolean multiValued)
+      throws Exception {
+    SortedSetDocValues global = ords.getValues(leaves);
+    SortedSetDocValues expected;
+    if (multiValued) {
+      expected = MultiDocValues.getSortedSetValues(leaves.get(0).parent.reader(), "field");
+    } else {
+      SortedDocValues single = MultiDocValues.getSortedValues(leaves.get(0).parent.reader(), "field");
+      expected = single == null ? null : DocValues.singleton(single);
+    }
+    long expectedCount = expected == null ? 0 : expected.getValueCount();
+    assertEquals(expectedCount, ords.getValueCount());
+    for (int ord = 0; ord < ords.getValueCount(); ord++) {
+      assertEquals(expected.lookupOrd(ord), global.lookupOrd(ord));
+    }
+    for (int i = 0; i < leaves.size(); i++) {
+      SortedSetDocValues segment = GlobalOrdinals.getValues(leaves.get(i).reader(), "field", multiValued);
+      LongValues toGlobal = ords.getGlobalOrds(i);
+      for (int ord = 0; ord < segment.getValueCount(); ord++) {
+        assertEquals(segment.lookupOrd(ord), global.lookupOrd(toGlobal.get(ord)));
+      }
+    }
+  }
+}
@@ -102,6 +102,50 @@ public class BlockCacheTest extends LuceneTestCase {
     assertTrue(blockCache.store(blockCacheKey, 1, testData, blockSize*2, blockSize - 1));
   }
 
+  /**
+   * A single pass over many more blocks than fit in the cache should not evict blocks that are read often.
+   */
+  @Test
+  public void testScanResistance() {
+    int blockSize = 1024;
+    int slabSize = blockSize * 1024;
+    Metrics metrics = new Metrics();
+    BlockCache blockCache = new BlockCache(metrics, false, slabSize, slabSize, blockSize);
+    byte[] buffer = new byte[blockSize];
+    BlockCacheKey blockCacheKey = new BlockCacheKey();
+    blockCacheKey.setPath("/");
+
+    int hotBlocks = 256;
+    for (int pass = 0; pass < 10; pass++) {
+      blockCacheKey.setFile(0);
+      for (int block = 0; block < hotBlocks; block++) {
+        blockCacheKey.setBlock(block);
+        if (!blockCache.fetch(blockCacheKey, buffer)) {
+          blockCache.store(blockCacheKey, 0, buffer, 0, blockSize);
+        }
+      }
+    }
+
+    // scan 10 times the size of the cache, once
+    blockCacheKey.setFile(1);
+    for (int block = 0; block < 10 * 1024; block++) {
+      blockCacheKey.setBlock(block);
+      if (!blockCache.fetch(blockCacheKey, buffer)) {
+        blockCache.store(blockCacheKey, 0, buffer, 0, blockSize);
+      }
+    }
+
+    int hits = 0;
+    blockCacheKey.setFile(0);
+    for (int block = 0; block < hotBlocks; block++) {
+      blockCacheKey.setBlock(block);
+      if (blockCache.fetch(blockCacheKey, buffer)) {
+        hits++;
+      }
+    }
+    assertTrue("only " + hits + " of " + hotBlocks + " hot blocks survived the scan", hits > hotBlocks * 3 / 4);
+  }
+
   private static byte[] testData(Random random, int size, byte[] buf) {
     random.nextBytes(buf);
     return buf;
@@ -269,4 +269,45 @@ public class BlockDirectoryTest extends SolrTestCaseJ4 {
     assertTrue(d.useWriteCache("", IOContext.DEFAULT));
     assertFalse(d.useWriteCache("", mergeContext));
   }
+
+  @Test
+  public void testLookupStats() throws IOException {
+    Metrics metrics = new Metrics();
+    Directory fsDir = FSDirectory.open(new File(file, "stats").toPath());
+    BlockDirectory d = new BlockDirectory("test", fsDir, mapperCache, null, true, false, false, false, metrics);
+    try {
+      try (IndexOutput out = d.createOutput("_0.tim", IOContext.DEFAULT)) {
+        out.writeBytes(new byte[100], 100);
+      }
+
+      byte[] buf = new byte[100];
+      for (int i = 0; i < 2; i++) {
+        try (IndexInput in = d.openInput("_0.tim", IOContext.DEFAULT)) {
+          in.readBytes(buf, 0, buf.length);
+        }
+      }
+      Metrics.CacheStats readStats = metrics.getContextStats("DEFAULT");
+      assertEquals(1, readStats.misses.get());
+      assertEquals(1, readStats.hits.get());
+      assertEquals(0, readStats.bypassed.get());
+      Metrics.CacheStats timStats = metrics.getFileTypeStats("tim");
+      assertEquals(1, timStats.misses.get());
+      assertEquals(1, timStats.hits.get());
+
+      // merges and read once opens skip the cache
+      try (IndexInput in = d.openInput("_0.tim", new IOContext(new MergeInfo(1,1,false,1)))) {
+        in.readBytes(buf, 0, buf.length);
+      }
+      try (IndexInput in = d.openInput("_0.tim", IOContext.READONCE)) {
+        in.readBytes(buf, 0, buf.length);
+      }
+      assertEquals(1, metrics.getContextStats("MERGE").bypassed.get());
+      assertEquals(1, metrics.getContextStats("READONCE").bypassed.get());
+      assertEquals(1, timStats.hits.get() + timStats.misses.get() - 1);
+
+      assertEquals(1.0f, metrics.getStatistics().get("context.DEFAULT.hitratio").floatValue(), 0.5f);
+    } finally {
+      d.close();
+    }
+  }
 }
@@ -17,13 +17,16 @@
 package org.apache.solr.update;
 
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
 
 import org.apache.lucene.index.LogDocMergePolicy;
 import org.apache.solr.BaseDistributedSearchTestCase;
@@ -31,15 +34,18 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.cloud.ZkCoreNodeProps;
 import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.SolrCore;
@@ -174,6 +180,7 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     nodes.add(new StdNode(new ZkCoreNodeProps(nodeProps)));
     
     // add another 2 docs to control and 3 to client
+    long forwardedUpdates = updateShardHandler.getForwardedUpdates();
     cmdDistrib = new SolrCmdDistributor(updateShardHandler);
     cmd.solrDoc = sdoc("id", id.incrementAndGet());
     params = new ModifiableSolrParams();
@@ -194,6 +201,7 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     params = new ModifiableSolrParams();
     params.set(DistributedUpdateProcessor.COMMIT_END_POINT, true);
     cmdDistrib.distribAdd(cmd3, Collections.singletonList(nodes.get(1)), params);
+    assertEquals(forwardedUpdates + 5, updateShardHandler.getForwardedUpdates());
     
     params = new ModifiableSolrParams();
     params.set(DistributedUpdateProcessor.COMMIT_END_POINT, true);
@@ -329,6 +337,37 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     testRetryNodeWontRetrySocketError();
     
     testDistribOpenSearcher();
+    testSharedUpdateRequest();
+  }
+
+  private void testSharedUpdateRequest() throws IOException {
+    SolrInputDocument doc = sdoc("id", id.incrementAndGet(), "text", "a shared document");
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(DistributedUpdateProcessor.COMMIT_END_POINT, true);
+
+    UpdateRequest uReq = new UpdateRequest();
+    uReq.setParams(params);
+    uReq.add(doc);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    new BinaryRequestWriter().write(uReq, expected);
+
+    SolrCmdDistributor.SharedUpdateRequest sharedReq = new SolrCmdDistributor.SharedUpdateRequest();
+    sharedReq.setParams(params);
+    sharedReq.add(doc);
+    SolrCmdDistributor.SharedUpdateRequestWriter writer = new SolrCmdDistributor.SharedUpdateRequestWriter();
+    for (int i = 0; i < 3; i++) {
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      writer.write(sharedReq, actual);
+      assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+    // marshalled once
+    assertSame(sharedReq.marshal(), sharedReq.marshal());
+
+    ContentStream stream = writer.getContentStream(sharedReq);
+    assertEquals(writer.getUpdateContentType(), stream.getContentType());
+    try (InputStream in = stream.getStream()) {
+      assertArrayEquals(expected.toByteArray(), IOUtils.toByteArray(in));
+    }
   }
 
   private void testMaxRetries() throws IOException {
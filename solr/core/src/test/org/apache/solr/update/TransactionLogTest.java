@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.solr.common.SolrInputDocument;
+
+public class TransactionLogTest extends LuceneTestCase {
+
+  /** Records how far the log file was synced, and slows syncs down so that callers pile up. */
+  private static class TrackingTransactionLog extends TransactionLog {
+    final AtomicInteger syncs = new AtomicInteger();
+    volatile long syncedLength;
+
+    TrackingTransactionLog(File tlogFile) {
+      super(tlogFile, Collections.emptyList());
+    }
+
+    @Override
+    protected void sync() throws IOException {
+      syncs.incrementAndGet();
+      long length = raf.length();
+      try {
+        Thread.sleep(random().nextInt(5));
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      super.sync();
+      syncedLength = length;
+    }
+  }
+
+  public void testGroupCommit() throws Exception {
+    File tlogFile = new File(createTempDir().toFile(), "tlog.0000000000000000001");
+    TrackingTransactionLog tlog = new TrackingTransactionLog(tlogFile);
+    try {
+      final int numThreads = 2 + random().nextInt(6);
+      final int numDocsPerThread = atLeast(20);
+      final AtomicInteger syncedRequests = new AtomicInteger();
+      final AtomicInteger version = new AtomicInteger();
+      final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        Thread thread = new Thread(() -> {
+          try {
+            start.await();
+            for (int i = 0; i < numDocsPerThread; i++) {
+              SolrInputDocument doc = new SolrInputDocument();
+              doc.addField("id", Thread.currentThread().getName() + "-" + i);
+              AddUpdateCommand cmd = new AddUpdateCommand(null);
+              cmd.solrDoc = doc;
+              cmd.setVersion(version.incrementAndGet());
+              tlog.write(cmd, 0);
+              long position = tlog.position();
+
+              if (tlog.doFinish(UpdateLog.SyncLevel.FSYNC)) {
+                syncedRequests.incrementAndGet();
+              }
+              // the record of this request must be durable once finish returns
+              assertTrue(tlog.syncedLength >= position);
+            }
+          } catch (Throwable e) {
+            failures.add(e);
+          }
+        });
+        thread.setName("writer" + t);
+        threads.add(thread);
+        thread.start();
+      }
+      start.countDown();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(Collections.emptyList(), failures);
+      assertEquals(tlog.syncs.get(), syncedRequests.get());
+      assertTrue(tlog.syncs.get() <= numThreads * numDocsPerThread);
+
+      // a request whose records are already durable doesn't sync again
+      assertFalse(tlog.doFinish(UpdateLog.SyncLevel.FSYNC));
+      assertEquals(1 + numThreads * numDocsPerThread, tlog.numRecords()); // the header is a record too
+    } finally {
+      tlog.deleteOnClose = true;
+      tlog.decref();
+    }
+  }
+}
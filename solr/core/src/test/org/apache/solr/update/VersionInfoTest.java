@@ -16,15 +16,25 @@
  */
 package org.apache.solr.update;
 
+import java.lang.invoke.MethodHandles;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.util.Hash;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.request.SolrQueryRequest;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class VersionInfoTest extends SolrTestCaseJ4 {
 
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   @Test
   public void testMaxIndexedVersionFromIndex() throws Exception {
     initCore("solrconfig-tlog.xml", "schema-version-indexed.xml");
@@ -127,4 +137,80 @@ public class VersionInfoTest extends SolrTestCaseJ4 {
     bucket = vInfo.bucket(bucketHash);
     assertTrue(bucket.highest == version.longValue());
   }
+
+  /**
+   * Runs the per-document versioning steps of an add (read lock, new clock, bucket update)
+   * from many threads at once, checks that versions stay unique and that every bucket
+   * keeps the highest version assigned to it, and logs the throughput observed.
+   */
+  @Test
+  public void testContendedVersioning() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema-version-indexed.xml");
+    try {
+      final VersionInfo vInfo = h.getCore().getUpdateHandler().getUpdateLog().getVersionInfo();
+      final int numThreads = atLeast(4);
+      final int numOps = atLeast(10000);
+      final int numIds = random().nextBoolean() ? 16 : 4096; // few ids means high contention on the buckets
+      final long[][] versions = new long[numThreads][numOps];
+      final int[][] ids = new int[numThreads][numOps];
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+        final int thread = t;
+        final long seed = random().nextLong();
+        threads[t] = new Thread() {
+          @Override
+          public void run() {
+            Random rand = new Random(seed);
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            for (int i = 0; i < numOps; i++) {
+              int id = rand.nextInt(numIds);
+              VersionBucket bucket = vInfo.bucket(id);
+              vInfo.lockForUpdate();
+              try {
+                long version = vInfo.getNewClock();
+                bucket.updateHighest(version);
+                versions[thread][i] = version;
+                ids[thread][i] = id;
+              } finally {
+                vInfo.unlockForUpdate();
+              }
+            }
+          }
+        };
+        threads[t].start();
+      }
+      long startNanos = System.nanoTime();
+      start.countDown();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      long elapsedNanos = System.nanoTime() - startNanos;
+      log.info("{} threads assigned {} versions over {} ids in {} ms", numThreads, numThreads * numOps, numIds,
+          elapsedNanos / 1000000);
+
+      Set<Long> seen = new HashSet<>();
+      long[] highestById = new long[numIds];
+      for (int t = 0; t < numThreads; t++) {
+        for (int i = 0; i < numOps; i++) {
+          long version = versions[t][i];
+          assertTrue("duplicate version " + version, seen.add(version));
+          if (i > 0) {
+            assertTrue("versions must increase within a thread", version > versions[t][i - 1]);
+          }
+          highestById[ids[t][i]] = Math.max(highestById[ids[t][i]], version);
+        }
+      }
+      for (int id = 0; id < numIds; id++) {
+        long highest = vInfo.bucket(id).highest;
+        assertTrue("bucket lost its highest version", highest >= highestById[id]);
+      }
+    } finally {
+      deleteCore();
+    }
+  }
 }
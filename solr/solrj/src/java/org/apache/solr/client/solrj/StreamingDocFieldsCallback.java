@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * A {@link StreamingResponseCallback} that receives documents field by field rather than
+ * as {@link SolrDocument}s, so that large responses can be consumed without creating any
+ * per-document object when they are parsed with the
+ * {@link org.apache.solr.client.solrj.impl.StreamingBinaryResponseParser}.
+ *
+ * @since solr 7.0
+ */
+public abstract class StreamingDocFieldsCallback extends StreamingResponseCallback {
+
+  /**
+   * Called at the beginning of each document. Child documents are streamed between the
+   * calls to {@link #startDocument()} and {@link #endDocument()} of their parent.
+   */
+  public abstract void startDocument();
+
+  /**
+   * Called for each value of each field of the current document. Values of multi-valued
+   * fields are passed one at a time, in order.
+   */
+  public abstract void streamField(String name, Object value);
+
+  /**
+   * Called at the end of each document.
+   */
+  public abstract void endDocument();
+
+  /**
+   * Streams the fields of a document that has already been parsed, which happens when
+   * responses are not parsed with the
+   * {@link org.apache.solr.client.solrj.impl.StreamingBinaryResponseParser}, for instance
+   * with the embedded server.
+   */
+  @Override
+  public void streamSolrDocument(SolrDocument doc) {
+    startDocument();
+    for (Map.Entry<String, Object> entry : doc) {
+      final Object value = entry.getValue();
+      if (value instanceof Collection) {
+        for (Object v : (Collection<?>) value) {
+          streamField(entry.getKey(), v);
+        }
+      } else {
+        streamField(entry.getKey(), value);
+      }
+    }
+    final List<SolrDocument> children = doc.getChildDocuments();
+    if (children != null) {
+      for (SolrDocument child : children) {
+        streamSolrDocument(child);
+      }
+    }
+    endDocument();
+  }
+}
@@ -457,6 +457,7 @@ public class ConcurrentUpdateSolrClient extends SolrClient {
 
       Update update = new Update(req, collection);
       boolean success = queue.offer(update);
+      long waitStart = success ? -1 : System.nanoTime();
 
       for (;;) {
         synchronized (runners) {
@@ -492,6 +493,9 @@ public class ConcurrentUpdateSolrClient extends SolrClient {
           success = queue.offer(update, 100, TimeUnit.MILLISECONDS);
         }
       }
+      if (waitStart != -1) {
+        onQueueFull(System.nanoTime() - waitStart);
+      }
     } catch (InterruptedException e) {
       log.error("interrupted", e);
       throw new IOException(e.getLocalizedMessage());
@@ -541,6 +545,14 @@ public class ConcurrentUpdateSolrClient extends SolrClient {
     log.error("error", ex);
   }
   
+  /**
+   * Intended to be used as an extension point for tracking backpressure: called
+   * after a request had to wait for room in the queue, because requests were
+   * added faster than they could be sent, with the time it waited in nanoseconds.
+   */
+  public void onQueueFull(long waitNanos) {
+  }
+
   /**
    * Intended to be used as an extension point for doing post processing after a request completes.
    */
@@ -329,6 +329,15 @@ public class HttpClientUtil {
   public static void clearRequestInterceptors() {
     interceptors.clear();
   }
+
+  /**
+   * Returns an interceptor that applies the interceptors registered with
+   * {@link #addRequestInterceptor(HttpRequestInterceptor)}, for http clients
+   * that are not created by this class.
+   */
+  public static HttpRequestInterceptor getDynamicInterceptor() {
+    return new DynamicInterceptor();
+  }
   
   private static class UseCompressionRequestInterceptor implements
       HttpRequestInterceptor {
@@ -487,7 +487,22 @@ public class HttpSolrClient extends SolrClient {
 
   }
   
-  protected NamedList<Object> executeMethod(HttpRequestBase method, final ResponseParser processor) throws SolrServerException {
+  /**
+   * Creates the http request for the given {@link SolrRequest}, configured like
+   * the requests that this client executes, so that it can be executed by
+   * another client, for instance an asynchronous one. The response must then be
+   * handed to {@link #processResponse(HttpRequestBase, HttpResponse, ResponseParser)}.
+   *
+   * @lucene.experimental
+   */
+  public HttpRequestBase createRequest(final SolrRequest request, String collection) throws IOException, SolrServerException {
+    HttpRequestBase method = createMethod(request, collection);
+    setBasicAuthHeader(request, method);
+    prepareMethod(method);
+    return method;
+  }
+
+  private void prepareMethod(HttpRequestBase method) {
     method.addHeader("User-Agent", AGENT);
  
     org.apache.http.client.config.RequestConfig.Builder requestConfigBuilder = HttpClientUtil.createDefaultRequestConfigBuilder();
@@ -502,13 +517,40 @@ public class HttpSolrClient extends SolrClient {
     }
 
     method.setConfig(requestConfigBuilder.build());
-    
+  }
+
+  protected NamedList<Object> executeMethod(HttpRequestBase method, final ResponseParser processor) throws SolrServerException {
+    prepareMethod(method);
+    try {
+      // Execute the method.
+      final HttpResponse response = httpClient.execute(method, HttpClientUtil.createNewHttpClientRequestContext());
+      return processResponse(method, response, processor);
+    } catch (ConnectException e) {
+      throw new SolrServerException("Server refused connection at: "
+          + getBaseURL(), e);
+    } catch (SocketTimeoutException e) {
+      throw new SolrServerException(
+          "Timeout occured while waiting response from server at: "
+              + getBaseURL(), e);
+    } catch (IOException e) {
+      throw new SolrServerException(
+          "IOException occured when talking to server at: " + getBaseURL(), e);
+    }
+  }
+
+  /**
+   * Parses the response to a request that was created by
+   * {@link #createRequest(SolrRequest, String)}, translating error statuses
+   * into exceptions like {@link #request(SolrRequest, ResponseParser)} does.
+   *
+   * @lucene.experimental
+   */
+  public NamedList<Object> processResponse(HttpRequestBase method, HttpResponse response, final ResponseParser processor)
+      throws SolrServerException, IOException {
     HttpEntity entity = null;
     InputStream respBody = null;
     boolean shouldClose = true;
     try {
-      // Execute the method.
-      final HttpResponse response = httpClient.execute(method, HttpClientUtil.createNewHttpClientRequestContext());
       int httpStatus = response.getStatusLine().getStatusCode();
       
       // Read the contents
@@ -608,16 +650,6 @@ public class HttpSolrClient extends SolrClient {
         throw rss;
       }
       return rsp;
-    } catch (ConnectException e) {
-      throw new SolrServerException("Server refused connection at: "
-          + getBaseURL(), e);
-    } catch (SocketTimeoutException e) {
-      throw new SolrServerException(
-          "Timeout occured while waiting response from server at: "
-              + getBaseURL(), e);
-    } catch (IOException e) {
-      throw new SolrServerException(
-          "IOException occured when talking to server at: " + getBaseURL(), e);
     } finally {
       if (shouldClose) {
         Utils.consumeFully(entity);
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
+import org.apache.solr.client.solrj.StreamingDocFieldsCallback;
 import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -31,7 +32,9 @@ import org.apache.solr.common.util.NamedList;
 /**
  * A BinaryResponseParser that sends callback events rather then build
  * a large response 
- * 
+ * <p>
+ * If the callback is a {@link StreamingDocFieldsCallback}, documents are
+ * passed to it field by field and are never materialized as {@link SolrDocument}s.
  *
  * @since solr 4.0
  */
@@ -50,11 +53,44 @@ public class StreamingBinaryResponseParser extends BinaryResponseParser {
 
         @Override
         public SolrDocument readSolrDocument(DataInputInputStream dis) throws IOException {
+          if (callback instanceof StreamingDocFieldsCallback) {
+            streamDocFields(dis, (StreamingDocFieldsCallback) callback);
+            return null;
+          }
           SolrDocument doc = super.readSolrDocument(dis);
           callback.streamSolrDocument( doc );
           return null;
         }
 
+        /**
+         * Same as {@link #readSolrDocument(DataInputInputStream)}, but passes values to
+         * the callback as soon as they are read instead of collecting them.
+         */
+        private void streamDocFields(DataInputInputStream dis, StreamingDocFieldsCallback fieldsCallback) throws IOException {
+          tagByte = dis.readByte();
+          int size = readSize(dis);
+          fieldsCallback.startDocument();
+          for (int i = 0; i < size; i++) {
+            Object obj = readVal(dis); // could be a field name, or a child document
+            if (obj == null) {
+              // a child document, which has already been streamed
+              continue;
+            }
+            String fieldName = (String) obj;
+            tagByte = dis.readByte();
+            if ((tagByte >>> 5) == (ARR >>> 5)) {
+              // values of a multi-valued field
+              int sz = readSize(dis);
+              for (int j = 0; j < sz; j++) {
+                fieldsCallback.streamField(fieldName, readVal(dis));
+              }
+            } else {
+              fieldsCallback.streamField(fieldName, readObject(dis));
+            }
+          }
+          fieldsCallback.endDocument();
+        }
+
         @Override
         public SolrDocumentList readSolrDocumentList(DataInputInputStream dis) throws IOException {
           SolrDocumentList solrDocs = new SolrDocumentList();
@@ -142,6 +142,11 @@ public class JavaBinCodec {
     daos = os;
   }
 
+  /** expert: returns the stream that this codec writes to, in order to append pre-encoded values */
+  public FastOutputStream getOutputStream() {
+    return daos;
+  }
+
   byte version;
 
   public Object unmarshal(InputStream is) throws IOException {
@@ -219,7 +224,13 @@ public class JavaBinCodec {
 
   public Object readVal(DataInputInputStream dis) throws IOException {
     tagByte = dis.readByte();
+    return readObject(dis);
+  }
 
+  /**
+   * Read the value whose tag has already been read into {@link #tagByte}.
+   */
+  protected Object readObject(DataInputInputStream dis) throws IOException {
     // if ((tagByte & 0xe0) == 0) {
     // if top 3 bits are clear, this is a normal tag
 
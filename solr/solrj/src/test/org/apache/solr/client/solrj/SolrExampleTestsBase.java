@@ -255,6 +255,65 @@ abstract public class SolrExampleTestsBase extends SolrJettyTestBase {
     assertEquals(10, cnt.get());
   }
   
+  @Test
+  public void testStreamingDocFields() throws Exception {
+    SolrClient client = getSolrClient();
+    // Empty the database...
+    client.deleteByQuery("*:*");// delete everything!
+    client.commit();
+    assertNumFound("*:*", 0); // make sure it got in
+
+    // Add some docs to the index
+    UpdateRequest req = new UpdateRequest();
+    for (int i = 0; i < 10; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", "" + i);
+      doc.addField("cat", "foocat");
+      doc.addField("cat", "barcat" + i);
+      req.add(doc);
+    }
+    req.setAction(ACTION.COMMIT, true, true);
+    req.process(client);
+
+    SolrQuery query = new SolrQuery("*:*");
+    query.set(CommonParams.FL, "id,cat");
+    final List<String> ids = new ArrayList<>();
+    final AtomicInteger numCats = new AtomicInteger(0);
+    client.queryAndStreamResponse(query, new StreamingDocFieldsCallback() {
+      int depth = 0;
+
+      @Override
+      public void streamDocListInfo(long numFound, long start, Float maxScore) {
+        assertEquals(10, numFound);
+      }
+
+      @Override
+      public void startDocument() {
+        assertEquals(0, depth++);
+      }
+
+      @Override
+      public void streamField(String name, Object value) {
+        assertEquals(1, depth);
+        // the embedded server passes stored fields as-is, hence the use of toString() and contains()
+        if ("id".equals(name)) {
+          ids.add(value.toString());
+        } else {
+          assertEquals("cat", name);
+          assertTrue(value.toString(), value.toString().contains("foocat") || value.toString().contains("barcat"));
+          numCats.incrementAndGet();
+        }
+      }
+
+      @Override
+      public void endDocument() {
+        assertEquals(0, --depth);
+      }
+    });
+    assertEquals(10, ids.size());
+    assertEquals(20, numCats.get());
+  }
+
   protected QueryResponse assertNumFound(String query, int num)
       throws SolrServerException, IOException {
     QueryResponse rsp = getSolrClient().query(new SolrQuery(query));